@@ -40,6 +40,19 @@ import loon.utils.timer.LTimerContext;
 
 public class Display extends LSystemView {
 
+	/**
+	 * 帧阶段监听器,依次通知每帧update与paint阶段的开始以及paint阶段的结束,用于分阶段统计帧耗时
+	 */
+	public static interface FrameListener {
+
+		void onUpdate();
+
+		void onPaint();
+
+		void onPaintEnd();
+
+	}
+
 	private final static String FPS_STR = "FPS:";
 
 	private final static String MEMORY_STR = "MEMORY:";
@@ -134,6 +147,7 @@ public class Display extends LSystemView {
 		public void onEmit(LTimerContext clock) {
 			synchronized (clock) {
 				if (!LSystem.PAUSED) {
+					_display.notifyUpdate();
 					RealtimeProcessManager.get().tick(clock);
 					_display.draw(clock);
 				}
@@ -154,6 +168,7 @@ public class Display extends LSystemView {
 		public void onEmit(LTimerContext clock) {
 			synchronized (clock) {
 				if (!LSystem.PAUSED) {
+					_display.notifyUpdate();
 					RealtimeProcessManager.get().tick(clock);
 					ActionControl.get().call(clock.timeSinceLastUpdate);
 					_display.draw(clock);
@@ -172,6 +187,7 @@ public class Display extends LSystemView {
 		public void onEmit(LTimerContext clock) {
 			synchronized (clock) {
 				if (!LSystem.PAUSED) {
+					notifyUpdate();
 					ActionControl.get().call(clock.timeSinceLastUpdate);
 				}
 			}
@@ -266,6 +282,8 @@ public class Display extends LSystemView {
 
 	private UpdatePort updatePort;
 
+	private FrameListener frameListener;
+
 	protected void newDefView(boolean show) {
 		if (show && (fpsFont == null || (fpsFont != LSystem.getSystemLogFont()))) {
 			this.fpsFont = LSystem.getSystemLogFont();
@@ -358,6 +376,7 @@ public class Display extends LSystemView {
 		}
 
 		if (showLogo) {
+			notifyPaint();
 			try {
 				_glEx.save();
 				_glEx.begin();
@@ -378,6 +397,7 @@ public class Display extends LSystemView {
 				if (!showLogo) {
 					_process.start();
 				}
+				notifyPaintEnd();
 			}
 			return;
 		}
@@ -392,6 +412,7 @@ public class Display extends LSystemView {
 
 			_process.load();
 			_process.runTimer(clock);
+			notifyPaint();
 			_process.draw(_glEx);
 
 			// 渲染debug信息
@@ -428,10 +449,44 @@ public class Display extends LSystemView {
 			_glEx.end();
 			_glEx.restoreTx();
 			_process.resetTouch();
+			notifyPaintEnd();
 		}
 
 	}
 
+	/**
+	 * 设定帧阶段监听器(为null时不做任何通知)
+	 * 
+	 * @param listener
+	 * @return
+	 */
+	public Display setFrameListener(FrameListener listener) {
+		this.frameListener = listener;
+		return this;
+	}
+
+	public FrameListener getFrameListener() {
+		return frameListener;
+	}
+
+	private void notifyUpdate() {
+		if (frameListener != null) {
+			frameListener.onUpdate();
+		}
+	}
+
+	private void notifyPaint() {
+		if (frameListener != null) {
+			frameListener.onPaint();
+		}
+	}
+
+	private void notifyPaintEnd() {
+		if (frameListener != null) {
+			frameListener.onPaintEnd();
+		}
+	}
+
 	public Display resize(int viewWidth, int viewHeight) {
 		_process.resize(viewWidth, viewHeight);
 		return this;
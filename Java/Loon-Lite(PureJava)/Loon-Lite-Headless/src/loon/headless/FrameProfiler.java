@@ -0,0 +1,321 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.headless;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+import loon.Display;
+import loon.LSystem;
+
+/**
+ * 逐帧记录update,paint与present三个阶段耗时的分析器,结果可以导出为JSON或CSV.
+ * 
+ * 每帧由beginFrame开始,阶段的切换由Display的帧阶段通知驱动,paint结束到endFrame之间的时间都计入present,
+ * 第一次update通知之前的帧内时间(如invokeLater任务的执行)计入update.
+ */
+public class FrameProfiler implements Display.FrameListener {
+
+	public final static int UPDATE = 0;
+
+	public final static int PAINT = 1;
+
+	public final static int PRESENT = 2;
+
+	public final static int TOTAL = 3;
+
+	private final static String[] PHASE_NAMES = { "update", "paint", "present", "total" };
+
+	private final long[] current = new long[3];
+
+	private long[][] samples = new long[4][];
+
+	private int[] ticks;
+
+	private int count;
+
+	private int phase = -1;
+
+	private long mark;
+
+	private int frameTick;
+
+	private int warmupFrames;
+
+	private int skipped;
+
+	private float stepTime;
+
+	public FrameProfiler() {
+		this(256);
+	}
+
+	public FrameProfiler(int capacity) {
+		capacity = capacity < 1 ? 1 : capacity;
+		for (int i = 0; i < samples.length; i++) {
+			samples[i] = new long[capacity];
+		}
+		ticks = new int[capacity];
+	}
+
+	/**
+	 * 设定开始记录前需要跳过的帧数(用于排除类加载与JIT预热)
+	 * 
+	 * @param frames
+	 * @return
+	 */
+	public FrameProfiler setWarmupFrames(int frames) {
+		this.warmupFrames = frames;
+		return this;
+	}
+
+	public int getWarmupFrames() {
+		return warmupFrames;
+	}
+
+	/**
+	 * 设定固定步长(毫秒),只用于导出时记录
+	 * 
+	 * @param step
+	 * @return
+	 */
+	public FrameProfiler setStepTime(float step) {
+		this.stepTime = step;
+		return this;
+	}
+
+	public float getStepTime() {
+		return stepTime;
+	}
+
+	public void beginFrame(int tick) {
+		current[UPDATE] = current[PAINT] = current[PRESENT] = 0;
+		frameTick = tick;
+		phase = UPDATE;
+		mark = System.nanoTime();
+	}
+
+	@Override
+	public void onUpdate() {
+		switchPhase(UPDATE);
+	}
+
+	@Override
+	public void onPaint() {
+		switchPhase(PAINT);
+	}
+
+	@Override
+	public void onPaintEnd() {
+		switchPhase(PRESENT);
+	}
+
+	public void endFrame() {
+		if (phase == -1) {
+			return;
+		}
+		switchPhase(-1);
+		if (skipped < warmupFrames) {
+			skipped++;
+			return;
+		}
+		if (count == ticks.length) {
+			final int capacity = count * 2;
+			for (int i = 0; i < samples.length; i++) {
+				samples[i] = Arrays.copyOf(samples[i], capacity);
+			}
+			ticks = Arrays.copyOf(ticks, capacity);
+		}
+		samples[UPDATE][count] = current[UPDATE];
+		samples[PAINT][count] = current[PAINT];
+		samples[PRESENT][count] = current[PRESENT];
+		samples[TOTAL][count] = current[UPDATE] + current[PAINT] + current[PRESENT];
+		ticks[count] = frameTick;
+		count++;
+	}
+
+	private void switchPhase(int next) {
+		if (phase == -1) {
+			return;
+		}
+		final long now = System.nanoTime();
+		current[phase] += now - mark;
+		mark = now;
+		phase = next;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * 返回指定帧某个阶段的耗时(纳秒)
+	 * 
+	 * @param frame
+	 * @param phase
+	 * @return
+	 */
+	public long getNanos(int frame, int phase) {
+		return samples[phase][frame];
+	}
+
+	public float getAverage(int phase) {
+		if (count == 0) {
+			return 0f;
+		}
+		long sum = 0;
+		final long[] values = samples[phase];
+		for (int i = 0; i < count; i++) {
+			sum += values[i];
+		}
+		return toMillis(sum) / count;
+	}
+
+	public float getMax(int phase) {
+		long max = 0;
+		final long[] values = samples[phase];
+		for (int i = 0; i < count; i++) {
+			max = values[i] > max ? values[i] : max;
+		}
+		return toMillis(max);
+	}
+
+	/**
+	 * 返回指定阶段的百分位耗时(毫秒,最近秩方法)
+	 * 
+	 * @param phase
+	 * @param percent
+	 *            0到100
+	 * @return
+	 */
+	public float getPercentile(int phase, float percent) {
+		if (count == 0) {
+			return 0f;
+		}
+		final long[] sorted = Arrays.copyOf(samples[phase], count);
+		Arrays.sort(sorted);
+		int rank = (int) Math.ceil(percent / 100f * count) - 1;
+		rank = rank < 0 ? 0 : (rank >= count ? count - 1 : rank);
+		return toMillis(sorted[rank]);
+	}
+
+	public void reset() {
+		count = 0;
+		skipped = 0;
+		phase = -1;
+	}
+
+	private static float toMillis(long nanos) {
+		return nanos / 1000000f;
+	}
+
+	private static String format(float v) {
+		return String.format(Locale.ROOT, "%.4f", v);
+	}
+
+	public String toCSV() {
+		StringBuilder sbr = new StringBuilder(64 + count * 48);
+		sbr.append("frame,tick,update_ms,paint_ms,present_ms,total_ms");
+		sbr.append('\n');
+		for (int i = 0; i < count; i++) {
+			sbr.append(i).append(',').append(ticks[i]);
+			for (int p = 0; p < samples.length; p++) {
+				sbr.append(',').append(format(toMillis(samples[p][i])));
+			}
+			sbr.append('\n');
+		}
+		return sbr.toString();
+	}
+
+	public String toJSON() {
+		StringBuilder sbr = new StringBuilder(256 + count * 96);
+		sbr.append('{');
+		sbr.append("\"frames\":").append(count).append(',');
+		sbr.append("\"warmup\":").append(warmupFrames).append(',');
+		sbr.append("\"step_ms\":").append(format(stepTime)).append(',');
+		sbr.append("\"summary\":{");
+		for (int p = 0; p < PHASE_NAMES.length; p++) {
+			if (p > 0) {
+				sbr.append(',');
+			}
+			sbr.append('"').append(PHASE_NAMES[p]).append("\":{");
+			sbr.append("\"avg\":").append(format(getAverage(p))).append(',');
+			sbr.append("\"p50\":").append(format(getPercentile(p, 50))).append(',');
+			sbr.append("\"p95\":").append(format(getPercentile(p, 95))).append(',');
+			sbr.append("\"p99\":").append(format(getPercentile(p, 99))).append(',');
+			sbr.append("\"max\":").append(format(getMax(p)));
+			sbr.append('}');
+		}
+		sbr.append("},");
+		sbr.append("\"samples\":[");
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				sbr.append(',');
+			}
+			sbr.append("{\"frame\":").append(i).append(",\"tick\":").append(ticks[i]);
+			for (int p = 0; p < PHASE_NAMES.length; p++) {
+				sbr.append(",\"").append(PHASE_NAMES[p]).append("\":").append(format(toMillis(samples[p][i])));
+			}
+			sbr.append('}');
+		}
+		sbr.append("]}");
+		return sbr.toString();
+	}
+
+	public void writeCSV(File file) throws IOException {
+		write(file, toCSV());
+	}
+
+	public void writeJSON(File file) throws IOException {
+		write(file, toJSON());
+	}
+
+	private static void write(File file, String text) throws IOException {
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null && !parent.exists()) {
+			parent.mkdirs();
+		}
+		Writer out = new OutputStreamWriter(new FileOutputStream(file), LSystem.ENCODING);
+		try {
+			out.write(text);
+		} finally {
+			out.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sbr = new StringBuilder();
+		sbr.append("FrameProfiler[frames=").append(count);
+		for (int p = 0; p < PHASE_NAMES.length; p++) {
+			sbr.append(", ").append(PHASE_NAMES[p]).append("(avg=").append(format(getAverage(p))).append(",p95=")
+					.append(format(getPercentile(p, 95))).append(')');
+		}
+		sbr.append(']');
+		return sbr.toString();
+	}
+
+}
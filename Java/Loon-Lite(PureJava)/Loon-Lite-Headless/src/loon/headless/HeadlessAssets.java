@@ -0,0 +1,166 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.headless;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+import loon.Assets;
+import loon.LSystem;
+import loon.Sound;
+import loon.canvas.ImageImpl;
+import loon.canvas.Pixmap;
+import loon.utils.Scale;
+import loon.utils.StringUtils;
+
+/**
+ * 无界面模式的资源读取,依次查找文件系统,附加目录与classpath,图片使用ImageIO解码为Pixmap,声音全部静音
+ */
+public class HeadlessAssets extends Assets {
+
+	private final static String DEF_RES = "assets/";
+
+	static ClassLoader classLoader;
+
+	static {
+		try {
+			classLoader = HeadlessAssets.class.getClassLoader();
+		} catch (Exception e) {
+			classLoader = Thread.currentThread().getContextClassLoader();
+		}
+	}
+
+	private final HeadlessGame game;
+
+	private File[] directories = {};
+
+	public HeadlessAssets(HeadlessGame game) {
+		super(game.asyn());
+		this.game = game;
+		HeadlessAssets.pathPrefix = DEF_RES;
+	}
+
+	public void addDirectory(File dir) {
+		File[] ndirs = new File[directories.length + 1];
+		System.arraycopy(directories, 0, ndirs, 0, directories.length);
+		ndirs[ndirs.length - 1] = dir;
+		directories = ndirs;
+	}
+
+	@Override
+	public Sound getSound(String path) {
+		return new Sound.Silence();
+	}
+
+	@Override
+	public Sound getMusic(String path) {
+		return new Sound.Silence();
+	}
+
+	@Override
+	public String getTextSync(String path) throws Exception {
+		return new String(getBytesSync(path), LSystem.ENCODING);
+	}
+
+	@Override
+	public byte[] getBytesSync(String path) throws Exception {
+		return toByteArray(openStream(path));
+	}
+
+	protected InputStream openStream(String path) throws IOException {
+		if (StringUtils.isEmpty(path)) {
+			throw new FileNotFoundException(path);
+		}
+		File file = new File(path);
+		if (file.exists()) {
+			return new FileInputStream(file);
+		}
+		final String searchPath = getPath(path);
+		file = new File(searchPath);
+		if (file.exists()) {
+			return new FileInputStream(file);
+		}
+		for (File dir : directories) {
+			File f = new File(dir, path);
+			if (f.exists()) {
+				return new FileInputStream(f);
+			}
+		}
+		InputStream in = classLoader.getResourceAsStream(searchPath);
+		if (in == null) {
+			in = classLoader.getResourceAsStream(path);
+		}
+		if (in == null) {
+			throw new FileNotFoundException(path);
+		}
+		return in;
+	}
+
+	static byte[] toByteArray(InputStream in) throws IOException {
+		try {
+			byte[] buffer = new byte[512];
+			int size = 0, read = 0;
+			while ((read = in.read(buffer, size, buffer.length - size)) > 0) {
+				size += read;
+				if (size == buffer.length) {
+					buffer = Arrays.copyOf(buffer, size * 2);
+				}
+			}
+			if (size < buffer.length) {
+				buffer = Arrays.copyOf(buffer, size);
+			}
+			return buffer;
+		} finally {
+			in.close();
+		}
+	}
+
+	@Override
+	protected ImageImpl.Data load(String path) throws Exception {
+		if (path == null || "<canvas>".equals(path)) {
+			return null;
+		}
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(getBytesSync(path)));
+		if (image == null) {
+			game.log().warn("Could not decode image: " + path);
+			throw new IOException("Could not decode image: " + path);
+		}
+		final int width = image.getWidth();
+		final int height = image.getHeight();
+		int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+		Pixmap pixmap = new Pixmap(pixels, width, height, image.getColorModel().hasAlpha());
+		return new ImageImpl.Data(Scale.ONE, pixmap, width, height);
+	}
+
+	@Override
+	protected ImageImpl createImage(boolean async, int rwid, int rhei, String source) {
+		return new HeadlessImage(game, async, rwid, rhei, source);
+	}
+
+}
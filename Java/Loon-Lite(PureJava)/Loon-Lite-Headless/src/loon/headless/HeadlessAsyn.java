@@ -0,0 +1,45 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.headless;
+
+import loon.Asyn;
+import loon.Log;
+import loon.utils.reply.Act;
+
+/**
+ * 无界面模式下没有独立的ui线程,异步任务也放到下一帧的主循环中执行,以保证每次运行的结果一致
+ */
+public class HeadlessAsyn extends Asyn.Default {
+
+	public HeadlessAsyn(Log log, Act<? extends Object> frame) {
+		super(log, frame);
+	}
+
+	@Override
+	public boolean isAsyncSupported() {
+		return true;
+	}
+
+	@Override
+	public void invokeAsync(Runnable action) {
+		invokeLater(action);
+	}
+}
@@ -0,0 +1,944 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.headless;
+
+import loon.Graphics;
+import loon.canvas.Canvas;
+import loon.canvas.Gradient;
+import loon.canvas.Gradient.Config;
+import loon.canvas.Image;
+import loon.canvas.LColor;
+import loon.canvas.Path;
+import loon.canvas.Pixmap;
+import loon.font.LFont;
+import loon.font.TextLayout;
+import loon.utils.MathUtils;
+import loon.utils.TArray;
+
+/**
+ * 直接在Pixmap像素数组上进行软件光栅化的画布,不依赖任何显示设备.
+ * 
+ * 图形以像素中心采样并且不做抗锯齿,纹理使用最近点采样,同样的绘制指令总会得到完全相同的像素结果.
+ */
+public class HeadlessCanvas extends Canvas {
+
+	private static final float HALF_PI = MathUtils.PI / 2f;
+
+	private final HeadlessImage headlessImage;
+
+	private final Pixmap pixmap;
+
+	private final int pixelWidth, pixelHeight;
+
+	private final TArray<HeadlessCanvasState> stack = new TArray<HeadlessCanvasState>();
+
+	private final TArray<HeadlessCanvasState> pool = new TArray<HeadlessCanvasState>();
+
+	private HeadlessCanvasState state;
+
+	private final HeadlessPath tmpPath = new HeadlessPath();
+
+	// 扫描线用的边缘数据(x0,y0,x1,y1)与方向
+	private float[] edges = new float[64];
+
+	private int[] edgeDirs = new int[16];
+
+	private int edgeCount;
+
+	private float[] crossX = new float[16];
+
+	private int[] crossDir = new int[16];
+
+	private final float[] quad = new float[8];
+
+	protected HeadlessCanvas(Graphics gfx, HeadlessImage image) {
+		super(gfx, image);
+		this.headlessImage = image;
+		this.pixmap = image.pixmap();
+		this.pixelWidth = pixmap.getWidth();
+		this.pixelHeight = pixmap.getHeight();
+		this.state = new HeadlessCanvasState(pixelWidth, pixelHeight);
+		final float factor = image.scale().factor;
+		if (factor != 1f) {
+			state.transform(factor, 0, 0, factor, 0, 0);
+		}
+		this.isDirty = false;
+	}
+
+	public Pixmap pixmap() {
+		return pixmap;
+	}
+
+	protected HeadlessImage headlessImage() {
+		return headlessImage;
+	}
+
+	@Override
+	public Image snapshot() {
+		isDirty = false;
+		return headlessImage;
+	}
+
+	@Override
+	public Canvas save() {
+		HeadlessCanvasState saved = pool.size > 0 ? pool.pop() : new HeadlessCanvasState(pixelWidth, pixelHeight);
+		stack.add(saved.set(state));
+		return this;
+	}
+
+	@Override
+	public Canvas restore() {
+		if (stack.size > 0) {
+			HeadlessCanvasState saved = stack.pop();
+			state.set(saved);
+			pool.add(saved);
+		}
+		return this;
+	}
+
+	@Override
+	public Canvas clear() {
+		return clear(0xFF000000);
+	}
+
+	@Override
+	public Canvas clear(LColor color) {
+		return clear(color.getARGB());
+	}
+
+	private Canvas clear(int argb) {
+		final int[] pixels = pixmap.getData();
+		for (int i = 0, size = pixelWidth * pixelHeight; i < size; i++) {
+			pixels[i] = argb;
+		}
+		isDirty = true;
+		return this;
+	}
+
+	@Override
+	public Canvas clearRect(float x, float y, float width, float height) {
+		setQuad(x, y, width, height);
+		final int left = MathUtils.max(state.clipLeft, MathUtils.ifloor(min(quad, 0)));
+		final int top = MathUtils.max(state.clipTop, MathUtils.ifloor(min(quad, 1)));
+		final int right = MathUtils.min(state.clipRight, MathUtils.iceil(max(quad, 0)));
+		final int bottom = MathUtils.min(state.clipBottom, MathUtils.iceil(max(quad, 1)));
+		final int[] pixels = pixmap.getData();
+		for (int py = top; py < bottom; py++) {
+			final int row = py * pixelWidth;
+			for (int px = left; px < right; px++) {
+				pixels[row + px] = 0;
+			}
+		}
+		isDirty = true;
+		return this;
+	}
+
+	@Override
+	public Canvas clip(Path clipPath) {
+		HeadlessPath path = (HeadlessPath) clipPath;
+		if (path.count < 2) {
+			return this;
+		}
+		float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+		for (int i = 0; i < path.count; i += 2) {
+			final float dx = state.deviceX(path.points[i], path.points[i + 1]);
+			final float dy = state.deviceY(path.points[i], path.points[i + 1]);
+			minX = dx < minX ? dx : minX;
+			minY = dy < minY ? dy : minY;
+			maxX = dx > maxX ? dx : maxX;
+			maxY = dy > maxY ? dy : maxY;
+		}
+		clipDevice(minX, minY, maxX, maxY);
+		return this;
+	}
+
+	@Override
+	public Canvas clipRect(float x, float y, float width, float height) {
+		setQuad(x, y, width, height);
+		clipDevice(min(quad, 0), min(quad, 1), max(quad, 0), max(quad, 1));
+		return this;
+	}
+
+	/**
+	 * 裁剪区域只保存为屏幕坐标下的矩形,旋转后的裁剪按外接矩形处理
+	 */
+	private void clipDevice(float minX, float minY, float maxX, float maxY) {
+		state.clipLeft = MathUtils.max(state.clipLeft, MathUtils.round(minX));
+		state.clipTop = MathUtils.max(state.clipTop, MathUtils.round(minY));
+		state.clipRight = MathUtils.max(state.clipLeft, MathUtils.min(state.clipRight, MathUtils.round(maxX)));
+		state.clipBottom = MathUtils.max(state.clipTop, MathUtils.min(state.clipBottom, MathUtils.round(maxY)));
+	}
+
+	@Override
+	public Path createPath() {
+		return new HeadlessPath();
+	}
+
+	@Override
+	public Gradient createGradient(Config config) {
+		return HeadlessGradient.create(config);
+	}
+
+	@Override
+	public Canvas drawLine(float x0, float y0, float x1, float y1) {
+		strokeSegment(state.deviceX(x0, y0), state.deviceY(x0, y0), state.deviceX(x1, y1), state.deviceY(x1, y1));
+		isDirty = true;
+		return this;
+	}
+
+	@Override
+	public Canvas drawPoint(float x, float y) {
+		final int px = MathUtils.ifloor(state.deviceX(x, y));
+		final int py = MathUtils.ifloor(state.deviceY(x, y));
+		if (px >= state.clipLeft && px < state.clipRight && py >= state.clipTop && py < state.clipBottom) {
+			plot(py * pixelWidth + px, applyAlpha(state.strokeColor));
+		}
+		isDirty = true;
+		return this;
+	}
+
+	@Override
+	public Canvas drawText(String text, float x, float y) {
+		if (_font == null) {
+			_font = LFont.getDefaultFont();
+		}
+		return fillText(_font.getLayoutText(text), x, y);
+	}
+
+	@Override
+	public Canvas drawText(String text, float x, float y, LColor color) {
+		final int tmp = state.fillColor;
+		state.fillColor = color.getARGB();
+		drawText(text, x, y);
+		state.fillColor = tmp;
+		return this;
+	}
+
+	@Override
+	public Canvas fillCircle(float x, float y, float radius) {
+		tmpPath.reset();
+		addCircle(tmpPath, x, y, radius);
+		return fillPath(tmpPath);
+	}
+
+	@Override
+	public Canvas fillPath(Path path) {
+		HeadlessPath p = (HeadlessPath) path;
+		edgeCount = 0;
+		for (int i = 0; i < p.subpaths; i++) {
+			addEdges(p.points, p.starts[i], p.end(i), true);
+		}
+		fillEdges(state.fillColor);
+		isDirty = true;
+		return this;
+	}
+
+	@Override
+	public Canvas fillRect(float x, float y, float width, float height) {
+		return fillRect(x, y, width, height, state.fillColor);
+	}
+
+	@Override
+	public Canvas fillRect(float x, float y, float width, float height, LColor c) {
+		return fillRect(x, y, width, height, c.getARGB());
+	}
+
+	private Canvas fillRect(float x, float y, float width, float height, int color) {
+		setQuad(x, y, width, height);
+		edgeCount = 0;
+		addEdges(quad, 0, 8, true);
+		fillEdges(color);
+		isDirty = true;
+		return this;
+	}
+
+	@Override
+	public Canvas fillRoundRect(float x, float y, float width, float height, float radius) {
+		tmpPath.reset();
+		addRoundRect(tmpPath, x, y, width, height, radius);
+		return fillPath(tmpPath);
+	}
+
+	/**
+	 * 无界面模式不加载系统字体,文字只参与排版计算,不产生像素
+	 */
+	@Override
+	public Canvas fillText(TextLayout text, float x, float y) {
+		isDirty = true;
+		return this;
+	}
+
+	@Override
+	public Canvas rotate(float radians) {
+		final float cos = (float) Math.cos(radians);
+		final float sin = (float) Math.sin(radians);
+		state.transform(cos, sin, -sin, cos, 0, 0);
+		return this;
+	}
+
+	@Override
+	public Canvas scale(float x, float y) {
+		state.transform(x, 0, 0, y, 0, 0);
+		return this;
+	}
+
+	@Override
+	public Canvas setAlpha(float alpha) {
+		state.alpha = MathUtils.clamp(alpha, 0f, 1f);
+		return this;
+	}
+
+	@Override
+	public Canvas setCompositeOperation(Composite composite) {
+		state.composite = composite;
+		return this;
+	}
+
+	@Override
+	public Canvas setFillColor(LColor color) {
+		state.fillColor = color.getARGB();
+		state.gradient = null;
+		return this;
+	}
+
+	@Override
+	public Canvas setFillColor(int color) {
+		state.fillColor = color;
+		state.gradient = null;
+		return this;
+	}
+
+	@Override
+	public Canvas setColor(LColor color) {
+		if (color == null) {
+			return this;
+		}
+		state.fillColor = state.strokeColor = color.getARGB();
+		state.gradient = null;
+		return this;
+	}
+
+	@Override
+	public LColor getStroketoLColor() {
+		return new LColor(state.strokeColor);
+	}
+
+	@Override
+	public int getStrokeColor() {
+		return state.strokeColor;
+	}
+
+	@Override
+	public LColor getFilltoLColor() {
+		return new LColor(state.fillColor);
+	}
+
+	@Override
+	public int getFillColor() {
+		return state.fillColor;
+	}
+
+	@Override
+	public Canvas setColor(int r, int g, int b) {
+		return setColor(r, g, b, 255);
+	}
+
+	@Override
+	public Canvas setColor(int r, int g, int b, int a) {
+		state.fillColor = state.strokeColor = LColor.getARGB(r, g, b, a);
+		state.gradient = null;
+		return this;
+	}
+
+	@Override
+	public Canvas setFillGradient(Gradient gradient) {
+		state.gradient = (HeadlessGradient) gradient;
+		return this;
+	}
+
+	@Override
+	public Canvas setLineCap(LineCap cap) {
+		return this;
+	}
+
+	@Override
+	public Canvas setLineJoin(LineJoin join) {
+		return this;
+	}
+
+	@Override
+	public Canvas setMiterLimit(float miter) {
+		return this;
+	}
+
+	@Override
+	public Canvas setStrokeColor(int color) {
+		state.strokeColor = color;
+		return this;
+	}
+
+	@Override
+	public Canvas setStrokeColor(LColor color) {
+		state.strokeColor = color.getARGB();
+		return this;
+	}
+
+	@Override
+	public Canvas setStrokeWidth(float strokeWidth) {
+		state.strokeWidth = strokeWidth;
+		return this;
+	}
+
+	@Override
+	public Canvas strokeCircle(float x, float y, float radius) {
+		tmpPath.reset();
+		addCircle(tmpPath, x, y, radius);
+		return strokePath(tmpPath);
+	}
+
+	@Override
+	public Canvas strokePath(Path path) {
+		HeadlessPath p = (HeadlessPath) path;
+		final float[] pts = p.points;
+		for (int i = 0; i < p.subpaths; i++) {
+			final int end = p.end(i);
+			for (int j = p.starts[i]; j + 3 < end; j += 2) {
+				strokeSegment(state.deviceX(pts[j], pts[j + 1]), state.deviceY(pts[j], pts[j + 1]),
+						state.deviceX(pts[j + 2], pts[j + 3]), state.deviceY(pts[j + 2], pts[j + 3]));
+			}
+		}
+		isDirty = true;
+		return this;
+	}
+
+	@Override
+	public Canvas strokeRect(float x, float y, float width, float height) {
+		setQuad(x, y, width, height);
+		final float[] q = quad;
+		final float x0 = q[0], y0 = q[1], x1 = q[2], y1 = q[3], x2 = q[4], y2 = q[5], x3 = q[6], y3 = q[7];
+		strokeSegment(x0, y0, x1, y1);
+		strokeSegment(x1, y1, x2, y2);
+		strokeSegment(x2, y2, x3, y3);
+		strokeSegment(x3, y3, x0, y0);
+		isDirty = true;
+		return this;
+	}
+
+	@Override
+	public Canvas strokeRoundRect(float x, float y, float width, float height, float radius) {
+		tmpPath.reset();
+		addRoundRect(tmpPath, x, y, width, height, radius);
+		return strokePath(tmpPath);
+	}
+
+	@Override
+	public Canvas strokeText(TextLayout text, float x, float y) {
+		isDirty = true;
+		return this;
+	}
+
+	@Override
+	public Canvas transform(float m11, float m12, float m21, float m22, float dx, float dy) {
+		state.transform(m11, m12, m21, m22, dx, dy);
+		return this;
+	}
+
+	@Override
+	public Canvas translate(float x, float y) {
+		state.transform(1f, 0, 0, 1f, x, y);
+		return this;
+	}
+
+	@Override
+	protected HeadlessCanvas gc() {
+		return this;
+	}
+
+	/**
+	 * 以当前变换绘制像素数组中的一块区域
+	 */
+	public void drawPixels(int[] src, int srcWidth, int srcHeight, float sx, float sy, float sw, float sh, float dx,
+			float dy, float dw, float dh) {
+		drawPixels(src, srcWidth, srcHeight, sx, sy, sw, sh, dx, dy, dw, dh, 1f, 0, 0, 1f, 0, 0, -1);
+	}
+
+	/**
+	 * 以当前变换与额外的局部变换(m00,m01,m10,m11,tx,ty)绘制像素数组中的一块区域,tint不为-1时与颜色相乘
+	 */
+	public void drawPixels(int[] src, int srcWidth, int srcHeight, float sx, float sy, float sw, float sh, float dx,
+			float dy, float dw, float dh, float m00, float m01, float m10, float m11, float tx, float ty, int tint) {
+		if (src == null || dw == 0 || dh == 0 || sw == 0 || sh == 0 || srcWidth <= 0 || srcHeight <= 0) {
+			return;
+		}
+		final HeadlessCanvasState s = state;
+		final float a = s.m00 * m00 + s.m10 * m01;
+		final float b = s.m01 * m00 + s.m11 * m01;
+		final float c = s.m00 * m10 + s.m10 * m11;
+		final float d = s.m01 * m10 + s.m11 * m11;
+		final float e = s.m00 * tx + s.m10 * ty + s.tx;
+		final float f = s.m01 * tx + s.m11 * ty + s.ty;
+		final float det = a * d - b * c;
+		if (det > -1e-6f && det < 1e-6f) {
+			return;
+		}
+		// 目标区域四个角的屏幕坐标
+		final float[] q = quad;
+		q[0] = a * dx + c * dy + e;
+		q[1] = b * dx + d * dy + f;
+		q[2] = a * (dx + dw) + c * dy + e;
+		q[3] = b * (dx + dw) + d * dy + f;
+		q[4] = a * (dx + dw) + c * (dy + dh) + e;
+		q[5] = b * (dx + dw) + d * (dy + dh) + f;
+		q[6] = a * dx + c * (dy + dh) + e;
+		q[7] = b * dx + d * (dy + dh) + f;
+		final int left = MathUtils.max(s.clipLeft, MathUtils.ifloor(min(q, 0)));
+		final int top = MathUtils.max(s.clipTop, MathUtils.ifloor(min(q, 1)));
+		final int right = MathUtils.min(s.clipRight, MathUtils.iceil(max(q, 0)));
+		final int bottom = MathUtils.min(s.clipBottom, MathUtils.iceil(max(q, 1)));
+		if (left >= right || top >= bottom) {
+			return;
+		}
+		// 屏幕坐标到纹理坐标的逆映射
+		final float su = sw / dw, sv = sh / dh;
+		final float ia = d / det, ic = -c / det, ib = -b / det, id = a / det;
+		final float du = ia * su, dv = ib * sv;
+		final float uLo = sw > 0 ? sx : sx + sw, uHi = sw > 0 ? sx + sw : sx;
+		final float vLo = sh > 0 ? sy : sy + sh, vHi = sh > 0 ? sy + sh : sy;
+		final int maxU = srcWidth - 1, maxV = srcHeight - 1;
+		final int alpha = alphaScale();
+		final int[] pixels = pixmap.getData();
+		final boolean tinted = tint != -1;
+		final int count = right - left;
+		for (int py = top; py < bottom; py++) {
+			final float ox = left + 0.5f - e;
+			final float oy = py + 0.5f - f;
+			final float u0 = sx + ((ia * ox + ic * oy) - dx) * su;
+			final float v0 = sy + ((ib * ox + id * oy) - dy) * sv;
+			// 本行落在纹理区域内的像素区间
+			float tMin = 0, tMax = count;
+			if (du == 0) {
+				if (u0 < uLo || u0 >= uHi) {
+					continue;
+				}
+			} else {
+				final float t0 = (uLo - u0) / du, t1 = (uHi - u0) / du;
+				tMin = MathUtils.max(tMin, t0 < t1 ? t0 : t1);
+				tMax = MathUtils.min(tMax, t0 < t1 ? t1 : t0);
+			}
+			if (dv == 0) {
+				if (v0 < vLo || v0 >= vHi) {
+					continue;
+				}
+			} else {
+				final float t0 = (vLo - v0) / dv, t1 = (vHi - v0) / dv;
+				tMin = MathUtils.max(tMin, t0 < t1 ? t0 : t1);
+				tMax = MathUtils.min(tMax, t0 < t1 ? t1 : t0);
+			}
+			final int start = MathUtils.iceil(tMin);
+			final int end = MathUtils.min(count, MathUtils.iceil(tMax));
+			int idx = py * pixelWidth + left + start;
+			for (int t = start; t < end; t++, idx++) {
+				int iu = (int) (u0 + du * t);
+				int iv = (int) (v0 + dv * t);
+				iu = iu < 0 ? 0 : (iu > maxU ? maxU : iu);
+				iv = iv < 0 ? 0 : (iv > maxV ? maxV : iv);
+				int color = src[iv * srcWidth + iu];
+				if (tinted) {
+					color = multiply(color, tint);
+				}
+				if (alpha != 256) {
+					color = ((((color >>> 24) * alpha) >> 8) << 24) | (color & 0xFFFFFF);
+				}
+				plot(idx, color);
+			}
+		}
+		isDirty = true;
+	}
+
+	/**
+	 * 绘制一个带纹理坐标(像素单位)的三角形,顶点坐标使用当前变换
+	 */
+	public void drawTriangle(int[] src, int srcWidth, int srcHeight, float x0, float y0, float u0, float v0,
+			float x1, float y1, float u1, float v1, float x2, float y2, float u2, float v2) {
+		if (src == null || srcWidth <= 0 || srcHeight <= 0) {
+			return;
+		}
+		final HeadlessCanvasState s = state;
+		final float ax = s.deviceX(x0, y0), ay = s.deviceY(x0, y0);
+		final float bx = s.deviceX(x1, y1), by = s.deviceY(x1, y1);
+		final float cx = s.deviceX(x2, y2), cy = s.deviceY(x2, y2);
+		final float area = (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+		if (area > -1e-6f && area < 1e-6f) {
+			return;
+		}
+		final int left = MathUtils.max(s.clipLeft, MathUtils.ifloor(MathUtils.min(ax, MathUtils.min(bx, cx))));
+		final int top = MathUtils.max(s.clipTop, MathUtils.ifloor(MathUtils.min(ay, MathUtils.min(by, cy))));
+		final int right = MathUtils.min(s.clipRight, MathUtils.iceil(MathUtils.max(ax, MathUtils.max(bx, cx))));
+		final int bottom = MathUtils.min(s.clipBottom, MathUtils.iceil(MathUtils.max(ay, MathUtils.max(by, cy))));
+		final float inv = 1f / area;
+		final int maxU = srcWidth - 1, maxV = srcHeight - 1;
+		final int alpha = alphaScale();
+		final int[] pixels = pixmap.getData();
+		for (int py = top; py < bottom; py++) {
+			final float fy = py + 0.5f;
+			int idx = py * pixelWidth + left;
+			for (int px = left; px < right; px++, idx++) {
+				final float fx = px + 0.5f;
+				final float w0 = ((bx - fx) * (cy - fy) - (by - fy) * (cx - fx)) * inv;
+				final float w1 = ((cx - fx) * (ay - fy) - (cy - fy) * (ax - fx)) * inv;
+				final float w2 = 1f - w0 - w1;
+				if (w0 < 0 || w1 < 0 || w2 < 0) {
+					continue;
+				}
+				int iu = (int) (w0 * u0 + w1 * u1 + w2 * u2);
+				int iv = (int) (w0 * v0 + w1 * v1 + w2 * v2);
+				iu = iu < 0 ? 0 : (iu > maxU ? maxU : iu);
+				iv = iv < 0 ? 0 : (iv > maxV ? maxV : iv);
+				int color = src[iv * srcWidth + iu];
+				if (alpha != 256) {
+					color = ((((color >>> 24) * alpha) >> 8) << 24) | (color & 0xFFFFFF);
+				}
+				plot(idx, color);
+			}
+		}
+		isDirty = true;
+	}
+
+	private void setQuad(float x, float y, float width, float height) {
+		final HeadlessCanvasState s = state;
+		final float[] q = quad;
+		q[0] = s.deviceX(x, y);
+		q[1] = s.deviceY(x, y);
+		q[2] = s.deviceX(x + width, y);
+		q[3] = s.deviceY(x + width, y);
+		q[4] = s.deviceX(x + width, y + height);
+		q[5] = s.deviceY(x + width, y + height);
+		q[6] = s.deviceX(x, y + height);
+		q[7] = s.deviceY(x, y + height);
+	}
+
+	private static float min(float[] q, int offset) {
+		float v = q[offset];
+		for (int i = offset + 2; i < 8; i += 2) {
+			v = q[i] < v ? q[i] : v;
+		}
+		return v;
+	}
+
+	private static float max(float[] q, int offset) {
+		float v = q[offset];
+		for (int i = offset + 2; i < 8; i += 2) {
+			v = q[i] > v ? q[i] : v;
+		}
+		return v;
+	}
+
+	private void addCircle(HeadlessPath path, float x, float y, float radius) {
+		final int segments = MathUtils.clamp((int) (radius * state.scale() * 0.5f) + 12, 12, 96);
+		for (int i = 0; i < segments; i++) {
+			final float angle = MathUtils.TWO_PI * i / segments;
+			final float px = x + MathUtils.cos(angle) * radius;
+			final float py = y + MathUtils.sin(angle) * radius;
+			if (i == 0) {
+				path.moveTo(px, py);
+			} else {
+				path.lineTo(px, py);
+			}
+		}
+		path.close();
+	}
+
+	private void addRoundRect(HeadlessPath path, float x, float y, float width, float height, float radius) {
+		radius = MathUtils.min(radius, MathUtils.min(width, height) / 2f);
+		if (radius <= 0) {
+			path.moveTo(x, y).lineTo(x + width, y).lineTo(x + width, y + height).lineTo(x, y + height).close();
+			return;
+		}
+		final int segments = 6;
+		final float[] cxs = { x + width - radius, x + width - radius, x + radius, x + radius };
+		final float[] cys = { y + radius, y + height - radius, y + height - radius, y + radius };
+		for (int corner = 0; corner < 4; corner++) {
+			final float startAngle = -HALF_PI + corner * HALF_PI;
+			for (int i = 0; i <= segments; i++) {
+				final float angle = startAngle + HALF_PI * i / segments;
+				final float px = cxs[corner] + MathUtils.cos(angle) * radius;
+				final float py = cys[corner] + MathUtils.sin(angle) * radius;
+				if (corner == 0 && i == 0) {
+					path.moveTo(px, py);
+				} else {
+					path.lineTo(px, py);
+				}
+			}
+		}
+		path.close();
+	}
+
+	/**
+	 * 在屏幕坐标下把线段扩展为四边形后填充,线宽至少为一个像素
+	 */
+	private void strokeSegment(float x0, float y0, float x1, float y1) {
+		final float dx = x1 - x0, dy = y1 - y0;
+		final float len = MathUtils.sqrt(dx * dx + dy * dy);
+		final float half = MathUtils.max(0.5f, state.strokeWidth * state.scale() * 0.5f);
+		float nx, ny, ex, ey;
+		if (len < 1e-6f) {
+			nx = 0;
+			ny = half;
+			ex = half;
+			ey = 0;
+		} else {
+			nx = -dy / len * half;
+			ny = dx / len * half;
+			ex = 0;
+			ey = 0;
+		}
+		final float[] q = quad;
+		q[0] = x0 + nx - ex;
+		q[1] = y0 + ny - ey;
+		q[2] = x1 + nx + ex;
+		q[3] = y1 + ny + ey;
+		q[4] = x1 - nx + ex;
+		q[5] = y1 - ny + ey;
+		q[6] = x0 - nx - ex;
+		q[7] = y0 - ny - ey;
+		final HeadlessGradient gradient = state.gradient;
+		state.gradient = null;
+		edgeCount = 0;
+		addEdges(q, 0, 8, false);
+		fillEdges(state.strokeColor);
+		state.gradient = gradient;
+	}
+
+	/**
+	 * 把一段闭合折线加入边缘列表,transform为true时点位于用户空间
+	 */
+	private void addEdges(float[] pts, int start, int end, boolean transform) {
+		if (end - start < 6) {
+			return;
+		}
+		final HeadlessCanvasState s = state;
+		float firstX, firstY, prevX, prevY;
+		if (transform) {
+			firstX = prevX = s.deviceX(pts[start], pts[start + 1]);
+			firstY = prevY = s.deviceY(pts[start], pts[start + 1]);
+		} else {
+			firstX = prevX = pts[start];
+			firstY = prevY = pts[start + 1];
+		}
+		for (int i = start + 2; i <= end; i += 2) {
+			float x, y;
+			if (i == end) {
+				x = firstX;
+				y = firstY;
+			} else if (transform) {
+				x = s.deviceX(pts[i], pts[i + 1]);
+				y = s.deviceY(pts[i], pts[i + 1]);
+			} else {
+				x = pts[i];
+				y = pts[i + 1];
+			}
+			if (y != prevY) {
+				addEdge(prevX, prevY, x, y);
+			}
+			prevX = x;
+			prevY = y;
+		}
+	}
+
+	private void addEdge(float x0, float y0, float x1, float y1) {
+		if (edgeCount == edgeDirs.length) {
+			float[] tmpEdges = new float[edges.length * 2];
+			System.arraycopy(edges, 0, tmpEdges, 0, edges.length);
+			edges = tmpEdges;
+			int[] tmpDirs = new int[edgeDirs.length * 2];
+			System.arraycopy(edgeDirs, 0, tmpDirs, 0, edgeDirs.length);
+			edgeDirs = tmpDirs;
+			crossX = new float[edgeDirs.length];
+			crossDir = new int[edgeDirs.length];
+		}
+		final int idx = edgeCount * 4;
+		if (y0 < y1) {
+			edges[idx] = x0;
+			edges[idx + 1] = y0;
+			edges[idx + 2] = x1;
+			edges[idx + 3] = y1;
+			edgeDirs[edgeCount] = 1;
+		} else {
+			edges[idx] = x1;
+			edges[idx + 1] = y1;
+			edges[idx + 2] = x0;
+			edges[idx + 3] = y0;
+			edgeDirs[edgeCount] = -1;
+		}
+		edgeCount++;
+	}
+
+	/**
+	 * 按非零环绕规则扫描填充当前的边缘列表
+	 */
+	private void fillEdges(int color) {
+		if (edgeCount == 0) {
+			return;
+		}
+		final HeadlessCanvasState s = state;
+		float minY = Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+		for (int i = 0; i < edgeCount; i++) {
+			minY = MathUtils.min(minY, edges[i * 4 + 1]);
+			maxY = MathUtils.max(maxY, edges[i * 4 + 3]);
+		}
+		final int top = MathUtils.max(s.clipTop, MathUtils.ifloor(minY));
+		final int bottom = MathUtils.min(s.clipBottom, MathUtils.iceil(maxY));
+		final int solid = applyAlpha(color);
+		for (int py = top; py < bottom; py++) {
+			final float fy = py + 0.5f;
+			int crossings = 0;
+			for (int i = 0; i < edgeCount; i++) {
+				final int idx = i * 4;
+				final float y0 = edges[idx + 1], y1 = edges[idx + 3];
+				if (fy < y0 || fy >= y1) {
+					continue;
+				}
+				final float x = edges[idx] + (fy - y0) * (edges[idx + 2] - edges[idx]) / (y1 - y0);
+				// 插入排序,每行的交点数量很少
+				int j = crossings++;
+				for (; j > 0 && crossX[j - 1] > x; j--) {
+					crossX[j] = crossX[j - 1];
+					crossDir[j] = crossDir[j - 1];
+				}
+				crossX[j] = x;
+				crossDir[j] = edgeDirs[i];
+			}
+			int winding = 0;
+			float spanStart = 0;
+			for (int i = 0; i < crossings; i++) {
+				final int prev = winding;
+				winding += crossDir[i];
+				if (prev == 0 && winding != 0) {
+					spanStart = crossX[i];
+				} else if (prev != 0 && winding == 0) {
+					fillSpan(py, MathUtils.iceil(spanStart - 0.5f), MathUtils.iceil(crossX[i] - 0.5f), solid);
+				}
+			}
+		}
+	}
+
+	private void fillSpan(int py, int x0, int x1, int solid) {
+		final HeadlessCanvasState s = state;
+		x0 = MathUtils.max(x0, s.clipLeft);
+		x1 = MathUtils.min(x1, s.clipRight);
+		if (x0 >= x1) {
+			return;
+		}
+		int idx = py * pixelWidth + x0;
+		final HeadlessGradient gradient = s.gradient;
+		if (gradient == null) {
+			for (int px = x0; px < x1; px++) {
+				plot(idx++, solid);
+			}
+			return;
+		}
+		// 渐变颜色按用户空间坐标计算
+		final float det = s.m00 * s.m11 - s.m01 * s.m10;
+		if (det == 0) {
+			return;
+		}
+		final float oy = py + 0.5f - s.ty;
+		for (int px = x0; px < x1; px++) {
+			final float ox = px + 0.5f - s.tx;
+			final float ux = (s.m11 * ox - s.m10 * oy) / det;
+			final float uy = (-s.m01 * ox + s.m00 * oy) / det;
+			plot(idx++, applyAlpha(gradient.colorAt(ux, uy)));
+		}
+	}
+
+	private int alphaScale() {
+		return (int) (state.alpha * 256f);
+	}
+
+	private int applyAlpha(int color) {
+		final int alpha = alphaScale();
+		if (alpha >= 256) {
+			return color;
+		}
+		return ((((color >>> 24) * alpha) >> 8) << 24) | (color & 0xFFFFFF);
+	}
+
+	private static int multiply(int color, int tint) {
+		final int a = ((color >>> 24) * (tint >>> 24)) / 255;
+		final int r = (((color >> 16) & 0xFF) * ((tint >> 16) & 0xFF)) / 255;
+		final int g = (((color >> 8) & 0xFF) * ((tint >> 8) & 0xFF)) / 255;
+		final int b = ((color & 0xFF) * (tint & 0xFF)) / 255;
+		return (a << 24) | (r << 16) | (g << 8) | b;
+	}
+
+	/**
+	 * 按当前混合模式写入一个像素
+	 */
+	private void plot(int idx, int src) {
+		final int[] pixels = pixmap.getData();
+		switch (state.composite) {
+		case SRC:
+			pixels[idx] = src;
+			break;
+		case DST_OVER:
+			pixels[idx] = over(pixels[idx], src);
+			break;
+		case MULTIPLY:
+			pixels[idx] = over(multiply(src | 0xFF000000, pixels[idx] | 0xFF000000) & 0xFFFFFF | (src & 0xFF000000),
+					pixels[idx]);
+			break;
+		default:
+			pixels[idx] = over(src, pixels[idx]);
+			break;
+		}
+	}
+
+	/**
+	 * 非预乘颜色的src-over混合
+	 */
+	private static int over(int src, int dst) {
+		final int sa = src >>> 24;
+		if (sa == 0xFF) {
+			return src;
+		}
+		if (sa == 0) {
+			return dst;
+		}
+		final int da = dst >>> 24;
+		if (da == 0) {
+			return src;
+		}
+		final int inv = 255 - sa;
+		if (da == 0xFF) {
+			final int r = (((src >> 16) & 0xFF) * sa + ((dst >> 16) & 0xFF) * inv) / 255;
+			final int g = (((src >> 8) & 0xFF) * sa + ((dst >> 8) & 0xFF) * inv) / 255;
+			final int b = ((src & 0xFF) * sa + (dst & 0xFF) * inv) / 255;
+			return 0xFF000000 | (r << 16) | (g << 8) | b;
+		}
+		final int dw = da * inv / 255;
+		final int oa = sa + dw;
+		final int r = (((src >> 16) & 0xFF) * sa + ((dst >> 16) & 0xFF) * dw) / oa;
+		final int g = (((src >> 8) & 0xFF) * sa + ((dst >> 8) & 0xFF) * dw) / oa;
+		final int b = ((src & 0xFF) * sa + (dst & 0xFF) * dw) / oa;
+		return (oa << 24) | (r << 16) | (g << 8) | b;
+	}
+
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.headless;
+
+import loon.canvas.Canvas.Composite;
+
+/**
+ * 软件画布的绘制状态,save时复制一份压栈,restore时弹出
+ */
+public class HeadlessCanvasState {
+
+	float m00 = 1f, m01, m10, m11 = 1f, tx, ty;
+
+	float alpha = 1f;
+
+	int fillColor = 0xFF000000;
+
+	int strokeColor = 0xFF000000;
+
+	float strokeWidth = 1f;
+
+	Composite composite = Composite.SRC_OVER;
+
+	HeadlessGradient gradient;
+
+	int clipLeft, clipTop, clipRight, clipBottom;
+
+	HeadlessCanvasState(int width, int height) {
+		this.clipRight = width;
+		this.clipBottom = height;
+	}
+
+	HeadlessCanvasState set(HeadlessCanvasState other) {
+		this.m00 = other.m00;
+		this.m01 = other.m01;
+		this.m10 = other.m10;
+		this.m11 = other.m11;
+		this.tx = other.tx;
+		this.ty = other.ty;
+		this.alpha = other.alpha;
+		this.fillColor = other.fillColor;
+		this.strokeColor = other.strokeColor;
+		this.strokeWidth = other.strokeWidth;
+		this.composite = other.composite;
+		this.gradient = other.gradient;
+		this.clipLeft = other.clipLeft;
+		this.clipTop = other.clipTop;
+		this.clipRight = other.clipRight;
+		this.clipBottom = other.clipBottom;
+		return this;
+	}
+
+	/**
+	 * 在当前变换之前叠加一个变换(新变换先作用于坐标)
+	 */
+	void transform(float a, float b, float c, float d, float e, float f) {
+		final float n00 = m00 * a + m10 * b;
+		final float n01 = m01 * a + m11 * b;
+		final float n10 = m00 * c + m10 * d;
+		final float n11 = m01 * c + m11 * d;
+		final float ntx = m00 * e + m10 * f + tx;
+		final float nty = m01 * e + m11 * f + ty;
+		m00 = n00;
+		m01 = n01;
+		m10 = n10;
+		m11 = n11;
+		tx = ntx;
+		ty = nty;
+	}
+
+	float deviceX(float x, float y) {
+		return m00 * x + m10 * y + tx;
+	}
+
+	float deviceY(float x, float y) {
+		return m01 * x + m11 * y + ty;
+	}
+
+	/**
+	 * 变换的平均缩放比例,用于决定线宽与曲线细分数
+	 */
+	float scale() {
+		final float det = m00 * m11 - m01 * m10;
+		return (float) Math.sqrt(det < 0 ? -det : det);
+	}
+
+}
@@ -0,0 +1,327 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.headless;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import loon.Accelerometer;
+import loon.AccelerometerDefault;
+import loon.Assets;
+import loon.Asyn;
+import loon.Display;
+import loon.Graphics;
+import loon.LGame;
+import loon.LSetting;
+import loon.Log;
+import loon.Platform;
+import loon.Save;
+import loon.Support;
+import loon.canvas.Canvas;
+import loon.canvas.Pixmap;
+import loon.event.InputMake;
+import loon.event.InputMakeImpl;
+import loon.opengl.Mesh;
+
+/**
+ * 无窗口,无GPU的确定性运行模式,游戏时间由帧数与固定步长推进,画面由软件光栅化到离屏Pixmap中.
+ * 
+ * 主要用于在CI中运行LGame与LProcess,并通过FrameProfiler记录每帧update,paint与present的耗时.
+ */
+public class HeadlessGame extends LGame {
+
+	public static class HeadlessSetting extends LSetting {
+
+		/**
+		 * 固定步长(毫秒),小于等于0时使用1000/fps
+		 */
+		public float stepTime = -1f;
+
+		/**
+		 * 是否记录每帧耗时
+		 */
+		public boolean profiling = true;
+
+		/**
+		 * 开始记录前跳过的帧数
+		 */
+		public int warmupFrames = 0;
+
+		/**
+		 * 是否在每帧present时计算画面校验值
+		 */
+		public boolean checksum = true;
+
+	}
+
+	static {
+		System.setProperty("java.awt.headless", "true");
+	}
+
+	private final AccelerometerDefault accelerometer;
+
+	private final HeadlessSave save;
+	private final HeadlessGraphics graphics;
+	private final HeadlessAssets assets;
+	private final Support support;
+
+	private final HeadlessLog log;
+	private final Asyn asyn;
+
+	private final InputMake input;
+
+	private final float stepTime;
+
+	private final boolean checksum;
+
+	private FrameProfiler profiler;
+
+	private Pixmap front;
+
+	private long frameChecksum;
+
+	private long frames;
+
+	public HeadlessGame(Platform plat, LSetting config) {
+		super(config, plat);
+		float step = 0f;
+		boolean profiling = true;
+		int warmup = 0;
+		boolean sum = true;
+		if (config instanceof HeadlessSetting) {
+			HeadlessSetting setting = (HeadlessSetting) config;
+			step = setting.stepTime;
+			profiling = setting.profiling;
+			warmup = setting.warmupFrames;
+			sum = setting.checksum;
+		}
+		if (step <= 0f) {
+			step = 1000f / (config.fps > 0 ? config.fps : 60);
+		}
+		this.stepTime = step;
+		this.checksum = sum;
+		// 逻辑与绘制都按固定步长推进,不依赖真实时间
+		if (config.fixedUpdateLoopTime == -1) {
+			config.fixedUpdateLoopTime = (long) step;
+		}
+		if (config.fixedPaintLoopTime == -1) {
+			config.fixedPaintLoopTime = (long) step;
+		}
+		this.log = new HeadlessLog();
+		this.asyn = new HeadlessAsyn(log, frame);
+		this.graphics = new HeadlessGraphics(this);
+		this.input = new InputMakeImpl();
+		this.assets = new HeadlessAssets(this);
+		this.support = new NativeSupport();
+		this.save = new HeadlessSave();
+		this.accelerometer = new AccelerometerDefault();
+		if (profiling) {
+			this.profiler = new FrameProfiler().setWarmupFrames(warmup).setStepTime(step);
+		}
+		this.initProcess();
+	}
+
+	/**
+	 * 推进一帧
+	 */
+	public void step() {
+		final FrameProfiler p = profiler;
+		if (p != null) {
+			Display display = display();
+			if (display != null && display.getFrameListener() != p) {
+				display.setFrameListener(p);
+			}
+			p.beginFrame(tick());
+		}
+		emitFrame();
+		present();
+		if (p != null) {
+			p.endFrame();
+		}
+		frames++;
+	}
+
+	/**
+	 * 连续推进指定帧数
+	 * 
+	 * @param count
+	 */
+	public void run(int count) {
+		for (int i = 0; i < count && !status.isClosed(); i++) {
+			step();
+		}
+	}
+
+	/**
+	 * 将后台画面复制到前台缓存,相当于一次交换缓冲
+	 */
+	protected void present() {
+		final Pixmap back = graphics.canvas.headlessImage().pixmap();
+		if (front == null || front.getWidth() != back.getWidth() || front.getHeight() != back.getHeight()) {
+			front = new Pixmap(back.getWidth(), back.getHeight(), true);
+		}
+		final int[] src = back.getData();
+		final int[] dst = front.getData();
+		System.arraycopy(src, 0, dst, 0, src.length);
+		if (checksum) {
+			// FNV-1a
+			long hash = 0xcbf29ce484222325L;
+			for (int i = 0; i < dst.length; i++) {
+				hash ^= dst[i];
+				hash *= 0x100000001b3L;
+			}
+			frameChecksum = hash;
+		}
+	}
+
+	/**
+	 * 最近一次present的画面
+	 * 
+	 * @return
+	 */
+	public Pixmap getFrontBuffer() {
+		return front;
+	}
+
+	/**
+	 * 最近一次present的画面校验值,相同的输入与帧数应得到相同的结果
+	 * 
+	 * @return
+	 */
+	public long getFrameChecksum() {
+		return frameChecksum;
+	}
+
+	/**
+	 * 将最近一次present的画面保存为png
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	public void saveFrame(File file) throws IOException {
+		if (front == null) {
+			return;
+		}
+		final int width = front.getWidth();
+		final int height = front.getHeight();
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		image.setRGB(0, 0, width, height, front.getData(), 0, width);
+		ImageIO.write(image, "png", file);
+	}
+
+	public FrameProfiler getProfiler() {
+		return profiler;
+	}
+
+	public float getStepTime() {
+		return stepTime;
+	}
+
+	public long getFrames() {
+		return frames;
+	}
+
+	protected void shutdown() {
+		if (status.isClosed()) {
+			return;
+		}
+		status.emit(Status.EXIT);
+	}
+
+	@Override
+	public Type type() {
+		return Type.STUB;
+	}
+
+	@Override
+	public double time() {
+		return frames * (double) stepTime;
+	}
+
+	@Override
+	public int tick() {
+		return (int) (frames * stepTime);
+	}
+
+	@Override
+	public void openURL(String url) {
+		log.info("openURL: " + url);
+	}
+
+	@Override
+	public Assets assets() {
+		return assets;
+	}
+
+	@Override
+	public Asyn asyn() {
+		return asyn;
+	}
+
+	@Override
+	public Graphics graphics() {
+		return graphics;
+	}
+
+	@Override
+	public InputMake input() {
+		return input;
+	}
+
+	@Override
+	public Log log() {
+		return log;
+	}
+
+	@Override
+	public Save save() {
+		return save;
+	}
+
+	@Override
+	public Accelerometer accel() {
+		return accelerometer;
+	}
+
+	@Override
+	public Support support() {
+		return support;
+	}
+
+	@Override
+	public Mesh makeMesh(Canvas canvas) {
+		return new HeadlessMesh(canvas);
+	}
+
+	@Override
+	public boolean isMobile() {
+		return false;
+	}
+
+	@Override
+	public boolean isDesktop() {
+		return true;
+	}
+
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.headless;
+
+import loon.canvas.Gradient;
+import loon.utils.MathUtils;
+
+/**
+ * 按用户空间坐标计算渐变颜色
+ */
+public class HeadlessGradient extends Gradient {
+
+	private final Config config;
+
+	static HeadlessGradient create(Config config) {
+		if (config instanceof Linear || config instanceof Radial) {
+			return new HeadlessGradient(config);
+		}
+		throw new IllegalArgumentException("Unknown config: " + config);
+	}
+
+	private HeadlessGradient(Config config) {
+		this.config = config;
+	}
+
+	int colorAt(float x, float y) {
+		float t;
+		if (config instanceof Linear) {
+			final Linear cfg = (Linear) config;
+			final float dx = cfg.x1 - cfg.x0, dy = cfg.y1 - cfg.y0;
+			final float len = dx * dx + dy * dy;
+			t = len == 0f ? 0f : ((x - cfg.x0) * dx + (y - cfg.y0) * dy) / len;
+		} else {
+			final Radial cfg = (Radial) config;
+			final float dx = x - cfg.x, dy = y - cfg.y;
+			t = cfg.r == 0f ? 1f : MathUtils.sqrt(dx * dx + dy * dy) / cfg.r;
+		}
+		return lerpColors(config.colors, config.positions, MathUtils.clamp(t, 0f, 1f));
+	}
+
+	private static int lerpColors(int[] colors, float[] positions, float t) {
+		final int size = colors.length;
+		if (size == 1) {
+			return colors[0];
+		}
+		for (int i = 0; i < size - 1; i++) {
+			final float p0 = positions == null ? (float) i / (size - 1) : positions[i];
+			final float p1 = positions == null ? (float) (i + 1) / (size - 1) : positions[i + 1];
+			if (t <= p1 || i == size - 2) {
+				final float s = p1 > p0 ? MathUtils.clamp((t - p0) / (p1 - p0), 0f, 1f) : 0f;
+				return lerp(colors[i], colors[i + 1], s);
+			}
+		}
+		return colors[size - 1];
+	}
+
+	private static int lerp(int c0, int c1, float s) {
+		final int a = (int) (((c0 >>> 24)) + (((c1 >>> 24)) - ((c0 >>> 24))) * s);
+		final int r = (int) (((c0 >> 16) & 0xFF) + (((c1 >> 16) & 0xFF) - ((c0 >> 16) & 0xFF)) * s);
+		final int g = (int) (((c0 >> 8) & 0xFF) + (((c1 >> 8) & 0xFF) - ((c0 >> 8) & 0xFF)) * s);
+		final int b = (int) ((c0 & 0xFF) + ((c1 & 0xFF) - (c0 & 0xFF)) * s);
+		return (a << 24) | (r << 16) | (g << 8) | b;
+	}
+
+}
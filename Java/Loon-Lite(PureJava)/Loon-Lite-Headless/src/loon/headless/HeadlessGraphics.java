@@ -0,0 +1,87 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.headless;
+
+import loon.Graphics;
+import loon.LSetting;
+import loon.canvas.Canvas;
+import loon.canvas.Pixmap;
+import loon.font.TextFormat;
+import loon.font.TextLayout;
+import loon.font.TextWrap;
+import loon.geom.Dimension;
+import loon.utils.Scale;
+
+public class HeadlessGraphics extends Graphics {
+
+	private final Dimension screenSize = new Dimension();
+
+	protected HeadlessCanvas canvas;
+
+	protected HeadlessGraphics(HeadlessGame game) {
+		this(game, Scale.ONE);
+	}
+
+	protected HeadlessGraphics(HeadlessGame game, Scale scale) {
+		super(game, scale);
+		this.createCanvas(game.setting);
+	}
+
+	protected Canvas createCanvas(LSetting setting) {
+		if (canvas == null) {
+			final int width = setting.getShowWidth();
+			final int height = setting.getShowHeight();
+			final Pixmap pixmap = new Pixmap(scale.scaledCeil(width), scale.scaledCeil(height), true);
+			canvas = new HeadlessCanvas(this, new HeadlessImage(this, scale, pixmap, "<canvas>"));
+			screenSize.width = width;
+			screenSize.height = height;
+			viewportChanged(scale, pixmap.getWidth(), pixmap.getHeight());
+		}
+		return canvas;
+	}
+
+	@Override
+	public Canvas getCanvas() {
+		return canvas;
+	}
+
+	@Override
+	public Dimension screenSize() {
+		return this.screenSize;
+	}
+
+	@Override
+	public TextLayout layoutText(String text, TextFormat format) {
+		return HeadlessTextLayout.layoutText(this, text, format);
+	}
+
+	@Override
+	public TextLayout[] layoutText(String text, TextFormat format, TextWrap wrap) {
+		return HeadlessTextLayout.layoutText(this, text, format, wrap);
+	}
+
+	@Override
+	protected Canvas createCanvasImpl(Scale scale, int pixelWidth, int pixelHeight) {
+		HeadlessImage image = new HeadlessImage(this, scale, new Pixmap(pixelWidth, pixelHeight, true), "<canvas>");
+		return new HeadlessCanvas(this, image);
+	}
+
+}
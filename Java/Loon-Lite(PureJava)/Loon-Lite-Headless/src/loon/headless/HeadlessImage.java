@@ -0,0 +1,243 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.headless;
+
+import loon.Graphics;
+import loon.canvas.ImageImpl;
+import loon.canvas.LColor;
+import loon.canvas.Pixmap;
+import loon.utils.MathUtils;
+import loon.utils.Scale;
+
+/**
+ * 以Pixmap像素数组为存储的图像,供无界面模式下的软件渲染使用
+ */
+public class HeadlessImage extends ImageImpl {
+
+	protected Pixmap buffer;
+
+	public HeadlessImage(Graphics gfx, Scale scale, Pixmap buffer, String source) {
+		super(gfx, scale, buffer.getWidth(), buffer.getHeight(), source, buffer);
+	}
+
+	public HeadlessImage(HeadlessGame game, boolean async, int preWidth, int preHeight, String source) {
+		super(game, async, Scale.ONE, preWidth, preHeight, source);
+	}
+
+	public Pixmap pixmap() {
+		return buffer;
+	}
+
+	@Override
+	public void draw(Object ctx, float x, float y, float w, float h) {
+		if (buffer == null) {
+			return;
+		}
+		HeadlessCanvas canvas = (HeadlessCanvas) ctx;
+		canvas.drawPixels(buffer.getData(), buffer.getWidth(), buffer.getHeight(), 0, 0, buffer.getWidth(),
+				buffer.getHeight(), x, y, w, h);
+	}
+
+	@Override
+	public void draw(Object ctx, float dx, float dy, float dw, float dh, float sx, float sy, float sw, float sh) {
+		if (buffer == null) {
+			return;
+		}
+		float f = scale().factor;
+		HeadlessCanvas canvas = (HeadlessCanvas) ctx;
+		canvas.drawPixels(buffer.getData(), buffer.getWidth(), buffer.getHeight(), sx * f, sy * f, sw * f, sh * f, dx,
+				dy, dw, dh);
+	}
+
+	@Override
+	public void getLight(loon.canvas.Image buffer, int v) {
+		int width = (int) buffer.width();
+		int height = (int) buffer.height();
+		for (int x = 0; x < width; ++x) {
+			for (int y = 0; y < height; ++y) {
+				int rgbValue = buffer.getRGB(x, y);
+				if (rgbValue != 0) {
+					buffer.setRGB(getLight(rgbValue, v), x, y);
+				}
+			}
+		}
+	}
+
+	@Override
+	public int getLight(int color, int v) {
+		int red = MathUtils.clamp(LColor.getRed(color) + v, 0, 255);
+		int green = MathUtils.clamp(LColor.getGreen(color) + v, 0, 255);
+		int blue = MathUtils.clamp(LColor.getBlue(color) + v, 0, 255);
+		return LColor.getRGB(red, green, blue);
+	}
+
+	@Override
+	public int[] getPixels() {
+		int[] pixels = new int[buffer.getWidth() * buffer.getHeight()];
+		System.arraycopy(buffer.getData(), 0, pixels, 0, pixels.length);
+		return pixels;
+	}
+
+	@Override
+	public int[] getPixels(int[] pixels) {
+		System.arraycopy(buffer.getData(), 0, pixels, 0, MathUtils.min(pixels.length, buffer.getData().length));
+		return pixels;
+	}
+
+	@Override
+	public int[] getPixels(int x, int y, int w, int h) {
+		int[] pixels = new int[w * h];
+		getRGB(x, y, w, h, pixels, 0, w);
+		return pixels;
+	}
+
+	@Override
+	public int[] getPixels(int offset, int stride, int x, int y, int width, int height) {
+		int[] pixels = new int[offset + height * stride];
+		getRGB(x, y, width, height, pixels, offset, stride);
+		return pixels;
+	}
+
+	@Override
+	public int[] getPixels(int[] pixels, int offset, int stride, int x, int y, int width, int height) {
+		getRGB(x, y, width, height, pixels, offset, stride);
+		return pixels;
+	}
+
+	@Override
+	public void setPixels(int[] pixels, int width, int height) {
+		setRGB(0, 0, width, height, pixels, 0, width);
+	}
+
+	@Override
+	public void setPixels(int[] pixels, int offset, int stride, int x, int y, int width, int height) {
+		setRGB(x, y, width, height, pixels, offset, stride);
+	}
+
+	@Override
+	public int[] setPixels(int[] pixels, int x, int y, int w, int h) {
+		setRGB(x, y, w, h, pixels, 0, w);
+		return pixels;
+	}
+
+	@Override
+	public void setPixel(LColor c, int x, int y) {
+		setPixel(c.getARGB(), x, y);
+	}
+
+	@Override
+	public void setPixel(int rgb, int x, int y) {
+		if (x >= 0 && y >= 0 && x < buffer.getWidth() && y < buffer.getHeight()) {
+			buffer.getData()[y * buffer.getWidth() + x] = rgb;
+		}
+	}
+
+	@Override
+	public int getPixel(int x, int y) {
+		if (x >= 0 && y >= 0 && x < buffer.getWidth() && y < buffer.getHeight()) {
+			return buffer.getData()[y * buffer.getWidth() + x];
+		}
+		return 0;
+	}
+
+	@Override
+	public int getRGB(int x, int y) {
+		return getPixel(x, y);
+	}
+
+	@Override
+	public void setRGB(int rgb, int x, int y) {
+		setPixel(rgb, x, y);
+	}
+
+	@Override
+	public void getRGB(int startX, int startY, int width, int height, int[] rgbArray, int offset, int scanSize) {
+		final int[] data = buffer.getData();
+		final int w = buffer.getWidth();
+		final int h = buffer.getHeight();
+		for (int y = 0; y < height; y++) {
+			final int sy = startY + y;
+			final int row = offset + y * scanSize;
+			for (int x = 0; x < width; x++) {
+				final int sx = startX + x;
+				rgbArray[row + x] = (sx >= 0 && sy >= 0 && sx < w && sy < h) ? data[sy * w + sx] : 0;
+			}
+		}
+	}
+
+	@Override
+	public void setRGB(int startX, int startY, int width, int height, int[] rgbArray, int offset, int scanSize) {
+		final int[] data = buffer.getData();
+		final int w = buffer.getWidth();
+		final int h = buffer.getHeight();
+		for (int y = 0; y < height; y++) {
+			final int dy = startY + y;
+			if (dy < 0 || dy >= h) {
+				continue;
+			}
+			final int row = offset + y * scanSize;
+			for (int x = 0; x < width; x++) {
+				final int dx = startX + x;
+				if (dx >= 0 && dx < w) {
+					data[dy * w + dx] = rgbArray[row + x];
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean hasAlpha() {
+		return buffer == null || buffer.hasAlpha();
+	}
+
+	@Override
+	public loon.canvas.Image getSubImage(int x, int y, int width, int height) {
+		return new HeadlessImage(gfx, scale, buffer.copy(x, y, width, height), source);
+	}
+
+	@Override
+	protected void setBitmap(Object bitmap) {
+		buffer = (Pixmap) bitmap;
+	}
+
+	@Override
+	protected Object createErrorBitmap(int rawWidth, int rawHeight) {
+		Pixmap pixmap = new Pixmap(rawWidth, rawHeight, true);
+		pixmap.setColor(LColor.red);
+		for (int y = 0; y < rawHeight; y += 15) {
+			pixmap.drawLine(0, y, rawWidth, y);
+		}
+		return pixmap;
+	}
+
+	@Override
+	public String toString() {
+		return "Image[src=" + source + ", buffer=" + buffer + "]";
+	}
+
+	@Override
+	protected void closeImpl() {
+		if (buffer != null) {
+			buffer = null;
+		}
+	}
+
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.headless;
+
+import loon.LSysException;
+import loon.LTexture;
+import loon.canvas.Canvas;
+import loon.canvas.Image;
+import loon.canvas.Pixmap;
+import loon.geom.Affine2f;
+import loon.opengl.Mesh;
+import loon.opengl.MeshData;
+
+/**
+ * 以软件光栅化方式把纹理四边形与三角形网格绘制到HeadlessCanvas上
+ */
+public class HeadlessMesh implements Mesh {
+
+	private MeshData mesh;
+
+	private final HeadlessCanvas canvas;
+
+	private int mode = 0;
+
+	public HeadlessMesh(Canvas canvas) {
+		if (!(canvas instanceof HeadlessCanvas)) {
+			throw new LSysException("Headless mesh needs a HeadlessCanvas: " + canvas);
+		}
+		this.canvas = (HeadlessCanvas) canvas;
+	}
+
+	@Override
+	public void paint() {
+		if (mesh != null) {
+			if (mode == 0) {
+				renderWithIndexes(mesh);
+			} else {
+				renderNoIndexes(mesh);
+			}
+		}
+	}
+
+	@Override
+	public void renderNoIndexes(MeshData mesh) {
+		int i, len = mesh.amount == -1 ? mesh.vertices.length / 2 : mesh.amount;
+		int index;
+		for (i = 0; i < len - 2; i++) {
+			index = i * 2;
+			this.renderDrawTriangle(mesh, index, (index + 2), (index + 4));
+		}
+	}
+
+	@Override
+	public void renderWithIndexes(MeshData mesh) {
+		int[] indexes = mesh.indexes;
+		int i, len = mesh.amount == -1 ? indexes.length : mesh.amount;
+		for (i = 0; i < len; i += 3) {
+			int index0 = indexes[i] * 2;
+			int index1 = indexes[i + 1] * 2;
+			int index2 = indexes[i + 2] * 2;
+			this.renderDrawTriangle(mesh, index0, index1, index2);
+		}
+	}
+
+	@Override
+	public void renderDrawTriangle(MeshData mesh, int index0, int index1, int index2) {
+		Pixmap source = pixmap(mesh.texture);
+		if (source == null || mesh.uvs == null) {
+			return;
+		}
+		final float[] uvs = mesh.uvs;
+		final float[] vertices = mesh.vertices;
+		final float sourceWidth = source.getWidth();
+		final float sourceHeight = source.getHeight();
+		float u0, u1, u2, v0, v1, v2;
+		if (mesh.useUvTransform) {
+			Affine2f ut = mesh.uvTransform;
+			u0 = ((uvs[index0] * ut.m00) + (uvs[index0 + 1] * ut.m10) + ut.tx) * sourceWidth;
+			u1 = ((uvs[index1] * ut.m00) + (uvs[index1 + 1] * ut.m10) + ut.tx) * sourceWidth;
+			u2 = ((uvs[index2] * ut.m00) + (uvs[index2 + 1] * ut.m10) + ut.tx) * sourceWidth;
+			v0 = ((uvs[index0] * ut.m01) + (uvs[index0 + 1] * ut.m11) + ut.ty) * sourceHeight;
+			v1 = ((uvs[index1] * ut.m01) + (uvs[index1 + 1] * ut.m11) + ut.ty) * sourceHeight;
+			v2 = ((uvs[index2] * ut.m01) + (uvs[index2 + 1] * ut.m11) + ut.ty) * sourceHeight;
+		} else {
+			u0 = uvs[index0] * sourceWidth;
+			u1 = uvs[index1] * sourceWidth;
+			u2 = uvs[index2] * sourceWidth;
+			v0 = uvs[index0 + 1] * sourceHeight;
+			v1 = uvs[index1 + 1] * sourceHeight;
+			v2 = uvs[index2 + 1] * sourceHeight;
+		}
+		canvas.drawTriangle(source.getData(), source.getWidth(), source.getHeight(), vertices[index0],
+				vertices[index0 + 1], u0, v0, vertices[index1], vertices[index1 + 1], u1, v1, vertices[index2],
+				vertices[index2 + 1], u2, v2);
+	}
+
+	@Override
+	public MeshData getMesh() {
+		return mesh;
+	}
+
+	@Override
+	public void setMesh(MeshData mesh) {
+		this.mesh = mesh;
+	}
+
+	@Override
+	public void setIndices(int[] inds) {
+		mesh.indexes = inds;
+	}
+
+	@Override
+	public void setVertices(float[] vers) {
+		mesh.vertices = vers;
+	}
+
+	private static Pixmap pixmap(LTexture texture) {
+		if (texture == null) {
+			return null;
+		}
+		Image image = texture.getImage();
+		if (image instanceof HeadlessImage) {
+			return ((HeadlessImage) image).pixmap();
+		}
+		return null;
+	}
+
+	@Override
+	public void paint(int tint, float m00, float m01, float m10, float m11, float tx, float ty, float left, float top,
+			float right, float bottom, float sl, float st, float sr, float sb) {
+		LTexture texture = mesh.texture;
+		Pixmap source = pixmap(texture);
+		if (source == null) {
+			return;
+		}
+		final float factor = texture.getImage().scale().factor;
+		final float textureWidth = texture.getDisplayWidth() * factor;
+		final float textureHeight = texture.getDisplayHeight() * factor;
+		canvas.drawPixels(source.getData(), source.getWidth(), source.getHeight(), textureWidth * sl,
+				textureHeight * st, textureWidth * sr, textureHeight * sb, left, top, right, bottom, m00, m01, m10,
+				m11, tx, ty, tint);
+	}
+}
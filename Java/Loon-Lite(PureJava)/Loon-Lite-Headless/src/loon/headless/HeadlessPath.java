@@ -0,0 +1,130 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.headless;
+
+import loon.canvas.Path;
+
+/**
+ * 记录路径并直接把曲线展开为折线,坐标保存在用户空间,绘制时再按当前变换转为屏幕坐标
+ */
+public class HeadlessPath implements Path {
+
+	private static final int QUAD_SEGMENTS = 8;
+
+	private static final int BEZIER_SEGMENTS = 12;
+
+	float[] points = new float[32];
+
+	int count;
+
+	int[] starts = new int[4];
+
+	int subpaths;
+
+	private float startX, startY, lastX, lastY;
+
+	@Override
+	public Path reset() {
+		count = 0;
+		subpaths = 0;
+		return this;
+	}
+
+	@Override
+	public Path close() {
+		if (subpaths > 0 && count - starts[subpaths - 1] > 2) {
+			add(startX, startY);
+		}
+		return this;
+	}
+
+	@Override
+	public Path moveTo(float x, float y) {
+		if (subpaths == starts.length) {
+			int[] tmp = new int[subpaths * 2];
+			System.arraycopy(starts, 0, tmp, 0, subpaths);
+			starts = tmp;
+		}
+		starts[subpaths++] = count;
+		startX = x;
+		startY = y;
+		add(x, y);
+		return this;
+	}
+
+	@Override
+	public Path lineTo(float x, float y) {
+		if (subpaths == 0) {
+			return moveTo(x, y);
+		}
+		add(x, y);
+		return this;
+	}
+
+	@Override
+	public Path quadraticCurveTo(float cpx, float cpy, float x, float y) {
+		if (subpaths == 0) {
+			moveTo(cpx, cpy);
+		}
+		final float x0 = lastX, y0 = lastY;
+		for (int i = 1; i <= QUAD_SEGMENTS; i++) {
+			final float t = (float) i / QUAD_SEGMENTS;
+			final float it = 1f - t;
+			add(it * it * x0 + 2f * it * t * cpx + t * t * x, it * it * y0 + 2f * it * t * cpy + t * t * y);
+		}
+		return this;
+	}
+
+	@Override
+	public Path bezierTo(float c1x, float c1y, float c2x, float c2y, float x, float y) {
+		if (subpaths == 0) {
+			moveTo(c1x, c1y);
+		}
+		final float x0 = lastX, y0 = lastY;
+		for (int i = 1; i <= BEZIER_SEGMENTS; i++) {
+			final float t = (float) i / BEZIER_SEGMENTS;
+			final float it = 1f - t;
+			final float a = it * it * it, b = 3f * it * it * t, c = 3f * it * t * t, d = t * t * t;
+			add(a * x0 + b * c1x + c * c2x + d * x, a * y0 + b * c1y + c * c2y + d * y);
+		}
+		return this;
+	}
+
+	/**
+	 * 第index段子路径的结束位置(不包含)
+	 */
+	int end(int index) {
+		return index + 1 < subpaths ? starts[index + 1] : count;
+	}
+
+	private void add(float x, float y) {
+		if (count + 2 > points.length) {
+			float[] tmp = new float[points.length * 2];
+			System.arraycopy(points, 0, tmp, 0, count);
+			points = tmp;
+		}
+		points[count++] = x;
+		points[count++] = y;
+		lastX = x;
+		lastY = y;
+	}
+
+}
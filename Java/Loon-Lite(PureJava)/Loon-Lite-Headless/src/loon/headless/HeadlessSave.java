@@ -0,0 +1,64 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.headless;
+
+import loon.Save;
+import loon.SaveBatchImpl;
+import loon.utils.ObjectMap;
+
+/**
+ * 仅保存在内存中的存储,每次运行都从空数据开始
+ */
+public class HeadlessSave implements Save {
+
+	private final ObjectMap<String, String> _data = new ObjectMap<String, String>();
+
+	@Override
+	public void setItem(String key, String data) {
+		_data.put(key, data);
+	}
+
+	@Override
+	public void removeItem(String key) {
+		_data.remove(key);
+	}
+
+	@Override
+	public String getItem(String key) {
+		return _data.get(key);
+	}
+
+	@Override
+	public Batch startBatch() {
+		return new SaveBatchImpl(this);
+	}
+
+	@Override
+	public Iterable<String> keys() {
+		return _data.keys();
+	}
+
+	@Override
+	public boolean isPersisted() {
+		return false;
+	}
+
+}
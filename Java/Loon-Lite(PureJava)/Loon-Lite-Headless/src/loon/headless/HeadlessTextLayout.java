@@ -0,0 +1,119 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.headless;
+
+import java.util.ArrayList;
+
+import loon.font.TextFormat;
+import loon.font.TextWrap;
+import loon.geom.RectBox;
+import loon.utils.MathUtils;
+
+/**
+ * 不依赖系统字体的文字排版,按字号估算字符宽度(半角字符约为字号的0.55倍,全角字符等于字号),保证不同机器上的排版结果一致
+ */
+public class HeadlessTextLayout extends loon.font.TextLayout {
+
+	private static final float DEF_SIZE = 20f;
+
+	public static HeadlessTextLayout layoutText(HeadlessGraphics gfx, String text, TextFormat format) {
+		return new HeadlessTextLayout(text, format, fontSize(format));
+	}
+
+	public static HeadlessTextLayout[] layoutText(HeadlessGraphics gfx, String text, TextFormat format,
+			TextWrap wrap) {
+		final float size = fontSize(format);
+		ArrayList<HeadlessTextLayout> layouts = new ArrayList<HeadlessTextLayout>();
+		text = normalizeEOL(text.length() == 0 ? " " : text);
+		for (String line : text.split("\\n")) {
+			StringBuilder current = new StringBuilder();
+			int currentWidth = 0;
+			for (int i = 0; i < line.length(); i++) {
+				final char ch = line.charAt(i);
+				final int width = charWidth(size, ch);
+				if (current.length() > 0 && currentWidth + width > wrap.width) {
+					layouts.add(new HeadlessTextLayout(current.toString(), format, size));
+					current.setLength(0);
+					currentWidth = 0;
+				}
+				current.append(ch);
+				currentWidth += width;
+			}
+			layouts.add(new HeadlessTextLayout(current.toString(), format, size));
+		}
+		return layouts.toArray(new HeadlessTextLayout[layouts.size()]);
+	}
+
+	private static float fontSize(TextFormat format) {
+		return (format == null || format.font == null) ? DEF_SIZE : format.font.size;
+	}
+
+	private static int charWidth(float size, char ch) {
+		return ch >= 0x2E80 ? MathUtils.iceil(size) : MathUtils.iceil(size * 0.55f);
+	}
+
+	private static int stringWidth(float size, String message) {
+		int width = 0;
+		for (int i = 0; i < message.length(); i++) {
+			width += charWidth(size, message.charAt(i));
+		}
+		return width;
+	}
+
+	private final float fontSize;
+
+	HeadlessTextLayout(String text, TextFormat format, float size) {
+		super(text, format, new RectBox(0, 0, stringWidth(size, text), MathUtils.iceil(size * 1.2f)),
+				MathUtils.iceil(size * 1.2f));
+		this.fontSize = size;
+	}
+
+	@Override
+	public float ascent() {
+		return fontSize * 0.8f;
+	}
+
+	@Override
+	public float descent() {
+		return fontSize * 0.2f;
+	}
+
+	@Override
+	public float leading() {
+		return fontSize * 0.2f;
+	}
+
+	@Override
+	public int stringWidth(String message) {
+		return stringWidth(fontSize, message);
+	}
+
+	@Override
+	public int getHeight() {
+		return MathUtils.iceil(fontSize * 1.2f);
+	}
+
+	@Override
+	public int charWidth(char ch) {
+		return charWidth(fontSize, ch);
+	}
+
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.headless;
+
+import java.io.File;
+import java.io.IOException;
+
+import loon.LGame;
+import loon.LSetting;
+import loon.LazyLoading;
+import loon.Platform;
+import loon.event.KeyMake;
+import loon.event.SysInput;
+
+/**
+ * 无窗口运行入口,例如在CI中:
+ * 
+ * <pre>
+ * HeadlessGame game = Loon.register(setting, lazy);
+ * game.run(600);
+ * game.getProfiler().writeJSON(new File("frames.json"));
+ * </pre>
+ */
+public class Loon implements Platform {
+
+	protected HeadlessGame game;
+
+	public Loon(LSetting setting) {
+		this.game = new HeadlessGame(this, setting);
+	}
+
+	public static HeadlessGame register(LSetting setting, LazyLoading.Data lazy) {
+		Loon app = new Loon(setting);
+		app.game.register(lazy.onScreen());
+		return app.game;
+	}
+
+	/**
+	 * 运行指定帧数,并将每帧耗时写入json与csv文件(文件为null时不写入)
+	 * 
+	 * @param setting
+	 * @param lazy
+	 * @param frames
+	 * @param json
+	 * @param csv
+	 * @return
+	 * @throws IOException
+	 */
+	public static HeadlessGame run(LSetting setting, LazyLoading.Data lazy, int frames, File json, File csv)
+			throws IOException {
+		HeadlessGame game = register(setting, lazy);
+		game.run(frames);
+		FrameProfiler profiler = game.getProfiler();
+		if (profiler != null) {
+			if (json != null) {
+				profiler.writeJSON(json);
+			}
+			if (csv != null) {
+				profiler.writeCSV(csv);
+			}
+		}
+		return game;
+	}
+
+	@Override
+	public void close() {
+		game.shutdown();
+	}
+
+	@Override
+	public int getContainerWidth() {
+		return game.setting.getShowWidth();
+	}
+
+	@Override
+	public int getContainerHeight() {
+		return game.setting.getShowHeight();
+	}
+
+	@Override
+	public Orientation getOrientation() {
+		if (getContainerHeight() > getContainerWidth()) {
+			return Orientation.Portrait;
+		} else {
+			return Orientation.Landscape;
+		}
+	}
+
+	@Override
+	public LGame getGame() {
+		return game;
+	}
+
+	@Override
+	public void sysText(SysInput.TextEvent event, KeyMake.TextType textType, String label, String initialValue) {
+		event.cancel();
+	}
+
+	@Override
+	public void sysDialog(SysInput.ClickEvent event, String title, String text, String ok, String cancel) {
+		event.cancel();
+	}
+
+}
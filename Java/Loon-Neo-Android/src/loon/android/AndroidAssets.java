@@ -590,6 +590,19 @@ public class AndroidAssets extends Assets {
 		throw error != null ? error : new FileNotFoundException(path);
 	}
 
+	@Override
+	protected ImageImpl.Data decode(String path, byte[] bytes) throws Exception {
+		if (bytes == null || assetScale().factor != 1f) {
+			return load(path);
+		}
+		BitmapOptions options = createOptions(path, true, Scale.ONE);
+		Bitmap bitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+		if (bitmap == null) {
+			throw new IOException("Could not decode image: " + pathPrefix + path);
+		}
+		return new ImageImpl.Data(options.scale, bitmap, bitmap.getWidth(), bitmap.getHeight());
+	}
+
 	Typeface getTypeface(String path) {
 		return Typeface.createFromAsset(assetMgr, getPath(path));
 	}
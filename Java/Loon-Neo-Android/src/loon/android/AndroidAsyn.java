@@ -49,6 +49,20 @@ public class AndroidAsyn extends Asyn.Default {
 		}
 	}
 
+	@Override
+	public void invokeLater(Runnable action, int priority) {
+		if (isPaused()) {
+			activity.runOnUiThread(action);
+		} else {
+			super.invokeLater(action, priority);
+		}
+	}
+
+	@Override
+	protected double currentTime() {
+		return System.nanoTime() / 1000000.0;
+	}
+
 	@Override
 	public boolean isAsyncSupported() {
 		return true;
@@ -28,9 +28,11 @@ import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 
 import loon.opengl.GL20;
+import loon.opengl.GLInstanced;
 import android.opengl.GLES20;
+import android.opengl.GLES30;
 
-public class AndroidGL20 extends GL20 {
+public class AndroidGL20 extends GL20 implements GLInstanced {
 
 	public AndroidGL20() {
 
@@ -1328,4 +1330,24 @@ public class AndroidGL20 extends GL20 {
 		return false;
 	}
 
+	private int instancing = -1;
+
+	@Override
+	public boolean isInstancingSupported() {
+		if (instancing == -1) {
+			String version = GLES20.glGetString(GLES20.GL_VERSION);
+			instancing = (version != null && version.indexOf("OpenGL ES 3") != -1) ? 1 : 0;
+		}
+		return instancing == 1;
+	}
+
+	@Override
+	public void glVertexAttribDivisor(int index, int divisor) {
+		GLES30.glVertexAttribDivisor(index, divisor);
+	}
+
+	@Override
+	public void glDrawElementsInstanced(int mode, int count, int type, int indicesOffset, int instanceCount) {
+		GLES30.glDrawElementsInstanced(mode, count, type, indicesOffset, instanceCount);
+	}
 }
@@ -687,7 +687,11 @@ public final class GWTGL20 extends GL20 implements GLExt {
 				boundElementArrayBuffer = requestedElementArrayBuffer;
 			}
 		}
-		glc.bufferData(target, getTypedArray(data, GL_BYTE, byteSize), usage);
+		if (data == null) {
+			glc.bufferData(target, byteSize, usage);
+		} else {
+			glc.bufferData(target, getTypedArray(data, GL_BYTE, byteSize), usage);
+		}
 	}
 
 	@Override
@@ -31,6 +31,7 @@ import loon.event.InputMake;
 import loon.html5.gwt.preloader.LocalAssetResources;
 import loon.jni.NativeSupport;
 import loon.jni.TimerCallback;
+import loon.opengl.MeshDefault;
 import loon.utils.reply.Act;
 
 import com.google.gwt.animation.client.AnimationScheduler;
@@ -209,6 +210,8 @@ public class GWTGame extends LGame {
 			setting.updateScale();
 			// 若缩放值为无法实现的数值，则默认操作
 		}
+		// html5环境默认关闭环形顶点缓冲的流式提交,使用按名称缓存的Mesh池
+		MeshDefault.setStreaming(false);
 		try {
 			graphics = new GWTGraphics(panel, this, config);
 			input = new GWTInputMake(this, graphics.rootElement);
@@ -29,10 +29,13 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 
 import javax.imageio.ImageIO;
@@ -480,6 +483,21 @@ public class JavaSEAssets extends Assets {
 		return requireResource(path).readBytes();
 	}
 
+	@Override
+	public ByteBuffer getByteBufferSync(String path) throws Exception {
+		Resource res = requireResource(path);
+		if (res instanceof FileResource) {
+			RandomAccessFile file = new RandomAccessFile(((FileResource) res).file, "r");
+			try {
+				FileChannel channel = file.getChannel();
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			} finally {
+				file.close();
+			}
+		}
+		return super.getByteBufferSync(path);
+	}
+
 	private static JavaSEAudio _audio;
 
 	protected Sound getSound(String path, boolean music) {
@@ -733,6 +751,28 @@ public class JavaSEAssets extends Assets {
 		throw error != null ? error : new FileNotFoundException(path);
 	}
 
+	@Override
+	protected ImageImpl.Data decode(String path, byte[] bytes) throws Exception {
+		if (bytes == null || assetScale().factor != 1f) {
+			return load(path);
+		}
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes));
+		if (image == null) {
+			throw new IOException("Could not decode image: " + path);
+		}
+		Scale viewScale = game.graphics().scale(), imageScale = Scale.ONE;
+		float viewImageRatio = viewScale.factor / imageScale.factor;
+		if (viewImageRatio < 1) {
+			image = scaleImage(image, viewImageRatio);
+			imageScale = viewScale;
+		}
+		if (game.setting.convertImagesOnLoad) {
+			image = JavaSEGraphics.convertImage(image);
+		}
+		return new ImageImpl.Data(imageScale, image, image.getWidth(),
+				image.getHeight());
+	}
+
 	@Override
 	protected ImageImpl createImage(boolean async, int rwid, int rhei,
 			String source) {
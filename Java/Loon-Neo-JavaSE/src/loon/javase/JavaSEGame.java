@@ -138,15 +138,23 @@ public class JavaSEGame extends LGame {
 		return osBit64;
 	}
 
+	private int asynThreads() {
+		if (setting != null && setting.asynThreads > 0) {
+			return setting.asynThreads;
+		}
+		int cpus = Runtime.getRuntime().availableProcessors() - 1;
+		return cpus < 2 ? 2 : (cpus > 8 ? 8 : cpus);
+	}
+
 	private boolean active = true;
 	private final long start = System.nanoTime();
-	private final ExecutorService pool = Executors.newFixedThreadPool(4);
+	private final ExecutorService pool = Executors.newFixedThreadPool(asynThreads());
 
 	private final JavaSELog log = new JavaSELog();
 	private final Asyn asyn = new JavaSEAsyn(pool, log, frame);
 
 	private final JavaSEAccelerometer accelerometer = new JavaSEAccelerometer();
-	private final JavaSESave save;
+	private final Save save;
 	private final JavaSEGraphics graphics;
 	private final JavaSEInputMake input;
 	private final JavaSEAssets assets = new JavaSEAssets(this);
@@ -203,7 +211,11 @@ public class JavaSEGame extends LGame {
 		this.preInit();
 		this.graphics = createGraphics();
 		this.input = createInput();
-		this.save = new JavaSESave(log, config.appName);
+		if (config.isLogStructuredSave) {
+			this.save = new JavaSELogSave(log, config.appName);
+		} else {
+			this.save = new JavaSESave(log, config.appName);
+		}
 		if (config.activationKey != -1) {
 			input.keyboardEvents.connect(new Port<KeyMake.Event>() {
 				public void onEmit(KeyMake.Event event) {
@@ -374,6 +386,9 @@ public class JavaSEGame extends LGame {
 
 	protected void shutdown() {
 		status.emit(Status.EXIT);
+		if (save instanceof LRelease) {
+			((LRelease) save).close();
+		}
 		try {
 			pool.shutdown();
 			pool.awaitTermination(1, TimeUnit.SECONDS);
@@ -30,6 +30,7 @@ import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
 
 import loon.jni.NativeSupport;
+import loon.opengl.GLInstanced;
 
 import org.lwjgl.BufferUtils;
 import org.lwjgl.MemoryUtil;
@@ -41,9 +42,12 @@ import org.lwjgl.opengl.GL14;
 import org.lwjgl.opengl.GL15;
 import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL33;
 import org.lwjgl.opengl.GL41;
+import org.lwjgl.opengl.GLContext;
 
-final class JavaSELwjglGL20 extends loon.opengl.GL20 {
+final class JavaSELwjglGL20 extends loon.opengl.GL20 implements GLInstanced {
 
 	public JavaSELwjglGL20() {
 		super(new Buffers() {
@@ -1310,4 +1314,24 @@ final class JavaSELwjglGL20 extends loon.opengl.GL20 {
 	public int getGlslVersion() {
 		return 120;
 	}
+
+	private int instancing = -1;
+
+	@Override
+	public boolean isInstancingSupported() {
+		if (instancing == -1) {
+			instancing = GLContext.getCapabilities().OpenGL33 ? 1 : 0;
+		}
+		return instancing == 1;
+	}
+
+	@Override
+	public void glVertexAttribDivisor(int index, int divisor) {
+		GL33.glVertexAttribDivisor(index, divisor);
+	}
+
+	@Override
+	public void glDrawElementsInstanced(int mode, int count, int type, int indicesOffset, int instanceCount) {
+		GL31.glDrawElementsInstanced(mode, count, type, indicesOffset, instanceCount);
+	}
 }
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.javase;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import loon.particle.ParticleExecutor;
+
+/**
+ * 以ForkJoinPool分块并行更新粒子,使用方式:system.setParticleExecutor(new JavaSEParticleExecutor())
+ */
+public class JavaSEParticleExecutor implements ParticleExecutor {
+
+	private static class UpdateAction extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Task task;
+
+		private final int start, end, grain;
+
+		UpdateAction(Task task, int start, int end, int grain) {
+			this.task = task;
+			this.start = start;
+			this.end = end;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= grain) {
+				task.update(start, end);
+				return;
+			}
+			final int mid = (start + end) >>> 1;
+			invokeAll(new UpdateAction(task, start, mid, grain), new UpdateAction(task, mid, end, grain));
+		}
+	}
+
+	private final ForkJoinPool pool;
+
+	public JavaSEParticleExecutor() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	public JavaSEParticleExecutor(int parallelism) {
+		this(new ForkJoinPool(parallelism));
+	}
+
+	public JavaSEParticleExecutor(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	@Override
+	public void execute(int count, int grain, Task task) {
+		if (count <= 0) {
+			return;
+		}
+		// 每个线程大约分到4块,但每块不少于grain个粒子
+		final int size = Math.max(Math.max(1, grain), count / (pool.getParallelism() * 4));
+		if (count <= size) {
+			task.update(0, count);
+			return;
+		}
+		pool.invoke(new UpdateAction(task, 0, count, size));
+	}
+
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+}
@@ -0,0 +1,212 @@
+package org.test;
+
+import java.util.Random;
+
+import loon.action.collision.CollisionManager;
+import loon.action.collision.CollisionObject;
+import loon.action.collision.CollisionPairCallback;
+import loon.geom.RectBox;
+
+/**
+ * CollisionManager三种碰撞检查器(BSP_CHECKER,GRID_CHECKER,SWEEP_AND_PRUNE_CHECKER)的碰撞对生成耗时对比:
+ * 随机分布的矩形每帧移动后调用updateObjectLocation,再以collidePairs生成全部碰撞对,统计每帧平均耗时与碰撞对数量,
+ * 对象数量不太大时同时以O(n^2)逐对检查得到的数量作为参照.
+ */
+public class BroadPhaseBenchmark {
+
+	private static final int[] COUNTS = { 1000, 10000, 50000 };
+
+	private static final int CELL_SIZE = 32;
+
+	private static final float MIN_SIZE = 8f;
+
+	private static final float MAX_SIZE = 32f;
+
+	private static final float MAX_SPEED = 4f;
+
+	// 平均每个对象占用的世界面积边长,保证不同对象数量下的密度相同
+	private static final float SPACING = 64f;
+
+	// 每个测试点大约执行的对象移动次数,对象越多帧数越少
+	private static final int WORK = 500000;
+
+	private static final int WARMUP_FRAMES = 2;
+
+	// 逐对检查的对象数量上限
+	private static final int BRUTE_FORCE_LIMIT = 10000;
+
+	private static final String[] NAMES = { "BSP", "grid", "SAP" };
+
+	private static final int[] CHECKERS = { CollisionManager.BSP_CHECKER, CollisionManager.GRID_CHECKER,
+			CollisionManager.SWEEP_AND_PRUNE_CHECKER };
+
+	static class Box implements CollisionObject {
+
+		final RectBox rect;
+
+		float vx, vy;
+
+		Object data;
+
+		Box(float x, float y, float w, float h) {
+			this.rect = new RectBox(x, y, w, h);
+		}
+
+		@Override
+		public RectBox getBoundingRect() {
+			return rect;
+		}
+
+		@Override
+		public void setCollisionData(Object data) {
+			this.data = data;
+		}
+
+		@Override
+		public Object getCollisionData() {
+			return data;
+		}
+
+		@Override
+		public boolean containsPoint(float x, float y) {
+			return rect.contains(x, y);
+		}
+
+		@Override
+		public boolean intersects(CollisionObject object) {
+			return rect.intersects(object.getRectBox());
+		}
+
+		@Override
+		public boolean intersects(RectBox other) {
+			return rect.intersects(other);
+		}
+
+		@Override
+		public String getObjectFlag() {
+			return "box";
+		}
+
+		@Override
+		public float getX() {
+			return rect.x;
+		}
+
+		@Override
+		public float getY() {
+			return rect.y;
+		}
+
+		@Override
+		public float getWidth() {
+			return rect.width;
+		}
+
+		@Override
+		public float getHeight() {
+			return rect.height;
+		}
+
+		@Override
+		public RectBox getRectBox() {
+			return rect;
+		}
+
+		@Override
+		public int getLayer() {
+			return 0;
+		}
+	}
+
+	static class Counter implements CollisionPairCallback {
+
+		int pairs;
+
+		@Override
+		public void onCollision(CollisionObject a, CollisionObject b) {
+			pairs++;
+		}
+	}
+
+	static Box[] createBoxes(int count, float world) {
+		final Random random = new Random(count);
+		final Box[] boxes = new Box[count];
+		for (int i = 0; i < count; i++) {
+			final float w = MIN_SIZE + random.nextFloat() * (MAX_SIZE - MIN_SIZE);
+			final float h = MIN_SIZE + random.nextFloat() * (MAX_SIZE - MIN_SIZE);
+			final Box box = new Box(random.nextFloat() * (world - w), random.nextFloat() * (world - h), w, h);
+			box.vx = (random.nextFloat() * 2f - 1f) * MAX_SPEED;
+			box.vy = (random.nextFloat() * 2f - 1f) * MAX_SPEED;
+			boxes[i] = box;
+		}
+		return boxes;
+	}
+
+	static void move(CollisionManager manager, Box[] boxes, float world) {
+		for (int i = 0; i < boxes.length; i++) {
+			final Box box = boxes[i];
+			final float oldX = box.rect.x;
+			final float oldY = box.rect.y;
+			float x = oldX + box.vx;
+			float y = oldY + box.vy;
+			if (x < 0 || x + box.rect.width > world) {
+				box.vx = -box.vx;
+				x = oldX + box.vx;
+			}
+			if (y < 0 || y + box.rect.height > world) {
+				box.vy = -box.vy;
+				y = oldY + box.vy;
+			}
+			box.rect.setLocation(x, y);
+			manager.updateObjectLocation(box, oldX, oldY);
+		}
+	}
+
+	static int bruteForce(Box[] boxes) {
+		int pairs = 0;
+		for (int i = 0; i < boxes.length; i++) {
+			final RectBox a = boxes[i].rect;
+			for (int j = i + 1; j < boxes.length; j++) {
+				final RectBox b = boxes[j].rect;
+				if (a.x <= b.x + b.width && b.x <= a.x + a.width && a.y <= b.y + b.height && b.y <= a.y + a.height) {
+					pairs++;
+				}
+			}
+		}
+		return pairs;
+	}
+
+	public static void main(String[] args) {
+		System.out.println(String.format("%-8s %-6s %10s %10s %10s", "objects", "check", "ms/frame", "pairs", "brute"));
+		for (int c = 0; c < COUNTS.length; c++) {
+			final int count = COUNTS[c];
+			final float world = (float) Math.sqrt(count) * SPACING;
+			final int frames = Math.max(3, WORK / count);
+			for (int k = 0; k < CHECKERS.length; k++) {
+				final Box[] boxes = createBoxes(count, world);
+				final CollisionManager manager = new CollisionManager(CHECKERS[k]);
+				manager.initialize(CELL_SIZE);
+				for (int i = 0; i < count; i++) {
+					manager.addObject(boxes[i]);
+				}
+				final Counter counter = new Counter();
+				for (int i = 0; i < WARMUP_FRAMES; i++) {
+					move(manager, boxes, world);
+					manager.collidePairs(null, null, counter);
+				}
+				long total = 0;
+				for (int i = 0; i < frames; i++) {
+					counter.pairs = 0;
+					final long st = System.nanoTime();
+					move(manager, boxes, world);
+					manager.collidePairs(null, null, counter);
+					total += System.nanoTime() - st;
+				}
+				final String brute = count <= BRUTE_FORCE_LIMIT ? String.valueOf(bruteForce(boxes)) : "-";
+				System.out.println(String.format("%-8d %-6s %10.1f %10d %10s", count, NAMES[k],
+						total / 1000000.0 / frames, counter.pairs, brute));
+				manager.dispose();
+			}
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package org.test;
+
+import java.nio.Buffer;
+
+import loon.opengl.TrilateralBatch;
+import loon.utils.GLUtils;
+import loon.utils.IntArray;
+
+/**
+ * 以RecordingGL20统计TrilateralBatch延迟提交(setDeferred)前后的draw call:多张纹理交替绘制互不重叠的四边形时,
+ * 延迟提交应大幅减少draw call;四边形全部重叠时不允许重新排序,draw call数量与纹理绑定顺序必须与立即提交完全一致.
+ */
+public class DrawReorderTest {
+
+	private static final int QUADS = 2000;
+
+	private static final int TEXTURES = 4;
+
+	private static final float SIZE = 16f;
+
+	/**
+	 * 额外记录每次draw call时绑定的纹理
+	 */
+	static class TextureRecordingGL20 extends RecordingGL20 {
+
+		final IntArray drawTextures = new IntArray();
+
+		@Override
+		public void glDrawElements(int mode, int count, int type, Buffer indices) {
+			super.glDrawElements(mode, count, type, indices);
+			drawTextures.add(GLUtils.getCurrentHardwareTextureID());
+		}
+
+		@Override
+		public void glDrawElements(int mode, int count, int type, int offset) {
+			super.glDrawElements(mode, count, type, offset);
+			drawTextures.add(GLUtils.getCurrentHardwareTextureID());
+		}
+
+		@Override
+		public void reset() {
+			super.reset();
+			drawTextures.clear();
+		}
+	}
+
+	/**
+	 * 直接切换纹理id,不需要创建真实纹理(与LTextureBind/BaseBatch.setTexture的切换规则相同)
+	 */
+	static class TestBatch extends TrilateralBatch {
+
+		TestBatch(TextureRecordingGL20 gl) {
+			super(gl);
+		}
+
+		void bind(int id) {
+			if (!isDeferred() && curTexId != -1 && curTexId != id) {
+				flush();
+			}
+			lastTexId = curTexId;
+			curTexId = id;
+		}
+	}
+
+	static int[] draw(TextureRecordingGL20 gl, boolean deferred, boolean overlap) {
+		final TestBatch batch = new TestBatch(gl);
+		batch.setDeferred(deferred);
+		gl.reset();
+		batch.begin(800, 600, true);
+		final int columns = (int) (800 / SIZE);
+		for (int i = 0; i < QUADS; i++) {
+			batch.bind(1 + i % TEXTURES);
+			final float x = overlap ? 100 : (i % columns) * SIZE;
+			final float y = overlap ? 100 : (i / columns) * SIZE;
+			batch.addQuad(0xffffffff, 1, 0, 0, 1, x, y, 0, 0, SIZE, SIZE, 0, 0, 1, 1);
+		}
+		batch.end();
+		return gl.drawTextures.toArray();
+	}
+
+	static boolean check(String name, boolean ok, int immediate, int deferred) {
+		System.out.println(String.format("%-12s immediate=%5d deferred=%5d%s", name, immediate, deferred,
+				ok ? " PASS" : " FAIL"));
+		return ok;
+	}
+
+	public static void main(String[] args) {
+		final TextureRecordingGL20 gl = RecordingGL20.install(new TextureRecordingGL20());
+		boolean ok = true;
+
+		int[] immediate = draw(gl, false, false);
+		int[] deferred = draw(gl, true, false);
+		// 合并时只向前查找有限的批次,且以批次的包围盒判断遮挡,所以结果多于纹理数量,但应远少于立即提交
+		ok &= check("sparse", immediate.length == QUADS && deferred.length * 4 <= immediate.length,
+				immediate.length, deferred.length);
+
+		immediate = draw(gl, false, true);
+		deferred = draw(gl, true, true);
+		boolean same = immediate.length == deferred.length;
+		for (int i = 0; same && i < immediate.length; i++) {
+			same = immediate[i] == deferred[i];
+		}
+		ok &= check("overlapping", same, immediate.length, deferred.length);
+
+		if (!ok) {
+			System.exit(1);
+		}
+	}
+}
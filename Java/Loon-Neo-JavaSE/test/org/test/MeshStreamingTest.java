@@ -0,0 +1,72 @@
+package org.test;
+
+import loon.opengl.MeshDefault;
+import loon.opengl.ShaderProgram;
+
+/**
+ * 以RecordingGL20统计MeshDefault.post的GL调用:环形顶点缓冲模式下每次提交只有一次glBufferSubData与一次draw call,
+ * 不再逐帧glBufferData整块上传,也不再查找按名称缓存的Mesh;设定自定义索引后必须退回Mesh池并使用调用者的索引.
+ */
+public class MeshStreamingTest {
+
+	private static final int QUADS = 100;
+
+	private static final int FRAMES = 200;
+
+	private static final String NAME = "stream";
+
+	private static final int SIZE = 512;
+
+	private static boolean check(String name, boolean ok, RecordingGL20 gl) {
+		System.out.println(name + " " + gl + (ok ? " PASS" : " FAIL"));
+		return ok;
+	}
+
+	public static void main(String[] args) {
+		final RecordingGL20 gl = RecordingGL20.install();
+		final ShaderProgram shader = new ShaderProgram("void main(){}", "void main(){}") {
+
+			@Override
+			public int getAttributeLocation(String name) {
+				return name.startsWith("a_pos") ? 0 : name.startsWith("a_col") ? 1 : 2;
+			}
+		};
+		final float[] vertices = new float[20 * QUADS];
+		final MeshDefault mesh = new MeshDefault();
+		boolean ok = true;
+
+		MeshDefault.setStreaming(true);
+		gl.reset();
+		for (int i = 0; i < FRAMES; i++) {
+			mesh.post(NAME, SIZE, shader, vertices, vertices.length, 6 * QUADS);
+		}
+		ok &= check("streaming", gl.count("glDrawElements") == FRAMES && gl.count("glBufferSubData") == FRAMES
+				&& gl.count("glBufferData") < FRAMES / 10 && mesh.size() == 0, gl);
+
+		MeshDefault.setStreaming(false);
+		gl.reset();
+		for (int i = 0; i < FRAMES; i++) {
+			mesh.post(NAME, SIZE, shader, vertices, vertices.length, 6 * QUADS);
+		}
+		ok &= check("pooled", gl.count("glDrawElements") == FRAMES && gl.count("glBufferSubData") == 0
+				&& mesh.size() == 1, gl);
+
+		// 自定义索引时即使开启流式提交也必须使用Mesh池中的索引(LTextureBatch.setIndices同样经由此函数)
+		MeshDefault.setStreaming(true);
+		final short[] indices = new short[6 * QUADS];
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = (short) (indices.length - 1 - i);
+		}
+		mesh.setIndices(NAME, SIZE, indices);
+		gl.reset();
+		for (int i = 0; i < FRAMES; i++) {
+			mesh.post(NAME, SIZE, shader, vertices, vertices.length, 6 * QUADS);
+		}
+		ok &= check("custom indices", gl.count("glDrawElements") == FRAMES && gl.count("glBufferSubData") == 0, gl);
+		mesh.resetIndices(NAME, SIZE);
+
+		if (!ok) {
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package org.test;
+
+import java.nio.ByteBuffer;
+
+import loon.LSetting;
+import loon.LSystem;
+import loon.LazyLoading;
+import loon.Screen;
+import loon.canvas.LColor;
+import loon.event.GameTouch;
+import loon.javase.Loon;
+import loon.opengl.GL20;
+import loon.opengl.GLEx;
+import loon.particle.SimpleParticleSystem;
+import loon.particle.SimpleSprayEmitter;
+import loon.utils.timer.LTimerContext;
+
+/**
+ * 检查SimpleSprayEmitter的叠加(additive)混合是否生效:红色粒子喷射在灰色背景上,
+ * 叠加混合时背景的绿色分量不会减少,普通混合时会被粒子遮盖而变暗.
+ */
+public class ParticleBlendTest {
+
+	static class BlendScreen extends Screen {
+
+		private static final int ADD_X = 160, NORMAL_X = 480, EMIT_Y = 240;
+
+		private final ByteBuffer pixel = ByteBuffer.allocateDirect(4);
+
+		private int frames;
+
+		private boolean checked;
+
+		@Override
+		public void onLoad() {
+			setBackground(new LColor(0.5f, 0.5f, 0.5f));
+			LColor start = new LColor(1f, 0f, 0f, 1f);
+			LColor end = new LColor(1f, 0f, 0f, 0f);
+			SimpleParticleSystem system = new SimpleParticleSystem(LSystem.getSystemImagePath() + "par.png", 20000);
+			system.addEmitter(new SimpleSprayEmitter(ADD_X, EMIT_Y).setEmission(4000).setSpeed(0.01f, 0.05f)
+					.setColor(start, end).setAdditive(true));
+			system.addEmitter(new SimpleSprayEmitter(NORMAL_X, EMIT_Y).setEmission(4000).setSpeed(0.01f, 0.05f)
+					.setColor(start, end).setAdditive(false));
+			add(system);
+		}
+
+		@Override
+		protected void beforeUI(GLEx g) {
+			if (checked || ++frames < 30) {
+				return;
+			}
+			checked = true;
+			g.batch().flush();
+			int addGreen = green(ADD_X, EMIT_Y);
+			int normalGreen = green(NORMAL_X, EMIT_Y);
+			int background = green(20, 20);
+			boolean ok = addGreen >= background && normalGreen < background;
+			LSystem.info("additive green=" + addGreen + " normal green=" + normalGreen + " background green="
+					+ background + (ok ? " PASS" : " FAIL"));
+		}
+
+		private int green(int x, int y) {
+			GL20 gl = LSystem.base().graphics().gl;
+			pixel.clear();
+			gl.glReadPixels(x, getHeight() - y, 1, 1, GL20.GL_RGBA, GL20.GL_UNSIGNED_BYTE, pixel);
+			return pixel.get(1) & 0xFF;
+		}
+
+		@Override
+		public void draw(GLEx g) {
+
+		}
+
+		@Override
+		public void alter(LTimerContext timer) {
+
+		}
+
+		@Override
+		public void resize(int width, int height) {
+
+		}
+
+		@Override
+		public void touchDown(GameTouch e) {
+
+		}
+
+		@Override
+		public void touchUp(GameTouch e) {
+
+		}
+
+		@Override
+		public void touchMove(GameTouch e) {
+
+		}
+
+		@Override
+		public void touchDrag(GameTouch e) {
+
+		}
+
+		@Override
+		public void resume() {
+
+		}
+
+		@Override
+		public void pause() {
+
+		}
+
+		@Override
+		public void close() {
+
+		}
+	}
+
+	public static void main(String[] args) {
+		LSetting setting = new LSetting();
+		setting.isFPS = true;
+		setting.isLogo = false;
+		setting.width = 640;
+		setting.height = 480;
+		setting.fps = 60;
+		setting.appName = "particle blend";
+		setting.emulateTouch = false;
+		Loon.register(setting, new LazyLoading.Data() {
+
+			@Override
+			public Screen onScreen() {
+				return new BlendScreen();
+			}
+		});
+	}
+}
@@ -0,0 +1,159 @@
+package org.test;
+
+import java.util.Random;
+
+import loon.action.map.AStarFindEngine;
+import loon.action.map.AStarFindHeuristic;
+import loon.action.map.AStarFinder;
+import loon.action.map.Field2D;
+import loon.action.map.HierarchicalFindEngine;
+import loon.action.map.JumpPointFindEngine;
+import loon.geom.Vector2f;
+import loon.utils.TArray;
+
+/**
+ * 标准A*,Jump Point Search与分层寻径(HPA*)的对比:在随机障碍的八方向地图上以相同的起点与终点查询,
+ * 统计每次查询的平均耗时,展开节点数(分层寻径为抽象图上的节点)与路径长度.最后随机修改地图格子,
+ * 检查增量更新后的分层寻径与重新建立的分层寻径结果一致.
+ */
+public class PathFindBenchmark {
+
+	private static final int SIZE = 256;
+
+	private static final float WALL_RATE = 0.2f;
+
+	private static final int QUERIES = 300;
+
+	private static final int ROUNDS = 3;
+
+	private static final int EDITS = 200;
+
+	private static final int WALL = 1;
+
+	private static final AStarFindHeuristic HEURISTIC = AStarFinder.ASTAR_OCTILE;
+
+	// 不限制展开节点数,保证A*可以搜索到远处的终点
+	private static final int OVERFLOW = SIZE * SIZE;
+
+	static class Result {
+
+		double millis;
+
+		long expanded;
+
+		double length;
+
+		int found;
+	}
+
+	static Field2D createField(Random random) {
+		final int[][] map = new int[SIZE][SIZE];
+		for (int y = 0; y < SIZE; y++) {
+			for (int x = 0; x < SIZE; x++) {
+				map[y][x] = random.nextFloat() < WALL_RATE ? WALL : 0;
+			}
+		}
+		final Field2D field = new Field2D(map);
+		field.setLimit(new int[] { WALL });
+		return field;
+	}
+
+	static int[] createQueries(Field2D field, Random random) {
+		final int[] queries = new int[QUERIES * 4];
+		for (int i = 0; i < queries.length; i += 2) {
+			int x, y;
+			do {
+				x = random.nextInt(SIZE);
+				y = random.nextInt(SIZE);
+			} while (!field.isHit(x, y));
+			queries[i] = x;
+			queries[i + 1] = y;
+		}
+		return queries;
+	}
+
+	static double length(TArray<Vector2f> path) {
+		double length = 0;
+		for (int i = 1; i < path.size; i++) {
+			final Vector2f a = path.get(i - 1);
+			final Vector2f b = path.get(i);
+			length += Math.sqrt((a.x - b.x) * (a.x - b.x) + (a.y - b.y) * (a.y - b.y));
+		}
+		return length;
+	}
+
+	static Result run(AStarFindEngine engine, Field2D field, int[] queries) {
+		final Result result = new Result();
+		long total = 0;
+		for (int i = 0; i < queries.length; i += 4) {
+			final long st = System.nanoTime();
+			final TArray<Vector2f> path = engine.find(field, HEURISTIC, queries[i], queries[i + 1], queries[i + 2],
+					queries[i + 3], false, true, OVERFLOW);
+			total += System.nanoTime() - st;
+			result.expanded += engine.getExpandedCount();
+			if (path != null) {
+				result.found++;
+				result.length += length(path);
+			}
+		}
+		result.millis = total / 1000000.0;
+		return result;
+	}
+
+	static void report(String name, AStarFindEngine engine, Field2D field, int[] queries) {
+		Result best = null;
+		for (int i = 0; i < ROUNDS; i++) {
+			final Result result = run(engine, field, queries);
+			if (best == null || result.millis < best.millis) {
+				best = result;
+			}
+		}
+		final int count = queries.length / 4;
+		System.out.println(String.format("%-6s %8.3f ms/query %8d expanded/query  avg length %7.2f  found %d/%d",
+				name, best.millis / count, best.expanded / count, best.length / Math.max(1, best.found), best.found,
+				count));
+	}
+
+	public static void main(String[] args) {
+		final Random random = new Random(256);
+		final Field2D field = createField(random);
+		final int[] queries = createQueries(field, random);
+		System.out.println(SIZE + "x" + SIZE + " map, " + (int) (WALL_RATE * 100) + "% walls, " + QUERIES
+				+ " queries, 8 directions");
+
+		report("A*", new AStarFindEngine(), field, queries);
+		report("JPS", new JumpPointFindEngine(), field, queries);
+
+		final long st = System.nanoTime();
+		final HierarchicalFindEngine hierarchical = new HierarchicalFindEngine(field, true);
+		hierarchical.find(field, HEURISTIC, queries[0], queries[1], queries[2], queries[3], false, true, OVERFLOW);
+		System.out.println(String.format("HPA* build %.1f ms, %d abstract nodes", (System.nanoTime() - st) / 1000000.0,
+				hierarchical.getNodeCount()));
+		report("HPA*", hierarchical, field, queries);
+
+		// 随机修改格子后,增量更新的区块数据应与重新建立的结果一致
+		for (int i = 0; i < EDITS; i++) {
+			final int x = random.nextInt(SIZE);
+			final int y = random.nextInt(SIZE);
+			field.setTileType(x, y, field.isHit(x, y) ? WALL : 0);
+		}
+		final HierarchicalFindEngine rebuilt = new HierarchicalFindEngine(field, true);
+		int mismatches = 0;
+		for (int i = 0; i < queries.length; i += 4) {
+			final TArray<Vector2f> a = hierarchical.find(field, HEURISTIC, queries[i], queries[i + 1],
+					queries[i + 2], queries[i + 3], false, true, OVERFLOW);
+			final TArray<Vector2f> b = rebuilt.find(field, HEURISTIC, queries[i], queries[i + 1], queries[i + 2],
+					queries[i + 3], false, true, OVERFLOW);
+			if ((a == null) != (b == null) || (a != null && Math.abs(length(a) - length(b)) > 1e-3)) {
+				mismatches++;
+			}
+		}
+		hierarchical.close();
+		rebuilt.close();
+		System.out.println("after " + EDITS + " edits: " + mismatches + " mismatches between incremental and rebuilt"
+				+ (mismatches == 0 ? " PASS" : " FAIL"));
+		if (mismatches != 0) {
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package org.test;
+
+import loon.physics.PBody;
+import loon.physics.PPhysManager;
+import loon.physics.PPhysWorld;
+
+/**
+ * PPhysWorld堆叠场景的单步耗时对比:金字塔形堆叠的箱子落在固定地面上,分别关闭/开启warm starting与休眠岛屿,
+ * 统计堆叠稳定后每次step的平均耗时,以及顶部箱子的位置偏移(越小越稳定).
+ */
+public class PhysicsPileBenchmark {
+
+	private static final int ROWS = 20;
+
+	private static final float BOX = 20f;
+
+	private static final float DT = 1f / 60f;
+
+	private static final int SETTLE_STEPS = 600;
+
+	private static final int MEASURE_STEPS = 600;
+
+	private static final int ROUNDS = 3;
+
+	static class Result {
+
+		double stepMicros;
+
+		int sleeping;
+
+		int pairs;
+
+		float drift;
+	}
+
+	static Result run(boolean warmStarting, boolean sleeping) {
+		PPhysManager manager = new PPhysManager(BOX);
+		PPhysWorld world = manager.world;
+		world.setWarmStarting(warmStarting);
+		world.setSleepingEnabled(sleeping);
+		final float groundY = BOX * (ROWS + 4);
+		manager.addBox(true, -BOX * 10, groundY, BOX * (ROWS + 20), BOX);
+		PBody top = null;
+		for (int row = 0; row < ROWS; row++) {
+			final int count = ROWS - row;
+			final float y = groundY - BOX * (row + 1);
+			for (int i = 0; i < count; i++) {
+				top = manager.addBox(false, BOX * (row * 0.5f + i), y, BOX, BOX);
+			}
+		}
+		for (int i = 0; i < SETTLE_STEPS; i++) {
+			world.step(DT);
+		}
+		final float startX = top.getPosition().x;
+		final float startY = top.getPosition().y;
+		long total = 0;
+		for (int i = 0; i < MEASURE_STEPS; i++) {
+			long st = System.nanoTime();
+			world.step(DT);
+			total += System.nanoTime() - st;
+		}
+		Result result = new Result();
+		result.stepMicros = total / 1000.0 / MEASURE_STEPS;
+		result.sleeping = world.getSleepingBodies();
+		result.pairs = world.getContactPairs();
+		result.drift = Math.abs(top.getPosition().x - startX) + Math.abs(top.getPosition().y - startY);
+		return result;
+	}
+
+	static void report(String name, boolean warmStarting, boolean sleeping) {
+		Result best = null;
+		for (int i = 0; i < ROUNDS; i++) {
+			Result result = run(warmStarting, sleeping);
+			if (best == null || result.stepMicros < best.stepMicros) {
+				best = result;
+			}
+		}
+		System.out.println(String.format("%-28s step=%8.1fus sleeping=%4d pairs=%4d topDrift=%.4f", name,
+				best.stepMicros, best.sleeping, best.pairs, best.drift));
+	}
+
+	public static void main(String[] args) {
+		final int boxes = ROWS * (ROWS + 1) / 2;
+		System.out.println("pile of " + boxes + " boxes, " + MEASURE_STEPS + " steps after " + SETTLE_STEPS
+				+ " settle steps");
+		report("no warm start, no sleep", false, false);
+		report("warm start, no sleep", true, false);
+		report("warm start, sleeping", true, true);
+	}
+}
@@ -0,0 +1,86 @@
+package org.test;
+
+import java.lang.management.ManagementFactory;
+
+import loon.utils.processes.GameProcessType;
+import loon.utils.processes.RealtimeProcess;
+import loon.utils.processes.RealtimeProcessManager;
+import loon.utils.timer.LTimerContext;
+
+/**
+ * 检查RealtimeProcessManager在进程集合不变时逐帧tick不产生新对象:预热后统计当前线程N帧内分配的字节数,
+ * 结果应为0(允许少量JVM自身的统计误差).
+ */
+public class ProcessAllocationTest {
+
+	private static final int PROCESS_COUNT = 64;
+
+	private static final int WARMUP_TICKS = 20000;
+
+	private static final int TICKS = 100000;
+
+	// 计数器本身也可能产生的少量分配(如ThreadMXBean内部),超过此值视为失败
+	private static final long TOLERANCE_BYTES = 1024;
+
+	static class CountProcess extends RealtimeProcess {
+
+		long runs;
+
+		CountProcess(String id, GameProcessType type) {
+			super(id, 0, type);
+		}
+
+		@Override
+		public void run(LTimerContext time) {
+			runs++;
+		}
+	}
+
+	public static void main(String[] args) {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			System.out.println("thread allocation counting unsupported, SKIP");
+			return;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			System.out.println("thread allocation counting unsupported, SKIP");
+			return;
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		RealtimeProcessManager manager = RealtimeProcessManager.newProcess();
+		GameProcessType[] types = GameProcessType.values();
+		CountProcess[] processes = new CountProcess[PROCESS_COUNT];
+		for (int i = 0; i < PROCESS_COUNT; i++) {
+			processes[i] = new CountProcess("process" + i, types[i % types.length]);
+			manager.addProcess(processes[i]);
+		}
+		LTimerContext context = new LTimerContext();
+		context.timeSinceLastUpdate = 16;
+
+		for (int i = 0; i < WARMUP_TICKS; i++) {
+			manager.tick(context);
+		}
+
+		final long threadId = Thread.currentThread().getId();
+		final long before = threads.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < TICKS; i++) {
+			manager.tick(context);
+		}
+		final long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+		long runs = 0;
+		for (int i = 0; i < PROCESS_COUNT; i++) {
+			runs += processes[i].runs;
+		}
+		final boolean ran = runs == (long) PROCESS_COUNT * (WARMUP_TICKS + TICKS);
+		final boolean ok = ran && allocated <= TOLERANCE_BYTES;
+		System.out.println(TICKS + " ticks of " + PROCESS_COUNT + " processes allocated " + allocated
+				+ " bytes, runs=" + runs + (ok ? " PASS" : " FAIL"));
+		manager.close();
+		if (!ok) {
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,1119 @@
+package org.test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Map;
+import java.util.TreeMap;
+
+import loon.EmptyGame;
+import loon.Graphics;
+import loon.LGame;
+import loon.LSetting;
+import loon.Support;
+import loon.canvas.Canvas;
+import loon.font.TextFormat;
+import loon.font.TextLayout;
+import loon.font.TextWrap;
+import loon.geom.Dimension;
+import loon.opengl.GL20;
+import loon.utils.Scale;
+
+/**
+ * 不依赖OpenGL环境的GL20实现,只记录每个函数的调用次数,用于在无窗口环境下统计draw call与缓冲上传次数.
+ *
+ * install()以此GL20创建一个空的游戏实例并设为当前游戏(LSystem.base()),之后即可直接创建批处理与Mesh对象.
+ */
+public class RecordingGL20 extends GL20 {
+
+	private final Map<String, Integer> calls = new TreeMap<String, Integer>();
+
+	private int nextId = 1;
+
+	public RecordingGL20() {
+		super(new GL20.Buffers() {
+
+			@Override
+			public ByteBuffer createByteBuffer(int size) {
+				return ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+			}
+		}, false);
+	}
+
+	/**
+	 * 以一个新的RecordingGL20创建空的游戏实例并设为当前游戏
+	 *
+	 * @return
+	 */
+	public static RecordingGL20 install() {
+		return install(new RecordingGL20());
+	}
+
+	/**
+	 * 以指定的RecordingGL20(可以是记录更多信息的子类)创建空的游戏实例并设为当前游戏
+	 *
+	 * @param gl
+	 * @return
+	 */
+	public static <T extends RecordingGL20> T install(final T gl) {
+		final Support support = (Support) Proxy.newProxyInstance(Support.class.getClassLoader(),
+				new Class<?>[] { Support.class }, new InvocationHandler() {
+
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						final String name = method.getName();
+						if (name.equals("newIntBuffer")) {
+							return IntBuffer.allocate((Integer) args[0]);
+						}
+						if (name.equals("newByteBuffer") || name.equals("newUnsafeByteBuffer")) {
+							return ByteBuffer.allocateDirect((Integer) args[0]).order(ByteOrder.nativeOrder());
+						}
+						if (name.equals("copy") && args.length == 4 && args[0] instanceof float[]) {
+							final float[] src = (float[]) args[0];
+							final int count = (Integer) args[3];
+							if (args[1] instanceof ByteBuffer) {
+								ByteBuffer dst = (ByteBuffer) args[1];
+								dst.clear();
+								dst.asFloatBuffer().put(src, (Integer) args[2], count);
+								dst.position(0);
+								dst.limit(count * 4);
+							} else if (args[1] instanceof FloatBuffer) {
+								FloatBuffer dst = (FloatBuffer) args[1];
+								dst.clear();
+								dst.put(src, (Integer) args[2], count);
+								dst.flip();
+							}
+							return null;
+						}
+						if (method.getReturnType() == boolean.class) {
+							return false;
+						}
+						if (method.getReturnType() == int.class) {
+							return 0;
+						}
+						return null;
+					}
+				});
+		final EmptyGame game = new EmptyGame(new LSetting(), null) {
+
+			private final Graphics graphics = new Graphics(this, gl, Scale.ONE) {
+
+				@Override
+				public Dimension screenSize() {
+					return new Dimension(800, 600);
+				}
+
+				@Override
+				public TextLayout layoutText(String text, TextFormat format) {
+					return null;
+				}
+
+				@Override
+				public TextLayout[] layoutText(String text, TextFormat format, TextWrap wrap) {
+					return null;
+				}
+
+				@Override
+				protected Canvas createCanvasImpl(Scale scale, int pixelWidth, int pixelHeight) {
+					return null;
+				}
+			};
+
+			@Override
+			public Support support() {
+				return support;
+			}
+
+			@Override
+			public Graphics graphics() {
+				return graphics;
+			}
+		};
+		try {
+			Field base = LGame.class.getDeclaredField("_base");
+			base.setAccessible(true);
+			base.set(null, game);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+		return gl;
+	}
+
+	protected void record(String name) {
+		Integer count = calls.get(name);
+		calls.put(name, count == null ? 1 : count + 1);
+	}
+
+	public int count(String name) {
+		Integer count = calls.get(name);
+		return count == null ? 0 : count;
+	}
+
+	public void reset() {
+		calls.clear();
+	}
+
+	@Override
+	public String toString() {
+		return calls.toString();
+	}
+
+	@Override
+	public String getPlatformGLExtensions() {
+		record("getPlatformGLExtensions");
+		return null;
+	}
+
+	@Override
+	public boolean hasGLSL() {
+		record("hasGLSL");
+		return false;
+	}
+
+	@Override
+	public boolean isExtensionAvailable(String extension) {
+		record("isExtensionAvailable");
+		return false;
+	}
+
+	@Override
+	public boolean isFunctionAvailable(String function) {
+		record("isFunctionAvailable");
+		return false;
+	}
+
+	@Override
+	public int getSwapInterval() {
+		record("getSwapInterval");
+		return 0;
+	}
+
+	@Override
+	public void glActiveTexture(int texture) {
+		record("glActiveTexture");
+	}
+
+	@Override
+	public void glAttachShader(int program, int shader) {
+		record("glAttachShader");
+	}
+
+	@Override
+	public void glBindAttribLocation(int program, int index, String name) {
+		record("glBindAttribLocation");
+	}
+
+	@Override
+	public void glBindBuffer(int target, int buffer) {
+		record("glBindBuffer");
+	}
+
+	@Override
+	public void glBindFramebuffer(int target, int framebuffer) {
+		record("glBindFramebuffer");
+	}
+
+	@Override
+	public void glBindRenderbuffer(int target, int renderbuffer) {
+		record("glBindRenderbuffer");
+	}
+
+	@Override
+	public void glBindTexture(int target, int texture) {
+		record("glBindTexture");
+	}
+
+	@Override
+	public void glBlendColor(float red, float green, float blue, float alpha) {
+		record("glBlendColor");
+	}
+
+	@Override
+	public void glBlendEquation(int mode) {
+		record("glBlendEquation");
+	}
+
+	@Override
+	public void glBlendEquationSeparate(int modeRGB, int modeAlpha) {
+		record("glBlendEquationSeparate");
+	}
+
+	@Override
+	public void glBlendFunc(int sfactor, int dfactor) {
+		record("glBlendFunc");
+	}
+
+	@Override
+	public void glBlendFuncSeparate(int srcRGB, int dstRGB, int srcAlpha, int dstAlpha) {
+		record("glBlendFuncSeparate");
+	}
+
+	@Override
+	public void glBufferData(int target, int size, Buffer data, int usage) {
+		record("glBufferData");
+	}
+
+	@Override
+	public void glBufferSubData(int target, int offset, int size, Buffer data) {
+		record("glBufferSubData");
+	}
+
+	@Override
+	public int glCheckFramebufferStatus(int target) {
+		record("glCheckFramebufferStatus");
+		return 0;
+	}
+
+	@Override
+	public void glClear(int mask) {
+		record("glClear");
+	}
+
+	@Override
+	public void glClearColor(float red, float green, float blue, float alpha) {
+		record("glClearColor");
+	}
+
+	@Override
+	public void glClearDepth(double depth) {
+		record("glClearDepth");
+	}
+
+	@Override
+	public void glClearDepthf(float depth) {
+		record("glClearDepthf");
+	}
+
+	@Override
+	public void glClearStencil(int s) {
+		record("glClearStencil");
+	}
+
+	@Override
+	public void glColorMask(boolean red, boolean green, boolean blue, boolean alpha) {
+		record("glColorMask");
+	}
+
+	@Override
+	public void glCompileShader(int shader) {
+		record("glCompileShader");
+	}
+
+	@Override
+	public void glCompressedTexImage2D(int target, int level, int internalformat, int width, int height, int border, int imageSize, Buffer data) {
+		record("glCompressedTexImage2D");
+	}
+
+	@Override
+	public void glCompressedTexImage2D(int arg0, int arg1, int arg2, int arg3, int arg4, int arg5, int arg6, int arg7) {
+		record("glCompressedTexImage2D");
+	}
+
+	@Override
+	public void glCompressedTexImage3D(int arg0, int arg1, int arg2, int arg3, int arg4, int arg5, int arg6, int arg7, Buffer arg8) {
+		record("glCompressedTexImage3D");
+	}
+
+	@Override
+	public void glCompressedTexImage3D(int arg0, int arg1, int arg2, int arg3, int arg4, int arg5, int arg6, int arg7, int arg8) {
+		record("glCompressedTexImage3D");
+	}
+
+	@Override
+	public void glCompressedTexSubImage2D(int target, int level, int xoffset, int yoffset, int width, int height, int format, int imageSize, Buffer data) {
+		record("glCompressedTexSubImage2D");
+	}
+
+	@Override
+	public void glCompressedTexSubImage2D(int arg0, int arg1, int arg2, int arg3, int arg4, int arg5, int arg6, int arg7, int arg8) {
+		record("glCompressedTexSubImage2D");
+	}
+
+	@Override
+	public void glCompressedTexSubImage3D(int arg0, int arg1, int arg2, int arg3, int arg4, int arg5, int arg6, int arg7, int arg8, int arg9, Buffer arg10) {
+		record("glCompressedTexSubImage3D");
+	}
+
+	@Override
+	public void glCompressedTexSubImage3D(int arg0, int arg1, int arg2, int arg3, int arg4, int arg5, int arg6, int arg7, int arg8, int arg9, int arg10) {
+		record("glCompressedTexSubImage3D");
+	}
+
+	@Override
+	public void glCopyTexImage2D(int target, int level, int internalformat, int x, int y, int width, int height, int border) {
+		record("glCopyTexImage2D");
+	}
+
+	@Override
+	public void glCopyTexSubImage2D(int target, int level, int xoffset, int yoffset, int x, int y, int width, int height) {
+		record("glCopyTexSubImage2D");
+	}
+
+	@Override
+	public void glCopyTexSubImage3D(int arg0, int arg1, int arg2, int arg3, int arg4, int arg5, int arg6, int arg7, int arg8) {
+		record("glCopyTexSubImage3D");
+	}
+
+	@Override
+	public int glCreateProgram() {
+		record("glCreateProgram");
+		return nextId++;
+	}
+
+	@Override
+	public int glCreateShader(int type) {
+		record("glCreateShader");
+		return nextId++;
+	}
+
+	@Override
+	public void glCullFace(int mode) {
+		record("glCullFace");
+	}
+
+	@Override
+	public void glDeleteBuffers(int n, IntBuffer buffers) {
+		record("glDeleteBuffers");
+	}
+
+	@Override
+	public void glDeleteFramebuffers(int n, IntBuffer framebuffers) {
+		record("glDeleteFramebuffers");
+	}
+
+	@Override
+	public void glDeleteProgram(int program) {
+		record("glDeleteProgram");
+	}
+
+	@Override
+	public void glDeleteRenderbuffers(int n, IntBuffer renderbuffers) {
+		record("glDeleteRenderbuffers");
+	}
+
+	@Override
+	public void glDeleteShader(int shader) {
+		record("glDeleteShader");
+	}
+
+	@Override
+	public void glDeleteTextures(int n, IntBuffer textures) {
+		record("glDeleteTextures");
+	}
+
+	@Override
+	public void glDepthFunc(int func) {
+		record("glDepthFunc");
+	}
+
+	@Override
+	public void glDepthMask(boolean flag) {
+		record("glDepthMask");
+	}
+
+	@Override
+	public void glDepthRange(double zNear, double zFar) {
+		record("glDepthRange");
+	}
+
+	@Override
+	public void glDepthRangef(float zNear, float zFar) {
+		record("glDepthRangef");
+	}
+
+	@Override
+	public void glDetachShader(int program, int shader) {
+		record("glDetachShader");
+	}
+
+	@Override
+	public void glDisable(int cap) {
+		record("glDisable");
+	}
+
+	@Override
+	public void glDisableVertexAttribArray(int index) {
+		record("glDisableVertexAttribArray");
+	}
+
+	@Override
+	public void glDrawArrays(int mode, int first, int count) {
+		record("glDrawArrays");
+	}
+
+	@Override
+	public void glDrawElements(int mode, int count, int type, Buffer indices) {
+		record("glDrawElements");
+	}
+
+	@Override
+	public void glDrawElements(int mode, int count, int type, int offset) {
+		record("glDrawElements");
+	}
+
+	@Override
+	public void glEnable(int cap) {
+		record("glEnable");
+	}
+
+	@Override
+	public void glEnableVertexAttribArray(int index) {
+		record("glEnableVertexAttribArray");
+	}
+
+	@Override
+	public void glFinish() {
+		record("glFinish");
+	}
+
+	@Override
+	public void glFlush() {
+		record("glFlush");
+	}
+
+	@Override
+	public void glFramebufferRenderbuffer(int target, int attachment, int renderbuffertarget, int renderbuffer) {
+		record("glFramebufferRenderbuffer");
+	}
+
+	@Override
+	public void glFramebufferTexture2D(int target, int attachment, int textarget, int texture, int level) {
+		record("glFramebufferTexture2D");
+	}
+
+	@Override
+	public void glFramebufferTexture3D(int target, int attachment, int textarget, int texture, int level, int zoffset) {
+		record("glFramebufferTexture3D");
+	}
+
+	@Override
+	public void glFrontFace(int mode) {
+		record("glFrontFace");
+	}
+
+	@Override
+	public void glGenBuffers(int n, IntBuffer buffers) {
+		record("glGenBuffers");
+		for (int i = 0; i < n; i++) {
+			buffers.put(buffers.position() + i, nextId++);
+		}
+	}
+
+	@Override
+	public void glGenerateMipmap(int target) {
+		record("glGenerateMipmap");
+	}
+
+	@Override
+	public void glGenFramebuffers(int n, IntBuffer framebuffers) {
+		record("glGenFramebuffers");
+		for (int i = 0; i < n; i++) {
+			framebuffers.put(framebuffers.position() + i, nextId++);
+		}
+	}
+
+	@Override
+	public void glGenRenderbuffers(int n, IntBuffer renderbuffers) {
+		record("glGenRenderbuffers");
+		for (int i = 0; i < n; i++) {
+			renderbuffers.put(renderbuffers.position() + i, nextId++);
+		}
+	}
+
+	@Override
+	public void glGenTextures(int n, IntBuffer textures) {
+		record("glGenTextures");
+		for (int i = 0; i < n; i++) {
+			textures.put(textures.position() + i, nextId++);
+		}
+	}
+
+	@Override
+	public void glGetActiveAttrib(int program, int index, int bufsize, int[] length, int lengthOffset, int[] size, int sizeOffset, int[] type, int typeOffset, byte[] name, int nameOffset) {
+		record("glGetActiveAttrib");
+	}
+
+	@Override
+	public void glGetActiveUniform(int program, int index, int bufsize, int[] length, int lengthOffset, int[] size, int sizeOffset, int[] type, int typeOffset, byte[] name, int nameOffset) {
+		record("glGetActiveUniform");
+	}
+
+	@Override
+	public void glGetAttachedShaders(int program, int maxcount, IntBuffer count, IntBuffer shaders) {
+		record("glGetAttachedShaders");
+	}
+
+	@Override
+	public int glGetAttribLocation(int program, String name) {
+		record("glGetAttribLocation");
+		return 0;
+	}
+
+	@Override
+	public boolean glGetBoolean(int pname) {
+		record("glGetBoolean");
+		return false;
+	}
+
+	@Override
+	public void glGetBooleanv(int pname, ByteBuffer params) {
+		record("glGetBooleanv");
+	}
+
+	@Override
+	public int glGetBoundBuffer(int arg0) {
+		record("glGetBoundBuffer");
+		return 0;
+	}
+
+	@Override
+	public void glGetBufferParameteriv(int target, int pname, IntBuffer params) {
+		record("glGetBufferParameteriv");
+	}
+
+	@Override
+	public int glGetError() {
+		record("glGetError");
+		return 0;
+	}
+
+	@Override
+	public float glGetFloat(int pname) {
+		record("glGetFloat");
+		return 0;
+	}
+
+	@Override
+	public void glGetFloatv(int pname, FloatBuffer params) {
+		record("glGetFloatv");
+	}
+
+	@Override
+	public void glGetFramebufferAttachmentParameteriv(int target, int attachment, int pname, IntBuffer params) {
+		record("glGetFramebufferAttachmentParameteriv");
+	}
+
+	@Override
+	public int glGetInteger(int pname) {
+		record("glGetInteger");
+		return 0;
+	}
+
+	@Override
+	public void glGetIntegerv(int pname, IntBuffer params) {
+		record("glGetIntegerv");
+	}
+
+	@Override
+	public void glGetProgramBinary(int arg0, int arg1, IntBuffer arg2, IntBuffer arg3, Buffer arg4) {
+		record("glGetProgramBinary");
+	}
+
+	@Override
+	public void glGetProgramInfoLog(int program, int bufsize, IntBuffer length, ByteBuffer infolog) {
+		record("glGetProgramInfoLog");
+	}
+
+	@Override
+	public String glGetProgramInfoLog(int program) {
+		record("glGetProgramInfoLog");
+		return null;
+	}
+
+	@Override
+	public void glGetProgramiv(int program, int pname, IntBuffer params) {
+		record("glGetProgramiv");
+		params.put(0, pname == GL_LINK_STATUS ? 1 : 0);
+	}
+
+	@Override
+	public void glGetRenderbufferParameteriv(int target, int pname, IntBuffer params) {
+		record("glGetRenderbufferParameteriv");
+	}
+
+	@Override
+	public void glGetShaderInfoLog(int shader, int bufsize, IntBuffer length, ByteBuffer infolog) {
+		record("glGetShaderInfoLog");
+	}
+
+	@Override
+	public String glGetShaderInfoLog(int shader) {
+		record("glGetShaderInfoLog");
+		return null;
+	}
+
+	@Override
+	public void glGetShaderiv(int shader, int pname, IntBuffer params) {
+		record("glGetShaderiv");
+		params.put(0, pname == GL_COMPILE_STATUS ? 1 : 0);
+	}
+
+	@Override
+	public void glGetShaderPrecisionFormat(int shadertype, int precisiontype, int[] range, int rangeOffset, int[] precision, int precisionOffset) {
+		record("glGetShaderPrecisionFormat");
+	}
+
+	@Override
+	public void glGetShaderPrecisionFormat(int shadertype, int precisiontype, IntBuffer range, IntBuffer precision) {
+		record("glGetShaderPrecisionFormat");
+	}
+
+	@Override
+	public void glGetShaderSource(int shader, int bufsize, int[] length, int lengthOffset, byte[] source, int sourceOffset) {
+		record("glGetShaderSource");
+	}
+
+	@Override
+	public void glGetShaderSource(int shader, int bufsize, IntBuffer length, ByteBuffer source) {
+		record("glGetShaderSource");
+	}
+
+	@Override
+	public String glGetString(int name) {
+		record("glGetString");
+		return null;
+	}
+
+	@Override
+	public void glGetTexParameterfv(int target, int pname, FloatBuffer params) {
+		record("glGetTexParameterfv");
+	}
+
+	@Override
+	public void glGetTexParameteriv(int target, int pname, IntBuffer params) {
+		record("glGetTexParameteriv");
+	}
+
+	@Override
+	public void glGetUniformfv(int program, int location, FloatBuffer params) {
+		record("glGetUniformfv");
+	}
+
+	@Override
+	public void glGetUniformiv(int program, int location, IntBuffer params) {
+		record("glGetUniformiv");
+	}
+
+	@Override
+	public int glGetUniformLocation(int program, String name) {
+		record("glGetUniformLocation");
+		return 0;
+	}
+
+	@Override
+	public void glGetVertexAttribfv(int index, int pname, FloatBuffer params) {
+		record("glGetVertexAttribfv");
+	}
+
+	@Override
+	public void glGetVertexAttribiv(int index, int pname, IntBuffer params) {
+		record("glGetVertexAttribiv");
+	}
+
+	@Override
+	public void glHint(int target, int mode) {
+		record("glHint");
+	}
+
+	@Override
+	public boolean glIsBuffer(int buffer) {
+		record("glIsBuffer");
+		return false;
+	}
+
+	@Override
+	public boolean glIsEnabled(int cap) {
+		record("glIsEnabled");
+		return false;
+	}
+
+	@Override
+	public boolean glIsFramebuffer(int framebuffer) {
+		record("glIsFramebuffer");
+		return false;
+	}
+
+	@Override
+	public boolean glIsProgram(int program) {
+		record("glIsProgram");
+		return false;
+	}
+
+	@Override
+	public boolean glIsRenderbuffer(int renderbuffer) {
+		record("glIsRenderbuffer");
+		return false;
+	}
+
+	@Override
+	public boolean glIsShader(int shader) {
+		record("glIsShader");
+		return false;
+	}
+
+	@Override
+	public boolean glIsTexture(int texture) {
+		record("glIsTexture");
+		return false;
+	}
+
+	@Override
+	public boolean glIsVBOArrayEnabled() {
+		record("glIsVBOArrayEnabled");
+		return false;
+	}
+
+	@Override
+	public boolean glIsVBOElementEnabled() {
+		record("glIsVBOElementEnabled");
+		return false;
+	}
+
+	@Override
+	public void glLineWidth(float width) {
+		record("glLineWidth");
+	}
+
+	@Override
+	public void glLinkProgram(int program) {
+		record("glLinkProgram");
+	}
+
+	@Override
+	public ByteBuffer glMapBuffer(int arg0, int arg1) {
+		record("glMapBuffer");
+		return null;
+	}
+
+	@Override
+	public void glPixelStorei(int pname, int param) {
+		record("glPixelStorei");
+	}
+
+	@Override
+	public void glPolygonOffset(float factor, float units) {
+		record("glPolygonOffset");
+	}
+
+	@Override
+	public void glProgramBinary(int arg0, int arg1, Buffer arg2, int arg3) {
+		record("glProgramBinary");
+	}
+
+	@Override
+	public void glReadPixels(int x, int y, int width, int height, int format, int type, Buffer pixels) {
+		record("glReadPixels");
+	}
+
+	@Override
+	public void glReadPixels(int x, int y, int width, int height, int format, int type, int pixelsBufferOffset) {
+		record("glReadPixels");
+	}
+
+	@Override
+	public void glReleaseShaderCompiler() {
+		record("glReleaseShaderCompiler");
+	}
+
+	@Override
+	public void glRenderbufferStorage(int target, int internalformat, int width, int height) {
+		record("glRenderbufferStorage");
+	}
+
+	@Override
+	public void glSampleCoverage(float value, boolean invert) {
+		record("glSampleCoverage");
+	}
+
+	@Override
+	public void glScissor(int x, int y, int width, int height) {
+		record("glScissor");
+	}
+
+	@Override
+	public void glShaderBinary(int n, int[] shaders, int offset, int binaryformat, Buffer binary, int length) {
+		record("glShaderBinary");
+	}
+
+	@Override
+	public void glShaderBinary(int n, IntBuffer shaders, int binaryformat, Buffer binary, int length) {
+		record("glShaderBinary");
+	}
+
+	@Override
+	public void glShaderSource(int shader, int count, String[] strings, int[] length, int lengthOffset) {
+		record("glShaderSource");
+	}
+
+	@Override
+	public void glShaderSource(int shader, int count, String[] strings, IntBuffer length) {
+		record("glShaderSource");
+	}
+
+	@Override
+	public void glShaderSource(int shader, String string) {
+		record("glShaderSource");
+	}
+
+	@Override
+	public void glStencilFunc(int func, int ref, int mask) {
+		record("glStencilFunc");
+	}
+
+	@Override
+	public void glStencilFuncSeparate(int face, int func, int ref, int mask) {
+		record("glStencilFuncSeparate");
+	}
+
+	@Override
+	public void glStencilMask(int mask) {
+		record("glStencilMask");
+	}
+
+	@Override
+	public void glStencilMaskSeparate(int face, int mask) {
+		record("glStencilMaskSeparate");
+	}
+
+	@Override
+	public void glStencilOp(int fail, int zfail, int zpass) {
+		record("glStencilOp");
+	}
+
+	@Override
+	public void glStencilOpSeparate(int face, int fail, int zfail, int zpass) {
+		record("glStencilOpSeparate");
+	}
+
+	@Override
+	public void glTexImage2D(int target, int level, int internalformat, int width, int height, int border, int format, int type, Buffer pixels) {
+		record("glTexImage2D");
+	}
+
+	@Override
+	public void glTexImage2D(int arg0, int arg1, int arg2, int arg3, int arg4, int arg5, int arg6, int arg7, int arg8) {
+		record("glTexImage2D");
+	}
+
+	@Override
+	public void glTexImage3D(int arg0, int arg1, int arg2, int arg3, int arg4, int arg5, int arg6, int arg7, int arg8, Buffer arg9) {
+		record("glTexImage3D");
+	}
+
+	@Override
+	public void glTexImage3D(int arg0, int arg1, int arg2, int arg3, int arg4, int arg5, int arg6, int arg7, int arg8, int arg9) {
+		record("glTexImage3D");
+	}
+
+	@Override
+	public void glTexParameterf(int target, int pname, float param) {
+		record("glTexParameterf");
+	}
+
+	@Override
+	public void glTexParameterfv(int target, int pname, FloatBuffer params) {
+		record("glTexParameterfv");
+	}
+
+	@Override
+	public void glTexParameteri(int target, int pname, int param) {
+		record("glTexParameteri");
+	}
+
+	@Override
+	public void glTexParameteriv(int target, int pname, IntBuffer params) {
+		record("glTexParameteriv");
+	}
+
+	@Override
+	public void glTexSubImage2D(int target, int level, int xoffset, int yoffset, int width, int height, int format, int type, Buffer pixels) {
+		record("glTexSubImage2D");
+	}
+
+	@Override
+	public void glTexSubImage2D(int arg0, int arg1, int arg2, int arg3, int arg4, int arg5, int arg6, int arg7, int arg8) {
+		record("glTexSubImage2D");
+	}
+
+	@Override
+	public void glTexSubImage3D(int arg0, int arg1, int arg2, int arg3, int arg4, int arg5, int arg6, int arg7, int arg8, int arg9, Buffer arg10) {
+		record("glTexSubImage3D");
+	}
+
+	@Override
+	public void glTexSubImage3D(int arg0, int arg1, int arg2, int arg3, int arg4, int arg5, int arg6, int arg7, int arg8, int arg9, int arg10) {
+		record("glTexSubImage3D");
+	}
+
+	@Override
+	public void glUniform1f(int location, float x) {
+		record("glUniform1f");
+	}
+
+	@Override
+	public void glUniform1fv(int location, int count, FloatBuffer v) {
+		record("glUniform1fv");
+	}
+
+	@Override
+	public void glUniform1i(int location, int x) {
+		record("glUniform1i");
+	}
+
+	@Override
+	public void glUniform1iv(int location, int count, IntBuffer v) {
+		record("glUniform1iv");
+	}
+
+	@Override
+	public void glUniform2f(int location, float x, float y) {
+		record("glUniform2f");
+	}
+
+	@Override
+	public void glUniform2fv(int location, int count, FloatBuffer v) {
+		record("glUniform2fv");
+	}
+
+	@Override
+	public void glUniform2i(int location, int x, int y) {
+		record("glUniform2i");
+	}
+
+	@Override
+	public void glUniform2iv(int location, int count, IntBuffer v) {
+		record("glUniform2iv");
+	}
+
+	@Override
+	public void glUniform3f(int location, float x, float y, float z) {
+		record("glUniform3f");
+	}
+
+	@Override
+	public void glUniform3fv(int location, int count, FloatBuffer v) {
+		record("glUniform3fv");
+	}
+
+	@Override
+	public void glUniform3i(int location, int x, int y, int z) {
+		record("glUniform3i");
+	}
+
+	@Override
+	public void glUniform3iv(int location, int count, IntBuffer v) {
+		record("glUniform3iv");
+	}
+
+	@Override
+	public void glUniform4f(int location, float x, float y, float z, float w) {
+		record("glUniform4f");
+	}
+
+	@Override
+	public void glUniform4fv(int location, int count, FloatBuffer v) {
+		record("glUniform4fv");
+	}
+
+	@Override
+	public void glUniform4i(int location, int x, int y, int z, int w) {
+		record("glUniform4i");
+	}
+
+	@Override
+	public void glUniform4iv(int location, int count, IntBuffer v) {
+		record("glUniform4iv");
+	}
+
+	@Override
+	public void glUniformMatrix2fv(int location, int count, boolean transpose, FloatBuffer value) {
+		record("glUniformMatrix2fv");
+	}
+
+	@Override
+	public void glUniformMatrix3fv(int location, int count, boolean transpose, FloatBuffer value) {
+		record("glUniformMatrix3fv");
+	}
+
+	@Override
+	public void glUniformMatrix4fv(int location, int count, boolean transpose, FloatBuffer value) {
+		record("glUniformMatrix4fv");
+	}
+
+	@Override
+	public boolean glUnmapBuffer(int arg0) {
+		record("glUnmapBuffer");
+		return false;
+	}
+
+	@Override
+	public void glUseProgram(int program) {
+		record("glUseProgram");
+	}
+
+	@Override
+	public void glValidateProgram(int program) {
+		record("glValidateProgram");
+	}
+
+	@Override
+	public void glVertexAttrib1f(int indx, float x) {
+		record("glVertexAttrib1f");
+	}
+
+	@Override
+	public void glVertexAttrib1fv(int indx, FloatBuffer values) {
+		record("glVertexAttrib1fv");
+	}
+
+	@Override
+	public void glVertexAttrib2f(int indx, float x, float y) {
+		record("glVertexAttrib2f");
+	}
+
+	@Override
+	public void glVertexAttrib2fv(int indx, FloatBuffer values) {
+		record("glVertexAttrib2fv");
+	}
+
+	@Override
+	public void glVertexAttrib3f(int indx, float x, float y, float z) {
+		record("glVertexAttrib3f");
+	}
+
+	@Override
+	public void glVertexAttrib3fv(int indx, FloatBuffer values) {
+		record("glVertexAttrib3fv");
+	}
+
+	@Override
+	public void glVertexAttrib4f(int indx, float x, float y, float z, float w) {
+		record("glVertexAttrib4f");
+	}
+
+	@Override
+	public void glVertexAttrib4fv(int indx, FloatBuffer values) {
+		record("glVertexAttrib4fv");
+	}
+
+	@Override
+	public void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, Buffer ptr) {
+		record("glVertexAttribPointer");
+	}
+
+	@Override
+	public void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, int ptr) {
+		record("glVertexAttribPointer");
+	}
+
+	@Override
+	public void glViewport(int x, int y, int width, int height) {
+		record("glViewport");
+	}
+}
@@ -24,4 +24,9 @@ public class Lwjgl3Asyn extends Asyn.Default {
 	public void invokeAsync(Runnable action) {
 		pool.execute(action);
 	}
+
+	@Override
+	protected double currentTime() {
+		return System.nanoTime() / 1000000.0;
+	}
 }
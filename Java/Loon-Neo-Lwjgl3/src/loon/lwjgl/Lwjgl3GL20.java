@@ -30,19 +30,23 @@ import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
 
 import loon.jni.NativeSupport;
+import loon.opengl.GLInstanced;
 
 import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.EXTFramebufferObject;
+import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL12;
 import org.lwjgl.opengl.GL13;
 import org.lwjgl.opengl.GL14;
 import org.lwjgl.opengl.GL15;
 import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL33;
 import org.lwjgl.opengl.GL41;
 import org.lwjgl.system.MemoryUtil;
 
-final class Lwjgl3GL20 extends loon.opengl.GL20 {
+final class Lwjgl3GL20 extends loon.opengl.GL20 implements GLInstanced {
 
 	public Lwjgl3GL20() {
 		super(new Buffers() {
@@ -1301,4 +1305,24 @@ final class Lwjgl3GL20 extends loon.opengl.GL20 {
 	public int getGlslVersion() {
 		return 120;
 	}
+
+	private int instancing = -1;
+
+	@Override
+	public boolean isInstancingSupported() {
+		if (instancing == -1) {
+			instancing = GL.getCapabilities().OpenGL33 ? 1 : 0;
+		}
+		return instancing == 1;
+	}
+
+	@Override
+	public void glVertexAttribDivisor(int index, int divisor) {
+		GL33.glVertexAttribDivisor(index, divisor);
+	}
+
+	@Override
+	public void glDrawElementsInstanced(int mode, int count, int type, int indicesOffset, int instanceCount) {
+		GL31.glDrawElementsInstanced(mode, count, type, indicesOffset, instanceCount);
+	}
 }
@@ -148,15 +148,23 @@ public class Lwjgl3Game extends LGame {
 		return osBit64;
 	}
 
+	private int asynThreads() {
+		if (setting != null && setting.asynThreads > 0) {
+			return setting.asynThreads;
+		}
+		int cpus = Runtime.getRuntime().availableProcessors() - 1;
+		return cpus < 2 ? 2 : (cpus > 8 ? 8 : cpus);
+	}
+
 	private boolean active = true;
 	private final long start = System.nanoTime();
-	private final ExecutorService pool = Executors.newFixedThreadPool(4);
+	private final ExecutorService pool = Executors.newFixedThreadPool(asynThreads());
 
 	private final Lwjgl3Log log = new Lwjgl3Log();
 	private final Asyn asyn = new Lwjgl3Asyn(pool, log, frame);
 
 	private final Lwjgl3Accelerometer accelerometer = new Lwjgl3Accelerometer();
-	private final Lwjgl3Save save;
+	private final Save save;
 	private final Lwjgl3ImplGraphics graphics;
 	private final Lwjgl3Input input;
 	private final Lwjgl3Assets assets = new Lwjgl3Assets(this);
@@ -270,7 +278,11 @@ public class Lwjgl3Game extends LGame {
 		}
 		GL.createCapabilities();
 
-		this.save = new Lwjgl3Save(log, config.appName);
+		if (config.isLogStructuredSave) {
+			this.save = new Lwjgl3LogSave(log, config.appName);
+		} else {
+			this.save = new Lwjgl3Save(log, config.appName);
+		}
 
 		if (config.activationKey != -1) {
 			input.keyboardEvents.connect(new Port<KeyMake.Event>() {
@@ -447,6 +459,9 @@ public class Lwjgl3Game extends LGame {
 
 	protected void shutdown() {
 		status.emit(Status.EXIT);
+		if (save instanceof LRelease) {
+			((LRelease) save).close();
+		}
 		try {
 			pool.shutdown();
 			pool.awaitTermination(1, TimeUnit.SECONDS);
@@ -0,0 +1,93 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.lwjgl;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import loon.physics.PIslandExecutor;
+
+/**
+ * 以ForkJoinPool并行求解物理岛屿,使用方式:world.setIslandExecutor(new Lwjgl3IslandExecutor())
+ */
+public class Lwjgl3IslandExecutor implements PIslandExecutor {
+
+	private static class IslandAction extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Task task;
+
+		private final int start, end, grain;
+
+		IslandAction(Task task, int start, int end, int grain) {
+			this.task = task;
+			this.start = start;
+			this.end = end;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= grain) {
+				for (int i = start; i < end; i++) {
+					task.solve(i);
+				}
+				return;
+			}
+			final int mid = (start + end) >>> 1;
+			invokeAll(new IslandAction(task, start, mid, grain), new IslandAction(task, mid, end, grain));
+		}
+	}
+
+	private final ForkJoinPool pool;
+
+	public Lwjgl3IslandExecutor() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	public Lwjgl3IslandExecutor(int parallelism) {
+		this(new ForkJoinPool(parallelism));
+	}
+
+	public Lwjgl3IslandExecutor(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	@Override
+	public void execute(int count, Task task) {
+		if (count <= 0) {
+			return;
+		}
+		if (count == 1) {
+			task.solve(0);
+			return;
+		}
+		// 每个线程大约分到4份,小岛屿较多时合并执行以减少任务数量
+		final int grain = Math.max(1, count / (pool.getParallelism() * 4));
+		pool.invoke(new IslandAction(task, 0, count, grain));
+	}
+
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+}
@@ -0,0 +1,222 @@
+/**
+ * Copyright 2008 - 2015 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.lwjgl;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import loon.Log;
+import loon.LogSave;
+
+/**
+ * LogSave的桌面实现,日志保存在内存映射文件中
+ */
+class Lwjgl3LogSave extends LogSave {
+
+	private final File dir;
+
+	private final String baseName;
+
+	private RandomAccessFile file;
+
+	private FileChannel channel;
+
+	private MappedByteBuffer buffer;
+
+	Lwjgl3LogSave(Log log, String storage) {
+		this(log, new File(new File(System.getProperty("user.home"), ".loon"), safeName(storage)), "save");
+	}
+
+	Lwjgl3LogSave(Log log, File dir, String name) {
+		super(log);
+		this.dir = dir;
+		this.baseName = name;
+	}
+
+	private static String safeName(String name) {
+		if (name == null || name.length() == 0) {
+			return "loon";
+		}
+		return name.replaceAll("[^A-Za-z0-9._-]", "_");
+	}
+
+	private File logFile(int slot) {
+		return new File(dir, baseName + "." + slot + ".log");
+	}
+
+	private File indexFile() {
+		return new File(dir, baseName + ".idx");
+	}
+
+	@Override
+	protected void prepare() throws IOException {
+		if (!dir.exists() && !dir.mkdirs()) {
+			throw new IOException("Could not create " + dir);
+		}
+	}
+
+	@Override
+	protected byte[] readLogHeader(int slot, int length) {
+		File f = logFile(slot);
+		if (!f.exists() || f.length() < length) {
+			return null;
+		}
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new FileInputStream(f));
+			byte[] bytes = new byte[length];
+			in.readFully(bytes);
+			return bytes;
+		} catch (IOException e) {
+			return null;
+		} finally {
+			closeQuietly(in);
+		}
+	}
+
+	@Override
+	protected ByteBuffer openLog(int slot, int minCapacity) throws IOException {
+		closeLog();
+		file = new RandomAccessFile(logFile(slot), "rw");
+		channel = file.getChannel();
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(minCapacity, channel.size()));
+		return buffer;
+	}
+
+	@Override
+	protected ByteBuffer growLog(int capacity) throws IOException {
+		MappedByteBuffer old = buffer;
+		old.force();
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+		unmap(old);
+		return buffer;
+	}
+
+	@Override
+	protected void forceLog() {
+		if (buffer != null) {
+			buffer.force();
+		}
+	}
+
+	@Override
+	protected void closeLog() {
+		if (buffer != null) {
+			buffer.force();
+			unmap(buffer);
+		}
+		closeQuietly(file);
+		file = null;
+		channel = null;
+		buffer = null;
+	}
+
+	@Override
+	protected boolean deleteLog(int slot) {
+		File f = logFile(slot);
+		return !f.exists() || f.delete();
+	}
+
+	@Override
+	protected byte[] readIndex() {
+		File idx = indexFile();
+		if (!idx.exists()) {
+			return null;
+		}
+		DataInputStream in = null;
+		try {
+			byte[] all = new byte[(int) idx.length()];
+			in = new DataInputStream(new FileInputStream(idx));
+			in.readFully(all);
+			return all;
+		} catch (IOException e) {
+			return null;
+		} finally {
+			closeQuietly(in);
+		}
+	}
+
+	@Override
+	protected void writeIndex(byte[] data) throws IOException {
+		File idx = indexFile();
+		File tmp = new File(dir, baseName + ".idx.tmp");
+		FileOutputStream out = null;
+		try {
+			out = new FileOutputStream(tmp);
+			out.write(data);
+			out.flush();
+			out.getFD().sync();
+			out.close();
+			out = null;
+			if (idx.exists() && !idx.delete()) {
+				throw new IOException("Could not replace " + idx);
+			}
+			if (!tmp.renameTo(idx)) {
+				throw new IOException("Could not rename " + tmp);
+			}
+		} finally {
+			closeQuietly(out);
+		}
+	}
+
+	/**
+	 * 立即解除文件映射,否则在Windows中映射释放前无法删除文件
+	 */
+	private static void unmap(MappedByteBuffer buffer) {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			invokeCleaner.invoke(field.get(null), buffer);
+			return;
+		} catch (Throwable e) {
+		}
+		try {
+			Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buffer);
+			if (cleaner != null) {
+				cleaner.getClass().getMethod("clean").invoke(cleaner);
+			}
+		} catch (Throwable e) {
+		}
+	}
+
+	private static void closeQuietly(Closeable c) {
+		if (c != null) {
+			try {
+				c.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+}
@@ -0,0 +1,840 @@
+/**
+ * Copyright 2008 - 2015 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon;
+
+import loon.canvas.Image;
+import loon.canvas.ImageImpl;
+import loon.utils.TArray;
+import loon.utils.TimeUtils;
+import loon.utils.processes.ProgressListener;
+import loon.utils.reply.GoFuture;
+import loon.utils.reply.GoPromise;
+
+/**
+ * 分阶段的资源流式加载管线:<br>
+ * 1.读取(READ),于工作线程中读取资源字节<br>
+ * 2.解码(DECODE),于工作线程中将字节解码为图像<br>
+ * 3.上传(UPLOAD),于渲染线程中按每帧时间预算把图像提交为LTexture<br>
+ *
+ * 请求支持优先级(与Asyn的PRIORITY_*一致,数值越小越优先),取消,以及依赖(比如TMX地图依赖于它的图块集),
+ * 并可通过Bundle以ProgressListener按阶段汇报进度.
+ *
+ * <pre>
+ * AssetStream stream = LSystem.base().assets().stream();
+ * AssetStream.Bundle bundle = stream.bundle();
+ * AssetStream.Request map = bundle.bytes("map.tmx");
+ * bundle.image("tiles.png").dependsOn(map);
+ * bundle.setListener(listener);
+ * </pre>
+ */
+public class AssetStream implements LRelease {
+
+	public static final int STAGE_READ = 0;
+
+	public static final int STAGE_DECODE = 1;
+
+	public static final int STAGE_UPLOAD = 2;
+
+	public static final int STAGE_COUNT = 3;
+
+	public static final int STATE_PENDING = 0;
+
+	public static final int STATE_READING = 1;
+
+	public static final int STATE_DECODING = 2;
+
+	public static final int STATE_UPLOADING = 3;
+
+	public static final int STATE_COMPLETED = 4;
+
+	public static final int STATE_FAILED = 5;
+
+	public static final int STATE_CANCELLED = 6;
+
+	/**
+	 * 单个资源的加载请求
+	 */
+	public static class Request {
+
+		private final AssetStream _stream;
+
+		private final String _path;
+
+		private final int _priority;
+
+		private final long _order;
+
+		private final ImageImpl _image;
+
+		private final GoPromise<Request> _result;
+
+		private Bundle _bundle;
+
+		private TArray<Request> _depends;
+
+		private int _state;
+
+		private int _stage;
+
+		private byte[] _bytes;
+
+		private LTexture _texture;
+
+		private Throwable _error;
+
+		Request(AssetStream stream, String path, int priority, long order, boolean image) {
+			this._stream = stream;
+			this._path = path;
+			this._priority = priority;
+			this._order = order;
+			this._image = image ? stream._assets.createImage(true, 0, 0, path) : null;
+			this._result = GoPromise.create();
+			this._state = STATE_PENDING;
+		}
+
+		/**
+		 * 令当前请求在指定请求完成后才开始读取
+		 *
+		 * @param req
+		 * @return
+		 */
+		public Request dependsOn(Request req) {
+			if (req == null || req == this) {
+				return this;
+			}
+			synchronized (_stream) {
+				if (_state != STATE_PENDING) {
+					throw new LSysException("Request " + _path + " has already started !");
+				}
+				if (_depends == null) {
+					_depends = new TArray<Request>(4);
+				}
+				_depends.add(req);
+			}
+			return this;
+		}
+
+		/**
+		 * 取消请求,已解码的图像不会再上传为纹理
+		 */
+		public void cancel() {
+			_stream.cancel(this);
+		}
+
+		public String getPath() {
+			return _path;
+		}
+
+		public int getPriority() {
+			return _priority;
+		}
+
+		public Bundle getBundle() {
+			return _bundle;
+		}
+
+		public int getState() {
+			synchronized (_stream) {
+				return _state;
+			}
+		}
+
+		/**
+		 * 已完成的阶段数量(0至STAGE_COUNT)
+		 *
+		 * @return
+		 */
+		public int getStage() {
+			synchronized (_stream) {
+				return _stage;
+			}
+		}
+
+		public boolean isDone() {
+			int state = getState();
+			return state == STATE_COMPLETED || state == STATE_FAILED || state == STATE_CANCELLED;
+		}
+
+		public boolean isCompleted() {
+			return getState() == STATE_COMPLETED;
+		}
+
+		public boolean isFailed() {
+			return getState() == STATE_FAILED;
+		}
+
+		public boolean isCancelled() {
+			return getState() == STATE_CANCELLED;
+		}
+
+		public boolean isImage() {
+			return _image != null;
+		}
+
+		public Image getImage() {
+			return _image;
+		}
+
+		public LTexture getTexture() {
+			return _texture;
+		}
+
+		/**
+		 * 字节请求完成后的数据(图像请求在解码后即释放字节,返回null)
+		 *
+		 * @return
+		 */
+		public byte[] getBytes() {
+			return _bytes;
+		}
+
+		public Throwable getError() {
+			return _error;
+		}
+
+		/**
+		 * 请求完成(成功,失败或取消)时于渲染线程中通知
+		 *
+		 * @return
+		 */
+		public GoFuture<Request> result() {
+			return _result;
+		}
+
+		@Override
+		public String toString() {
+			return "Request [path=" + _path + ", priority=" + _priority + ", state=" + getState() + ", stage="
+					+ getStage() + "]";
+		}
+	}
+
+	/**
+	 * 一组相互关联的请求,整体汇报进度
+	 */
+	public static class Bundle {
+
+		private final AssetStream _stream;
+
+		private final TArray<Request> _requests;
+
+		private final int[] _stageCount;
+
+		private final int[] _stageReported;
+
+		private final ProgressListener[] _stageListeners;
+
+		private ProgressListener _listener;
+
+		private int _reported;
+
+		private int _finished;
+
+		Bundle(AssetStream stream) {
+			this._stream = stream;
+			this._requests = new TArray<Request>(8);
+			this._stageCount = new int[STAGE_COUNT];
+			this._stageReported = new int[STAGE_COUNT];
+			this._stageListeners = new ProgressListener[STAGE_COUNT];
+			this._reported = -1;
+			for (int i = 0; i < STAGE_COUNT; i++) {
+				_stageReported[i] = -1;
+			}
+		}
+
+		public Request image(String path) {
+			return image(path, Asyn.PRIORITY_NORMAL);
+		}
+
+		public Request image(String path, int priority) {
+			return _stream.submit(this, path, priority, true);
+		}
+
+		public Request bytes(String path) {
+			return bytes(path, Asyn.PRIORITY_NORMAL);
+		}
+
+		public Request bytes(String path, int priority) {
+			return _stream.submit(this, path, priority, false);
+		}
+
+		/**
+		 * 整体进度监听,进度为三个阶段的平均值
+		 *
+		 * @param listener
+		 * @return
+		 */
+		public Bundle setListener(ProgressListener listener) {
+			this._listener = listener;
+			return this;
+		}
+
+		/**
+		 * 单一阶段的进度监听
+		 *
+		 * @param stage
+		 * @param listener
+		 * @return
+		 */
+		public Bundle setStageListener(int stage, ProgressListener listener) {
+			if (stage < 0 || stage >= STAGE_COUNT) {
+				throw new LSysException("Unknown stage " + stage);
+			}
+			this._stageListeners[stage] = listener;
+			return this;
+		}
+
+		public int getProgress(int stage) {
+			synchronized (_stream) {
+				return progress(_stageCount[stage], _requests.size);
+			}
+		}
+
+		public int getProgress() {
+			synchronized (_stream) {
+				return progress(_stageCount[STAGE_READ] + _stageCount[STAGE_DECODE] + _stageCount[STAGE_UPLOAD],
+						_requests.size * STAGE_COUNT);
+			}
+		}
+
+		public TArray<Request> getRequests() {
+			return _requests;
+		}
+
+		public boolean isDone() {
+			synchronized (_stream) {
+				return _finished == _requests.size;
+			}
+		}
+
+		public void cancel() {
+			for (int i = 0; i < _requests.size; i++) {
+				_requests.get(i).cancel();
+			}
+		}
+
+		private static int progress(int done, int total) {
+			if (total <= 0) {
+				return ProgressListener.PROGRESS_MAX;
+			}
+			return ProgressListener.PROGRESS_MIN
+					+ (done * (ProgressListener.PROGRESS_MAX - ProgressListener.PROGRESS_MIN)) / total;
+		}
+
+		void report() {
+			for (int i = 0; i < STAGE_COUNT; i++) {
+				ProgressListener l = _stageListeners[i];
+				if (l != null) {
+					int value = getProgress(i);
+					if (value != _stageReported[i]) {
+						_stageReported[i] = value;
+						l.onProgressChanged(value);
+					}
+				}
+			}
+			if (_listener != null) {
+				int value = getProgress();
+				if (value != _reported) {
+					_reported = value;
+					_listener.onProgressChanged(value);
+				}
+			}
+		}
+	}
+
+	private static class ReadRunnable implements Runnable {
+
+		private Request _req;
+
+		ReadRunnable(Request req) {
+			this._req = req;
+		}
+
+		@Override
+		public void run() {
+			_req._stream.process(_req);
+		}
+	}
+
+	private static class PumpRunnable implements Runnable {
+
+		private AssetStream _stream;
+
+		PumpRunnable(AssetStream stream) {
+			this._stream = stream;
+		}
+
+		@Override
+		public void run() {
+			_stream.pump();
+		}
+	}
+
+	private final Assets _assets;
+
+	private final Asyn _asyn;
+
+	private final PumpRunnable _pumpRunnable;
+
+	private final TArray<Request> _pending;
+
+	private final TArray<Request> _uploads;
+
+	private final TArray<Bundle> _bundles;
+
+	private LTexture.Format _format;
+
+	private int _maxInFlight;
+
+	private int _inFlight;
+
+	private float _uploadBudget;
+
+	private long _order;
+
+	private boolean _pumping;
+
+	private boolean _closed;
+
+	private int _uploadedCount, _failedCount, _cancelledCount;
+
+	public AssetStream(Assets assets, Asyn asyn) {
+		this._assets = assets;
+		this._asyn = asyn;
+		this._pumpRunnable = new PumpRunnable(this);
+		this._pending = new TArray<Request>(32);
+		this._uploads = new TArray<Request>(32);
+		this._bundles = new TArray<Bundle>(8);
+		this._format = LTexture.Format.LINEAR;
+		this._maxInFlight = 4;
+		this._uploadBudget = 4f;
+	}
+
+	public Bundle bundle() {
+		return new Bundle(this);
+	}
+
+	public Request image(String path) {
+		return image(path, Asyn.PRIORITY_NORMAL);
+	}
+
+	public Request image(String path, int priority) {
+		return submit(null, path, priority, true);
+	}
+
+	public Request bytes(String path) {
+		return bytes(path, Asyn.PRIORITY_NORMAL);
+	}
+
+	public Request bytes(String path, int priority) {
+		return submit(null, path, priority, false);
+	}
+
+	/**
+	 * 同时处于读取与解码阶段的最大请求数
+	 *
+	 * @param max
+	 * @return
+	 */
+	public AssetStream setMaxInFlight(int max) {
+		this._maxInFlight = max < 1 ? 1 : max;
+		return this;
+	}
+
+	public int getMaxInFlight() {
+		return _maxInFlight;
+	}
+
+	/**
+	 * 每帧用于纹理上传的时间预算(毫秒),每帧至少上传一张
+	 *
+	 * @param ms
+	 * @return
+	 */
+	public AssetStream setUploadBudget(float ms) {
+		this._uploadBudget = ms;
+		return this;
+	}
+
+	public float getUploadBudget() {
+		return _uploadBudget;
+	}
+
+	public AssetStream setFormat(LTexture.Format format) {
+		this._format = format;
+		return this;
+	}
+
+	public LTexture.Format getFormat() {
+		return _format;
+	}
+
+	public synchronized int getPendingCount() {
+		return _pending.size;
+	}
+
+	public synchronized int getInFlightCount() {
+		return _inFlight;
+	}
+
+	public synchronized int getUploadQueueSize() {
+		return _uploads.size;
+	}
+
+	public synchronized boolean isIdle() {
+		return _pending.size == 0 && _inFlight == 0 && _uploads.size == 0;
+	}
+
+	public int getUploadedCount() {
+		return _uploadedCount;
+	}
+
+	public int getFailedCount() {
+		return _failedCount;
+	}
+
+	public int getCancelledCount() {
+		return _cancelledCount;
+	}
+
+	Request submit(Bundle bundle, String path, int priority, boolean image) {
+		if (path == null) {
+			throw new LSysException("Path cannot be null !");
+		}
+		Request req;
+		synchronized (this) {
+			if (_closed) {
+				throw new LSysException("AssetStream is closed !");
+			}
+			req = new Request(this, path, priority, _order++, image);
+			req._bundle = bundle;
+			if (bundle != null) {
+				bundle._requests.add(req);
+				if (!_bundles.contains(bundle, true)) {
+					_bundles.add(bundle);
+				}
+			}
+			_pending.add(req);
+		}
+		schedule();
+		return req;
+	}
+
+	void cancel(Request req) {
+		boolean pending;
+		synchronized (this) {
+			switch (req._state) {
+			case STATE_PENDING:
+				_pending.removeValue(req, true);
+				_uploads.add(req);
+				pending = true;
+				break;
+			case STATE_READING:
+			case STATE_DECODING:
+			case STATE_UPLOADING:
+				pending = false;
+				break;
+			default:
+				return;
+			}
+			req._state = STATE_CANCELLED;
+		}
+		// 未派发的请求不会再经过工作线程,直接结束其图像状态
+		if (pending && req._image != null) {
+			req._image.fail(new LSysException("Request " + req._path + " was cancelled !"));
+		}
+		schedule();
+	}
+
+	/**
+	 * 工作线程中执行读取与解码
+	 *
+	 * @param req
+	 */
+	void process(Request req) {
+		byte[] bytes = null;
+		ImageImpl.Data data = null;
+		Throwable error = null;
+		try {
+			if (!isCancelled(req)) {
+				bytes = _assets.getBytesSync(req._path);
+				synchronized (this) {
+					if (req._state == STATE_READING) {
+						req._state = STATE_DECODING;
+						advance(req);
+					}
+				}
+				if (req._image != null && !isCancelled(req)) {
+					data = _assets.decode(req._path, bytes);
+					bytes = null;
+				}
+			}
+		} catch (Throwable e) {
+			error = e;
+		}
+		synchronized (this) {
+			_inFlight--;
+			if (req._state == STATE_CANCELLED) {
+				error = new LSysException("Request " + req._path + " was cancelled !");
+			} else if (error != null) {
+				req._state = STATE_FAILED;
+				req._error = error;
+			} else {
+				req._bytes = bytes;
+				req._state = STATE_UPLOADING;
+				advance(req);
+			}
+			_uploads.add(req);
+		}
+		if (req._image != null) {
+			if (error == null) {
+				req._image.succeed(data);
+			} else {
+				req._image.fail(error);
+			}
+		}
+		schedule();
+	}
+
+	private synchronized boolean isCancelled(Request req) {
+		return req._state == STATE_CANCELLED;
+	}
+
+	private void advance(Request req) {
+		if (req._bundle != null) {
+			req._bundle._stageCount[req._stage]++;
+		}
+		req._stage++;
+	}
+
+	private void schedule() {
+		synchronized (this) {
+			if (_pumping || _closed) {
+				return;
+			}
+			_pumping = true;
+		}
+		_asyn.invokeLater(_pumpRunnable);
+	}
+
+	/**
+	 * 渲染线程中派发读取任务,并按预算上传纹理
+	 */
+	void pump() {
+		boolean again = false;
+		try {
+			dispatch();
+			upload();
+			for (int i = _bundles.size - 1; i > -1; i--) {
+				Bundle bundle = _bundles.get(i);
+				bundle.report();
+				if (bundle.isDone()) {
+					synchronized (this) {
+						_bundles.removeIndex(i);
+					}
+				}
+			}
+			synchronized (this) {
+				again = !_closed && (_uploads.size > 0 || (_pending.size > 0 && _inFlight < _maxInFlight));
+			}
+		} finally {
+			// 出现异常时也要复位,否则schedule()不会再派发pump
+			synchronized (this) {
+				_pumping = again;
+			}
+		}
+		if (again) {
+			_asyn.invokeLater(_pumpRunnable);
+		}
+	}
+
+	private void dispatch() {
+		final boolean async = _asyn.isAsyncSupported();
+		for (;;) {
+			Request next = null;
+			synchronized (this) {
+				if (_inFlight >= _maxInFlight) {
+					return;
+				}
+				for (int i = 0; i < _pending.size; i++) {
+					Request req = _pending.get(i);
+					int deps = dependState(req);
+					if (deps == STATE_FAILED) {
+						_pending.removeIndex(i--);
+						req._state = STATE_FAILED;
+						req._error = new LSysException("Dependency of " + req._path + " failed !");
+						_uploads.add(req);
+						continue;
+					}
+					if (deps != STATE_COMPLETED) {
+						continue;
+					}
+					if (next == null || req._priority < next._priority
+							|| (req._priority == next._priority && req._order < next._order)) {
+						next = req;
+					}
+				}
+				if (next == null) {
+					return;
+				}
+				_pending.removeValue(next, true);
+				next._state = STATE_READING;
+				_inFlight++;
+			}
+			if (async) {
+				_asyn.invokeAsync(new ReadRunnable(next));
+			} else {
+				// 不支持后台线程的平台(如html5)在渲染线程中读取,每次pump只处理一个请求
+				process(next);
+				return;
+			}
+		}
+	}
+
+	private int dependState(Request req) {
+		if (req._depends == null) {
+			return STATE_COMPLETED;
+		}
+		for (int i = 0; i < req._depends.size; i++) {
+			int state = req._depends.get(i)._state;
+			if (state == STATE_FAILED || state == STATE_CANCELLED) {
+				return STATE_FAILED;
+			}
+			if (state != STATE_COMPLETED) {
+				return STATE_PENDING;
+			}
+		}
+		return STATE_COMPLETED;
+	}
+
+	private void upload() {
+		final long start = TimeUtils.millis();
+		int uploaded = 0;
+		for (;;) {
+			Request next = null;
+			synchronized (this) {
+				for (int i = 0; i < _uploads.size; i++) {
+					Request req = _uploads.get(i);
+					if (req._state == STATE_UPLOADING && req._image != null && !req._image.isLoaded()) {
+						// 图像状态尚未于渲染线程中回调完成
+						continue;
+					}
+					if (next == null || req._priority < next._priority
+							|| (req._priority == next._priority && req._order < next._order)) {
+						next = req;
+					}
+				}
+				if (next == null) {
+					return;
+				}
+				if (next._state == STATE_UPLOADING && next._image != null && uploaded > 0 && _uploadBudget > 0
+						&& TimeUtils.millis() - start >= _uploadBudget) {
+					return;
+				}
+				_uploads.removeValue(next, true);
+			}
+			finish(next);
+			if (next._texture != null) {
+				uploaded++;
+			}
+		}
+	}
+
+	private void finish(Request req) {
+		int state;
+		synchronized (this) {
+			state = req._state;
+		}
+		if (state == STATE_UPLOADING) {
+			try {
+				if (req._image != null) {
+					req._texture = req._image.setFormat(_format).texture();
+					_uploadedCount++;
+				}
+				synchronized (this) {
+					if (req._state == STATE_UPLOADING) {
+						req._state = STATE_COMPLETED;
+						advance(req);
+					} else {
+						state = req._state;
+					}
+				}
+			} catch (Throwable e) {
+				synchronized (this) {
+					req._state = STATE_FAILED;
+					req._error = e;
+				}
+				state = STATE_FAILED;
+			}
+		}
+		if (state == STATE_CANCELLED) {
+			_cancelledCount++;
+		} else if (state == STATE_FAILED) {
+			_failedCount++;
+			LSystem.base().log().warn("Could not stream " + req._path, req._error);
+		}
+		synchronized (this) {
+			// 失败或取消的请求其余阶段视为已处理,以便进度能够到达终点
+			while (req._stage < STAGE_COUNT) {
+				advance(req);
+			}
+			if (req._bundle != null) {
+				req._bundle._finished++;
+			}
+		}
+		if (state == STATE_UPLOADING || state == STATE_COMPLETED) {
+			req._result.succeed(req);
+		} else {
+			req._result.fail(req._error != null ? req._error
+					: new LSysException("Request " + req._path + " was cancelled !"));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "AssetStream [pending=" + getPendingCount() + ", inFlight=" + getInFlightCount() + ", uploads="
+				+ getUploadQueueSize() + ", uploaded=" + _uploadedCount + ", failed=" + _failedCount + ", cancelled="
+				+ _cancelledCount + "]";
+	}
+
+	@Override
+	public void close() {
+		TArray<Request> pending;
+		synchronized (this) {
+			pending = new TArray<Request>(_pending);
+		}
+		for (int i = 0; i < pending.size; i++) {
+			pending.get(i).cancel();
+		}
+		TArray<Request> uploads;
+		synchronized (this) {
+			_closed = true;
+			uploads = new TArray<Request>(_uploads);
+			_uploads.clear();
+			_bundles.clear();
+		}
+		for (int i = 0; i < uploads.size; i++) {
+			Request req = uploads.get(i);
+			if (req._state != STATE_UPLOADING) {
+				finish(req);
+			}
+		}
+	}
+}
@@ -20,6 +20,8 @@
  */
 package loon;
 
+import java.nio.ByteBuffer;
+
 import loon.canvas.Image;
 import loon.canvas.ImageImpl;
 import loon.utils.ArrayByte;
@@ -126,6 +128,8 @@ public abstract class Assets {
 
 	protected final Asyn asyn;
 
+	private AssetStream stream;
+
 	public final ResourceLocal getJsonResource(String path) {
 		return new ResourceLocal(path);
 	}
@@ -179,6 +183,17 @@ public abstract class Assets {
 
 	public abstract byte[] getBytesSync(String path) throws Exception;
 
+	/**
+	 * 以ByteBuffer读取文件内容,支持文件映射的平台会直接映射文件而不是全部读入内存
+	 * 
+	 * @param path
+	 * @return
+	 * @throws Exception
+	 */
+	public ByteBuffer getByteBufferSync(String path) throws Exception {
+		return LSystem.base().support().getByteBuffer(getBytesSync(path));
+	}
+
 	public GoFuture<byte[]> getBytes(final String path) {
 		final GoPromise<byte[]> result = asyn.deferredPromise();
 		asyn.invokeAsync(new ByteRunnable(result, path, this));
@@ -191,6 +206,30 @@ public abstract class Assets {
 
 	protected abstract ImageImpl.Data load(String path) throws Exception;
 
+	/**
+	 * 以已读取的字节解码图像,供AssetStream在工作线程中调用.默认实现无法直接解码字节,会按路径重新加载
+	 * 
+	 * @param path
+	 * @param bytes
+	 * @return
+	 * @throws Exception
+	 */
+	protected ImageImpl.Data decode(String path, byte[] bytes) throws Exception {
+		return load(path);
+	}
+
+	/**
+	 * 获得分阶段(读取,解码,上传)的资源流式加载管线
+	 * 
+	 * @return
+	 */
+	public synchronized AssetStream stream() {
+		if (stream == null) {
+			stream = new AssetStream(this, asyn);
+		}
+		return stream;
+	}
+
 	protected abstract ImageImpl createImage(boolean async, int rawWidth, int rawHeight, String source);
 
 	protected static String getPath(String path) {
@@ -206,6 +245,10 @@ public abstract class Assets {
 	}
 
 	public void close() {
+		if (stream != null) {
+			stream.close();
+			stream = null;
+		}
 		for (Sound s : soundCache) {
 			if (s != null) {
 				s.stop();
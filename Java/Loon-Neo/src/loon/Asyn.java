@@ -20,7 +20,7 @@
  */
 package loon;
 
-import loon.utils.TArray;
+import loon.utils.TimeUtils;
 import loon.utils.reply.Act;
 import loon.utils.reply.GoPromise;
 import loon.utils.reply.Port;
@@ -43,14 +43,78 @@ public abstract class Asyn {
 		
 	}
 	
+	/** 按先进先出顺序保存待执行任务与其提交时间的环形队列 **/
+	private static class TaskQueue {
+
+		private Runnable[] actions = new Runnable[16];
+
+		private double[] times = new double[16];
+
+		private int head;
+
+		private int size;
+
+		void add(Runnable action, double time) {
+			if (size == actions.length) {
+				Runnable[] newActions = new Runnable[size * 2];
+				double[] newTimes = new double[size * 2];
+				for (int i = 0; i < size; i++) {
+					int idx = (head + i) % actions.length;
+					newActions[i] = actions[idx];
+					newTimes[i] = times[idx];
+				}
+				actions = newActions;
+				times = newTimes;
+				head = 0;
+			}
+			int tail = (head + size) % actions.length;
+			actions[tail] = action;
+			times[tail] = time;
+			size++;
+		}
+
+		double peekTime() {
+			return times[head];
+		}
+
+		Runnable poll() {
+			Runnable action = actions[head];
+			actions[head] = null;
+			head = (head + 1) % actions.length;
+			size--;
+			return action;
+		}
+
+		void clear() {
+			for (int i = 0; i < actions.length; i++) {
+				actions[i] = null;
+			}
+			head = size = 0;
+		}
+	}
+
+	/**
+	 * 默认的主线程任务队列,每帧执行invokeLater提交的任务.
+	 * 
+	 * 任务按优先级执行(PRIORITY_URGENT最先),同一优先级内按提交顺序执行.设置每帧时间预算(毫秒)后,
+	 * 超出预算的任务顺延到之后的帧(每帧至少执行一个任务,PRIORITY_URGENT任务不受预算限制).
+	 */
 	public static class Default extends Asyn {
 
-		private final TArray<Runnable> pending = new TArray<Runnable>();
-		private final TArray<Runnable> running = new TArray<Runnable>();
+		private final TaskQueue[] queues = new TaskQueue[PRIORITY_COUNT];
 		protected final Log log;
 
+		private float frameBudget = 0f;
+
+		private int executedCount, deferredCount;
+		private long totalExecuted, totalDeferred;
+		private double dispatchTime, maxDeferredTime;
+
 		public Default(Log log, Act<? extends Object> frame) {
 			this.log = log;
+			for (int i = 0; i < PRIORITY_COUNT; i++) {
+				queues[i] = new TaskQueue();
+			}
 			frame.connect(new CallDefaultPort<Object>(this)).setPriority(Short.MAX_VALUE);
 		}
 
@@ -65,29 +129,197 @@ public abstract class Asyn {
 		}
 
 		@Override
-		public synchronized void invokeLater(Runnable action) {
-			pending.add(action);
+		public void invokeLater(Runnable action) {
+			enqueue(action, PRIORITY_NORMAL);
 		}
 
-		private void dispatch() {
-			synchronized (this) {
-				running.addAll(pending);
-				pending.clear();
+		@Override
+		public void invokeLater(Runnable action, int priority) {
+			if (priority == PRIORITY_NORMAL) {
+				invokeLater(action);
+			} else {
+				enqueue(action, priority);
 			}
-			for (int ii = 0, ll = running.size; ii < ll; ii++) {
-				Runnable action = running.get(ii);
+		}
+
+		protected synchronized void enqueue(Runnable action, int priority) {
+			if (priority < PRIORITY_URGENT) {
+				priority = PRIORITY_URGENT;
+			} else if (priority > PRIORITY_LOW) {
+				priority = PRIORITY_LOW;
+			}
+			queues[priority].add(action, currentTime());
+		}
+
+		/**
+		 * 当前时间(毫秒),用于计算每帧预算与任务等待时间,平台有更高精度的计时器时可以覆写
+		 * 
+		 * @return
+		 */
+		protected double currentTime() {
+			return TimeUtils.millis();
+		}
+
+		private synchronized int pendingSize() {
+			int size = 0;
+			for (int i = 0; i < PRIORITY_COUNT; i++) {
+				size += queues[i].size;
+			}
+			return size;
+		}
+
+		private void dispatch() {
+			final double start = currentTime();
+			// 本帧最多执行开始时已提交的任务数量,执行期间新提交的任务一般留到下一帧
+			int limit = pendingSize();
+			int executed = 0;
+			double maxWait = 0;
+			for (; limit > 0; limit--) {
+				Runnable action = null;
+				double queued = 0;
+				synchronized (this) {
+					for (int i = 0; i < PRIORITY_COUNT; i++) {
+						final TaskQueue queue = queues[i];
+						if (queue.size > 0) {
+							if (i != PRIORITY_URGENT && executed > 0 && frameBudget > 0
+									&& currentTime() - start >= frameBudget) {
+								break;
+							}
+							queued = queue.peekTime();
+							action = queue.poll();
+							break;
+						}
+					}
+				}
+				if (action == null) {
+					break;
+				}
+				if (start - queued > maxWait) {
+					maxWait = start - queued;
+				}
 				try {
 					action.run();
 				} catch (Throwable e) {
 					log.warn("invokeLater Runnable failed: " + action, e);
 				}
+				executed++;
+			}
+			executedCount = executed;
+			deferredCount = limit;
+			totalExecuted += executed;
+			totalDeferred += limit;
+			dispatchTime = currentTime() - start;
+			maxDeferredTime = maxWait;
+		}
+
+		/**
+		 * 设定每帧执行任务的时间预算(毫秒),小于等于0时不限制(每帧执行全部任务)
+		 * 
+		 * @param ms
+		 * @return
+		 */
+		public Default setFrameBudget(float ms) {
+			this.frameBudget = ms < 0 ? 0 : ms;
+			return this;
+		}
+
+		public float getFrameBudget() {
+			return frameBudget;
+		}
+
+		/**
+		 * 当前等待执行的任务数量
+		 * 
+		 * @return
+		 */
+		public int getQueueSize() {
+			return pendingSize();
+		}
+
+		public synchronized int getQueueSize(int priority) {
+			if (priority < PRIORITY_URGENT || priority > PRIORITY_LOW) {
+				return 0;
+			}
+			return queues[priority].size;
+		}
+
+		/**
+		 * 上一帧执行的任务数量
+		 * 
+		 * @return
+		 */
+		public int getExecutedCount() {
+			return executedCount;
+		}
+
+		/**
+		 * 上一帧因超出预算而顺延的任务数量
+		 * 
+		 * @return
+		 */
+		public int getDeferredCount() {
+			return deferredCount;
+		}
+
+		public long getTotalExecuted() {
+			return totalExecuted;
+		}
+
+		public long getTotalDeferred() {
+			return totalDeferred;
+		}
+
+		/**
+		 * 上一帧执行任务所用的时间(毫秒)
+		 * 
+		 * @return
+		 */
+		public double getDispatchTime() {
+			return dispatchTime;
+		}
+
+		/**
+		 * 上一帧执行的任务中,从提交到开始执行等待最久的时间(毫秒)
+		 * 
+		 * @return
+		 */
+		public double getMaxDeferredTime() {
+			return maxDeferredTime;
+		}
+
+		public void resetStats() {
+			executedCount = deferredCount = 0;
+			totalExecuted = totalDeferred = 0;
+			dispatchTime = maxDeferredTime = 0;
+		}
+
+		public synchronized void clear() {
+			for (int i = 0; i < PRIORITY_COUNT; i++) {
+				queues[i].clear();
 			}
-			running.clear();
 		}
 	}
 
+	public static final int PRIORITY_URGENT = 0;
+
+	public static final int PRIORITY_NORMAL = 1;
+
+	public static final int PRIORITY_LOW = 2;
+
+	private static final int PRIORITY_COUNT = 3;
+
 	public abstract void invokeLater(Runnable action);
 
+	/**
+	 * 以指定优先级提交任务(PRIORITY_URGENT,PRIORITY_NORMAL,PRIORITY_LOW),不支持优先级的实现按invokeLater处理
+	 * 
+	 * @param action
+	 * @param priority
+	 */
+	public void invokeLater(Runnable action, int priority) {
+		invokeLater(action);
+	}
+
 	/** 为了语法转换到C#和C++，只能忍痛放弃匿名构造类了…… **/
 	private static class DeferredPromiseRunnable<T> implements Runnable {
 
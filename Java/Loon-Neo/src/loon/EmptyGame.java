@@ -104,6 +104,11 @@ public class EmptyGame extends LGame {
 		public void invokeLater(Runnable action) {
 			action.run();
 		}
+
+		@Override
+		public void invokeLater(Runnable action, int priority) {
+			action.run();
+		}
 	}
 
 	private Asyn exec = new AsynEmpty(log, frame);
@@ -342,6 +342,21 @@ public abstract class LGame {
 		return this;
 	}
 
+	/**
+	 * 以指定优先级提交一个Runnable到Loon本身进程中(Asyn.PRIORITY_URGENT会优先于其它任务执行)
+	 * 
+	 * @param runnable
+	 * @param priority
+	 * @return
+	 */
+	public LGame invokeLater(Runnable runnable, int priority) {
+		if (runnable == null) {
+			return this;
+		}
+		asyn().invokeLater(runnable, priority);
+		return this;
+	}
+
 	/**
 	 * 当前环境是否支持异步提交Runnable
 	 * 
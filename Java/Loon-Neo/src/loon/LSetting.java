@@ -198,6 +198,16 @@ public class LSetting {
 	 */
 	public boolean saveTexturePixels = true;
 
+	/**
+	 * 支持多线程平台上异步任务(资源读取与解码等)使用的线程数,为0时按CPU核数自动决定
+	 */
+	public int asynThreads = 0;
+
+	/**
+	 * 桌面环境下是否以追加日志文件(而非系统Preferences)保存Save数据
+	 */
+	public boolean isLogStructuredSave = false;
+
 	/**
 	 * 此项为true时,drag与move事件全游戏无效
 	 */
@@ -240,6 +250,8 @@ public class LSetting {
 		this.activationKey = setting.activationKey;
 		this.convertImagesOnLoad = setting.convertImagesOnLoad;
 		this.saveTexturePixels = setting.saveTexturePixels;
+		this.asynThreads = setting.asynThreads;
+		this.isLogStructuredSave = setting.isLogStructuredSave;
 		this.appName = setting.appName;
 		this.gameType = setting.gameType;
 		this.logoPath = setting.logoPath;
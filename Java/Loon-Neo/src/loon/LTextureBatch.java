@@ -72,8 +72,9 @@ public class LTextureBatch implements LRelease {
 			count = batch.count;
 			vertexIdx = batch.vertexIdx;
 			float[] verts = batch.expandVertices.getVertices();
-			vertices = new float[verts.length];
-			System.arraycopy(verts, 0, vertices, 0, verts.length);
+			// 只保存已写入的顶点
+			vertices = new float[vertexIdx];
+			System.arraycopy(verts, 0, vertices, 0, vertexIdx);
 		}
 
 		public boolean isClosed() {
@@ -538,7 +539,7 @@ public class LTextureBatch implements LRelease {
 	}
 
 	public void setIndices(short[] indices) {
-		mesh.getMesh(name, expandVertices.getSize()).setIndices(indices);
+		mesh.setIndices(name, expandVertices.getSize(), indices);
 	}
 
 	public void resetIndices() {
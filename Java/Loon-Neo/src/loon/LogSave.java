@@ -0,0 +1,663 @@
+/**
+ * Copyright 2008 - 2015 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon;
+
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+
+import loon.utils.ArrayByte;
+import loon.utils.Base64Coder;
+import loon.utils.ObjectMap;
+import loon.utils.TArray;
+
+/**
+ * 以追加写日志实现的Save,每一帧记录带有CRC校验,Batch以单帧写入保证原子提交.
+ *
+ * 日志在失效数据过多时会压缩到另一个代(generation)文件中,新代的头部写入并刷盘后才删除旧代文件,
+ * 索引快照仅作为加速打开的提示,损坏或过期时会退回到完整扫描日志.
+ *
+ * 日志的读写逻辑都在此类中,各平台只需要实现日志文件的映射,扩容,刷盘与删除.
+ */
+public abstract class LogSave implements Save.Binary, LRelease {
+
+	private static final int LOG_MAGIC = 0x4C534156;
+
+	private static final int IDX_MAGIC = 0x4C494458;
+
+	private static final int VERSION = 1;
+
+	private static final int IDX_VERSION = 2;
+
+	protected static final int HEADER_SIZE = 16;
+
+	private static final int FRAME_HEADER = 8;
+
+	// 帧内的操作数量
+	private static final int FRAME_COUNT = 4;
+
+	// 每个操作除键值内容外的字节数(操作类型,键长度,值长度)
+	private static final int ENTRY_OVERHEAD = 1 + 4 + 4;
+
+	private static final byte OP_PUT_STRING = 1;
+
+	private static final byte OP_PUT_BYTES = 2;
+
+	private static final byte OP_REMOVE = 3;
+
+	protected static final int MIN_CAPACITY = 64 * 1024;
+
+	private static final int COMPACT_MIN_SIZE = 256 * 1024;
+
+	private static final int INDEX_INTERVAL = 256;
+
+	private static final int[] CRC_TABLE = new int[256];
+
+	static {
+		for (int n = 0; n < 256; n++) {
+			int c = n;
+			for (int k = 0; k < 8; k++) {
+				c = (c & 1) != 0 ? 0xEDB88320 ^ (c >>> 1) : c >>> 1;
+			}
+			CRC_TABLE[n] = c;
+		}
+	}
+
+	private static class Value {
+
+		final int offset;
+
+		final int length;
+
+		final boolean binary;
+
+		Value(int offset, int length, boolean binary) {
+			this.offset = offset;
+			this.length = length;
+			this.binary = binary;
+		}
+	}
+
+	protected final Log log;
+
+	private final ObjectMap<String, Value> index = new ObjectMap<String, Value>();
+
+	private ByteBuffer buffer;
+
+	private long generation;
+
+	private int end;
+
+	// 压缩后日志的实际大小(包括帧头与每个操作的额外字节)
+	private long liveBytes;
+
+	private int commitsSinceIndex;
+
+	private boolean isPersisted;
+
+	private boolean compacting;
+
+	private boolean opened;
+
+	private boolean closed;
+
+	protected LogSave(Log log) {
+		this.log = log;
+	}
+
+	/**
+	 * 准备日志所在的目录
+	 */
+	protected abstract void prepare() throws IOException;
+
+	/**
+	 * 读取指定槽位(代数的奇偶)日志文件开头的字节,文件不存在或长度不足时返回null
+	 */
+	protected abstract byte[] readLogHeader(int slot, int length);
+
+	/**
+	 * 打开指定槽位的日志文件(不存在时创建)并映射为当前日志,映射大小不小于minCapacity
+	 */
+	protected abstract ByteBuffer openLog(int slot, int minCapacity) throws IOException;
+
+	/**
+	 * 把当前日志扩大到capacity字节并重新映射
+	 */
+	protected abstract ByteBuffer growLog(int capacity) throws IOException;
+
+	/**
+	 * 把当前日志写入磁盘
+	 */
+	protected abstract void forceLog();
+
+	/**
+	 * 关闭当前日志并解除映射
+	 */
+	protected abstract void closeLog();
+
+	/**
+	 * 删除指定槽位的日志文件(必须不是当前打开的日志),文件不存在时返回true
+	 */
+	protected abstract boolean deleteLog(int slot);
+
+	/**
+	 * @return 索引快照的全部内容,不存在时返回null
+	 */
+	protected abstract byte[] readIndex();
+
+	/**
+	 * 以临时文件加改名的方式原子替换索引快照
+	 */
+	protected abstract void writeIndex(byte[] data) throws IOException;
+
+	private static int slot(long gen) {
+		return (int) (gen & 1);
+	}
+
+	private synchronized void init() {
+		if (opened || closed) {
+			return;
+		}
+		try {
+			prepare();
+			long gen0 = readGeneration(0), gen1 = readGeneration(1);
+			if (gen0 < 0 && gen1 < 0) {
+				generation = 0;
+				isPersisted = false;
+				// 两个槽位都没有有效的日志,删除残留文件后新建,避免旧数据被当作日志帧重放
+				if (!deleteLog(0) || !deleteLog(1)) {
+					throw new IOException("Could not delete invalid save log");
+				}
+				buffer = openLog(0, MIN_CAPACITY);
+				writeHeader();
+				end = HEADER_SIZE;
+			} else {
+				generation = Math.max(gen0, gen1);
+				isPersisted = true;
+				// 压缩过程中崩溃时残留的另一代文件
+				if (!deleteLog(slot(generation + 1))) {
+					log.debug("Could not delete stale save log " + slot(generation + 1));
+				}
+				buffer = openLog(slot(generation), MIN_CAPACITY);
+				recover();
+			}
+			opened = true;
+		} catch (IOException e) {
+			log.warn("Couldn't open save log: " + e.getMessage());
+			closeLog();
+			buffer = null;
+			closed = true;
+		}
+	}
+
+	private long readGeneration(int slot) {
+		byte[] header = readLogHeader(slot, HEADER_SIZE);
+		if (header == null || header.length < HEADER_SIZE) {
+			return -1;
+		}
+		ByteBuffer view = ByteBuffer.wrap(header);
+		if (view.getInt(0) != LOG_MAGIC || view.getInt(4) != VERSION) {
+			return -1;
+		}
+		return view.getLong(8);
+	}
+
+	private void writeHeader() {
+		buffer.putInt(0, LOG_MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putLong(8, generation);
+		forceLog();
+	}
+
+	/**
+	 * 先尝试载入索引快照,再从快照位置向后重放日志,遇到长度或CRC不符的帧即视为日志尾
+	 */
+	private void recover() {
+		int start = loadIndex();
+		if (start < 0) {
+			index.clear();
+			liveBytes = 0;
+			start = HEADER_SIZE;
+		}
+		end = start;
+		final int limit = buffer.capacity();
+		for (;;) {
+			if (end + FRAME_HEADER > limit) {
+				break;
+			}
+			int length = buffer.getInt(end);
+			if (length <= 0 || end + FRAME_HEADER + length > limit) {
+				break;
+			}
+			int sum = buffer.getInt(end + 4);
+			if (sum != checksum(end + FRAME_HEADER, length)) {
+				log.warn("Save log truncated at " + end + " (bad checksum)");
+				break;
+			}
+			apply(end + FRAME_HEADER, length);
+			end += FRAME_HEADER + length;
+		}
+		// 清除尾部可能残留的半帧,避免之后的追加与其拼接
+		for (int i = end; i < Math.min(limit, end + FRAME_HEADER); i++) {
+			buffer.put(i, (byte) 0);
+		}
+	}
+
+	private int checksum(int offset, int length) {
+		return crc(readBytes(offset, length), 0, length);
+	}
+
+	private static int crc(byte[] bytes, int offset, int length) {
+		int c = 0xFFFFFFFF;
+		for (int i = offset, n = offset + length; i < n; i++) {
+			c = CRC_TABLE[(c ^ bytes[i]) & 0xFF] ^ (c >>> 8);
+		}
+		return ~c;
+	}
+
+	private void apply(int offset, int length) {
+		int pos = offset;
+		int count = buffer.getInt(pos);
+		pos += FRAME_COUNT;
+		for (int i = 0; i < count; i++) {
+			byte op = buffer.get(pos++);
+			int keyLen = buffer.getInt(pos);
+			pos += 4;
+			String key = readString(pos, keyLen);
+			pos += keyLen;
+			Value old;
+			if (op == OP_REMOVE) {
+				old = index.remove(key);
+			} else {
+				int valLen = buffer.getInt(pos);
+				pos += 4;
+				old = index.put(key, new Value(pos, valLen, op == OP_PUT_BYTES));
+				liveBytes += ENTRY_OVERHEAD + keyLen + valLen;
+				pos += valLen;
+			}
+			if (old != null) {
+				liveBytes -= ENTRY_OVERHEAD + keyLen + old.length;
+			}
+		}
+	}
+
+	private String readString(int offset, int length) {
+		return toString(readBytes(offset, length));
+	}
+
+	private byte[] readBytes(int offset, int length) {
+		byte[] bytes = new byte[length];
+		ByteBuffer view = buffer.duplicate();
+		view.position(offset);
+		view.get(bytes);
+		return bytes;
+	}
+
+	private static byte[] toBytes(String s) {
+		try {
+			return s.getBytes(LSystem.ENCODING);
+		} catch (UnsupportedEncodingException e) {
+			return s.getBytes();
+		}
+	}
+
+	private static String toString(byte[] bytes) {
+		try {
+			return new String(bytes, LSystem.ENCODING);
+		} catch (UnsupportedEncodingException e) {
+			return new String(bytes);
+		}
+	}
+
+	/**
+	 * 追加一帧,帧内为一组操作,写入后强制刷盘
+	 *
+	 * @param keys
+	 * @param values
+	 *            为null的值表示删除,String或byte[]表示写入
+	 */
+	private synchronized void append(TArray<String> keys, TArray<Object> values) {
+		init();
+		if (closed) {
+			return;
+		}
+		final int count = keys.size;
+		byte[][] keyBytes = new byte[count][];
+		byte[][] valBytes = new byte[count][];
+		int length = FRAME_COUNT;
+		for (int i = 0; i < count; i++) {
+			keyBytes[i] = toBytes(keys.get(i));
+			Object v = values.get(i);
+			if (v instanceof String) {
+				valBytes[i] = toBytes((String) v);
+			} else if (v != null) {
+				valBytes[i] = (byte[]) v;
+			}
+			length += 1 + 4 + keyBytes[i].length + (valBytes[i] == null ? 0 : 4 + valBytes[i].length);
+		}
+		try {
+			ensureCapacity(end + FRAME_HEADER + length + FRAME_HEADER);
+		} catch (IOException e) {
+			log.warn("Error growing save log: " + e.getMessage());
+			isPersisted = false;
+			return;
+		}
+		int pos = end + FRAME_HEADER;
+		buffer.putInt(pos, count);
+		pos += FRAME_COUNT;
+		for (int i = 0; i < count; i++) {
+			Object v = values.get(i);
+			buffer.put(pos++, v == null ? OP_REMOVE : (v instanceof String ? OP_PUT_STRING : OP_PUT_BYTES));
+			pos = put(pos, keyBytes[i]);
+			if (valBytes[i] != null) {
+				pos = put(pos, valBytes[i]);
+			}
+		}
+		int frame = end;
+		buffer.putInt(frame + 4, checksum(frame + FRAME_HEADER, length));
+		// 长度最后写入,崩溃时未写完的帧因长度为0或CRC不符而被忽略
+		buffer.putInt(frame, length);
+		forceLog();
+		apply(frame + FRAME_HEADER, length);
+		end += FRAME_HEADER + length;
+		isPersisted = true;
+		if (compacting) {
+			return;
+		}
+		if (++commitsSinceIndex >= INDEX_INTERVAL) {
+			saveIndex();
+		}
+		if (end > COMPACT_MIN_SIZE && end - HEADER_SIZE > compactedSize() * 2) {
+			compact();
+		}
+	}
+
+	/**
+	 * 压缩后的日志把全部有效数据写为单独一帧
+	 */
+	private long compactedSize() {
+		return FRAME_HEADER + FRAME_COUNT + liveBytes;
+	}
+
+	private int put(int pos, byte[] bytes) {
+		buffer.putInt(pos, bytes.length);
+		pos += 4;
+		ByteBuffer view = buffer.duplicate();
+		view.position(pos);
+		view.put(bytes);
+		return pos + bytes.length;
+	}
+
+	private void ensureCapacity(long size) throws IOException {
+		if (size <= buffer.capacity()) {
+			return;
+		}
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Save log too large: " + size);
+		}
+		long capacity = buffer.capacity();
+		while (capacity < size) {
+			capacity *= 2;
+		}
+		buffer = growLog((int) Math.min(Integer.MAX_VALUE, capacity));
+	}
+
+	/**
+	 * 把当前有效数据写入下一代日志文件,新代头部刷盘后才切换并删除旧代文件
+	 */
+	public synchronized void compact() {
+		init();
+		if (closed || compacting) {
+			return;
+		}
+		final long oldGeneration = generation;
+		final int oldSlot = slot(oldGeneration), nextSlot = slot(oldGeneration + 1);
+		final int size = index.size;
+		TArray<String> keys = new TArray<String>(size);
+		TArray<Object> values = new TArray<Object>(size);
+		for (ObjectMap.Entry<String, Value> e : index.entries()) {
+			Value v = e.value;
+			byte[] bytes = readBytes(v.offset, v.length);
+			keys.add(e.key);
+			values.add(v.binary ? (Object) bytes : toString(bytes));
+		}
+		final long expected = compactedSize();
+		compacting = true;
+		try {
+			// 旧代的数据已全部读入内存,先解除映射,部分平台不能删除仍被映射的文件
+			closeLog();
+			buffer = null;
+			if (!deleteLog(nextSlot)) {
+				throw new IOException("Could not delete save log " + nextSlot);
+			}
+			buffer = openLog(nextSlot, (int) Math.max(MIN_CAPACITY, HEADER_SIZE + expected + FRAME_HEADER));
+			generation = oldGeneration + 1;
+			end = HEADER_SIZE;
+			index.clear();
+			liveBytes = 0;
+			if (size > 0) {
+				append(keys, values);
+				if (closed || buffer == null || index.size != size) {
+					throw new IOException("Incomplete compaction");
+				}
+			}
+			// 新代头部最后写入,写入完成前旧代仍为有效日志
+			writeHeader();
+			if (!deleteLog(oldSlot)) {
+				log.debug("Could not delete old save log " + oldSlot);
+			}
+			commitsSinceIndex = 0;
+			saveIndex();
+		} catch (IOException e) {
+			log.warn("Error compacting save log: " + e.getMessage());
+			closeLog();
+			buffer = null;
+			generation = oldGeneration;
+			index.clear();
+			liveBytes = 0;
+			try {
+				buffer = openLog(oldSlot, MIN_CAPACITY);
+				recover();
+			} catch (IOException ex) {
+				log.warn("Couldn't reopen save log: " + ex.getMessage());
+				closed = true;
+			}
+		} finally {
+			compacting = false;
+		}
+	}
+
+	/**
+	 * 索引快照内容以CRC校验并记录对应的日志代与位置
+	 */
+	private void saveIndex() {
+		commitsSinceIndex = 0;
+		try {
+			ArrayByte data = new ArrayByte(index.size * 32 + 32);
+			data.writeInt(IDX_MAGIC);
+			data.writeInt(IDX_VERSION);
+			data.writeLong(generation);
+			data.writeInt(end);
+			data.writeLong(liveBytes);
+			data.writeInt(index.size);
+			for (ObjectMap.Entry<String, Value> e : index.entries()) {
+				data.writeUTF(e.key);
+				data.writeBoolean(e.value.binary);
+				data.writeInt(e.value.offset);
+				data.writeInt(e.value.length);
+			}
+			data.writeInt(crc(data.getData(), 0, data.position()));
+			byte[] body = new byte[data.position()];
+			System.arraycopy(data.getData(), 0, body, 0, body.length);
+			writeIndex(body);
+		} catch (IOException e) {
+			log.debug("Could not write save index: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return 快照对应的日志位置,快照不可用时返回-1
+	 */
+	private int loadIndex() {
+		byte[] all = readIndex();
+		if (all == null || all.length < 4) {
+			return -1;
+		}
+		try {
+			int bodyLen = all.length - 4;
+			if (ByteBuffer.wrap(all).getInt(bodyLen) != crc(all, 0, bodyLen)) {
+				return -1;
+			}
+			ArrayByte data = new ArrayByte(all);
+			if (data.readInt() != IDX_MAGIC || data.readInt() != IDX_VERSION || data.readLong() != generation) {
+				return -1;
+			}
+			int position = data.readInt();
+			long live = data.readLong();
+			if (position < HEADER_SIZE || position > buffer.capacity()) {
+				return -1;
+			}
+			int count = data.readInt();
+			index.clear();
+			for (int i = 0; i < count; i++) {
+				String key = data.readUTF();
+				boolean binary = data.readBoolean();
+				int offset = data.readInt();
+				int length = data.readInt();
+				if (offset < HEADER_SIZE || offset + length > position) {
+					index.clear();
+					return -1;
+				}
+				index.put(key, new Value(offset, length, binary));
+			}
+			liveBytes = live;
+			return position;
+		} catch (UTFDataFormatException e) {
+			index.clear();
+			return -1;
+		} catch (IndexOutOfBoundsException e) {
+			index.clear();
+			return -1;
+		}
+	}
+
+	@Override
+	public void setItem(String key, String data) {
+		append(single(key), single((Object) data));
+	}
+
+	@Override
+	public void setBytes(String key, byte[] data) {
+		append(single(key), single((Object) data));
+	}
+
+	@Override
+	public void removeItem(String key) {
+		append(single(key), single(null));
+	}
+
+	private static <T> TArray<T> single(T v) {
+		TArray<T> list = new TArray<T>(1);
+		list.add(v);
+		return list;
+	}
+
+	@Override
+	public synchronized String getItem(String key) {
+		init();
+		Value v = closed ? null : index.get(key);
+		if (v == null) {
+			return null;
+		}
+		byte[] bytes = readBytes(v.offset, v.length);
+		return v.binary ? new String(Base64Coder.encode(bytes)) : toString(bytes);
+	}
+
+	@Override
+	public synchronized byte[] getBytes(String key) {
+		init();
+		Value v = closed ? null : index.get(key);
+		return v == null ? null : readBytes(v.offset, v.length);
+	}
+
+	@Override
+	public Batch startBatch() {
+		return new SaveBatchImpl(this) {
+
+			private final TArray<String> keys = new TArray<String>();
+
+			private final TArray<Object> values = new TArray<Object>();
+
+			@Override
+			protected void setImpl(String key, String data) {
+				keys.add(key);
+				values.add(data);
+			}
+
+			@Override
+			protected void removeImpl(String key) {
+				keys.add(key);
+				values.add(null);
+			}
+
+			@Override
+			protected void onAfterCommit() {
+				if (keys.size > 0) {
+					append(keys, values);
+				}
+			}
+		};
+	}
+
+	@Override
+	public synchronized Iterable<String> keys() {
+		init();
+		TArray<String> list = new TArray<String>(index.size);
+		if (closed) {
+			return list;
+		}
+		for (String key : index.keys()) {
+			list.add(key);
+		}
+		return list;
+	}
+
+	@Override
+	public boolean isPersisted() {
+		return isPersisted;
+	}
+
+	public synchronized int getLogSize() {
+		return end;
+	}
+
+	@Override
+	public synchronized void close() {
+		if (opened && !closed && buffer != null) {
+			forceLog();
+			saveIndex();
+		}
+		closeLog();
+		buffer = null;
+		closed = true;
+	}
+}
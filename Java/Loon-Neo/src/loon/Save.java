@@ -31,6 +31,16 @@ public interface Save {
     void commit();
   }
 
+  /**
+   * 支持直接保存二进制数据的Save实现,数据无需再编码为字符串
+   */
+  interface Binary extends Save {
+
+    void setBytes(String key, byte[] data);
+
+    byte[] getBytes(String key);
+  }
+
   public void setItem(String key, String data);
 
   public void removeItem(String key);
@@ -38,7 +38,13 @@ public class Session implements Bundle<String> {
 	private boolean isPersisted = false;
 
 	private String loadData() {
-		String result = _save.getItem(name);
+		String result;
+		if (_save instanceof Save.Binary) {
+			byte[] bytes = ((Save.Binary) _save).getBytes(name);
+			result = bytes == null ? null : toString(bytes);
+		} else {
+			result = _save.getItem(name);
+		}
 		if (StringUtils.isEmpty(result)) {
 			return result;
 		}
@@ -56,6 +62,11 @@ public class Session implements Bundle<String> {
 		if (StringUtils.isEmpty(result)) {
 			return;
 		}
+		// 支持二进制的Save直接写入原始数据,不再转为Base64
+		if (_save instanceof Save.Binary) {
+			((Save.Binary) _save).setBytes(name, toBytes(result));
+			return;
+		}
 		if (!Base64Coder.isBase64(result)) {
 			try {
 				result = new String(Base64Coder.encode(result.getBytes()), LSystem.ENCODING);
@@ -70,6 +81,58 @@ public class Session implements Bundle<String> {
 		_save.removeItem(name);
 	}
 
+	private static byte[] toBytes(String v) {
+		try {
+			return v.getBytes(LSystem.ENCODING);
+		} catch (Throwable e) {
+			return v.getBytes();
+		}
+	}
+
+	private static String toString(byte[] v) {
+		try {
+			return new String(v, LSystem.ENCODING);
+		} catch (Throwable e) {
+			return new String(v);
+		}
+	}
+
+	private String binaryKey(String key) {
+		return name + ":" + key;
+	}
+
+	/**
+	 * 以二进制形式保存数据(立即写入),Save支持二进制时不经过任何字符串编码
+	 * 
+	 * @param key
+	 * @param data
+	 * @return
+	 */
+	public Session setBytes(String key, byte[] data) {
+		if (data == null) {
+			return removeBytes(key);
+		}
+		if (_save instanceof Save.Binary) {
+			((Save.Binary) _save).setBytes(binaryKey(key), data);
+		} else {
+			_save.setItem(binaryKey(key), toString(Base64Coder.encode(data)));
+		}
+		return this;
+	}
+
+	public byte[] getBytes(String key) {
+		if (_save instanceof Save.Binary) {
+			return ((Save.Binary) _save).getBytes(binaryKey(key));
+		}
+		String result = _save.getItem(binaryKey(key));
+		return result == null ? null : Base64Coder.decode(result);
+	}
+
+	public Session removeBytes(String key) {
+		_save.removeItem(binaryKey(key));
+		return this;
+	}
+
 	public static Session load(String name) {
 		return new Session(name);
 	}
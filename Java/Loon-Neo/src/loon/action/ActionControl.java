@@ -38,6 +38,8 @@ public class ActionControl implements LRelease {
 
 	private final Actions actions;
 
+	private final ActionTweenStore tweens;
+
 	private final LTimer delayTimer;
 
 	private boolean pause;
@@ -73,11 +75,12 @@ public class ActionControl implements LRelease {
 	 * 调用缓动动画事件循环
 	 */
 	public final void call(long elapsedTime) {
-		if (pause || actions.getCount() == 0) {
+		if (pause || (actions.getCount() == 0 && tweens.isEmpty())) {
 			return;
 		}
 		if (delayTimer.action(elapsedTime)) {
 			actions.update(elapsedTime);
+			tweens.update(elapsedTime);
 		}
 	}
 
@@ -207,6 +210,7 @@ public class ActionControl implements LRelease {
 
 	private ActionControl() {
 		actions = new Actions();
+		tweens = new ActionTweenStore();
 		delayTimer = new LTimer(0);
 		bindDatas = new Array<ActionBindData>();
 		pause = false;
@@ -222,6 +226,16 @@ public class ActionControl implements LRelease {
 
 	public void removeAllActions(ActionBind actObject) {
 		actions.removeAllActions(actObject);
+		tweens.kill(actObject);
+	}
+
+	/**
+	 * 获得以数组结构保存的简单缓动集合(ActionTween.submit()注入的缓动在此更新)
+	 * 
+	 * @return
+	 */
+	public ActionTweenStore getTweenStore() {
+		return tweens;
 	}
 
 	public boolean containsKey(ActionBind actObject) {
@@ -232,7 +246,7 @@ public class ActionControl implements LRelease {
 		if (actObject == null) {
 			return true;
 		}
-		return actions.isCompleted(actObject);
+		return actions.isCompleted(actObject) && !tweens.containsTarget(actObject);
 	}
 
 	public int getCount() {
@@ -269,6 +283,7 @@ public class ActionControl implements LRelease {
 
 	public void paused(boolean pause, ActionBind actObject) {
 		actions.paused(pause, actObject);
+		tweens.paused(pause, actObject);
 	}
 
 	public boolean isPause() {
@@ -281,6 +296,7 @@ public class ActionControl implements LRelease {
 
 	public void clear() {
 		actions.clear();
+		tweens.clear();
 	}
 
 	public void stop() {
@@ -295,6 +311,7 @@ public class ActionControl implements LRelease {
 	@Override
 	public void close() {
 		actions.clear();
+		tweens.clear();
 		bindDatas.clear();
 	}
 
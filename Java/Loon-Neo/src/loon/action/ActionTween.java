@@ -1307,6 +1307,29 @@ public class ActionTween extends ActionTweenBase<ActionTween> {
 		return _combinedAttrsSize;
 	}
 
+	/**
+	 * 以句柄方式提交当前缓动到ActionControl的ActionTweenStore中(不产生TweenTo等事件对象),
+	 * 提交后此ActionTween立即回收到对象池,不可再次使用.
+	 * 
+	 * 仅支持单一目标的数值缓动(不包含event,funPoint路径和callback),
+	 * 否则以start()方式运行并返回ActionTweenStore.INVALID_HANDLE.
+	 * 
+	 * @return
+	 */
+	public int submit() {
+		if (_target == null || type == -1 || !notEvent() || (_funPointsSize > 0 && path != null) || hasCallback()) {
+			start();
+			return ActionTweenStore.INVALID_HANDLE;
+		}
+		ActionTweenStore store = ActionControl.get().getTweenStore();
+		int handle = store.add(_target, type, duration, delay, equation, targetValues, isFrom, isRelative);
+		if (repeatSize != 0) {
+			store.repeat(handle, repeatSize, getRepeatDelay(), isBackward());
+		}
+		_POOLS.free(this);
+		return handle;
+	}
+
 	@Override
 	public void free() {
 		_POOLS.free(this);
@@ -48,6 +48,9 @@ public abstract class ActionTweenBase<T> {
 	boolean _isAutoRemoveEnabled;
 	boolean _isAutoStartEnabled;
 
+	// 是否已回收到ActionTweenPool中(不受reset影响)
+	boolean _pooled;
+
 	protected void reset() {
 		step = -2;
 		repeatSize = 0;
@@ -117,6 +120,10 @@ public abstract class ActionTweenBase<T> {
 		return (T) this;
 	}
 
+	boolean hasCallback() {
+		return callback != null;
+	}
+
 	public T setCallbackTriggers(int flags) {
 		this.callbackTriggers = flags;
 		return (T) this;
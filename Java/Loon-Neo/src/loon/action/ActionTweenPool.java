@@ -22,7 +22,7 @@ package loon.action;
 
 import loon.utils.TArray;
 
-abstract class ActionTweenPool<T> {
+abstract class ActionTweenPool<T extends ActionTweenBase<T>> {
 
 	public interface Callback<T> extends loon.utils.reply.Callback<T> {
 		public void onPool(T obj);
@@ -42,11 +42,13 @@ abstract class ActionTweenPool<T> {
 	public T get() {
 		T obj = null;
 		try {
-			obj = _objects.isEmpty() ? create() : _objects.removeIndex(0);
+			// 从尾部取出,避免removeIndex(0)时整体移动数组
+			obj = _objects.isEmpty() ? create() : _objects.pop();
 		} catch (Throwable e) {}
 		if (obj == null) {
 			obj = create();
 		}
+		obj._pooled = false;
 		if (_callback != null){
 			_callback.onUnPool(obj);
 		}
@@ -55,7 +57,9 @@ abstract class ActionTweenPool<T> {
 
 	public void free(T obj) {
 		if (obj == null) return;
-		if (!_objects.contains(obj)) {
+		// 以标记判断是否已回收,避免contains()的线性查找
+		if (!obj._pooled) {
+			obj._pooled = true;
 			if (_callback != null){
 				_callback.onPool(obj);
 			}
@@ -64,6 +68,9 @@ abstract class ActionTweenPool<T> {
 	}
 
 	public void clear() {
+		for (int i = 0; i < _objects.size; i++) {
+			_objects.get(i)._pooled = false;
+		}
 		_objects.clear();
 	}
 
@@ -0,0 +1,502 @@
+/**
+ * Copyright 2008 - 2015 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.action;
+
+import loon.LSysException;
+import loon.utils.CollectionUtils;
+import loon.utils.Easing;
+
+/**
+ * 以数组结构(struct-of-arrays)保存的简单缓动数据,每帧在一个循环中完成全部更新.
+ *
+ * 由ActionTween.submit()注入,外部通过int句柄(handle)引用,句柄中带有槽位版本号,
+ * 缓动结束后旧句柄自动失效,不会误操作到复用同一槽位的新缓动.
+ */
+public class ActionTweenStore {
+
+	public static final int INVALID_HANDLE = 0;
+
+	// 与ActionTween默认的combinedAttrsLimit一致
+	static final int ATTRS = 3;
+
+	private static final int INDEX_BITS = 20;
+
+	private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+
+	private static final int GENERATION_MASK = (1 << (31 - INDEX_BITS)) - 1;
+
+	private static final int FLAG_INITIALIZED = 1;
+
+	private static final int FLAG_FROM = 1 << 1;
+
+	private static final int FLAG_RELATIVE = 1 << 2;
+
+	private static final int FLAG_PAUSED = 1 << 3;
+
+	private static final int FLAG_BACKWARD = 1 << 4;
+
+	private static final int FLAG_REVERSED = 1 << 5;
+
+	// 以下数组按紧密下标[0,size)排列,删除时用末尾元素填补
+	private ActionBind[] targets;
+
+	private int[] types;
+
+	private int[] attrs;
+
+	private int[] flags;
+
+	private int[] easingIds;
+
+	private int[] repeats;
+
+	private float[] delays;
+
+	private float[] durations;
+
+	private float[] repeatDelays;
+
+	private float[] elapsed;
+
+	private float[] startValues;
+
+	private float[] endValues;
+
+	private int[] denseToSlot;
+
+	// 句柄槽位到紧密下标的映射
+	private int[] slotToDense;
+
+	private int[] generations;
+
+	private int[] freeSlots;
+
+	private int freeSize;
+
+	private int slotSize;
+
+	private int size;
+
+	private Easing[] easings;
+
+	private int easingSize;
+
+	private final float[] buffer = new float[ATTRS];
+
+	public ActionTweenStore() {
+		this(CollectionUtils.INITIAL_CAPACITY);
+	}
+
+	public ActionTweenStore(int capacity) {
+		if (capacity < 1) {
+			capacity = 1;
+		}
+		targets = new ActionBind[capacity];
+		types = new int[capacity];
+		attrs = new int[capacity];
+		flags = new int[capacity];
+		easingIds = new int[capacity];
+		repeats = new int[capacity];
+		delays = new float[capacity];
+		durations = new float[capacity];
+		repeatDelays = new float[capacity];
+		elapsed = new float[capacity];
+		startValues = new float[capacity * ATTRS];
+		endValues = new float[capacity * ATTRS];
+		denseToSlot = new int[capacity];
+		slotToDense = new int[capacity];
+		generations = new int[capacity];
+		freeSlots = new int[capacity];
+		easings = new Easing[8];
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= targets.length) {
+			return;
+		}
+		int newSize = targets.length * 2;
+		if (newSize < capacity) {
+			newSize = capacity;
+		}
+		targets = CollectionUtils.copyOf(targets, newSize);
+		types = CollectionUtils.copyOf(types, newSize);
+		attrs = CollectionUtils.copyOf(attrs, newSize);
+		flags = CollectionUtils.copyOf(flags, newSize);
+		easingIds = CollectionUtils.copyOf(easingIds, newSize);
+		repeats = CollectionUtils.copyOf(repeats, newSize);
+		delays = CollectionUtils.copyOf(delays, newSize);
+		durations = CollectionUtils.copyOf(durations, newSize);
+		repeatDelays = CollectionUtils.copyOf(repeatDelays, newSize);
+		elapsed = CollectionUtils.copyOf(elapsed, newSize);
+		startValues = CollectionUtils.copyOf(startValues, newSize * ATTRS);
+		endValues = CollectionUtils.copyOf(endValues, newSize * ATTRS);
+		denseToSlot = CollectionUtils.copyOf(denseToSlot, newSize);
+		slotToDense = CollectionUtils.copyOf(slotToDense, newSize);
+		generations = CollectionUtils.copyOf(generations, newSize);
+		freeSlots = CollectionUtils.copyOf(freeSlots, newSize);
+	}
+
+	/**
+	 * 获得缓动函数的id(同一Easing对象只登记一次)
+	 *
+	 * @param easing
+	 * @return
+	 */
+	public int easingId(Easing easing) {
+		if (easing == null) {
+			easing = Easing.NONE;
+		}
+		for (int i = 0; i < easingSize; i++) {
+			if (easings[i] == easing) {
+				return i;
+			}
+		}
+		if (easingSize == easings.length) {
+			Easing[] tmp = new Easing[easingSize * 2];
+			System.arraycopy(easings, 0, tmp, 0, easingSize);
+			easings = tmp;
+		}
+		easings[easingSize] = easing;
+		return easingSize++;
+	}
+
+	/**
+	 * 注入一个缓动,目标值在第一次更新时(延迟结束后)才读取起始值
+	 *
+	 * @param target
+	 * @param tweenType
+	 * @param duration
+	 * @param delay
+	 * @param easing
+	 * @param values
+	 *            目标值(isRelative时为相对值)
+	 * @param isFrom
+	 * @param isRelative
+	 * @return 缓动句柄
+	 */
+	public int add(ActionBind target, int tweenType, float duration, float delay, Easing easing, float[] values,
+			boolean isFrom, boolean isRelative) {
+		ensureCapacity(size + 1);
+		int slot;
+		if (freeSize > 0) {
+			slot = freeSlots[--freeSize];
+		} else {
+			slot = slotSize++;
+			if (slotSize > INDEX_MASK) {
+				throw new LSysException("Too many tweens in ActionTweenStore !");
+			}
+		}
+		int gen = (generations[slot] + 1) & GENERATION_MASK;
+		if (gen == 0) {
+			gen = 1;
+		}
+		generations[slot] = gen;
+
+		final int idx = size++;
+		slotToDense[slot] = idx;
+		denseToSlot[idx] = slot;
+		targets[idx] = target;
+		types[idx] = tweenType;
+		attrs[idx] = 0;
+		easingIds[idx] = easingId(easing);
+		repeats[idx] = 0;
+		delays[idx] = delay;
+		durations[idx] = duration;
+		repeatDelays[idx] = 0;
+		elapsed[idx] = 0;
+		int flag = 0;
+		if (isFrom) {
+			flag |= FLAG_FROM;
+		}
+		if (isRelative) {
+			flag |= FLAG_RELATIVE;
+		}
+		flags[idx] = flag;
+		final int offset = idx * ATTRS;
+		for (int i = 0; i < ATTRS; i++) {
+			endValues[offset + i] = (values != null && i < values.length) ? values[i] : 0f;
+			startValues[offset + i] = 0f;
+		}
+		return (gen << INDEX_BITS) | slot;
+	}
+
+	private int indexOf(int handle) {
+		if (handle <= INVALID_HANDLE) {
+			return -1;
+		}
+		final int slot = handle & INDEX_MASK;
+		if (slot >= slotSize || generations[slot] != (handle >>> INDEX_BITS)) {
+			return -1;
+		}
+		final int idx = slotToDense[slot];
+		return (idx < size && denseToSlot[idx] == slot) ? idx : -1;
+	}
+
+	public boolean isAlive(int handle) {
+		return indexOf(handle) != -1;
+	}
+
+	/**
+	 * 设置重复次数(小于0时无限重复),backward为true时往返播放
+	 *
+	 * @param handle
+	 * @param count
+	 * @param repeatDelay
+	 * @param backward
+	 * @return
+	 */
+	public boolean repeat(int handle, int count, float repeatDelay, boolean backward) {
+		final int idx = indexOf(handle);
+		if (idx == -1) {
+			return false;
+		}
+		repeats[idx] = count;
+		repeatDelays[idx] = repeatDelay >= 0 ? repeatDelay : 0;
+		if (backward) {
+			flags[idx] |= FLAG_BACKWARD;
+		} else {
+			flags[idx] &= ~FLAG_BACKWARD;
+		}
+		return true;
+	}
+
+	public boolean pause(int handle, boolean pause) {
+		final int idx = indexOf(handle);
+		if (idx == -1) {
+			return false;
+		}
+		if (pause) {
+			flags[idx] |= FLAG_PAUSED;
+		} else {
+			flags[idx] &= ~FLAG_PAUSED;
+		}
+		return true;
+	}
+
+	/**
+	 * 中止缓动(不修改目标当前数值)
+	 *
+	 * @param handle
+	 * @return
+	 */
+	public boolean kill(int handle) {
+		final int idx = indexOf(handle);
+		if (idx == -1) {
+			return false;
+		}
+		removeIndex(idx);
+		return true;
+	}
+
+	/**
+	 * 立即完成缓动,目标被设置为最终值
+	 *
+	 * @param handle
+	 * @return
+	 */
+	public boolean complete(int handle) {
+		final int idx = indexOf(handle);
+		if (idx == -1) {
+			return false;
+		}
+		initialize(idx);
+		writeValues(idx, (flags[idx] & FLAG_REVERSED) != 0 ? startValues : endValues);
+		removeIndex(idx);
+		return true;
+	}
+
+	public int kill(ActionBind target) {
+		int count = 0;
+		for (int i = size - 1; i > -1; i--) {
+			if (targets[i] == target) {
+				removeIndex(i);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	public int kill(ActionBind target, int tweenType) {
+		int count = 0;
+		for (int i = size - 1; i > -1; i--) {
+			if (targets[i] == target && types[i] == tweenType) {
+				removeIndex(i);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	public boolean containsTarget(ActionBind target) {
+		for (int i = 0; i < size; i++) {
+			if (targets[i] == target) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public void paused(boolean pause, ActionBind target) {
+		for (int i = 0; i < size; i++) {
+			if (targets[i] == target) {
+				if (pause) {
+					flags[i] |= FLAG_PAUSED;
+				} else {
+					flags[i] &= ~FLAG_PAUSED;
+				}
+			}
+		}
+	}
+
+	private void removeIndex(int idx) {
+		final int slot = denseToSlot[idx];
+		final int last = --size;
+		if (idx != last) {
+			targets[idx] = targets[last];
+			types[idx] = types[last];
+			attrs[idx] = attrs[last];
+			flags[idx] = flags[last];
+			easingIds[idx] = easingIds[last];
+			repeats[idx] = repeats[last];
+			delays[idx] = delays[last];
+			durations[idx] = durations[last];
+			repeatDelays[idx] = repeatDelays[last];
+			elapsed[idx] = elapsed[last];
+			System.arraycopy(startValues, last * ATTRS, startValues, idx * ATTRS, ATTRS);
+			System.arraycopy(endValues, last * ATTRS, endValues, idx * ATTRS, ATTRS);
+			final int movedSlot = denseToSlot[last];
+			denseToSlot[idx] = movedSlot;
+			slotToDense[movedSlot] = idx;
+		}
+		targets[last] = null;
+		// 版本号递增,旧句柄立即失效
+		generations[slot] = (generations[slot] + 1) & GENERATION_MASK;
+		freeSlots[freeSize++] = slot;
+	}
+
+	private void initialize(int idx) {
+		if ((flags[idx] & FLAG_INITIALIZED) != 0) {
+			return;
+		}
+		flags[idx] |= FLAG_INITIALIZED;
+		final ActionBind target = targets[idx];
+		final int count = ActionType.getValues(target, types[idx], buffer);
+		attrs[idx] = count < 0 ? 0 : count;
+		final int offset = idx * ATTRS;
+		final boolean relative = (flags[idx] & FLAG_RELATIVE) != 0;
+		final boolean from = (flags[idx] & FLAG_FROM) != 0;
+		for (int i = 0; i < attrs[idx]; i++) {
+			float start = buffer[i];
+			float end = endValues[offset + i] + (relative ? start : 0);
+			if (from) {
+				startValues[offset + i] = end;
+				endValues[offset + i] = start;
+			} else {
+				startValues[offset + i] = start;
+				endValues[offset + i] = end;
+			}
+		}
+	}
+
+	private void writeValues(int idx, float[] values) {
+		final int count = attrs[idx];
+		if (count == 0) {
+			return;
+		}
+		System.arraycopy(values, idx * ATTRS, buffer, 0, count);
+		ActionType.setValues(targets[idx], types[idx], buffer);
+	}
+
+	/**
+	 * 更新全部缓动(时间单位与ActionTween相同)
+	 *
+	 * @param delta
+	 */
+	public void update(float delta) {
+		for (int i = 0; i < size;) {
+			int flag = flags[i];
+			if ((flag & FLAG_PAUSED) != 0) {
+				i++;
+				continue;
+			}
+			final float time = elapsed[i] + delta;
+			elapsed[i] = time;
+			final float delay = delays[i];
+			if (time < delay) {
+				i++;
+				continue;
+			}
+			if ((flag & FLAG_INITIALIZED) == 0) {
+				initialize(i);
+				flag = flags[i];
+			}
+			final boolean reversed = (flag & FLAG_REVERSED) != 0;
+			final float duration = durations[i];
+			final float current = time - delay;
+			if (current >= duration) {
+				writeValues(i, reversed ? startValues : endValues);
+				final int repeat = repeats[i];
+				if (repeat == 0) {
+					// 填补进来的末尾缓动在本轮继续更新
+					removeIndex(i);
+					continue;
+				}
+				if (repeat > 0) {
+					repeats[i] = repeat - 1;
+				}
+				// 下一轮从重复延迟后开始,溢出的时间顺延到下一轮
+				delays[i] = repeatDelays[i];
+				elapsed[i] = current - duration;
+				if ((flag & FLAG_BACKWARD) != 0) {
+					flags[i] = flag ^ FLAG_REVERSED;
+				}
+				i++;
+				continue;
+			}
+			final int count = attrs[i];
+			if (count > 0) {
+				final float t = easings[easingIds[i]].apply(reversed ? duration - current : current, duration, false);
+				final int offset = i * ATTRS;
+				for (int j = 0; j < count; j++) {
+					final float start = startValues[offset + j];
+					buffer[j] = start + t * (endValues[offset + j] - start);
+				}
+				ActionType.setValues(targets[i], types[i], buffer);
+			}
+			i++;
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		for (int i = size - 1; i > -1; i--) {
+			removeIndex(i);
+		}
+	}
+
+}
@@ -0,0 +1,513 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.action.collision;
+
+import java.util.NoSuchElementException;
+
+import loon.LSysException;
+import loon.geom.RectBox;
+import loon.geom.Vector2f;
+import loon.utils.LIterator;
+import loon.utils.MathUtils;
+import loon.utils.TArray;
+
+/**
+ * 粗略碰撞检测(broad phase)用的CollisionChecker基类,对象信息缓存在代理(Proxy)中并以CollisionObject.setCollisionData关联,
+ * 标记预先转为整型掩码,子类只需提供候选对象的收集方式与碰撞对的生成方式,查询语义与BSPCollisionChecker一致.
+ *
+ * 对象移动或改变大小后需调用updateObjectLocation或updateObjectSize,与BSPCollisionChecker的要求相同.
+ */
+public abstract class BroadPhaseCollisionChecker implements CollisionChecker {
+
+	static class Proxy {
+
+		BroadPhaseCollisionChecker owner;
+
+		CollisionObject object;
+
+		String flag;
+
+		int mask;
+
+		int id;
+
+		int index;
+
+		int mark;
+
+		float minX, minY, maxX, maxY;
+
+		int minCellX, minCellY, maxCellX, maxCellY;
+
+		boolean large;
+	}
+
+	private final CollisionBaseQuery actorQuery = new CollisionBaseQuery();
+
+	private final CollisionNeighbourQuery neighbourQuery = new CollisionNeighbourQuery();
+
+	private final CollisionPointQuery pointQuery = new CollisionPointQuery();
+
+	private final CollisionInRangeQuery inRangeQuery = new CollisionInRangeQuery();
+
+	private final TArray<Proxy> freeProxies = new TArray<Proxy>();
+
+	private final Vector2f offsetLocation = new Vector2f(0, 0);
+
+	private boolean itlayer = false;
+
+	private int nextId;
+
+	private int queryMark;
+
+	protected int cellSizeX = 32, cellSizeY = 32;
+
+	Proxy[] proxies = new Proxy[32];
+
+	int proxyCount;
+
+	Proxy[] candidates = new Proxy[32];
+
+	int candidateCount;
+
+	private String candidateFlag;
+
+	private int candidateMask;
+
+	private int candidateStamp;
+
+	@Override
+	public void initialize(int size) {
+		this.initialize(size, size);
+	}
+
+	@Override
+	public void initialize(int tsx, int tsy) {
+		this.cellSizeX = MathUtils.max(1, tsx);
+		this.cellSizeY = MathUtils.max(1, tsy);
+	}
+
+	/**
+	 * 以指定代理更新空间结构
+	 */
+	abstract void insertProxy(Proxy proxy);
+
+	abstract void removeProxy(Proxy proxy);
+
+	abstract void moveProxy(Proxy proxy);
+
+	abstract void clearProxies();
+
+	/**
+	 * 收集包围盒与指定区域重叠的代理,通过addCandidate加入候选列表
+	 */
+	abstract void collectCandidates(float minX, float minY, float maxX, float maxY);
+
+	/**
+	 * 枚举所有包围盒重叠的代理对,每一对只交给emitPair一次
+	 *
+	 * @return 通知的碰撞对数量
+	 */
+	abstract int collectPairs(String flagA, int maskA, String flagB, int maskB, CollisionPairCallback callback);
+
+	final Proxy proxyOf(CollisionObject obj) {
+		if (obj == null) {
+			return null;
+		}
+		Object data = obj.getCollisionData();
+		if (data instanceof Proxy) {
+			Proxy proxy = (Proxy) data;
+			if (proxy.owner == this && proxy.object == obj) {
+				return proxy;
+			}
+		}
+		return null;
+	}
+
+	private void refreshProxy(Proxy proxy) {
+		final CollisionObject obj = proxy.object;
+		final String flag = obj.getObjectFlag();
+		if (flag != proxy.flag) {
+			proxy.flag = flag;
+			proxy.mask = (flag == null) ? CollisionFlags.NONE_MASK : CollisionFlags.getMask(flag);
+		}
+		final RectBox rect = obj.getBoundingRect();
+		proxy.minX = rect.getX();
+		proxy.minY = rect.getY();
+		proxy.maxX = proxy.minX + rect.width;
+		proxy.maxY = proxy.minY + rect.height;
+	}
+
+	@Override
+	public synchronized void addObject(CollisionObject obj) {
+		if (obj == null) {
+			return;
+		}
+		Proxy proxy = proxyOf(obj);
+		if (proxy != null) {
+			refreshProxy(proxy);
+			moveProxy(proxy);
+			return;
+		}
+		proxy = freeProxies.size > 0 ? freeProxies.pop() : new Proxy();
+		proxy.owner = this;
+		proxy.object = obj;
+		proxy.flag = null;
+		proxy.mask = CollisionFlags.NONE_MASK;
+		proxy.id = nextId++;
+		proxy.mark = 0;
+		refreshProxy(proxy);
+		if (proxyCount == proxies.length) {
+			Proxy[] newProxies = new Proxy[proxyCount << 1];
+			System.arraycopy(proxies, 0, newProxies, 0, proxyCount);
+			proxies = newProxies;
+		}
+		proxy.index = proxyCount;
+		proxies[proxyCount++] = proxy;
+		obj.setCollisionData(proxy);
+		insertProxy(proxy);
+	}
+
+	@Override
+	public synchronized void removeObject(CollisionObject obj) {
+		Proxy proxy = proxyOf(obj);
+		if (proxy == null) {
+			return;
+		}
+		removeProxy(proxy);
+		final int last = --proxyCount;
+		if (proxy.index != last) {
+			Proxy moved = proxies[last];
+			proxies[proxy.index] = moved;
+			moved.index = proxy.index;
+		}
+		proxies[last] = null;
+		obj.setCollisionData(null);
+		proxy.object = null;
+		proxy.owner = null;
+		freeProxies.add(proxy);
+	}
+
+	@Override
+	public synchronized void clear() {
+		for (int i = 0; i < proxyCount; i++) {
+			Proxy proxy = proxies[i];
+			if (proxy.object.getCollisionData() == proxy) {
+				proxy.object.setCollisionData(null);
+			}
+			proxy.object = null;
+			proxy.owner = null;
+			freeProxies.add(proxy);
+			proxies[i] = null;
+		}
+		proxyCount = 0;
+		for (int i = 0; i < candidateCount; i++) {
+			candidates[i] = null;
+		}
+		candidateCount = 0;
+		clearProxies();
+	}
+
+	@Override
+	public synchronized void updateObjectLocation(CollisionObject obj, float oldX, float oldY) {
+		updateObject(obj);
+	}
+
+	@Override
+	public synchronized void updateObjectSize(CollisionObject obj) {
+		updateObject(obj);
+	}
+
+	private void updateObject(CollisionObject obj) {
+		Proxy proxy = proxyOf(obj);
+		if (proxy != null) {
+			refreshProxy(proxy);
+			moveProxy(proxy);
+		}
+	}
+
+	@Override
+	public int numberActors() {
+		return proxyCount;
+	}
+
+	final void beginCandidates(String flag) {
+		for (int i = 0; i < candidateCount; i++) {
+			candidates[i] = null;
+		}
+		candidateCount = 0;
+		candidateFlag = flag;
+		candidateMask = CollisionFlags.queryMask(flag);
+		candidateStamp = nextMark();
+	}
+
+	/**
+	 * 返回新的查询标记,用于在一次查询中跳过已经检查过的对象
+	 */
+	final int nextMark() {
+		if (++queryMark == 0) {
+			queryMark = 1;
+		}
+		return queryMark;
+	}
+
+	final void addCandidate(Proxy proxy) {
+		if (proxy.mark == candidateStamp) {
+			return;
+		}
+		proxy.mark = candidateStamp;
+		if (!CollisionFlags.matches(candidateFlag, candidateMask, proxy.flag, proxy.mask)) {
+			return;
+		}
+		if (candidateCount == candidates.length) {
+			Proxy[] newCandidates = new Proxy[candidateCount << 1];
+			System.arraycopy(candidates, 0, newCandidates, 0, candidateCount);
+			candidates = newCandidates;
+		}
+		candidates[candidateCount++] = proxy;
+	}
+
+	/**
+	 * 收集与指定区域(含偏移后位置)重叠的候选对象
+	 */
+	private void candidates(String flag, float x, float y, float w, float h) {
+		beginCandidates(flag);
+		final float ox = offsetLocation.x;
+		final float oy = offsetLocation.y;
+		collectCandidates(MathUtils.min(x, x + ox), MathUtils.min(y, y + oy), MathUtils.max(x, x + ox) + w,
+				MathUtils.max(y, y + oy) + h);
+	}
+
+	private TArray<CollisionObject> filterCandidates(CollisionQuery query, CollisionObject ignore, int layer) {
+		TArray<CollisionObject> result = new TArray<CollisionObject>();
+		for (int i = 0; i < candidateCount; i++) {
+			CollisionObject obj = candidates[i].object;
+			if (obj != ignore && query.checkCollision(obj) && (layer == -1 || !itlayer || obj.getLayer() == layer)) {
+				result.add(obj);
+			}
+		}
+		return result;
+	}
+
+	private CollisionObject firstCandidate(CollisionQuery query, CollisionObject ignore, int layer) {
+		for (int i = 0; i < candidateCount; i++) {
+			CollisionObject obj = candidates[i].object;
+			if (obj != ignore && query.checkCollision(obj)) {
+				return (!itlayer || obj.getLayer() == layer) ? obj : null;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public synchronized TArray<CollisionObject> getObjectsAt(float x, float y, String flag) {
+		final float px = x * this.cellSizeX + this.cellSizeX / 2f;
+		final float py = y * this.cellSizeY + this.cellSizeY / 2f;
+		this.pointQuery.init(px, py, flag, this.offsetLocation);
+		candidates(flag, px, py, 1, 1);
+		return filterCandidates(this.pointQuery, null, -1);
+	}
+
+	@Override
+	public synchronized TArray<CollisionObject> getIntersectingObjects(CollisionObject actor, String flag) {
+		final RectBox r = actor.getBoundingRect();
+		this.actorQuery.init(flag, actor, this.offsetLocation);
+		candidates(flag, r.getX(), r.getY(), r.width, r.height);
+		return filterCandidates(this.actorQuery, null, actor.getLayer());
+	}
+
+	@Override
+	public synchronized TArray<CollisionObject> getObjectsInRange(float x, float y, float r, String flag) {
+		final float halfCellX = this.cellSizeX / 2;
+		final float halfCellY = this.cellSizeY / 2;
+		final float cx = x * this.cellSizeX + halfCellX;
+		final float cy = y * this.cellSizeY + halfCellY;
+		final float radius = r * MathUtils.max(this.cellSizeX, this.cellSizeY);
+		this.inRangeQuery.init(cx, cy, radius, this.offsetLocation);
+		candidates(flag, cx - radius, cy - radius, radius * 2, radius * 2);
+		return filterCandidates(this.inRangeQuery, null, -1);
+	}
+
+	@Override
+	public synchronized TArray<CollisionObject> getNeighbours(CollisionObject actor, float distance, boolean diag,
+			String flag) {
+		final float x = actor.getX();
+		final float y = actor.getY();
+		final float xPixel = x * this.cellSizeX;
+		final float yPixel = y * this.cellSizeY;
+		final float dxPixel = distance * this.cellSizeX;
+		final float dyPixel = distance * this.cellSizeY;
+		this.neighbourQuery.init(x, y, distance, diag, flag, this.offsetLocation);
+		candidates(flag, xPixel - dxPixel, yPixel - dyPixel, dxPixel * 2 + 1, dyPixel * 2 + 1);
+		return filterCandidates(this.neighbourQuery, null, actor.getLayer());
+	}
+
+	@Override
+	public synchronized CollisionObject getOnlyObjectAt(CollisionObject obj, float dx, float dy, String flag) {
+		final float px = dx * this.cellSizeX + this.cellSizeX / 2f;
+		final float py = dy * this.cellSizeY + this.cellSizeY / 2f;
+		this.pointQuery.init(px, py, flag, this.offsetLocation);
+		candidates(flag, px, py, 1, 1);
+		return firstCandidate(this.pointQuery, obj, obj.getLayer());
+	}
+
+	@Override
+	public synchronized CollisionObject getOnlyIntersectingObject(CollisionObject actor, String flag) {
+		final RectBox r = actor.getBoundingRect();
+		this.actorQuery.init(flag, actor, this.offsetLocation);
+		candidates(flag, r.getX(), r.getY(), r.width, r.height);
+		return firstCandidate(this.actorQuery, actor, actor.getLayer());
+	}
+
+	@Override
+	public synchronized TArray<CollisionObject> getObjects(String flag) {
+		final int mask = CollisionFlags.queryMask(flag);
+		TArray<CollisionObject> result = new TArray<CollisionObject>(MathUtils.max(1, proxyCount));
+		for (int i = 0; i < proxyCount; i++) {
+			Proxy proxy = proxies[i];
+			if (CollisionFlags.matches(flag, mask, proxy.flag, proxy.mask)) {
+				result.add(proxy.object);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public TArray<CollisionObject> getObjectsList() {
+		return this.getObjects((String) null);
+	}
+
+	@Override
+	public TArray<CollisionObject> getActorsList() {
+		return this.getObjects((String) null);
+	}
+
+	@Override
+	public LIterator<CollisionObject> getActorsIterator() {
+		return new LIterator<CollisionObject>() {
+
+			private int index;
+
+			@Override
+			public boolean hasNext() {
+				return index < proxyCount;
+			}
+
+			@Override
+			public CollisionObject next() {
+				if (index >= proxyCount) {
+					throw new NoSuchElementException();
+				}
+				return proxies[index++].object;
+			}
+
+			@Override
+			public void remove() {
+				throw new LSysException("Use removeObject() instead !");
+			}
+		};
+	}
+
+	/**
+	 * 通知所有包围盒重叠且精确检查(CollisionObject.intersects)相交的对象对,a的标记为flagA,b的标记为flagB,
+	 * 标记为null时不限定.两个标记相同(或都为null)时每一对只通知一次.
+	 *
+	 * @param flagA
+	 * @param flagB
+	 * @param callback
+	 * @return 通知的碰撞对数量
+	 */
+	public synchronized int collidePairs(String flagA, String flagB, CollisionPairCallback callback) {
+		return collectPairs(flagA, CollisionFlags.queryMask(flagA), flagB, CollisionFlags.queryMask(flagB), callback);
+	}
+
+	/**
+	 * 检查可能的碰撞对,符合标记要求并且相交时通知回调
+	 *
+	 * @return 是否通知了回调
+	 */
+	final boolean emitPair(Proxy a, Proxy b, String flagA, int maskA, String flagB, int maskB,
+			CollisionPairCallback callback) {
+		if (a.maxX < b.minX || b.maxX < a.minX || a.maxY < b.minY || b.maxY < a.minY) {
+			return false;
+		}
+		Proxy first, second;
+		if (CollisionFlags.matches(flagA, maskA, a.flag, a.mask)
+				&& CollisionFlags.matches(flagB, maskB, b.flag, b.mask)) {
+			first = a;
+			second = b;
+		} else if (CollisionFlags.matches(flagA, maskA, b.flag, b.mask)
+				&& CollisionFlags.matches(flagB, maskB, a.flag, a.mask)) {
+			first = b;
+			second = a;
+		} else {
+			return false;
+		}
+		if (itlayer && first.object.getLayer() != second.object.getLayer()) {
+			return false;
+		}
+		if (!first.object.intersects(second.object)) {
+			return false;
+		}
+		if (callback != null) {
+			callback.onCollision(first.object, second.object);
+		}
+		return true;
+	}
+
+	@Override
+	public void setInTheLayer(boolean yes) {
+		this.itlayer = yes;
+	}
+
+	@Override
+	public boolean getInTheLayer() {
+		return itlayer;
+	}
+
+	@Override
+	public void setOffsetPos(float x, float y) {
+		offsetLocation.set(x, y);
+	}
+
+	@Override
+	public void setOffsetX(float x) {
+		offsetLocation.setX(x);
+	}
+
+	@Override
+	public void setOffsetY(float y) {
+		offsetLocation.setY(y);
+	}
+
+	@Override
+	public Vector2f getOffsetPos() {
+		return offsetLocation;
+	}
+
+	@Override
+	public void dispose() {
+		freeProxies.clear();
+		candidates = new Proxy[32];
+		candidateCount = 0;
+	}
+
+}
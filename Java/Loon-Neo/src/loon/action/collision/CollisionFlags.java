@@ -0,0 +1,117 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.action.collision;
+
+import loon.utils.ObjectMap;
+
+/**
+ * 碰撞标记(CollisionObject.getObjectFlag)与整型掩码的对应表,同一个字符串标记总是得到同一个掩码,
+ * 碰撞检查时以位运算代替字符串比较.
+ *
+ * 前31个标记各自占用一位,之后的标记共用最高位(OVERFLOW_MASK),使用该掩码时仍需比较字符串.
+ */
+public class CollisionFlags {
+
+	public final static int ALL_MASK = -1;
+
+	public final static int NONE_MASK = 0;
+
+	public final static int OVERFLOW_MASK = 1 << 31;
+
+	private final static int MAX_BITS = 31;
+
+	private final static ObjectMap<String, Integer> FLAG_MASKS = new ObjectMap<String, Integer>();
+
+	private static int nextBit = 0;
+
+	/**
+	 * 获得指定标记对应的掩码,标记为null时返回ALL_MASK
+	 *
+	 * @param flag
+	 * @return
+	 */
+	public static int getMask(String flag) {
+		if (flag == null) {
+			return ALL_MASK;
+		}
+		synchronized (FLAG_MASKS) {
+			Integer mask = FLAG_MASKS.get(flag);
+			if (mask == null) {
+				mask = nextBit < MAX_BITS ? (1 << nextBit++) : OVERFLOW_MASK;
+				FLAG_MASKS.put(flag, mask);
+			}
+			return mask.intValue();
+		}
+	}
+
+	/**
+	 * 获得查询用的掩码,标记为null时返回ALL_MASK.尚未被任何对象使用的标记不会占用新的位,
+	 * 直接返回NONE_MASK(不匹配任何对象),避免只用于查询的标记耗尽可用的位
+	 *
+	 * @param flag
+	 * @return
+	 */
+	public static int queryMask(String flag) {
+		if (flag == null) {
+			return ALL_MASK;
+		}
+		synchronized (FLAG_MASKS) {
+			Integer mask = FLAG_MASKS.get(flag);
+			return mask == null ? NONE_MASK : mask.intValue();
+		}
+	}
+
+	/**
+	 * 获得多个标记合并后的掩码
+	 *
+	 * @param flags
+	 * @return
+	 */
+	public static int getMask(String... flags) {
+		int mask = NONE_MASK;
+		for (int i = 0; i < flags.length; i++) {
+			mask |= getMask(flags[i]);
+		}
+		return mask;
+	}
+
+	/**
+	 * 检查对象标记是否符合查询用的标记与掩码
+	 *
+	 * @param flag
+	 *            查询用标记,为null时匹配全部
+	 * @param mask
+	 *            查询用标记的掩码
+	 * @param objectFlag
+	 * @param objectMask
+	 * @return
+	 */
+	public static boolean matches(String flag, int mask, String objectFlag, int objectMask) {
+		if (flag == null) {
+			return true;
+		}
+		if ((mask & objectMask) == 0) {
+			return false;
+		}
+		return mask != OVERFLOW_MASK || flag.equals(objectFlag);
+	}
+
+}
@@ -31,23 +31,152 @@ import loon.utils.TArray;
 
 public class CollisionManager implements CollisionChecker {
 
+	public final static int BSP_CHECKER = 0;
+
+	public final static int GRID_CHECKER = 1;
+
+	public final static int SWEEP_AND_PRUNE_CHECKER = 2;
+
+	/**
+	 * 创建指定类型的碰撞检查器
+	 * 
+	 * @param type
+	 * @return
+	 */
+	public static CollisionChecker createChecker(int type) {
+		switch (type) {
+		case GRID_CHECKER:
+			return new GridCollisionChecker();
+		case SWEEP_AND_PRUNE_CHECKER:
+			return new SweepAndPruneCollisionChecker();
+		default:
+			return new BSPCollisionChecker();
+		}
+	}
+
 	private ObjectMap<String, SortedList<CollisionObject>> freeObjects = new ObjectMap<String, SortedList<CollisionObject>>();
 
 	private ObjectSet<String> collisionClasses = new ObjectSet<String>();
 
-	private CollisionChecker collisionChecker = new BSPCollisionChecker();
+	private CollisionChecker collisionChecker;
+
+	private int cellSizeX = 32, cellSizeY = 32;
 
 	public CollisionManager() {
+		this(BSP_CHECKER);
+	}
+
+	public CollisionManager(int checkerType) {
+		this(createChecker(checkerType));
+	}
+
+	public CollisionManager(CollisionChecker checker) {
+		this.collisionChecker = (checker == null) ? new BSPCollisionChecker() : checker;
 		initialize(32);
 	}
 
+	/**
+	 * 更换碰撞检查器,已登记的对象会转移到新的检查器中
+	 * 
+	 * @param checker
+	 */
+	public void setCollisionChecker(CollisionChecker checker) {
+		if (checker == null || checker == collisionChecker) {
+			return;
+		}
+		synchronized (CollisionManager.class) {
+			TArray<CollisionObject> objects = getObjects((String) null);
+			if (collisionChecker != null) {
+				checker.setInTheLayer(collisionChecker.getInTheLayer());
+				Vector2f offset = collisionChecker.getOffsetPos();
+				checker.setOffsetPos(offset.x, offset.y);
+				collisionChecker.clear();
+				collisionChecker.dispose();
+			}
+			for (int i = 0; i < objects.size; i++) {
+				objects.get(i).setCollisionData(null);
+			}
+			if (freeObjects != null) {
+				freeObjects.clear();
+			}
+			if (collisionClasses != null) {
+				collisionClasses.clear();
+			}
+			this.collisionChecker = checker;
+			this.collisionChecker.initialize(cellSizeX, cellSizeY);
+			for (int i = 0; i < objects.size; i++) {
+				addObject(objects.get(i));
+			}
+		}
+	}
+
+	public void setCollisionChecker(int type) {
+		setCollisionChecker(createChecker(type));
+	}
+
+	public CollisionChecker getCollisionChecker() {
+		return collisionChecker;
+	}
+
+	/**
+	 * 当前检查器是否需要延迟登记对象(BSP树在查询前才登记对应标记的对象)
+	 * 
+	 * @return
+	 */
+	private boolean isLazyChecker() {
+		return !(collisionChecker instanceof BroadPhaseCollisionChecker);
+	}
+
+	/**
+	 * 通知所有相交的对象对,a的标记为flagA,b的标记为flagB,标记为null时不限定,两个标记相同时每一对只通知一次.
+	 * 
+	 * 使用GRID_CHECKER或SWEEP_AND_PRUNE_CHECKER时直接由检查器生成碰撞对,其它检查器逐个对象查询相交对象.
+	 * 
+	 * @param flagA
+	 * @param flagB
+	 * @param callback
+	 * @return 通知的碰撞对数量
+	 */
+	public int collidePairs(String flagA, String flagB, CollisionPairCallback callback) {
+		synchronized (CollisionManager.class) {
+			if (collisionChecker instanceof BroadPhaseCollisionChecker) {
+				return ((BroadPhaseCollisionChecker) collisionChecker).collidePairs(flagA, flagB, callback);
+			}
+			this.makeCollisionObjects(null, false);
+			final boolean symmetric = (flagA == null) ? flagB == null : flagA.equals(flagB);
+			ObjectSet<CollisionObject> visited = symmetric ? new ObjectSet<CollisionObject>() : null;
+			TArray<CollisionObject> objects = this.collisionChecker.getObjects(flagA);
+			int count = 0;
+			for (int i = 0; i < objects.size; i++) {
+				CollisionObject a = objects.get(i);
+				TArray<CollisionObject> list = this.collisionChecker.getIntersectingObjects(a, flagB);
+				for (int j = 0; j < list.size; j++) {
+					CollisionObject b = list.get(j);
+					if (b == a || (symmetric && visited.contains(b))) {
+						continue;
+					}
+					if (callback != null) {
+						callback.onCollision(a, b);
+					}
+					count++;
+				}
+				if (symmetric) {
+					visited.add(a);
+				}
+			}
+			return count;
+		}
+	}
+
 	@Override
 	public void initialize(int cellSize) {
-		this.collisionChecker.initialize(cellSize);
+		this.initialize(cellSize, cellSize);
 	}
 
 	@Override
 	public void initialize(int cellSizeX, int cellSizeY) {
+		this.cellSizeX = cellSizeX;
+		this.cellSizeY = cellSizeY;
 		this.collisionChecker.initialize(cellSizeX, cellSizeY);
 	}
 
@@ -110,7 +239,7 @@ public class CollisionManager implements CollisionChecker {
 	@Override
 	public void addObject(CollisionObject actor) {
 		String flag = actor.getObjectFlag();
-		if (this.collisionClasses.contains(flag)) {
+		if (!isLazyChecker() || this.collisionClasses.contains(flag)) {
 			this.collisionChecker.addObject(actor);
 		} else {
 			SortedList<CollisionObject> classSet = this.freeObjects.get(flag);
@@ -0,0 +1,352 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.action.collision;
+
+import loon.geom.PointF;
+import loon.utils.MathUtils;
+import loon.utils.TArray;
+
+/**
+ * 散列均匀网格实现的CollisionChecker,格子坐标的划分与遍历使用CollisionGrid,对象只在所在格子范围改变时重新登记,
+ * 适合大小相近且分布较均匀的大量移动对象.
+ *
+ * 网格格子大小默认与initialize设定的cellSize一致,可通过setGridSize单独设定.
+ */
+public class GridCollisionChecker extends BroadPhaseCollisionChecker {
+
+	private final static int DEFAULT_BUCKETS = 4096;
+
+	// 覆盖格子数超过此值的对象不登记到格子中,查询时直接检查
+	private final static int MAX_CELL_SPAN = 64;
+
+	private final CollisionGrid grid = new CollisionGrid();
+
+	private final PointF cellPoint = new PointF();
+
+	private final Proxy tempProxy = new Proxy();
+
+	private final TArray<Proxy> largeProxies = new TArray<Proxy>();
+
+	private int bucketMask;
+
+	private Proxy[][] buckets;
+
+	private int[] bucketSizes;
+
+	private float gridSizeX, gridSizeY;
+
+	private boolean gridSizeSet;
+
+	private final LineTraverse lineTraverse = new LineTraverse();
+
+	private class LineTraverse implements CollisionGrid.TraverseCallback {
+
+		@Override
+		public void onTraverse(float cx, float cy) {
+			final int x = (int) cx;
+			final int y = (int) cy;
+			final int bucket = hash(x, y);
+			final Proxy[] items = buckets[bucket];
+			final int size = bucketSizes[bucket];
+			for (int i = 0; i < size; i++) {
+				final Proxy proxy = items[i];
+				if (x >= proxy.minCellX && x <= proxy.maxCellX && y >= proxy.minCellY && y <= proxy.maxCellY) {
+					addCandidate(proxy);
+				}
+			}
+		}
+	}
+
+	public GridCollisionChecker() {
+		this(DEFAULT_BUCKETS);
+	}
+
+	public GridCollisionChecker(int bucketCount) {
+		int count = 1;
+		for (; count < bucketCount;) {
+			count <<= 1;
+		}
+		this.bucketMask = count - 1;
+		this.buckets = new Proxy[count][];
+		this.bucketSizes = new int[count];
+	}
+
+	/**
+	 * 设定网格格子大小(像素),只能在添加对象前设定
+	 *
+	 * @param sizeX
+	 * @param sizeY
+	 */
+	public void setGridSize(float sizeX, float sizeY) {
+		this.gridSizeX = MathUtils.max(1f, sizeX);
+		this.gridSizeY = MathUtils.max(1f, sizeY);
+		this.gridSizeSet = true;
+	}
+
+	public float getGridSizeX() {
+		return gridSizeSet ? gridSizeX : cellSizeX;
+	}
+
+	public float getGridSizeY() {
+		return gridSizeSet ? gridSizeY : cellSizeY;
+	}
+
+	private int hash(int cx, int cy) {
+		return ((cx * 73856093) ^ (cy * 19349663)) & bucketMask;
+	}
+
+	private void toCells(float minX, float minY, float maxX, float maxY, Proxy proxy) {
+		final float sizeX = getGridSizeX();
+		final float sizeY = getGridSizeY();
+		CollisionGrid.toCell(sizeX, sizeY, minX, minY, cellPoint);
+		proxy.minCellX = (int) cellPoint.x;
+		proxy.minCellY = (int) cellPoint.y;
+		CollisionGrid.toCell(sizeX, sizeY, maxX, maxY, cellPoint);
+		proxy.maxCellX = (int) cellPoint.x;
+		proxy.maxCellY = (int) cellPoint.y;
+	}
+
+	@Override
+	void insertProxy(Proxy proxy) {
+		toCells(proxy.minX, proxy.minY, proxy.maxX, proxy.maxY, proxy);
+		if (proxyCount > buckets.length) {
+			rehash(buckets.length << 1);
+		}
+		register(proxy);
+	}
+
+	/**
+	 * 对象数量超过桶数量时扩充散列表,避免大量格子落入同一个桶中
+	 */
+	private void rehash(int bucketCount) {
+		this.bucketMask = bucketCount - 1;
+		this.buckets = new Proxy[bucketCount][];
+		this.bucketSizes = new int[bucketCount];
+		largeProxies.clear();
+		for (int i = 0; i < proxyCount; i++) {
+			final Proxy proxy = proxies[i];
+			// 新加入的对象由调用者登记
+			if (proxy.owner == this && proxy.maxCellX >= proxy.minCellX && proxy != proxies[proxyCount - 1]) {
+				register(proxy);
+			}
+		}
+	}
+
+	@Override
+	void removeProxy(Proxy proxy) {
+		unregister(proxy);
+	}
+
+	@Override
+	void moveProxy(Proxy proxy) {
+		final int minCellX = proxy.minCellX;
+		final int minCellY = proxy.minCellY;
+		final int maxCellX = proxy.maxCellX;
+		final int maxCellY = proxy.maxCellY;
+		toCells(proxy.minX, proxy.minY, proxy.maxX, proxy.maxY, proxy);
+		if (minCellX == proxy.minCellX && minCellY == proxy.minCellY && maxCellX == proxy.maxCellX
+				&& maxCellY == proxy.maxCellY) {
+			return;
+		}
+		final int newMinCellX = proxy.minCellX;
+		final int newMinCellY = proxy.minCellY;
+		final int newMaxCellX = proxy.maxCellX;
+		final int newMaxCellY = proxy.maxCellY;
+		proxy.minCellX = minCellX;
+		proxy.minCellY = minCellY;
+		proxy.maxCellX = maxCellX;
+		proxy.maxCellY = maxCellY;
+		unregister(proxy);
+		proxy.minCellX = newMinCellX;
+		proxy.minCellY = newMinCellY;
+		proxy.maxCellX = newMaxCellX;
+		proxy.maxCellY = newMaxCellY;
+		register(proxy);
+	}
+
+	private void register(Proxy proxy) {
+		proxy.large = (proxy.maxCellX - proxy.minCellX + 1) * (proxy.maxCellY - proxy.minCellY + 1) > MAX_CELL_SPAN;
+		if (proxy.large) {
+			largeProxies.add(proxy);
+			return;
+		}
+		for (int cy = proxy.minCellY; cy <= proxy.maxCellY; cy++) {
+			for (int cx = proxy.minCellX; cx <= proxy.maxCellX; cx++) {
+				final int bucket = hash(cx, cy);
+				Proxy[] items = buckets[bucket];
+				final int size = bucketSizes[bucket];
+				if (items == null) {
+					items = buckets[bucket] = new Proxy[4];
+				} else if (size == items.length) {
+					Proxy[] newItems = new Proxy[size << 1];
+					System.arraycopy(items, 0, newItems, 0, size);
+					items = buckets[bucket] = newItems;
+				}
+				items[size] = proxy;
+				bucketSizes[bucket] = size + 1;
+			}
+		}
+	}
+
+	private void unregister(Proxy proxy) {
+		if (proxy.large) {
+			largeProxies.removeValue(proxy, true);
+			return;
+		}
+		for (int cy = proxy.minCellY; cy <= proxy.maxCellY; cy++) {
+			for (int cx = proxy.minCellX; cx <= proxy.maxCellX; cx++) {
+				final int bucket = hash(cx, cy);
+				final Proxy[] items = buckets[bucket];
+				final int size = bucketSizes[bucket];
+				for (int i = 0; i < size; i++) {
+					if (items[i] == proxy) {
+						items[i] = items[size - 1];
+						items[size - 1] = null;
+						bucketSizes[bucket] = size - 1;
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	void clearProxies() {
+		for (int i = 0; i < buckets.length; i++) {
+			final Proxy[] items = buckets[i];
+			if (items != null) {
+				for (int j = 0; j < bucketSizes[i]; j++) {
+					items[j] = null;
+				}
+			}
+			bucketSizes[i] = 0;
+		}
+		largeProxies.clear();
+	}
+
+	@Override
+	void collectCandidates(float minX, float minY, float maxX, float maxY) {
+		final Proxy query = tempProxy;
+		toCells(minX, minY, maxX, maxY, query);
+		final long cells = (long) (query.maxCellX - query.minCellX + 1) * (query.maxCellY - query.minCellY + 1);
+		if (cells > bucketSizes.length) {
+			for (int i = 0; i < proxyCount; i++) {
+				final Proxy proxy = proxies[i];
+				if (proxy.maxX >= minX && proxy.minX <= maxX && proxy.maxY >= minY && proxy.minY <= maxY) {
+					addCandidate(proxy);
+				}
+			}
+			return;
+		}
+		for (int cy = query.minCellY; cy <= query.maxCellY; cy++) {
+			for (int cx = query.minCellX; cx <= query.maxCellX; cx++) {
+				final int bucket = hash(cx, cy);
+				final Proxy[] items = buckets[bucket];
+				final int size = bucketSizes[bucket];
+				for (int i = 0; i < size; i++) {
+					final Proxy proxy = items[i];
+					if (proxy.maxX >= minX && proxy.minX <= maxX && proxy.maxY >= minY && proxy.minY <= maxY) {
+						addCandidate(proxy);
+					}
+				}
+			}
+		}
+		for (int i = 0; i < largeProxies.size; i++) {
+			final Proxy proxy = largeProxies.get(i);
+			if (proxy.maxX >= minX && proxy.minX <= maxX && proxy.maxY >= minY && proxy.minY <= maxY) {
+				addCandidate(proxy);
+			}
+		}
+	}
+
+	/**
+	 * 返回包围盒所在格子被指定线段穿过的对象(仍需调用者精确判断是否与线段相交)
+	 *
+	 * @param x1
+	 * @param y1
+	 * @param x2
+	 * @param y2
+	 * @param flag
+	 * @return
+	 */
+	public synchronized TArray<CollisionObject> getObjectsOnLine(float x1, float y1, float x2, float y2, String flag) {
+		beginCandidates(flag);
+		grid.traverse(getGridSizeX(), getGridSizeY(), x1, y1, x2, y2, lineTraverse);
+		for (int i = 0; i < largeProxies.size; i++) {
+			addCandidate(largeProxies.get(i));
+		}
+		TArray<CollisionObject> result = new TArray<CollisionObject>(MathUtils.max(1, candidateCount));
+		for (int i = 0; i < candidateCount; i++) {
+			result.add(candidates[i].object);
+		}
+		return result;
+	}
+
+	@Override
+	int collectPairs(String flagA, int maskA, String flagB, int maskB, CollisionPairCallback callback) {
+		int count = 0;
+		final boolean anyA = (flagA == null);
+		final boolean anyB = (flagB == null);
+		for (int n = 0; n < proxyCount; n++) {
+			final Proxy a = proxies[n];
+			if (!(anyA || (a.mask & maskA) != 0) && !(anyB || (a.mask & maskB) != 0)) {
+				continue;
+			}
+			if (a.large) {
+				// 大对象与全部对象逐一比较
+				for (int i = 0; i < proxyCount; i++) {
+					final Proxy b = proxies[i];
+					if (b != a && (!b.large || b.id > a.id)
+							&& emitPair(a, b, flagA, maskA, flagB, maskB, callback)) {
+						count++;
+					}
+				}
+				continue;
+			}
+			// 同一对象的不同格子可能散列到同一个桶中,用标记跳过已经通知过的对象
+			final int stamp = nextMark();
+			for (int cy = a.minCellY; cy <= a.maxCellY; cy++) {
+				for (int cx = a.minCellX; cx <= a.maxCellX; cx++) {
+					final int bucket = hash(cx, cy);
+					final Proxy[] items = buckets[bucket];
+					final int size = bucketSizes[bucket];
+					for (int i = 0; i < size; i++) {
+						final Proxy b = items[i];
+						if (b.id <= a.id || b.mark == stamp) {
+							continue;
+						}
+						// 两者共有的第一个格子才进行检查,避免同一对重复通知,也排除散列冲突带来的无关对象
+						if (cx != MathUtils.max(a.minCellX, b.minCellX) || cy != MathUtils.max(a.minCellY, b.minCellY)
+								|| cx > b.maxCellX || cy > b.maxCellY) {
+							continue;
+						}
+						b.mark = stamp;
+						if (emitPair(a, b, flagA, maskA, flagB, maskB, callback)) {
+							count++;
+						}
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+}
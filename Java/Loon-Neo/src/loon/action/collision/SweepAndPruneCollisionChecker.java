@@ -0,0 +1,236 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.action.collision;
+
+import java.util.Comparator;
+
+import loon.utils.SortUtils;
+
+/**
+ * 增量排序与扫描(sweep and prune)实现的CollisionChecker,全部对象按包围盒左边界排序,
+ * 对象移动后在查询前以插入排序恢复顺序,由于帧与帧之间对象位移很小,排序代价接近线性.
+ *
+ * 适合大小差异较大或分布不均匀的对象,沿x轴分布越分散效率越高.
+ */
+public class SweepAndPruneCollisionChecker extends BroadPhaseCollisionChecker {
+
+	private final static Comparator<Proxy> MIN_X_COMPARATOR = new Comparator<Proxy>() {
+
+		@Override
+		public int compare(Proxy o1, Proxy o2) {
+			return o1.minX < o2.minX ? -1 : (o1.minX > o2.minX ? 1 : 0);
+		}
+	};
+
+	// 新加入的对象超过此数量时完整排序,不再使用插入排序
+	private final static int MAX_INSERTIONS = 32;
+
+	private Proxy[] sorted = new Proxy[32];
+
+	private int sortedCount;
+
+	// 按排序结果连续存放的包围盒,扫描时不必逐个访问代理对象
+	private float[] boundsMinX = new float[32], boundsMaxX = new float[32], boundsMinY = new float[32],
+			boundsMaxY = new float[32];
+
+	private boolean unsorted;
+
+	private boolean boundsDirty;
+
+	private int insertions;
+
+	// 全部对象中最大的宽度,用于确定区域查询的起始位置
+	private float maxWidth;
+
+	private boolean maxWidthDirty;
+
+	@Override
+	void insertProxy(Proxy proxy) {
+		if (sortedCount == sorted.length) {
+			Proxy[] newSorted = new Proxy[sortedCount << 1];
+			System.arraycopy(sorted, 0, newSorted, 0, sortedCount);
+			sorted = newSorted;
+		}
+		sorted[sortedCount++] = proxy;
+		insertions++;
+		unsorted = true;
+		boundsDirty = true;
+		updateWidth(proxy);
+	}
+
+	@Override
+	void removeProxy(Proxy proxy) {
+		for (int i = 0; i < sortedCount; i++) {
+			if (sorted[i] == proxy) {
+				System.arraycopy(sorted, i + 1, sorted, i, sortedCount - i - 1);
+				sorted[--sortedCount] = null;
+				boundsDirty = true;
+				break;
+			}
+		}
+		if (proxy.maxX - proxy.minX >= maxWidth) {
+			maxWidthDirty = true;
+		}
+	}
+
+	@Override
+	void moveProxy(Proxy proxy) {
+		unsorted = true;
+		boundsDirty = true;
+		updateWidth(proxy);
+	}
+
+	private void updateWidth(Proxy proxy) {
+		final float width = proxy.maxX - proxy.minX;
+		if (width > maxWidth) {
+			maxWidth = width;
+		} else {
+			maxWidthDirty = true;
+		}
+	}
+
+	@Override
+	void clearProxies() {
+		for (int i = 0; i < sortedCount; i++) {
+			sorted[i] = null;
+		}
+		sortedCount = 0;
+		maxWidth = 0;
+		maxWidthDirty = false;
+		unsorted = false;
+		boundsDirty = false;
+		insertions = 0;
+	}
+
+	/**
+	 * 恢复左边界的顺序(新加入的对象较多时完整排序,否则使用插入排序),同时重新计算最大宽度
+	 */
+	private void sort() {
+		if (unsorted && insertions > MAX_INSERTIONS) {
+			SortUtils.quickSort(sorted, 0, sortedCount - 1, MIN_X_COMPARATOR);
+		} else if (unsorted) {
+			final Proxy[] items = sorted;
+			for (int i = 1; i < sortedCount; i++) {
+				final Proxy proxy = items[i];
+				final float minX = proxy.minX;
+				int j = i - 1;
+				for (; j >= 0 && items[j].minX > minX; j--) {
+					items[j + 1] = items[j];
+				}
+				items[j + 1] = proxy;
+			}
+		}
+		unsorted = false;
+		insertions = 0;
+		if (maxWidthDirty) {
+			float width = 0;
+			for (int i = 0; i < sortedCount; i++) {
+				final Proxy proxy = sorted[i];
+				if (proxy.maxX - proxy.minX > width) {
+					width = proxy.maxX - proxy.minX;
+				}
+			}
+			maxWidth = width;
+			maxWidthDirty = false;
+		}
+		if (boundsDirty) {
+			if (boundsMinX.length < sortedCount) {
+				final int size = sorted.length;
+				boundsMinX = new float[size];
+				boundsMaxX = new float[size];
+				boundsMinY = new float[size];
+				boundsMaxY = new float[size];
+			}
+			for (int i = 0; i < sortedCount; i++) {
+				final Proxy proxy = sorted[i];
+				boundsMinX[i] = proxy.minX;
+				boundsMaxX[i] = proxy.maxX;
+				boundsMinY[i] = proxy.minY;
+				boundsMaxY[i] = proxy.maxY;
+			}
+			boundsDirty = false;
+		}
+	}
+
+	/**
+	 * 返回第一个左边界不小于指定值的位置
+	 */
+	private int lowerBound(float x) {
+		int low = 0;
+		int high = sortedCount;
+		for (; low < high;) {
+			final int mid = (low + high) >>> 1;
+			if (boundsMinX[mid] < x) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	@Override
+	void collectCandidates(float minX, float minY, float maxX, float maxY) {
+		sort();
+		for (int i = lowerBound(minX - maxWidth); i < sortedCount; i++) {
+			if (boundsMinX[i] > maxX) {
+				break;
+			}
+			if (boundsMaxX[i] >= minX && boundsMaxY[i] >= minY && boundsMinY[i] <= maxY) {
+				addCandidate(sorted[i]);
+			}
+		}
+	}
+
+	@Override
+	int collectPairs(String flagA, int maskA, String flagB, int maskB, CollisionPairCallback callback) {
+		sort();
+		int count = 0;
+		final boolean anyA = (flagA == null);
+		final boolean anyB = (flagB == null);
+		final Proxy[] items = sorted;
+		final float[] minXs = boundsMinX;
+		final float[] minYs = boundsMinY;
+		final float[] maxYs = boundsMaxY;
+		for (int i = 0; i < sortedCount; i++) {
+			final Proxy a = items[i];
+			if (!(anyA || (a.mask & maskA) != 0) && !(anyB || (a.mask & maskB) != 0)) {
+				continue;
+			}
+			final float maxX = boundsMaxX[i];
+			final float minY = minYs[i];
+			final float maxY = maxYs[i];
+			for (int j = i + 1; j < sortedCount; j++) {
+				if (minXs[j] > maxX) {
+					break;
+				}
+				if (maxYs[j] < minY || minYs[j] > maxY) {
+					continue;
+				}
+				if (emitPair(a, items[j], flagA, maskA, flagB, maskB, callback)) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+}
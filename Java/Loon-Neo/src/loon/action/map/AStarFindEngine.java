@@ -0,0 +1,386 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.action.map;
+
+import loon.geom.Vector2f;
+import loon.utils.MathUtils;
+import loon.utils.TArray;
+
+/**
+ * A*寻径的核心计算用类,以int索引(y * width + x)代替Vector2f作为节点,以二叉堆作为open列表,
+ * 并以父节点索引数组回溯路径,所有缓存数组在多次查询间复用(单一实例不可同时被多个线程使用).
+ * 
+ * 节点按步数优先,估价函数次之的顺序展开,因此返回的路径步数与旧版逐步扩散的寻径结果一致,
+ * 估价函数仅用于决定同步数节点间的展开顺序(可由setCostOrder切换为按g+h排序展开的标准A*).
+ */
+public class AStarFindEngine {
+
+	// 与Field2D.neighbors的遍历顺序一致,前4个为正方向,后4个为斜方向
+	protected final static int[] DIR_X = { 0, 1, 0, -1, -1, 1, 1, -1 };
+
+	protected final static int[] DIR_Y = { -1, 0, 1, 0, -1, -1, 1, 1 };
+
+	protected int[] heap;
+
+	protected int[] heapIndex;
+
+	protected int[] parents;
+
+	protected int[] openMarks;
+
+	protected int[] closedMarks;
+
+	protected float[] gScores;
+
+	protected float[] hScores;
+
+	protected int heapSize;
+
+	protected int capacity;
+
+	protected int searchId;
+
+	protected int expandedCount;
+
+	// 为true时按g+h排序展开(标准A*),否则按步数优先,估价函数次之排序
+	protected boolean costOrder;
+
+	protected Field2D findField;
+
+	protected AStarFindHeuristic findHeuristic;
+
+	protected boolean findFlying, findFlag;
+
+	protected int mapWidth, mapHeight;
+
+	protected int endX, endY;
+
+	protected int boundLeft, boundTop, boundRight, boundBottom;
+
+	public AStarFindEngine() {
+		this(0);
+	}
+
+	public AStarFindEngine(int capacity) {
+		ensureCapacity(capacity);
+	}
+
+	protected void ensureCapacity(int size) {
+		if (size <= capacity && heap != null) {
+			return;
+		}
+		this.capacity = size;
+		this.heap = new int[size];
+		this.heapIndex = new int[size];
+		this.parents = new int[size];
+		this.openMarks = new int[size];
+		this.closedMarks = new int[size];
+		this.gScores = new float[size];
+		this.hScores = new float[size];
+		this.searchId = 0;
+	}
+
+	protected void nextSearch() {
+		searchId++;
+		// 标记值溢出时重置标记数组
+		if (searchId == Integer.MAX_VALUE) {
+			for (int i = 0; i < capacity; i++) {
+				openMarks[i] = 0;
+				closedMarks[i] = 0;
+			}
+			searchId = 1;
+		}
+		heapSize = 0;
+		expandedCount = 0;
+	}
+
+	/**
+	 * 查询指定起点与终点间的路径,返回的路径首位为起点,末位为终点,无法到达时返回null
+	 *
+	 * @param field
+	 * @param heuristic
+	 * @param startX
+	 * @param startY
+	 * @param endX
+	 * @param endY
+	 * @param flying
+	 *            是否无视地图障碍
+	 * @param flag
+	 *            是否允许斜向移动
+	 * @param overflow
+	 *            最大展开节点数
+	 * @return
+	 */
+	public TArray<Vector2f> find(Field2D field, AStarFindHeuristic heuristic, int startX, int startY, int endX,
+			int endY, boolean flying, boolean flag, int overflow) {
+		return find(field, heuristic, startX, startY, endX, endY, flying, flag, overflow, 0, 0, field.getWidth(),
+				field.getHeight());
+	}
+
+	/**
+	 * 在指定的地图范围内查询路径(范围外的格子视为不可通过)
+	 * 
+	 * @param field
+	 * @param heuristic
+	 * @param startX
+	 * @param startY
+	 * @param endX
+	 * @param endY
+	 * @param flying
+	 * @param flag
+	 * @param overflow
+	 * @param left
+	 * @param top
+	 * @param right
+	 *            范围右侧边界(不含)
+	 * @param bottom
+	 *            范围下侧边界(不含)
+	 * @return
+	 */
+	public TArray<Vector2f> find(Field2D field, AStarFindHeuristic heuristic, int startX, int startY, int endX,
+			int endY, boolean flying, boolean flag, int overflow, int left, int top, int right, int bottom) {
+		if (startX == endX && startY == endY) {
+			TArray<Vector2f> v = new TArray<Vector2f>(1);
+			v.add(new Vector2f(startX, startY));
+			return v;
+		}
+		if (!field.contains(startX, startY) || !field.contains(endX, endY)) {
+			return null;
+		}
+		begin(field, heuristic, endX, endY, flying, flag);
+		this.boundLeft = MathUtils.max(0, left);
+		this.boundTop = MathUtils.max(0, top);
+		this.boundRight = MathUtils.min(mapWidth, right);
+		this.boundBottom = MathUtils.min(mapHeight, bottom);
+
+		final int startId = startY * mapWidth + startX;
+		final int goalId = endY * mapWidth + endX;
+
+		parents[startId] = -1;
+		gScores[startId] = 0;
+		push(startId, heuristic.getScore(endX, endY, startX, startY));
+
+		for (; heapSize > 0;) {
+			if (expandedCount > overflow) {
+				return null;
+			}
+			final int current = pop();
+			if (current == goalId) {
+				return buildPath(current);
+			}
+			closedMarks[current] = searchId;
+			expandedCount++;
+			expand(current);
+		}
+		return null;
+	}
+
+	protected void begin(Field2D field, AStarFindHeuristic heuristic, int endX, int endY, boolean flying,
+			boolean flag) {
+		this.findField = field;
+		this.findHeuristic = heuristic;
+		this.findFlying = flying;
+		this.findFlag = flag;
+		this.mapWidth = field.getWidth();
+		this.mapHeight = field.getHeight();
+		this.endX = endX;
+		this.endY = endY;
+		this.boundLeft = 0;
+		this.boundTop = 0;
+		this.boundRight = mapWidth;
+		this.boundBottom = mapHeight;
+		ensureCapacity(mapWidth * mapHeight);
+		nextSearch();
+	}
+
+	/**
+	 * 展开指定节点的相邻节点,子类可覆写此函数改变展开规则
+	 * 
+	 * @param current
+	 */
+	protected void expand(int current) {
+		final int cx = current % mapWidth;
+		final int cy = current / mapWidth;
+		final float nextG = gScores[current] + 1f;
+		final int dirs = findFlag ? 8 : 4;
+		for (int i = 0; i < dirs; i++) {
+			final int nx = cx + DIR_X[i];
+			final int ny = cy + DIR_Y[i];
+			if (!walkable(nx, ny)) {
+				continue;
+			}
+			relax(current, ny * mapWidth + nx, nextG);
+		}
+	}
+
+	/**
+	 * 以新的g值尝试更新指定节点
+	 * 
+	 * @param current
+	 * @param next
+	 * @param nextG
+	 */
+	protected void relax(int current, int next, float nextG) {
+		if (closedMarks[next] == searchId) {
+			return;
+		}
+		if (openMarks[next] != searchId) {
+			parents[next] = current;
+			gScores[next] = nextG;
+			push(next, findHeuristic.getScore(endX, endY, next % mapWidth, next / mapWidth));
+		} else if (nextG < gScores[next]) {
+			parents[next] = current;
+			gScores[next] = nextG;
+			siftUp(heapIndex[next]);
+		}
+	}
+
+	protected boolean walkable(int x, int y) {
+		if (x < boundLeft || y < boundTop || x >= boundRight || y >= boundBottom) {
+			return false;
+		}
+		return findFlying || findField.isHit(x, y);
+	}
+
+	protected TArray<Vector2f> buildPath(int node) {
+		int count = 0;
+		for (int i = node; i != -1; i = parents[i]) {
+			count++;
+		}
+		Vector2f[] items = new Vector2f[count];
+		for (int i = node, idx = count - 1; i != -1; i = parents[i], idx--) {
+			items[idx] = new Vector2f(i % mapWidth, i / mapWidth);
+		}
+		return new TArray<Vector2f>(items);
+	}
+
+	protected void push(int node, float h) {
+		hScores[node] = h;
+		openMarks[node] = searchId;
+		heap[heapSize] = node;
+		heapIndex[node] = heapSize;
+		siftUp(heapSize++);
+	}
+
+	protected int pop() {
+		final int result = heap[0];
+		heapSize--;
+		if (heapSize > 0) {
+			heap[0] = heap[heapSize];
+			heapIndex[heap[0]] = 0;
+			siftDown(0);
+		}
+		return result;
+	}
+
+	protected boolean less(int a, int b) {
+		if (costOrder) {
+			final float fa = gScores[a] + hScores[a];
+			final float fb = gScores[b] + hScores[b];
+			if (fa == fb) {
+				return gScores[a] > gScores[b];
+			}
+			return fa < fb;
+		}
+		final float ga = gScores[a];
+		final float gb = gScores[b];
+		if (ga == gb) {
+			// 步数相同时,以估价函数决定展开顺序,优先展开更接近终点的节点
+			return hScores[a] < hScores[b];
+		}
+		return ga < gb;
+	}
+
+	protected void siftUp(int n) {
+		final int node = heap[n];
+		for (; n > 0;) {
+			final int parentN = (n - 1) >> 1;
+			final int parent = heap[parentN];
+			if (!less(node, parent)) {
+				break;
+			}
+			heap[n] = parent;
+			heapIndex[parent] = n;
+			n = parentN;
+		}
+		heap[n] = node;
+		heapIndex[node] = n;
+	}
+
+	protected void siftDown(int n) {
+		final int node = heap[n];
+		for (;;) {
+			int child = (n << 1) + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize && less(heap[child + 1], heap[child])) {
+				child++;
+			}
+			if (!less(heap[child], node)) {
+				break;
+			}
+			heap[n] = heap[child];
+			heapIndex[heap[n]] = n;
+			n = child;
+		}
+		heap[n] = node;
+		heapIndex[node] = n;
+	}
+
+	/**
+	 * 最近一次查询所展开的节点数量
+	 *
+	 * @return
+	 */
+	public int getExpandedCount() {
+		return expandedCount;
+	}
+
+	public boolean isCostOrder() {
+		return costOrder;
+	}
+
+	public AStarFindEngine setCostOrder(boolean costOrder) {
+		this.costOrder = costOrder;
+		return this;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public void clear() {
+		this.heap = null;
+		this.heapIndex = null;
+		this.parents = null;
+		this.openMarks = null;
+		this.closedMarks = null;
+		this.gScores = null;
+		this.hScores = null;
+		this.capacity = 0;
+		this.heapSize = 0;
+		this.searchId = 0;
+		this.findField = null;
+		this.findHeuristic = null;
+	}
+
+}
@@ -37,7 +37,6 @@ import loon.action.map.heuristics.Octile;
 import loon.event.Updateable;
 import loon.geom.Vector2f;
 import loon.utils.IntMap;
-import loon.utils.ObjectSet;
 import loon.utils.TArray;
 
 /**
@@ -45,19 +44,6 @@ import loon.utils.TArray;
  */
 public class AStarFinder extends TileImplPathFind implements Updateable, LRelease {
 
-	private static class ScoredPath {
-
-		private float score;
-
-		private TArray<Vector2f> path;
-
-		ScoredPath(float score, TArray<Vector2f> path) {
-			this.score = score;
-			this.path = path;
-		}
-
-	}
-	
 	public final static AStarFindHeuristic ASTAR_CLOSEST = new Closest();
 
 	public final static AStarFindHeuristic ASTAR_CLOSEST_SQUARED = new ClosestSquared();
@@ -79,9 +65,22 @@ public class AStarFinder extends TileImplPathFind implements Updateable, LReleas
 	public final static AStarFindHeuristic ASTAR_OCTILE = new Octile();
 
 	public final static AStarFindHeuristic ASTAR_DIAGONAL_MIN = new DiagonalMin();
+
+	public final static int DEFAULT_OVERFLOW = 4096;
+
+	// 寻径模式: 标准A*
+	public final static int FIND_ASTAR = 0;
+
+	// 寻径模式: Jump Point Search(适合开阔的八方向地图)
+	public final static int FIND_JUMP_POINT = 1;
+
+	// 寻径模式: 分层寻径(适合大地图,需配合AStarFinderPool缓存区块数据)
+	public final static int FIND_HIERARCHICAL = 2;
 	
 	private final static IntMap<TArray<Vector2f>> FINDER_LAZY = new IntMap<TArray<Vector2f>>(100);
 
+	private final static AStarFindEngine FINDER_ENGINE = new AStarFindEngine();
+
 	private final static int makeLazyKey(AStarFindHeuristic heuristic, int[][] map, int[] limits, int sx, int sy,
 			int ex, int ey, boolean flag) {
 		int hashCode = 1;
@@ -116,21 +115,12 @@ public class AStarFinder extends TileImplPathFind implements Updateable, LReleas
 			int key = makeLazyKey(heuristic, maps, limits, x1, y1, x2, y2, flag);
 			TArray<Vector2f> result = FINDER_LAZY.get(key);
 			if (result == null) {
-				AStarFinder astar = new AStarFinder(heuristic);
 				Field2D fieldMap = new Field2D(maps);
 				if (limits != null) {
 					fieldMap.setLimit(limits);
 				}
-				Vector2f start = new Vector2f(x1, y1);
-				Vector2f over = new Vector2f(x2, y2);
-				result = astar.calc(fieldMap, start, over, flag);
+				result = FINDER_ENGINE.find(fieldMap, heuristic, x1, y1, x2, y2, false, flag, DEFAULT_OVERFLOW);
 				FINDER_LAZY.put(key, result);
-				astar.close();
-			}
-			if (result != null) {
-				TArray<Vector2f> newResult = new TArray<Vector2f>();
-				newResult.addAll(result);
-				result = newResult;
 			}
 			if (result == null) {
 				return new TArray<Vector2f>();
@@ -141,7 +131,7 @@ public class AStarFinder extends TileImplPathFind implements Updateable, LReleas
 
 	public static TArray<Vector2f> find(AStarFindHeuristic heuristic, int[][] maps, int x1, int y1, int x2, int y2,
 			boolean flag) {
-		return find(heuristic, maps, x1, y1, x2, y2, flag);
+		return find(heuristic, maps, null, x1, y1, x2, y2, flag);
 	}
 
 	public static TArray<Vector2f> find(AStarFindHeuristic heuristic, Field2D maps, int x1, int y1, int x2, int y2,
@@ -159,15 +149,11 @@ public class AStarFinder extends TileImplPathFind implements Updateable, LReleas
 		return find(heuristic, maps, start.x(), start.y(), goal.x(), goal.y(), flag);
 	}
 
-	private Vector2f goal;
-
-	private TArray<ScoredPath> pathes;
+	private AStarFindEngine findEngine;
 
-	private TArray<Vector2f> path;
+	private boolean ownEngine;
 
-	private ObjectSet<Vector2f> visitedCache;
-
-	private ScoredPath spath;
+	private int findMode = FIND_ASTAR;
 
 	private boolean flying, flag, closed;
 
@@ -215,6 +201,10 @@ public class AStarFinder extends TileImplPathFind implements Updateable, LReleas
 		this.flying = find.flying;
 		this.flag = find.flag;
 		this.findHeuristic = find.findHeuristic;
+		this.findMode = find.findMode;
+		if (find.findEngine != null && !find.ownEngine) {
+			setFindEngine(find.findEngine);
+		}
 	}
 
 	@Override
@@ -231,46 +221,66 @@ public class AStarFinder extends TileImplPathFind implements Updateable, LReleas
 	}
 
 	public TArray<Vector2f> findPath() {
-		Vector2f start = new Vector2f(startX, startY);
-		Vector2f over = new Vector2f(endX, endY);
-		return calc(findMap, start, over, flag);
+		if (findEngine == null) {
+			findEngine = createEngine(findMode, findMap, flag);
+			ownEngine = true;
+		}
+		return findEngine.find(findMap, findHeuristic, startX, startY, endX, endY, flying, flag, overflow);
 	}
 
-	private TArray<Vector2f> calc(Field2D m, Vector2f start, Vector2f goal, boolean flag) {
-		if (start.equals(goal)) {
-			TArray<Vector2f> v = new TArray<Vector2f>();
-			v.add(start);
-			return v;
+	static AStarFindEngine createEngine(int mode, Field2D field, boolean flag) {
+		switch (mode) {
+		case FIND_JUMP_POINT:
+			return new JumpPointFindEngine();
+		case FIND_HIERARCHICAL:
+			return new HierarchicalFindEngine(field, flag);
+		default:
+			return new AStarFindEngine();
 		}
-		this.goal = goal;
-		if (visitedCache == null) {
-			visitedCache = new ObjectSet<Vector2f>();
-		} else {
-			visitedCache.clear();
-		}
-		if (pathes == null) {
-			pathes = new TArray<ScoredPath>();
-		} else {
-			pathes.clear();
-		}
-		visitedCache.add(start);
-		if (path == null) {
-			path = new TArray<Vector2f>();
-		} else {
-			path.clear();
+	}
+
+	public int getFindMode() {
+		return findMode;
+	}
+
+	public AStarFinder setFindMode(int mode) {
+		if (this.findMode != mode) {
+			this.findMode = mode;
+			setFindEngine(null);
 		}
-		path.add(start);
-		if (spath == null) {
-			spath = new ScoredPath(0, path);
-		} else {
-			spath.score = 0;
-			spath.path = path;
+		return this;
+	}
+
+	/**
+	 * 设定外部共享的寻径核心(比如AStarFinderPool中已经缓存区块数据的分层寻径),此时close不会释放该核心
+	 * 
+	 * @param engine
+	 * @return
+	 */
+	public AStarFinder setFindEngine(AStarFindEngine engine) {
+		closeEngine();
+		this.findEngine = engine;
+		this.ownEngine = false;
+		return this;
+	}
+
+	public AStarFindEngine getFindEngine() {
+		return findEngine;
+	}
+
+	private void closeEngine() {
+		if (findEngine != null && ownEngine) {
+			if (findEngine instanceof LRelease) {
+				((LRelease) findEngine).close();
+			} else {
+				findEngine.clear();
+			}
 		}
-		pathes.add(spath);
-		return astar(m, flag);
+		findEngine = null;
+		ownEngine = false;
 	}
 
-	private int overflow = 4096;
+	private int overflow = DEFAULT_OVERFLOW;
 
 	public void setOverflow(int over) {
 		this.overflow = over;
@@ -280,46 +290,13 @@ public class AStarFinder extends TileImplPathFind implements Updateable, LReleas
 		return this.overflow;
 	}
 
-	private TArray<Vector2f> astar(Field2D map, boolean flag) {
-		for (int j = 0; pathes.size > 0; j++) {
-			if (j > overflow) {
-				pathes.clear();
-				continue;
-			}
-			ScoredPath spath = pathes.removeIndex(0);
-			Vector2f current = spath.path.get(spath.path.size - 1);
-			if (current.equals(goal)) {
-				return new TArray<Vector2f>(spath.path);
-			}
-			TArray<Vector2f> list = map.neighbors(current, flag);
-			final int size = list.size;
-			for (int i = 0; i < size; i++) {
-				Vector2f next = list.get(i);
-				if (!map.isHit(next) && !flying) {
-					continue;
-				}
-				if(!visitedCache.add(next)){
-					continue;
-				}
-				TArray<Vector2f> path = new TArray<Vector2f>(spath.path);
-				path.add(next);
-				float score = spath.score + findHeuristic.getScore(goal.x, goal.y, next.x, next.y);
-				insert(score, path);
-			}
-		}
-		return null;
-	}
-
-	private void insert(float score, TArray<Vector2f> path) {
-		int size = pathes.size;
-		for (int i = 0; i < size; i++) {
-			ScoredPath spath = pathes.get(i);
-			if (spath.score >= score) {
-				pathes.add(new ScoredPath(score, path));
-				return;
-			}
-		}
-		pathes.add(new ScoredPath(score, path));
+	/**
+	 * 最近一次寻径所展开的节点数量
+	 * 
+	 * @return
+	 */
+	public int getExpandedCount() {
+		return findEngine == null ? 0 : findEngine.getExpandedCount();
 	}
 
 	public int getStartX() {
@@ -355,24 +332,8 @@ public class AStarFinder extends TileImplPathFind implements Updateable, LReleas
 
 	@Override
 	public void close() {
-		try {
-			if (path != null) {
-				path.clear();
-				path = null;
-			}
-			if (pathes != null) {
-				pathes.clear();
-				pathes = null;
-			}
-			if (visitedCache != null) {
-				visitedCache.clear();
-				visitedCache = null;
-			}
-			spath = null;
-			goal = null;
-			closed = true;
-		} catch (Throwable e) {
-		}
+		closeEngine();
+		closed = true;
 	}
 
 }
@@ -20,122 +20,636 @@
  */
 package loon.action.map;
 
+import loon.LRelease;
+import loon.LSystem;
 import loon.geom.Vector2f;
-import loon.utils.LIterator;
-import loon.utils.SortedList;
+import loon.utils.CollectionUtils;
+import loon.utils.IntArray;
+import loon.utils.IntMap;
+import loon.utils.ObjectMap;
 import loon.utils.TArray;
+import loon.utils.TimeUtils;
 import loon.utils.processes.GameProcessType;
 import loon.utils.processes.RealtimeProcess;
 import loon.utils.processes.RealtimeProcessManager;
 import loon.utils.timer.LTimerContext;
 
-public class AStarFinderPool {
+/**
+ * 寻径请求服务,异步寻径请求会在后台线程(LSystem.invokeAsync,平台不支持时为游戏主线程)中针对Field2D的只读快照计算,
+ * 结果在游戏主线程中按每帧时间预算依次回调AStarFinderListener.
+ *
+ * 起点终点与参数完全相同的请求会被合并计算,同一监听器再次发出请求时,其之前未完成的请求会被替换.
+ */
+public class AStarFinderPool implements LRelease {
+
+	public final static int DEFAULT_WORKERS = 2;
+
+	public final static long DEFAULT_FRAME_BUDGET = 4;
+
+	// 相邻两份地图快照之间发生变化的格子,每份快照对应一个节点,按生成顺序向后链接
+	static class SnapshotChange {
+
+		// 由上一份快照变为此快照时发生变化的格子,按(x,y)成对存储
+		final IntArray tiles = new IntArray();
+
+		boolean whole;
+
+		SnapshotChange next;
+	}
+
+	private class Worker implements Runnable {
+
+		private final AStarFindEngine[] engines = new AStarFindEngine[2];
+
+		private final SnapshotChange[] engineChanges = new SnapshotChange[2];
+
+		private final int[] engineModes = new int[2];
+
+		private final IntArray changedTiles = new IntArray();
+
+		AStarFindEngine getEngine(AStarFinderRequest request) {
+			final int idx = request.flag ? 1 : 0;
+			AStarFindEngine engine = engines[idx];
+			if (engine == null || engineModes[idx] != request.findMode) {
+				closeEngine(engine);
+				// 分层寻径核心会在快照上注册监听器,多个后台线程共用同一份快照,所以在锁内创建与切换
+				synchronized (lock) {
+					engine = AStarFinder.createEngine(request.findMode, request.snapshot, request.flag);
+				}
+				engines[idx] = engine;
+				engineChanges[idx] = request.change;
+				engineModes[idx] = request.findMode;
+			} else if (engine instanceof HierarchicalFindEngine && engineChanges[idx] != request.change) {
+				// 区块数据沿快照变化链增量更新到请求所用的快照
+				final IntArray changes = collectChanges(engineChanges[idx], request.change);
+				synchronized (lock) {
+					((HierarchicalFindEngine) engine).setField(request.snapshot, changes);
+				}
+				engineChanges[idx] = request.change;
+			}
+			return engine;
+		}
+
+		private IntArray collectChanges(SnapshotChange from, SnapshotChange to) {
+			changedTiles.clear();
+			SnapshotChange change = from;
+			for (; change != null && change != to;) {
+				synchronized (lock) {
+					change = change.next;
+				}
+				if (change == null || change.whole) {
+					return null;
+				}
+				changedTiles.addAll(change.tiles);
+			}
+			return change == to ? changedTiles : null;
+		}
+
+		void process(AStarFinderRequest request) {
+			if (!request.cancelled) {
+				try {
+					AStarFindEngine engine = getEngine(request);
+					request.result = engine.find(request.snapshot, request.heuristic, request.startX, request.startY,
+							request.endX, request.endY, request.flying, request.flag, overflow);
+					request.expandedCount = engine.getExpandedCount();
+				} catch (Throwable e) {
+					LSystem.error("AStarFinderPool search failure", e);
+				}
+			}
+			synchronized (lock) {
+				request.completed = true;
+				completedQueue.add(request);
+			}
+		}
+
+		void close() {
+			for (int i = 0; i < engines.length; i++) {
+				closeEngine(engines[i]);
+				engines[i] = null;
+				engineChanges[i] = null;
+			}
+		}
+
+		@Override
+		public void run() {
+			for (;;) {
+				AStarFinderRequest request;
+				synchronized (lock) {
+					request = running ? pollPending() : null;
+					if (request == null) {
+						activeWorkers--;
+						idleWorkers.add(this);
+						return;
+					}
+				}
+				process(request);
+			}
+		}
+	}
+
+	private final Object lock = new Object();
 
 	private Field2D field;
 
+	private Field2D snapshot;
+
+	private int snapshotRevision;
+
+	private SnapshotChange snapshotChange;
+
+	// 上一份快照之后field中发生变化的格子
+	private final IntArray pendingTiles = new IntArray();
+
+	private boolean pendingWhole;
+
+	private final Field2DListener fieldListener = new Field2DListener() {
+
+		@Override
+		public void tileChanged(Field2D map, int x, int y, int oldType, int newType) {
+			if (pendingWhole) {
+				return;
+			}
+			if (pendingTiles.length >= map.getWidth() * map.getHeight()) {
+				// 变化的格子过多时直接整体重建
+				pendingTiles.clear();
+				pendingWhole = true;
+				return;
+			}
+			pendingTiles.add(x);
+			pendingTiles.add(y);
+		}
+
+		@Override
+		public void mapChanged(Field2D map) {
+			pendingTiles.clear();
+			pendingWhole = true;
+		}
+	};
+
 	private RealtimeProcess pathfinderProcess;
 
 	private boolean running;
 
-	private TaskQueue pathQueue = new TaskQueue();
+	private final TArray<AStarFinderRequest> pendingQueue = new TArray<AStarFinderRequest>();
+
+	private int pendingHead;
+
+	private final TArray<AStarFinderRequest> completedQueue = new TArray<AStarFinderRequest>();
+
+	private int completedHead;
+
+	private final IntMap<AStarFinderRequest> requestLookup = new IntMap<AStarFinderRequest>();
+
+	private final ObjectMap<AStarFinderListener, AStarFinderRequest> listenerRequests = new ObjectMap<AStarFinderListener, AStarFinderRequest>();
+
+	private final TArray<Worker> idleWorkers = new TArray<Worker>();
+
+	private Worker mainWorker;
+
+	private int maxWorkers = DEFAULT_WORKERS;
+
+	private int activeWorkers;
+
+	private long frameBudget = DEFAULT_FRAME_BUDGET;
+
+	private int overflow = AStarFinder.DEFAULT_OVERFLOW;
+
+	private int findMode = AStarFinder.FIND_ASTAR;
+
+	private AStarFindEngine[] findEngines = new AStarFindEngine[2];
 
 	public AStarFinderPool(int[][] maps) {
 		this(new Field2D(maps));
 	}
 
 	public AStarFinderPool(Field2D field) {
+		this(field, DEFAULT_WORKERS);
+	}
+
+	public AStarFinderPool(Field2D field, int workers) {
 		this.field = field;
+		this.maxWorkers = workers;
 		this.running = true;
+		this.field.addListener(fieldListener);
 		pathfinderProcess = new RealtimeProcess("AStarProcess") {
 
 			@Override
 			public void run(LTimerContext time) {
 				if (running) {
-					emptyPathQueue();
-					kill();
+					AStarFinderPool.this.run();
 				}
 			}
 		};
 		pathfinderProcess.setProcessType(GameProcessType.Progress);
-		pathfinderProcess.sleep(1000000);
+		pathfinderProcess.setDelay(0);
 		RealtimeProcessManager.get().addProcess(pathfinderProcess);
 	}
 
+	/**
+	 * 在游戏主线程中每帧调用一次,在时间预算内处理(平台不支持异步时)寻径请求,并回调已完成的请求
+	 */
 	public void run() {
+		final long deadline = TimeUtils.millis() + frameBudget;
+		if (!isAsyncMode()) {
+			if (mainWorker == null) {
+				mainWorker = new Worker();
+			}
+			for (; TimeUtils.millis() <= deadline;) {
+				AStarFinderRequest request;
+				synchronized (lock) {
+					request = pollPending();
+				}
+				if (request == null) {
+					break;
+				}
+				mainWorker.process(request);
+			}
+		} else {
+			startWorkers();
+		}
+		// 按完成顺序回调,超出本帧预算的回调顺延到下一帧
+		for (int count = 0;; count++) {
+			if (count > 0 && TimeUtils.millis() > deadline) {
+				break;
+			}
+			AStarFinderRequest request;
+			synchronized (lock) {
+				request = pollCompleted();
+			}
+			if (request == null) {
+				break;
+			}
+			deliver(request);
+		}
+	}
 
+	private boolean isAsyncMode() {
+		return maxWorkers > 0 && LSystem.isAsyncSupported();
 	}
 
-	private void emptyPathQueue() {
-		AStarFinder task;
-		for (; (task = pathQueue.poll()) != null;) {
-			task.action(task);
+	private void startWorkers() {
+		for (;;) {
+			Worker worker;
+			synchronized (lock) {
+				if (!running || activeWorkers >= maxWorkers || activeWorkers >= pendingQueue.size - pendingHead) {
+					return;
+				}
+				worker = idleWorkers.size > 0 ? idleWorkers.pop() : new Worker();
+				activeWorkers++;
+			}
+			LSystem.invokeAsync(worker);
 		}
 	}
 
-	public void stop() {
-		running = true;
-		pathfinderProcess.kill();
+	private AStarFinderRequest pollPending() {
+		for (; pendingHead < pendingQueue.size;) {
+			AStarFinderRequest request = pendingQueue.get(pendingHead);
+			pendingQueue.set(pendingHead++, null);
+			if (pendingHead == pendingQueue.size) {
+				pendingQueue.clear();
+				pendingHead = 0;
+			}
+			if (request.cancelled) {
+				request.completed = true;
+				completedQueue.add(request);
+				continue;
+			}
+			return request;
+		}
+		return null;
 	}
 
-	public void search(AStarFindHeuristic heuristic, int startx, int starty,
-			int endx, int endy, boolean flying, boolean flag,
-			AStarFinderListener callback) {
-		AStarFinder pathfinderTask = new AStarFinder(heuristic, field, startx,
-				starty, endx, endy, flying, flag, callback);
-		AStarFinder existing = pathQueue.contains(pathfinderTask);
-		if (existing != null) {
-			existing.update(pathfinderTask);
+	private AStarFinderRequest pollCompleted() {
+		if (completedHead == completedQueue.size) {
+			return null;
+		}
+		AStarFinderRequest request = completedQueue.get(completedHead);
+		completedQueue.set(completedHead++, null);
+		if (completedHead == completedQueue.size) {
+			completedQueue.clear();
+			completedHead = 0;
+		}
+		return request;
+	}
+
+	private void deliver(AStarFinderRequest request) {
+		TArray<AStarFinderListener> listeners;
+		synchronized (lock) {
+			unlink(request);
+			request.delivered = true;
+			listeners = request.listeners;
+			for (int i = 0; i < listeners.size; i++) {
+				AStarFinderListener listener = listeners.get(i);
+				if (listenerRequests.get(listener) == request) {
+					listenerRequests.remove(listener);
+				}
+			}
+		}
+		if (request.cancelled) {
+			return;
+		}
+		for (int i = 0; i < listeners.size; i++) {
+			try {
+				listeners.get(i).pathFound(request.result);
+			} catch (Throwable e) {
+				LSystem.error("AStarFinderListener failure", e);
+			}
+		}
+	}
+
+	private void unlink(AStarFinderRequest request) {
+		AStarFinderRequest head = requestLookup.get(request.hashKey);
+		if (head == request) {
+			if (request.nextSame == null) {
+				requestLookup.remove(request.hashKey);
+			} else {
+				requestLookup.put(request.hashKey, request.nextSame);
+			}
 		} else {
-			pathQueue.add(pathfinderTask);
+			for (AStarFinderRequest prev = head; prev != null; prev = prev.nextSame) {
+				if (prev.nextSame == request) {
+					prev.nextSame = request.nextSame;
+					break;
+				}
+			}
+		}
+		request.nextSame = null;
+	}
+
+	private Field2D getSnapshot() {
+		if (snapshot == null || snapshotRevision != field.getRevision()) {
+			Field2D map = new Field2D(field);
+			int[] limit = field.getLimit();
+			if (limit != null) {
+				map.setLimit(CollectionUtils.copyOf(limit));
+			}
+			SnapshotChange change = new SnapshotChange();
+			change.tiles.addAll(pendingTiles);
+			change.whole = pendingWhole || snapshotChange == null;
+			pendingTiles.clear();
+			pendingWhole = false;
+			synchronized (lock) {
+				if (snapshotChange != null) {
+					snapshotChange.next = change;
+				}
+			}
+			snapshot = map;
+			snapshotChange = change;
+			snapshotRevision = field.getRevision();
+		}
+		return snapshot;
+	}
+
+	public void stop() {
+		synchronized (lock) {
+			running = false;
+			for (int i = pendingHead; i < pendingQueue.size; i++) {
+				pendingQueue.get(i).cancel();
+			}
+			pendingQueue.clear();
+			pendingHead = 0;
+			completedQueue.clear();
+			completedHead = 0;
+			requestLookup.clear();
+			listenerRequests.clear();
+			for (int i = 0; i < idleWorkers.size; i++) {
+				idleWorkers.get(i).close();
+			}
+			idleWorkers.clear();
+		}
+		if (mainWorker != null) {
+			mainWorker.close();
+			mainWorker = null;
 		}
 		pathfinderProcess.kill();
+		field.removeListener(fieldListener);
+		closeEngines();
 	}
 
-	public void search(AStarFindHeuristic heuristic, int startx, int starty,
-			int endx, int endy, boolean flying, AStarFinderListener callback) {
-		search(heuristic, startx, starty, endx, endy, flying, false, callback);
+	/**
+	 * 设定寻径模式(AStarFinder.FIND_ASTAR,FIND_JUMP_POINT,FIND_HIERARCHICAL),池中所有寻径共享同一寻径核心,
+	 * 同步寻径时分层寻径的区块数据也只会计算一次,并随Field2D.setTileType增量更新
+	 *
+	 * @param mode
+	 * @return
+	 */
+	public AStarFinderPool setFindMode(int mode) {
+		if (this.findMode != mode) {
+			closeEngines();
+			this.findMode = mode;
+		}
+		return this;
 	}
 
-	public TArray<Vector2f> search(AStarFindHeuristic heuristic, int startX,
-			int startY, int endX, int endY, boolean flying, boolean flag) {
-		TArray<Vector2f> result = null;
-		AStarFinder astar = new AStarFinder(heuristic, field, startX, startY,
-				endX, endY, flying, flag);
-		result = astar.findPath();
-		astar.close();
-		return result;
+	public int getFindMode() {
+		return findMode;
 	}
 
-	public TArray<Vector2f> search(AStarFindHeuristic heuristic, int startX,
-			int startY, int endX, int endY, boolean flying) {
-		TArray<Vector2f> result = null;
-		AStarFinder astar = new AStarFinder(heuristic, field, startX, startY,
-				endX, endY, flying, false);
-		result = astar.findPath();
-		astar.close();
-		return result;
+	/**
+	 * 设定同时运行的后台寻径线程上限,为0时所有寻径都在游戏主线程中按时间预算执行
+	 *
+	 * @param workers
+	 * @return
+	 */
+	public AStarFinderPool setWorkers(int workers) {
+		this.maxWorkers = workers;
+		return this;
+	}
+
+	public int getWorkers() {
+		return maxWorkers;
+	}
+
+	/**
+	 * 设定每帧在游戏主线程中处理寻径与回调的时间预算(毫秒)
+	 *
+	 * @param millis
+	 * @return
+	 */
+	public AStarFinderPool setFrameBudget(long millis) {
+		this.frameBudget = millis;
+		return this;
+	}
+
+	public long getFrameBudget() {
+		return frameBudget;
+	}
+
+	public AStarFinderPool setOverflow(int overflow) {
+		this.overflow = overflow;
+		return this;
+	}
+
+	public int getOverflow() {
+		return overflow;
+	}
+
+	/**
+	 * 等待计算的请求数量
+	 *
+	 * @return
+	 */
+	public int getPendingCount() {
+		synchronized (lock) {
+			return pendingQueue.size - pendingHead;
+		}
+	}
+
+	/**
+	 * 已经完成但尚未回调的请求数量
+	 *
+	 * @return
+	 */
+	public int getCompletedCount() {
+		synchronized (lock) {
+			return completedQueue.size - completedHead;
+		}
+	}
+
+	public int getActiveWorkers() {
+		synchronized (lock) {
+			return activeWorkers;
+		}
+	}
+
+	private AStarFindEngine getEngine(boolean flag) {
+		final int idx = flag ? 1 : 0;
+		if (findEngines[idx] == null) {
+			findEngines[idx] = AStarFinder.createEngine(findMode, field, flag);
+		}
+		return findEngines[idx];
 	}
 
-	static class TaskQueue {
+	private static void closeEngine(AStarFindEngine engine) {
+		if (engine instanceof HierarchicalFindEngine) {
+			((HierarchicalFindEngine) engine).close();
+		} else if (engine != null) {
+			engine.clear();
+		}
+	}
 
-		private SortedList<AStarFinder> queue = new SortedList<AStarFinder>();
+	private void closeEngines() {
+		for (int i = 0; i < findEngines.length; i++) {
+			closeEngine(findEngines[i]);
+			findEngines[i] = null;
+		}
+	}
 
-		public synchronized AStarFinder contains(AStarFinder element) {
-			for (LIterator<AStarFinder> it = queue.listIterator(); it.hasNext();) {
-				AStarFinder af = it.next();
-				if (af.equals(element)) {
-					return af;
+	private AStarFinder createFinder(AStarFindHeuristic heuristic, int startX, int startY, int endX, int endY,
+			boolean flying, boolean flag, AStarFinderListener callback) {
+		heuristic = (heuristic == null ? AStarFinder.ASTAR_MANHATTAN : heuristic);
+		AStarFinder finder = new AStarFinder(heuristic, field, startX, startY, endX, endY, flying, flag, callback);
+		finder.setFindMode(findMode);
+		finder.setFindEngine(getEngine(flag));
+		finder.setOverflow(overflow);
+		return finder;
+	}
+
+	/**
+	 * 提交一个异步寻径请求,结果在游戏主线程中回调(此函数也应在游戏主线程中调用)
+	 *
+	 * @param heuristic
+	 * @param startx
+	 * @param starty
+	 * @param endx
+	 * @param endy
+	 * @param flying
+	 * @param flag
+	 * @param callback
+	 * @return
+	 */
+	public AStarFinderRequest search(AStarFindHeuristic heuristic, int startx, int starty, int endx, int endy,
+			boolean flying, boolean flag, AStarFinderListener callback) {
+		heuristic = (heuristic == null ? AStarFinder.ASTAR_MANHATTAN : heuristic);
+		if (!running) {
+			// 已停止的寻径服务不再接受请求,直接返回已取消的请求
+			AStarFinderRequest request = new AStarFinderRequest(null, heuristic, startx, starty, endx, endy, flying,
+					flag, findMode);
+			request.cancel();
+			request.completed = true;
+			return request;
+		}
+		final Field2D map = getSnapshot();
+		final int key = AStarFinderRequest.makeKey(heuristic, startx, starty, endx, endy, flying, flag, findMode);
+		AStarFinderRequest request;
+		synchronized (lock) {
+			if (callback != null) {
+				AStarFinderRequest previous = listenerRequests.remove(callback);
+				if (previous != null && !previous.delivered) {
+					previous.listeners.removeValue(callback, true);
+					if (previous.listeners.size == 0) {
+						previous.cancel();
+					}
 				}
 			}
-			return null;
+			AStarFinderRequest head = requestLookup.get(key);
+			request = head;
+			for (; request != null; request = request.nextSame) {
+				if (!request.cancelled
+						&& request.same(map, heuristic, startx, starty, endx, endy, flying, flag, findMode)) {
+					break;
+				}
+			}
+			if (request == null) {
+				request = new AStarFinderRequest(map, heuristic, startx, starty, endx, endy, flying, flag, findMode);
+				request.change = snapshotChange;
+				request.nextSame = head;
+				requestLookup.put(key, request);
+				pendingQueue.add(request);
+			}
+			if (callback != null) {
+				request.listeners.add(callback);
+				listenerRequests.put(callback, request);
+			}
 		}
-
-		public synchronized AStarFinder poll() {
-			return queue.poll();
+		if (isAsyncMode()) {
+			startWorkers();
 		}
+		return request;
+	}
 
-		public synchronized void add(AStarFinder t) {
-			queue.add(t);
+	public AStarFinderRequest search(AStarFindHeuristic heuristic, int startx, int starty, int endx, int endy,
+			boolean flying, AStarFinderListener callback) {
+		return search(heuristic, startx, starty, endx, endy, flying, false, callback);
+	}
+
+	/**
+	 * 取消指定监听器尚未回调的寻径请求
+	 *
+	 * @param callback
+	 */
+	public void cancel(AStarFinderListener callback) {
+		synchronized (lock) {
+			AStarFinderRequest request = listenerRequests.remove(callback);
+			if (request != null) {
+				request.listeners.removeValue(callback, true);
+				if (request.listeners.size == 0) {
+					request.cancel();
+				}
+			}
 		}
 	}
+
+	public TArray<Vector2f> search(AStarFindHeuristic heuristic, int startX, int startY, int endX, int endY,
+			boolean flying, boolean flag) {
+		TArray<Vector2f> result = null;
+		AStarFinder astar = createFinder(heuristic, startX, startY, endX, endY, flying, flag, null);
+		result = astar.findPath();
+		astar.close();
+		return result;
+	}
+
+	public TArray<Vector2f> search(AStarFindHeuristic heuristic, int startX, int startY, int endX, int endY,
+			boolean flying) {
+		return search(heuristic, startX, startY, endX, endY, flying, false);
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	@Override
+	public void close() {
+		stop();
+	}
 }
@@ -0,0 +1,160 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.action.map;
+
+import loon.LSystem;
+import loon.geom.Vector2f;
+import loon.utils.TArray;
+
+/**
+ * AStarFinderPool中的一次寻径请求,起点终点与参数完全相同的请求会被合并为同一个请求,
+ * 寻径完成后在游戏主线程中依次通知所有监听器
+ */
+public class AStarFinderRequest {
+
+	final Field2D snapshot;
+
+	final AStarFindHeuristic heuristic;
+
+	final int startX, startY, endX, endY;
+
+	final boolean flying, flag;
+
+	final int hashKey;
+
+	final TArray<AStarFinderListener> listeners = new TArray<AStarFinderListener>(1);
+
+	// 请求所用快照在快照变化链中的位置
+	AStarFinderPool.SnapshotChange change;
+
+	// 提交请求时的寻径模式
+	final int findMode;
+
+	// 哈希值冲突时的下一个请求
+	AStarFinderRequest nextSame;
+
+	TArray<Vector2f> result;
+
+	int expandedCount;
+
+	// 在游戏主线程与后台寻径线程间共享
+	volatile boolean cancelled;
+
+	volatile boolean completed;
+
+	boolean delivered;
+
+	AStarFinderRequest(Field2D snapshot, AStarFindHeuristic heuristic, int startX, int startY, int endX, int endY,
+			boolean flying, boolean flag, int findMode) {
+		this.snapshot = snapshot;
+		this.heuristic = heuristic;
+		this.startX = startX;
+		this.startY = startY;
+		this.endX = endX;
+		this.endY = endY;
+		this.flying = flying;
+		this.flag = flag;
+		this.findMode = findMode;
+		this.hashKey = makeKey(heuristic, startX, startY, endX, endY, flying, flag, findMode);
+	}
+
+	static int makeKey(AStarFindHeuristic heuristic, int startX, int startY, int endX, int endY, boolean flying,
+			boolean flag, int findMode) {
+		int hashCode = 1;
+		hashCode = LSystem.unite(hashCode, heuristic.getType());
+		hashCode = LSystem.unite(hashCode, startX);
+		hashCode = LSystem.unite(hashCode, startY);
+		hashCode = LSystem.unite(hashCode, endX);
+		hashCode = LSystem.unite(hashCode, endY);
+		hashCode = LSystem.unite(hashCode, flying);
+		hashCode = LSystem.unite(hashCode, flag);
+		hashCode = LSystem.unite(hashCode, findMode);
+		return hashCode;
+	}
+
+	boolean same(Field2D snapshot, AStarFindHeuristic heuristic, int startX, int startY, int endX, int endY,
+			boolean flying, boolean flag, int findMode) {
+		return this.snapshot == snapshot && this.heuristic == heuristic && this.startX == startX
+				&& this.startY == startY && this.endX == endX && this.endY == endY && this.flying == flying
+				&& this.flag == flag && this.findMode == findMode;
+	}
+
+	/**
+	 * 取消此请求,已在计算中的请求会在完成后丢弃结果,监听器不会再被调用
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	public boolean isCompleted() {
+		return completed;
+	}
+
+	public boolean isDelivered() {
+		return delivered;
+	}
+
+	/**
+	 * 寻径结果,在完成前或无法到达时为null
+	 *
+	 * @return
+	 */
+	public TArray<Vector2f> getResult() {
+		return result;
+	}
+
+	public int getExpandedCount() {
+		return expandedCount;
+	}
+
+	public int getListenerCount() {
+		return listeners.size;
+	}
+
+	public int getStartX() {
+		return startX;
+	}
+
+	public int getStartY() {
+		return startY;
+	}
+
+	public int getEndX() {
+		return endX;
+	}
+
+	public int getEndY() {
+		return endY;
+	}
+
+	public boolean isFlying() {
+		return flying;
+	}
+
+	public boolean isFlag() {
+		return flag;
+	}
+
+}
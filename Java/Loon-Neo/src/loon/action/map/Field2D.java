@@ -68,6 +68,10 @@ public class Field2D implements IArray, Config {
 
 	private int width, height;
 
+	private int _revision;
+
+	private TArray<Field2DListener> _listeners;
+
 	public static final float rotation(Vector2f source, Vector2f target) {
 		int nx = MathUtils.floor(target.getX() - source.getX());
 		int ny = MathUtils.floor(target.getY() - source.getY());
@@ -492,6 +496,7 @@ public class Field2D implements IArray, Config {
 
 	public Field2D setLimit(int[] limit) {
 		this.moveLimited = limit;
+		fireMapChanged();
 		return this;
 	}
 
@@ -519,7 +524,11 @@ public class Field2D implements IArray, Config {
 			if (!contains(x, y)) {
 				return this;
 			}
+			int oldType = this.mapArrays[y][x];
 			this.mapArrays[y][x] = tile;
+			if (oldType != tile) {
+				fireTileChanged(x, y, oldType, tile);
+			}
 		} catch (Throwable e) {
 		}
 		return this;
@@ -531,6 +540,7 @@ public class Field2D implements IArray, Config {
 
 	public Field2D setMap(int[][] mapArrays) {
 		this.mapArrays = mapArrays;
+		fireMapChanged();
 		return this;
 	}
 
@@ -743,9 +753,57 @@ public class Field2D implements IArray, Config {
 				mapArrays[i][j] = val;
 			}
 		}
+		fireMapChanged();
+		return this;
+	}
+
+	/**
+	 * 地图数据的修改次数,可用于判定依赖此地图的缓存是否过期
+	 * 
+	 * @return
+	 */
+	public int getRevision() {
+		return _revision;
+	}
+
+	public Field2D addListener(Field2DListener listener) {
+		if (listener == null) {
+			return this;
+		}
+		if (_listeners == null) {
+			_listeners = new TArray<Field2DListener>(4);
+		}
+		if (!_listeners.contains(listener)) {
+			_listeners.add(listener);
+		}
 		return this;
 	}
 
+	public Field2D removeListener(Field2DListener listener) {
+		if (_listeners != null) {
+			_listeners.removeValue(listener, true);
+		}
+		return this;
+	}
+
+	protected void fireTileChanged(int x, int y, int oldType, int newType) {
+		_revision++;
+		if (_listeners != null) {
+			for (int i = _listeners.size - 1; i > -1; i--) {
+				_listeners.get(i).tileChanged(this, x, y, oldType, newType);
+			}
+		}
+	}
+
+	protected void fireMapChanged() {
+		_revision++;
+		if (_listeners != null) {
+			for (int i = _listeners.size - 1; i > -1; i--) {
+				_listeners.get(i).mapChanged(this);
+			}
+		}
+	}
+
 	public Tile getTileImpl() {
 		return _tileImpl;
 	}
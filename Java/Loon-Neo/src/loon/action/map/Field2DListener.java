@@ -0,0 +1,38 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.action.map;
+
+/**
+ * Field2D数据变更监听器,用于寻径缓存等依赖地图数据的对象做增量更新
+ */
+public interface Field2DListener {
+
+	/**
+	 * 单一格子数据(通过setTileType)发生变化
+	 */
+	public void tileChanged(Field2D field, int x, int y, int oldType, int newType);
+
+	/**
+	 * 地图数据整体被替换或修改(setMap,setValues,setLimit等)
+	 */
+	public void mapChanged(Field2D field);
+
+}
@@ -0,0 +1,462 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.action.map;
+
+import loon.geom.Vector2f;
+import loon.utils.IntArray;
+import loon.utils.TArray;
+
+/**
+ * 流场(Dijkstra地图)寻径用类,以单一目标点为起点向整个Field2D扩散,计算每个格子到目标的代价(integration field)
+ * 以及每个格子下一步应前往的方向(direction field),大量前往同一目标的单位只需按所在格子以O(1)读取方向即可,
+ * 不必各自寻径.
+ *
+ * 格子数据变化时(Field2D.setTileType)只重新计算受影响的区域.
+ */
+public class FlowField {
+
+	public final static int UNREACHABLE = -1;
+
+	private final static int INFINITY = Integer.MAX_VALUE;
+
+	private final static int STRAIGHT_COST = 10;
+
+	private final static int DIAGONAL_COST = 14;
+
+	private final static int[] DIR_X = { 0, 1, 0, -1, -1, 1, 1, -1 };
+
+	private final static int[] DIR_Y = { -1, 0, 1, 0, -1, -1, 1, 1 };
+
+	private final Field2D field;
+
+	private final boolean flag;
+
+	private final int goalX, goalY;
+
+	private int width, height;
+
+	private int[] costs;
+
+	private int[] parents;
+
+	private boolean[] walkable;
+
+	private int[] heap;
+
+	private int[] heapIndex;
+
+	private int heapSize;
+
+	private int revision;
+
+	// 自上次计算以来通过markChanged记录的修改次数
+	private int recordedEdits;
+
+	private boolean rebuild;
+
+	private final IntArray changedTiles = new IntArray();
+
+	private final IntArray raiseStack = new IntArray();
+
+	private final IntArray raised = new IntArray();
+
+	public FlowField(Field2D field, int goalX, int goalY) {
+		this(field, goalX, goalY, true);
+	}
+
+	public FlowField(Field2D field, int goalX, int goalY, boolean flag) {
+		this.field = field;
+		this.goalX = goalX;
+		this.goalY = goalY;
+		this.flag = flag;
+		this.build();
+	}
+
+	/**
+	 * 完整计算整个流场
+	 */
+	public void build() {
+		this.width = field.getWidth();
+		this.height = field.getHeight();
+		final int size = width * height;
+		if (costs == null || costs.length != size) {
+			costs = new int[size];
+			parents = new int[size];
+			walkable = new boolean[size];
+			heap = new int[size];
+			heapIndex = new int[size];
+		}
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				final int id = y * width + x;
+				costs[id] = INFINITY;
+				parents[id] = -1;
+				heapIndex[id] = -1;
+				walkable[id] = field.isHit(x, y);
+			}
+		}
+		heapSize = 0;
+		changedTiles.clear();
+		recordedEdits = 0;
+		rebuild = false;
+		if (field.contains(goalX, goalY)) {
+			final int goal = goalY * width + goalX;
+			costs[goal] = 0;
+			push(goal);
+			propagate();
+		}
+		revision = field.getRevision();
+	}
+
+	/**
+	 * 记录指定格子的数据已改变,下次update时增量更新
+	 *
+	 * @param x
+	 * @param y
+	 */
+	public void markChanged(int x, int y) {
+		recordedEdits++;
+		if (x >= 0 && y >= 0 && x < width && y < height) {
+			changedTiles.add(y * width + x);
+		}
+	}
+
+	/**
+	 * 记录地图数据已被整体替换,下次update时完整重建
+	 */
+	public void markRebuild() {
+		rebuild = true;
+	}
+
+	/**
+	 * 使流场与当前地图数据保持一致,地图的修改次数多于记录到的格子变化(比如整体替换了地图)时完整重建
+	 *
+	 * @return
+	 */
+	public FlowField update() {
+		if (rebuild || field.getWidth() != width || field.getHeight() != height
+				|| field.getRevision() - revision > recordedEdits) {
+			build();
+			return this;
+		}
+		if (changedTiles.length == 0) {
+			recordedEdits = 0;
+			revision = field.getRevision();
+			return this;
+		}
+		raised.clear();
+		final int goal = indexOf(goalX, goalY);
+		for (int i = 0; i < changedTiles.length; i++) {
+			final int id = changedTiles.get(i);
+			if (id == goal) {
+				build();
+				return this;
+			}
+			final boolean now = field.isHit(id % width, id / width);
+			if (walkable[id] == now) {
+				continue;
+			}
+			walkable[id] = now;
+			if (!now) {
+				raise(id);
+			} else {
+				raised.add(id);
+			}
+		}
+		changedTiles.clear();
+		// 为失效的格子从仍然有效的相邻格子重新取值,再向外扩散
+		for (int i = 0; i < raised.length; i++) {
+			final int id = raised.get(i);
+			if (!walkable[id] || costs[id] == 0) {
+				continue;
+			}
+			final int x = id % width;
+			final int y = id / width;
+			int best = INFINITY;
+			int bestParent = -1;
+			final int dirs = flag ? 8 : 4;
+			for (int d = 0; d < dirs; d++) {
+				final int nx = x + DIR_X[d];
+				final int ny = y + DIR_Y[d];
+				if (nx < 0 || ny < 0 || nx >= width || ny >= height) {
+					continue;
+				}
+				final int n = ny * width + nx;
+				if (costs[n] == INFINITY || !walkable[n]) {
+					continue;
+				}
+				final int cost = costs[n] + (d < 4 ? STRAIGHT_COST : DIAGONAL_COST);
+				if (cost < best) {
+					best = cost;
+					bestParent = n;
+				}
+			}
+			if (best < costs[id]) {
+				costs[id] = best;
+				parents[id] = bestParent;
+				if (heapIndex[id] == -1) {
+					push(id);
+				} else {
+					siftUp(heapIndex[id]);
+				}
+			}
+		}
+		raised.clear();
+		propagate();
+		recordedEdits = 0;
+		revision = field.getRevision();
+		return this;
+	}
+
+	/**
+	 * 将指定格子以及所有经由它到达目标的格子置为无效
+	 */
+	private void raise(int id) {
+		raiseStack.clear();
+		raiseStack.add(id);
+		final int dirs = flag ? 8 : 4;
+		for (; raiseStack.length > 0;) {
+			final int cur = raiseStack.pop();
+			if (costs[cur] == INFINITY && cur != id) {
+				continue;
+			}
+			costs[cur] = INFINITY;
+			parents[cur] = -1;
+			raised.add(cur);
+			final int x = cur % width;
+			final int y = cur / width;
+			for (int d = 0; d < dirs; d++) {
+				final int nx = x + DIR_X[d];
+				final int ny = y + DIR_Y[d];
+				if (nx < 0 || ny < 0 || nx >= width || ny >= height) {
+					continue;
+				}
+				final int n = ny * width + nx;
+				if (parents[n] == cur) {
+					raiseStack.add(n);
+				}
+			}
+		}
+	}
+
+	private void propagate() {
+		final int dirs = flag ? 8 : 4;
+		for (; heapSize > 0;) {
+			final int cur = pop();
+			if (!walkable[cur] && costs[cur] != 0) {
+				continue;
+			}
+			final int x = cur % width;
+			final int y = cur / width;
+			final int base = costs[cur];
+			for (int d = 0; d < dirs; d++) {
+				final int nx = x + DIR_X[d];
+				final int ny = y + DIR_Y[d];
+				if (nx < 0 || ny < 0 || nx >= width || ny >= height) {
+					continue;
+				}
+				final int n = ny * width + nx;
+				if (!walkable[n]) {
+					continue;
+				}
+				final int cost = base + (d < 4 ? STRAIGHT_COST : DIAGONAL_COST);
+				if (cost < costs[n]) {
+					costs[n] = cost;
+					parents[n] = cur;
+					if (heapIndex[n] == -1) {
+						push(n);
+					} else {
+						siftUp(heapIndex[n]);
+					}
+				}
+			}
+		}
+	}
+
+	private void push(int id) {
+		heap[heapSize] = id;
+		heapIndex[id] = heapSize;
+		siftUp(heapSize++);
+	}
+
+	private int pop() {
+		final int result = heap[0];
+		heapIndex[result] = -1;
+		heapSize--;
+		if (heapSize > 0) {
+			heap[0] = heap[heapSize];
+			heapIndex[heap[0]] = 0;
+			siftDown(0);
+		}
+		return result;
+	}
+
+	private void siftUp(int n) {
+		final int node = heap[n];
+		final int cost = costs[node];
+		for (; n > 0;) {
+			final int parentN = (n - 1) >> 1;
+			final int parent = heap[parentN];
+			if (cost >= costs[parent]) {
+				break;
+			}
+			heap[n] = parent;
+			heapIndex[parent] = n;
+			n = parentN;
+		}
+		heap[n] = node;
+		heapIndex[node] = n;
+	}
+
+	private void siftDown(int n) {
+		final int node = heap[n];
+		final int cost = costs[node];
+		for (;;) {
+			int child = (n << 1) + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize && costs[heap[child + 1]] < costs[heap[child]]) {
+				child++;
+			}
+			if (costs[heap[child]] >= cost) {
+				break;
+			}
+			heap[n] = heap[child];
+			heapIndex[heap[n]] = n;
+			n = child;
+		}
+		heap[n] = node;
+		heapIndex[node] = n;
+	}
+
+	private int indexOf(int x, int y) {
+		if (x < 0 || y < 0 || x >= width || y >= height) {
+			return -1;
+		}
+		return y * width + x;
+	}
+
+	/**
+	 * 指定格子到目标的代价(直线移动一格为10,斜向为14),无法到达时返回UNREACHABLE
+	 *
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public int getCost(int x, int y) {
+		final int id = indexOf(x, y);
+		if (id == -1 || costs[id] == INFINITY) {
+			return UNREACHABLE;
+		}
+		return costs[id];
+	}
+
+	public boolean isReachable(int x, int y) {
+		return getCost(x, y) != UNREACHABLE;
+	}
+
+	/**
+	 * 指定格子下一步应前往的方向(Config中的方向常量),位于目标或无法到达时返回Config.EMPTY
+	 *
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public int getDirection(int x, int y) {
+		final int id = indexOf(x, y);
+		if (id == -1 || parents[id] == -1) {
+			return Config.EMPTY;
+		}
+		final int p = parents[id];
+		return Field2D.getDirection(p % width - x, p / width - y);
+	}
+
+	/**
+	 * 指定格子下一步在x轴上的偏移(-1,0,1)
+	 *
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public int getDirectionX(int x, int y) {
+		final int id = indexOf(x, y);
+		if (id == -1 || parents[id] == -1) {
+			return 0;
+		}
+		return parents[id] % width - x;
+	}
+
+	/**
+	 * 指定格子下一步在y轴上的偏移(-1,0,1)
+	 *
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public int getDirectionY(int x, int y) {
+		final int id = indexOf(x, y);
+		if (id == -1 || parents[id] == -1) {
+			return 0;
+		}
+		return parents[id] / width - y;
+	}
+
+	/**
+	 * 沿流场方向生成由指定格子到目标的完整路径,无法到达时返回null
+	 *
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public TArray<Vector2f> findPath(int x, int y) {
+		int id = indexOf(x, y);
+		if (id == -1 || costs[id] == INFINITY) {
+			return null;
+		}
+		TArray<Vector2f> path = new TArray<Vector2f>();
+		for (; id != -1; id = parents[id]) {
+			path.add(new Vector2f(id % width, id / width));
+		}
+		return path;
+	}
+
+	public int getGoalX() {
+		return goalX;
+	}
+
+	public int getGoalY() {
+		return goalY;
+	}
+
+	public boolean isFlag() {
+		return flag;
+	}
+
+	public Field2D getField() {
+		return field;
+	}
+
+	public int getRevision() {
+		return revision;
+	}
+
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.action.map;
+
+import loon.LRelease;
+import loon.utils.IntMap;
+import loon.utils.TArray;
+
+/**
+ * FlowField缓存用类,以目标点为键缓存流场,监听Field2D的格子变化并转交给已缓存的流场做增量更新,
+ * 取出时按地图修改次数(Field2D.getRevision)判定是否需要更新.
+ *
+ * <pre>
+ * FlowFields flows = new FlowFields(field);
+ * // 所有单位前往同一目标,只计算一次
+ * FlowField flow = flows.get(goalX, goalY);
+ * int dir = flow.getDirection(unitX, unitY);
+ * </pre>
+ */
+public class FlowFields implements Field2DListener, LRelease {
+
+	public final static int DEFAULT_MAX_FIELDS = 16;
+
+	private final Field2D field;
+
+	private final IntMap<FlowField> fields = new IntMap<FlowField>();
+
+	// 最近使用顺序,末尾为最近使用
+	private final TArray<FlowField> usedOrder = new TArray<FlowField>();
+
+	private int maxFields;
+
+	private boolean closed;
+
+	public FlowFields(Field2D field) {
+		this(field, DEFAULT_MAX_FIELDS);
+	}
+
+	public FlowFields(Field2D field, int maxFields) {
+		this.field = field;
+		this.maxFields = maxFields;
+		this.field.addListener(this);
+	}
+
+	private int makeKey(int goalX, int goalY, boolean flag) {
+		return ((goalY * field.getWidth() + goalX) << 1) | (flag ? 1 : 0);
+	}
+
+	public FlowField get(int goalX, int goalY) {
+		return get(goalX, goalY, true);
+	}
+
+	/**
+	 * 取出(或计算)前往指定目标的流场
+	 *
+	 * @param goalX
+	 * @param goalY
+	 * @param flag
+	 *            是否允许斜向移动
+	 * @return
+	 */
+	public FlowField get(int goalX, int goalY, boolean flag) {
+		final int key = makeKey(goalX, goalY, flag);
+		FlowField flow = fields.get(key);
+		if (flow == null) {
+			flow = new FlowField(field, goalX, goalY, flag);
+			fields.put(key, flow);
+			usedOrder.add(flow);
+			for (; usedOrder.size > maxFields && usedOrder.size > 1;) {
+				FlowField old = usedOrder.removeIndex(0);
+				fields.remove(makeKey(old.getGoalX(), old.getGoalY(), old.isFlag()));
+			}
+			return flow;
+		}
+		if (usedOrder.peek() != flow) {
+			usedOrder.removeValue(flow, true);
+			usedOrder.add(flow);
+		}
+		return flow.update();
+	}
+
+	public boolean contains(int goalX, int goalY, boolean flag) {
+		return fields.containsKey(makeKey(goalX, goalY, flag));
+	}
+
+	public FlowFields remove(int goalX, int goalY, boolean flag) {
+		FlowField flow = fields.remove(makeKey(goalX, goalY, flag));
+		if (flow != null) {
+			usedOrder.removeValue(flow, true);
+		}
+		return this;
+	}
+
+	public int size() {
+		return usedOrder.size;
+	}
+
+	public int getMaxFields() {
+		return maxFields;
+	}
+
+	public FlowFields setMaxFields(int maxFields) {
+		this.maxFields = maxFields;
+		return this;
+	}
+
+	public Field2D getField() {
+		return field;
+	}
+
+	@Override
+	public void tileChanged(Field2D map, int x, int y, int oldType, int newType) {
+		for (int i = 0; i < usedOrder.size; i++) {
+			usedOrder.get(i).markChanged(x, y);
+		}
+	}
+
+	@Override
+	public void mapChanged(Field2D map) {
+		for (int i = 0; i < usedOrder.size; i++) {
+			usedOrder.get(i).markRebuild();
+		}
+	}
+
+	public void clear() {
+		fields.clear();
+		usedOrder.clear();
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public void close() {
+		field.removeListener(this);
+		clear();
+		closed = true;
+	}
+
+}
@@ -0,0 +1,552 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.action.map;
+
+import loon.LRelease;
+import loon.geom.Vector2f;
+import loon.utils.IntArray;
+import loon.utils.MathUtils;
+import loon.utils.TArray;
+
+/**
+ * 分层寻径(HPA*)用类,将Field2D切分为固定大小的区块,预先计算区块边界上的出入口以及同一区块内出入口间的距离,
+ * 查询时先在出入口构成的抽象图上寻径,再逐段在区块内部细化为完整路径.
+ *
+ * 此类会监听所绑定的Field2D,当setTileType修改格子时仅重建受影响的区块,返回的路径接近(但不保证)最短.
+ */
+public class HierarchicalFindEngine extends AStarFindEngine implements Field2DListener, LRelease {
+
+	public final static int DEFAULT_CLUSTER_SIZE = 16;
+
+	// 边界上连续可通行的格子少于此数时只生成一个出入口,否则在两端各生成一个
+	private final static int MAX_SINGLE_ENTRANCE = 6;
+
+	private static class Cluster {
+
+		int left, top, right, bottom;
+
+		// 区块内出入口格子的索引
+		final IntArray nodes = new IntArray();
+
+		// 每个出入口在相邻区块中对应的格子
+		final TArray<IntArray> partners = new TArray<IntArray>();
+
+		// 出入口两两间的步数,无法到达时为-1
+		int[] distances;
+
+		boolean dirty;
+
+	}
+
+	private Field2D field;
+
+	private final boolean diagonal;
+
+	private final int clusterSize;
+
+	private final AStarFindEngine localEngine;
+
+	private Cluster[] clusters;
+
+	// 区块与右侧/下侧区块间的出入口,按(本区块格子,相邻区块格子)成对存储
+	private IntArray[] rightBorders;
+
+	private IntArray[] bottomBorders;
+
+	private int[] nodeIndex;
+
+	private int clusterCols, clusterRows;
+
+	private int[] localDistances;
+
+	private int[] localQueue;
+
+	private final IntArray startCosts = new IntArray();
+
+	private final IntArray goalCosts = new IntArray();
+
+	private final IntArray abstractPath = new IntArray();
+
+	private final IntArray dirtyClusters = new IntArray();
+
+	private boolean rebuildAll;
+
+	private boolean closed;
+
+	public HierarchicalFindEngine(Field2D field, boolean flag) {
+		this(field, flag, DEFAULT_CLUSTER_SIZE);
+	}
+
+	public HierarchicalFindEngine(Field2D field, boolean flag, int clusterSize) {
+		super(0);
+		this.field = field;
+		this.diagonal = flag;
+		this.clusterSize = MathUtils.max(2, clusterSize);
+		this.localEngine = new AStarFindEngine();
+		this.costOrder = true;
+		this.rebuildAll = true;
+		this.field.addListener(this);
+	}
+
+	@Override
+	public TArray<Vector2f> find(Field2D map, AStarFindHeuristic heuristic, int startX, int startY, int endX,
+			int endY, boolean flying, boolean flag, int overflow) {
+		if (map != field || flying || flag != diagonal || closed) {
+			return localEngine.find(map, heuristic, startX, startY, endX, endY, flying, flag, overflow);
+		}
+		if (startX == endX && startY == endY) {
+			TArray<Vector2f> v = new TArray<Vector2f>(1);
+			v.add(new Vector2f(startX, startY));
+			return v;
+		}
+		if (!field.contains(startX, startY) || !field.contains(endX, endY) || !field.isHit(endX, endY)) {
+			return null;
+		}
+		update();
+		final int startCluster = clusterAt(startX, startY);
+		final int goalCluster = clusterAt(endX, endY);
+		if (startCluster == goalCluster) {
+			Cluster c = clusters[startCluster];
+			TArray<Vector2f> local = localEngine.find(field, heuristic, startX, startY, endX, endY, false, diagonal,
+					overflow, c.left, c.top, c.right, c.bottom);
+			if (local != null) {
+				return local;
+			}
+		}
+		if (!searchAbstract(heuristic, startX, startY, endX, endY, startCluster, goalCluster, overflow)) {
+			return null;
+		}
+		return refinePath(heuristic, overflow);
+	}
+
+	private boolean searchAbstract(AStarFindHeuristic heuristic, int startX, int startY, int endX, int endY,
+			int startCluster, int goalCluster, int overflow) {
+		final Cluster start = clusters[startCluster];
+		final Cluster goal = clusters[goalCluster];
+		spreadCosts(start, startX, startY, startCosts);
+		spreadCosts(goal, endX, endY, goalCosts);
+
+		begin(field, heuristic, endX, endY, false, diagonal);
+		final int startId = startY * mapWidth + startX;
+		final int goalId = endY * mapWidth + endX;
+		parents[startId] = -1;
+		gScores[startId] = 0;
+		push(startId, heuristic.getScore(endX, endY, startX, startY));
+
+		for (; heapSize > 0;) {
+			if (expandedCount > overflow) {
+				return false;
+			}
+			final int current = pop();
+			if (current == goalId) {
+				abstractPath.clear();
+				for (int i = current; i != -1; i = parents[i]) {
+					abstractPath.add(i);
+				}
+				return true;
+			}
+			closedMarks[current] = searchId;
+			expandedCount++;
+			final float g = gScores[current];
+			if (current == startId) {
+				for (int i = 0; i < start.nodes.length; i++) {
+					final int cost = startCosts.get(i);
+					if (cost > 0) {
+						relax(current, start.nodes.get(i), g + cost);
+					}
+				}
+			}
+			final int index = nodeIndex[current];
+			if (index == -1) {
+				continue;
+			}
+			final Cluster c = clusters[clusterAt(current % mapWidth, current / mapWidth)];
+			final int size = c.nodes.length;
+			for (int i = 0; i < size; i++) {
+				final int cost = c.distances[index * size + i];
+				if (cost > 0) {
+					relax(current, c.nodes.get(i), g + cost);
+				}
+			}
+			final IntArray partner = c.partners.get(index);
+			for (int i = 0; i < partner.length; i++) {
+				relax(current, partner.get(i), g + 1f);
+			}
+			if (c == goal) {
+				final int cost = goalCosts.get(index);
+				if (cost >= 0) {
+					relax(current, goalId, g + cost);
+				}
+			}
+		}
+		return false;
+	}
+
+	private TArray<Vector2f> refinePath(AStarFindHeuristic heuristic, int overflow) {
+		final int width = mapWidth;
+		TArray<Vector2f> result = new TArray<Vector2f>(abstractPath.length * clusterSize);
+		int last = abstractPath.get(abstractPath.length - 1);
+		result.add(new Vector2f(last % width, last / width));
+		for (int i = abstractPath.length - 2; i > -1; i--) {
+			final int next = abstractPath.get(i);
+			final int lx = last % width;
+			final int ly = last / width;
+			final int nx = next % width;
+			final int ny = next / width;
+			final int cluster = clusterAt(lx, ly);
+			if (cluster != clusterAt(nx, ny)) {
+				result.add(new Vector2f(nx, ny));
+			} else {
+				final Cluster c = clusters[cluster];
+				TArray<Vector2f> segment = localEngine.find(field, heuristic, lx, ly, nx, ny, false, diagonal,
+						overflow, c.left, c.top, c.right, c.bottom);
+				if (segment == null) {
+					return null;
+				}
+				for (int j = 1; j < segment.size; j++) {
+					result.add(segment.get(j));
+				}
+			}
+			last = next;
+		}
+		return result;
+	}
+
+	private int clusterAt(int x, int y) {
+		return (y / clusterSize) * clusterCols + (x / clusterSize);
+	}
+
+	/**
+	 * 重建全部或被标记为过期的区块数据
+	 */
+	public void update() {
+		if (rebuildAll) {
+			buildAll();
+			return;
+		}
+		if (dirtyClusters.length == 0) {
+			return;
+		}
+		final int size = dirtyClusters.length;
+		for (int i = 0; i < size; i++) {
+			final int index = dirtyClusters.get(i);
+			final int col = index % clusterCols;
+			final int row = index / clusterCols;
+			buildBorders(index);
+			if (col > 0) {
+				buildBorders(index - 1);
+			}
+			if (row > 0) {
+				buildBorders(index - clusterCols);
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			final int index = dirtyClusters.get(i);
+			final int col = index % clusterCols;
+			final int row = index / clusterCols;
+			markNodes(index);
+			if (col > 0) {
+				markNodes(index - 1);
+			}
+			if (col < clusterCols - 1) {
+				markNodes(index + 1);
+			}
+			if (row > 0) {
+				markNodes(index - clusterCols);
+			}
+			if (row < clusterRows - 1) {
+				markNodes(index + clusterCols);
+			}
+		}
+		for (int i = 0; i < clusters.length; i++) {
+			if (clusters[i].dirty) {
+				buildNodes(i);
+			}
+		}
+		dirtyClusters.clear();
+	}
+
+	private void markNodes(int index) {
+		clusters[index].dirty = true;
+	}
+
+	private void buildAll() {
+		final int width = field.getWidth();
+		final int height = field.getHeight();
+		clusterCols = (width + clusterSize - 1) / clusterSize;
+		clusterRows = (height + clusterSize - 1) / clusterSize;
+		final int count = clusterCols * clusterRows;
+		clusters = new Cluster[count];
+		rightBorders = new IntArray[count];
+		bottomBorders = new IntArray[count];
+		nodeIndex = new int[width * height];
+		for (int i = 0; i < nodeIndex.length; i++) {
+			nodeIndex[i] = -1;
+		}
+		localDistances = new int[clusterSize * clusterSize];
+		localQueue = new int[clusterSize * clusterSize];
+		for (int i = 0; i < count; i++) {
+			Cluster c = new Cluster();
+			c.left = (i % clusterCols) * clusterSize;
+			c.top = (i / clusterCols) * clusterSize;
+			c.right = MathUtils.min(width, c.left + clusterSize);
+			c.bottom = MathUtils.min(height, c.top + clusterSize);
+			clusters[i] = c;
+			rightBorders[i] = new IntArray();
+			bottomBorders[i] = new IntArray();
+		}
+		for (int i = 0; i < count; i++) {
+			buildBorders(i);
+		}
+		for (int i = 0; i < count; i++) {
+			buildNodes(i);
+		}
+		dirtyClusters.clear();
+		rebuildAll = false;
+	}
+
+	private void buildBorders(int index) {
+		final Cluster c = clusters[index];
+		final int width = field.getWidth();
+		IntArray border = rightBorders[index];
+		border.clear();
+		if (index % clusterCols < clusterCols - 1) {
+			final int x = c.right - 1;
+			int runStart = -1;
+			for (int y = c.top; y <= c.bottom; y++) {
+				final boolean open = y < c.bottom && field.isHit(x, y) && field.isHit(x + 1, y);
+				if (open && runStart == -1) {
+					runStart = y;
+				} else if (!open && runStart != -1) {
+					final int runEnd = y - 1;
+					if (runEnd - runStart + 1 < MAX_SINGLE_ENTRANCE) {
+						final int mid = (runStart + runEnd) / 2;
+						addTransition(border, mid * width + x, mid * width + x + 1);
+					} else {
+						addTransition(border, runStart * width + x, runStart * width + x + 1);
+						addTransition(border, runEnd * width + x, runEnd * width + x + 1);
+					}
+					runStart = -1;
+				}
+			}
+		}
+		border = bottomBorders[index];
+		border.clear();
+		if (index / clusterCols < clusterRows - 1) {
+			final int y = c.bottom - 1;
+			int runStart = -1;
+			for (int x = c.left; x <= c.right; x++) {
+				final boolean open = x < c.right && field.isHit(x, y) && field.isHit(x, y + 1);
+				if (open && runStart == -1) {
+					runStart = x;
+				} else if (!open && runStart != -1) {
+					final int runEnd = x - 1;
+					if (runEnd - runStart + 1 < MAX_SINGLE_ENTRANCE) {
+						final int mid = (runStart + runEnd) / 2;
+						addTransition(border, y * width + mid, (y + 1) * width + mid);
+					} else {
+						addTransition(border, y * width + runStart, (y + 1) * width + runStart);
+						addTransition(border, y * width + runEnd, (y + 1) * width + runEnd);
+					}
+					runStart = -1;
+				}
+			}
+		}
+	}
+
+	private static void addTransition(IntArray border, int node, int partner) {
+		border.add(node);
+		border.add(partner);
+	}
+
+	private void buildNodes(int index) {
+		final Cluster c = clusters[index];
+		for (int i = 0; i < c.nodes.length; i++) {
+			nodeIndex[c.nodes.get(i)] = -1;
+		}
+		c.nodes.clear();
+		c.partners.clear();
+		final int col = index % clusterCols;
+		final int row = index / clusterCols;
+		addNodes(c, rightBorders[index], 0);
+		addNodes(c, bottomBorders[index], 0);
+		if (col > 0) {
+			addNodes(c, rightBorders[index - 1], 1);
+		}
+		if (row > 0) {
+			addNodes(c, bottomBorders[index - clusterCols], 1);
+		}
+		final int size = c.nodes.length;
+		c.distances = new int[size * size];
+		final int width = field.getWidth();
+		final IntArray costs = startCosts;
+		for (int i = 0; i < size; i++) {
+			final int node = c.nodes.get(i);
+			spreadCosts(c, node % width, node / width, costs);
+			for (int j = 0; j < size; j++) {
+				c.distances[i * size + j] = costs.get(j);
+			}
+		}
+		c.dirty = false;
+	}
+
+	private void addNodes(Cluster c, IntArray border, int side) {
+		for (int i = 0; i < border.length; i += 2) {
+			final int node = border.get(i + side);
+			final int partner = border.get(i + 1 - side);
+			int index = nodeIndex[node];
+			if (index == -1) {
+				index = c.nodes.length;
+				nodeIndex[node] = index;
+				c.nodes.add(node);
+				c.partners.add(new IntArray(2));
+			}
+			c.partners.get(index).add(partner);
+		}
+	}
+
+	/**
+	 * 在区块内由指定格子逐步扩散,计算到达区块内各出入口的步数(无法到达时为-1)
+	 */
+	private void spreadCosts(Cluster c, int sx, int sy, IntArray costs) {
+		final int w = c.right - c.left;
+		final int h = c.bottom - c.top;
+		final int[] dist = localDistances;
+		final int[] queue = localQueue;
+		for (int i = 0, size = w * h; i < size; i++) {
+			dist[i] = -1;
+		}
+		final int dirs = diagonal ? 8 : 4;
+		int head = 0, tail = 0;
+		final int source = (sy - c.top) * w + (sx - c.left);
+		dist[source] = 0;
+		queue[tail++] = source;
+		for (; head < tail;) {
+			final int cur = queue[head++];
+			final int cx = cur % w;
+			final int cy = cur / w;
+			final int d = dist[cur] + 1;
+			for (int i = 0; i < dirs; i++) {
+				final int nx = cx + DIR_X[i];
+				final int ny = cy + DIR_Y[i];
+				if (nx < 0 || ny < 0 || nx >= w || ny >= h) {
+					continue;
+				}
+				final int next = ny * w + nx;
+				if (dist[next] != -1 || !field.isHit(nx + c.left, ny + c.top)) {
+					continue;
+				}
+				dist[next] = d;
+				queue[tail++] = next;
+			}
+		}
+		final int width = field.getWidth();
+		costs.clear();
+		for (int i = 0; i < c.nodes.length; i++) {
+			final int node = c.nodes.get(i);
+			costs.add(dist[(node / width - c.top) * w + (node % width - c.left)]);
+		}
+	}
+
+	public int getClusterSize() {
+		return clusterSize;
+	}
+
+	public boolean isDiagonal() {
+		return diagonal;
+	}
+
+	public Field2D getField() {
+		return field;
+	}
+
+	/**
+	 * 切换到另一份同尺寸的地图数据(例如同一地图的新快照),只有发生变化的格子所在区块会被重建
+	 *
+	 * @param map
+	 * @param changedTiles 发生变化的格子,按(x,y)成对存储,为null时重建全部区块
+	 */
+	public void setField(Field2D map, IntArray changedTiles) {
+		if (map == null || map == field || closed) {
+			return;
+		}
+		final boolean sameSize = map.getWidth() == field.getWidth() && map.getHeight() == field.getHeight();
+		field.removeListener(this);
+		field = map;
+		field.addListener(this);
+		if (changedTiles == null || !sameSize) {
+			rebuildAll = true;
+			return;
+		}
+		for (int i = 0; i + 1 < changedTiles.length; i += 2) {
+			tileChanged(map, changedTiles.get(i), changedTiles.get(i + 1), 0, 0);
+		}
+	}
+
+	/**
+	 * 抽象图中的出入口数量
+	 *
+	 * @return
+	 */
+	public int getNodeCount() {
+		update();
+		int count = 0;
+		for (int i = 0; i < clusters.length; i++) {
+			count += clusters[i].nodes.length;
+		}
+		return count;
+	}
+
+	@Override
+	public void tileChanged(Field2D map, int x, int y, int oldType, int newType) {
+		if (rebuildAll || clusters == null) {
+			return;
+		}
+		final int index = clusterAt(x, y);
+		if (!dirtyClusters.contains(index)) {
+			dirtyClusters.add(index);
+		}
+	}
+
+	@Override
+	public void mapChanged(Field2D map) {
+		rebuildAll = true;
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public void close() {
+		field.removeListener(this);
+		localEngine.clear();
+		clusters = null;
+		rightBorders = null;
+		bottomBorders = null;
+		nodeIndex = null;
+		dirtyClusters.clear();
+		rebuildAll = true;
+		closed = true;
+		clear();
+	}
+
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.action.map;
+
+import loon.geom.Vector2f;
+import loon.utils.MathUtils;
+import loon.utils.TArray;
+
+/**
+ * Jump Point Search(跳点搜索)寻径用类,适用于各格子移动代价一致的八方向地图,
+ * 通过沿直线与斜线跳跃的方式略过对称路径,仅将跳点放入open列表,大幅减少开阔地图上展开的节点数量.
+ *
+ * 斜向移动代价为根号2,所以返回的是以欧式距离计算的最短路径,非八方向(flag为false)时退化为普通A*.
+ */
+public class JumpPointFindEngine extends AStarFindEngine {
+
+	private final static float DIAGONAL_COST = MathUtils.sqrt(2f);
+
+	public JumpPointFindEngine() {
+		this(0);
+	}
+
+	public JumpPointFindEngine(int capacity) {
+		super(capacity);
+		this.costOrder = true;
+	}
+
+	@Override
+	protected void expand(int current) {
+		if (!findFlag) {
+			super.expand(current);
+			return;
+		}
+		final int cx = current % mapWidth;
+		final int cy = current / mapWidth;
+		final int parent = parents[current];
+		if (parent == -1) {
+			for (int i = 0; i < 8; i++) {
+				jumpTo(current, cx, cy, DIR_X[i], DIR_Y[i]);
+			}
+			return;
+		}
+		final int dx = MathUtils.sign(cx - parent % mapWidth);
+		final int dy = MathUtils.sign(cy - parent / mapWidth);
+		if (dx != 0 && dy != 0) {
+			jumpTo(current, cx, cy, 0, dy);
+			jumpTo(current, cx, cy, dx, 0);
+			jumpTo(current, cx, cy, dx, dy);
+			if (!walkable(cx - dx, cy)) {
+				jumpTo(current, cx, cy, -dx, dy);
+			}
+			if (!walkable(cx, cy - dy)) {
+				jumpTo(current, cx, cy, dx, -dy);
+			}
+		} else if (dx != 0) {
+			jumpTo(current, cx, cy, dx, 0);
+			if (!walkable(cx, cy + 1)) {
+				jumpTo(current, cx, cy, dx, 1);
+			}
+			if (!walkable(cx, cy - 1)) {
+				jumpTo(current, cx, cy, dx, -1);
+			}
+		} else {
+			jumpTo(current, cx, cy, 0, dy);
+			if (!walkable(cx + 1, cy)) {
+				jumpTo(current, cx, cy, 1, dy);
+			}
+			if (!walkable(cx - 1, cy)) {
+				jumpTo(current, cx, cy, -1, dy);
+			}
+		}
+	}
+
+	private void jumpTo(int current, int cx, int cy, int dx, int dy) {
+		final int point = jump(cx, cy, dx, dy);
+		if (point == -1) {
+			return;
+		}
+		final int ax = MathUtils.abs(point % mapWidth - cx);
+		final int ay = MathUtils.abs(point / mapWidth - cy);
+		final float cost = ax > ay ? (ay * DIAGONAL_COST + (ax - ay)) : (ax * DIAGONAL_COST + (ay - ax));
+		relax(current, point, gScores[current] + cost);
+	}
+
+	private int jump(int x, int y, int dx, int dy) {
+		for (;;) {
+			x += dx;
+			y += dy;
+			if (!walkable(x, y)) {
+				return -1;
+			}
+			if (x == endX && y == endY) {
+				return y * mapWidth + x;
+			}
+			if (dx != 0 && dy != 0) {
+				if ((walkable(x - dx, y + dy) && !walkable(x - dx, y))
+						|| (walkable(x + dx, y - dy) && !walkable(x, y - dy))) {
+					return y * mapWidth + x;
+				}
+				if (jump(x, y, dx, 0) != -1 || jump(x, y, 0, dy) != -1) {
+					return y * mapWidth + x;
+				}
+			} else if (dx != 0) {
+				if ((walkable(x + dx, y + 1) && !walkable(x, y + 1))
+						|| (walkable(x + dx, y - 1) && !walkable(x, y - 1))) {
+					return y * mapWidth + x;
+				}
+			} else {
+				if ((walkable(x + 1, y + dy) && !walkable(x + 1, y))
+						|| (walkable(x - 1, y + dy) && !walkable(x - 1, y))) {
+					return y * mapWidth + x;
+				}
+			}
+		}
+	}
+
+	@Override
+	protected TArray<Vector2f> buildPath(int node) {
+		if (!findFlag) {
+			return super.buildPath(node);
+		}
+		// 跳点之间均为直线或斜线,逐格补全为连续路径
+		int count = 1;
+		int root = node;
+		for (; parents[root] != -1; root = parents[root]) {
+			final int p = parents[root];
+			count += MathUtils.max(MathUtils.abs(root % mapWidth - p % mapWidth),
+					MathUtils.abs(root / mapWidth - p / mapWidth));
+		}
+		Vector2f[] items = new Vector2f[count];
+		int idx = count - 1;
+		for (int i = node; i != root; i = parents[i]) {
+			final int p = parents[i];
+			int x = i % mapWidth;
+			int y = i / mapWidth;
+			final int px = p % mapWidth;
+			final int py = p / mapWidth;
+			final int dx = MathUtils.sign(px - x);
+			final int dy = MathUtils.sign(py - y);
+			for (; x != px || y != py;) {
+				items[idx--] = new Vector2f(x, y);
+				if (x != px) {
+					x += dx;
+				}
+				if (y != py) {
+					y += dy;
+				}
+			}
+		}
+		items[0] = new Vector2f(root % mapWidth, root / mapWidth);
+		return new TArray<Vector2f>(items);
+	}
+
+}
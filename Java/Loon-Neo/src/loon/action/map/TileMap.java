@@ -24,6 +24,7 @@ import loon.LObject;
 import loon.LSysException;
 import loon.LSystem;
 import loon.LTexture;
+import loon.LTextureBatch;
 import loon.PlayerUtils;
 import loon.Screen;
 import loon.LTexture.Format;
@@ -44,14 +45,24 @@ import loon.geom.Vector2f;
 import loon.opengl.GLEx;
 import loon.opengl.LTexturePack;
 import loon.opengl.LTexturePackClip;
+import loon.utils.IntArray;
+import loon.utils.IntMap;
 import loon.utils.MathUtils;
 import loon.utils.TArray;
 
 /**
  * 一个简单的二维数组地图构造以及显示类.复杂地图请使用tmx包
+ * 
+ * 地图按固定大小分块缓存顶点数据,滚动时只平移已有的分块缓存,只有分块内的格子发生变化时才重新生成该分块,动画格子不进入缓存,每帧单独绘制.
  */
 public class TileMap extends LObject<ISprite> implements ISprite {
 
+	// 默认分块大小(格子数)
+	public final static int DEFAULT_CHUNK_SIZE = 16;
+
+	// 小于此值的瓦片id直接以数组下标索引
+	private final static int MAX_TABLE_ID = 4096;
+
 	private LTexture _background;
 
 	// 地图的Sprites
@@ -83,7 +94,35 @@ public class TileMap extends LObject<ISprite> implements ISprite {
 	private float _fixedWidthOffset = 0f;
 	private float _fixedHeightOffset = 0f;
 
-	private int lastOffsetX, lastOffsetY;
+	private int chunkWidth = DEFAULT_CHUNK_SIZE, chunkHeight = DEFAULT_CHUNK_SIZE;
+
+	private int chunkCols, chunkRows, chunkFieldWidth, chunkFieldHeight;
+
+	private LTextureBatch.Cache[] chunkCaches;
+
+	private boolean[] chunkDirty;
+
+	// 分块中动画格子的位置(x + y * 地图宽度)
+	private IntArray[] chunkAnimations;
+
+	private TileImpl[] tileTable;
+
+	private IntMap<TileImpl> tileOverflow;
+
+	private boolean tileTableDirty = true;
+
+	private final Field2DListener fieldListener = new Field2DListener() {
+
+		@Override
+		public void tileChanged(Field2D field, int x, int y, int oldType, int newType) {
+			invalidateChunk(x, y);
+		}
+
+		@Override
+		public void mapChanged(Field2D field) {
+			invalidateChunks();
+		}
+	};
 
 	private ActionBind follow;
 
@@ -189,14 +228,15 @@ public class TileMap extends LObject<ISprite> implements ISprite {
 		}
 		this.texturePack = new LTexturePack();
 		this.format = format;
-		this.lastOffsetX = -1;
-		this.lastOffsetY = -1;
 		this.active = true;
 		this.dirty = true;
 		this.visible = true;
 		this._mapSprites = new Sprites("TileMapSprites", screen == null ? LSystem.getProcess().getScreen() : screen,
 				maxWidth, maxHeight);
 		this.texturePack.setFormat(format);
+		if (field2d != null) {
+			field2d.addListener(fieldListener);
+		}
 	}
 
 	public static TileMap loadCharsMap(String resName, int tileWidth, int tileHeight) {
@@ -242,18 +282,20 @@ public class TileMap extends LObject<ISprite> implements ISprite {
 	}
 
 	public TileMap removeTile(int id) {
-		for (TileImpl tile : arrays) {
+		for (int i = arrays.size - 1; i >= 0; i--) {
+			TileImpl tile = arrays.get(i);
 			if (tile.idx == id) {
 				if (tile.isAnimation) {
 					animations.remove(tile.animation);
 				}
-				arrays.remove(tile);
+				arrays.removeIndex(i);
 			}
 		}
 		if (animations.size == 0) {
 			playAnimation = false;
 		}
 		this.dirty = true;
+		this.tileTableDirty = true;
 		return this;
 	}
 
@@ -270,6 +312,7 @@ public class TileMap extends LObject<ISprite> implements ISprite {
 			animations.add(animation);
 			arrays.add(tile);
 			dirty = true;
+			tileTableDirty = true;
 			return tile.imgId;
 		} else {
 			throw new LSysException("Map is no longer active, you can not add new tiles !");
@@ -291,6 +334,7 @@ public class TileMap extends LObject<ISprite> implements ISprite {
 			tile.attribute = attribute;
 			arrays.add(tile);
 			dirty = true;
+			tileTableDirty = true;
 			return tile.imgId;
 		} else {
 			throw new LSysException("Map is no longer active, you can not add new tiles !");
@@ -308,6 +352,7 @@ public class TileMap extends LObject<ISprite> implements ISprite {
 			tile.attribute = attribute;
 			arrays.add(tile);
 			dirty = true;
+			tileTableDirty = true;
 			return tile.imgId;
 		} else {
 			throw new LSysException("Map is no longer active, you can not add new tiles !");
@@ -325,6 +370,7 @@ public class TileMap extends LObject<ISprite> implements ISprite {
 			tile.attribute = attribute;
 			arrays.add(tile);
 			dirty = true;
+			tileTableDirty = true;
 			return tile.imgId;
 		} else {
 			throw new LSysException("Map is no longer active, you can not add new tiles !");
@@ -342,6 +388,7 @@ public class TileMap extends LObject<ISprite> implements ISprite {
 			tile.attribute = attribute;
 			arrays.add(tile);
 			dirty = true;
+			tileTableDirty = true;
 		} else {
 			new LSysException("Map is no longer active, you can not add new tiles !");
 		}
@@ -353,12 +400,53 @@ public class TileMap extends LObject<ISprite> implements ISprite {
 	}
 
 	public TileImpl getTile(int id) {
-		for (TileImpl tile : arrays) {
-			if (tile.idx == id) {
-				return tile;
+		if (tileTableDirty) {
+			buildTileTable();
+		}
+		if (id >= 0 && id < tileTable.length) {
+			return tileTable[id];
+		}
+		return tileOverflow == null ? null : tileOverflow.get(id);
+	}
+
+	/**
+	 * 以瓦片id建立索引表,同一id存在多个瓦片时使用最先加入的
+	 */
+	private void buildTileTable() {
+		int maxId = -1;
+		for (int i = 0; i < arrays.size; i++) {
+			final int id = arrays.get(i).idx;
+			if (id > maxId && id < MAX_TABLE_ID) {
+				maxId = id;
+			}
+		}
+		if (tileTable == null || tileTable.length < maxId + 1) {
+			tileTable = new TileImpl[maxId + 1];
+		} else {
+			for (int i = 0; i < tileTable.length; i++) {
+				tileTable[i] = null;
 			}
 		}
-		return null;
+		if (tileOverflow != null) {
+			tileOverflow.clear();
+		}
+		for (int i = 0; i < arrays.size; i++) {
+			final TileImpl tile = arrays.get(i);
+			final int id = tile.idx;
+			if (id >= 0 && id < MAX_TABLE_ID) {
+				if (tileTable[id] == null) {
+					tileTable[id] = tile;
+				}
+			} else {
+				if (tileOverflow == null) {
+					tileOverflow = new IntMap<TileImpl>();
+				}
+				if (!tileOverflow.containsKey(id)) {
+					tileOverflow.put(id, tile);
+				}
+			}
+		}
+		tileTableDirty = false;
 	}
 
 	public int[][] getMap() {
@@ -456,94 +544,75 @@ public class TileMap extends LObject<ISprite> implements ISprite {
 			completed();
 			return;
 		}
-		dirty = dirty || !texturePack.existCache();
-		if (!dirty && lastOffsetX == offsetX && lastOffsetY == offsetY) {
-			texturePack.postCache();
-			if (playAnimation) {
-				int[][] maps = field2d.getMap();
-				for (int i = firstTileX; i < lastTileX; i++) {
-					for (int j = firstTileY; j < lastTileY; j++) {
-						if (i > -1 && j > -1 && i < field2d.getWidth() && j < field2d.getHeight()) {
-							int id = maps[j][i];
-							for (TileImpl tile : arrays) {
-								if (tile.isAnimation && tile.idx == id) {
-									if (useBatch) {
-										LColor tmp = batch.getColor();
-										batch.setColor(baseColor);
-										batch.draw(tile.animation.getSpriteImage(),
-												field2d.tilesToWidthPixels(i) + offsetX,
-												field2d.tilesToHeightPixels(j) + offsetY, field2d.getTileWidth(),
-												field2d.getTileHeight());
-										batch.setColor(tmp);
-									} else {
-										g.draw(tile.animation.getSpriteImage(), field2d.tilesToWidthPixels(i) + offsetX,
-												field2d.tilesToHeightPixels(j) + offsetY, field2d.getTileWidth(),
-												field2d.getTileHeight(), baseColor);
-									}
-								}
-							}
-						}
+		if (arrays.size == 0) {
+			throw new LSysException("Not to add any tiles !");
+		}
+		if (dirty || !texturePack.isBatch()) {
+			invalidateChunks();
+			dirty = false;
+		}
+		checkChunks();
+
+		final int fieldWidth = field2d.getWidth();
+		final int fieldHeight = field2d.getHeight();
+
+		firstTileX = MathUtils.max(field2d.pixelsToTilesWidth(-offsetX), 0);
+		firstTileY = MathUtils.max(field2d.pixelsToTilesHeight(-offsetY), 0);
+
+		lastTileX = field2d.pixelsToTilesWidth(-offsetX) + field2d.pixelsToTilesWidth(maxWidth) + 1;
+		lastTileX = MathUtils.min(lastTileX, fieldWidth);
+		lastTileY = field2d.pixelsToTilesHeight(-offsetY) + field2d.pixelsToTilesHeight(maxHeight) + 1;
+		lastTileY = MathUtils.min(lastTileY, fieldHeight);
+
+		if (firstTileX < lastTileX && firstTileY < lastTileY) {
+			final int firstChunkX = firstTileX / chunkWidth;
+			final int firstChunkY = firstTileY / chunkHeight;
+			final int lastChunkX = (lastTileX - 1) / chunkWidth;
+			final int lastChunkY = (lastTileY - 1) / chunkHeight;
+			for (int cy = firstChunkY; cy <= lastChunkY; cy++) {
+				for (int cx = firstChunkX; cx <= lastChunkX; cx++) {
+					final int index = cx + cy * chunkCols;
+					if (chunkDirty[index]) {
+						buildChunk(index, cx, cy, offsetX, offsetY);
+					} else if (chunkCaches[index] != null) {
+						texturePack.getTextureBatch().postCache(chunkCaches[index], null, offsetX, offsetY);
 					}
 				}
 			}
-		} else {
-			if (arrays.size == 0) {
-				throw new LSysException("Not to add any tiles !");
-			}
-
-			texturePack.glBegin();
-
-			firstTileX = field2d.pixelsToTilesWidth(-offsetX);
-			firstTileY = field2d.pixelsToTilesHeight(-offsetY);
-
-			lastTileX = firstTileX + field2d.pixelsToTilesWidth(maxWidth) + 1;
-			lastTileX = MathUtils.min(lastTileX, field2d.getWidth());
-			lastTileY = firstTileY + field2d.pixelsToTilesHeight(maxHeight) + 1;
-			lastTileY = MathUtils.min(lastTileY, field2d.getHeight());
-			int[][] maps = field2d.getMap();
-			for (int i = firstTileX; i < lastTileX; i++) {
-				for (int j = firstTileY; j < lastTileY; j++) {
-					if (i > -1 && j > -1 && i < field2d.getWidth() && j < field2d.getHeight()) {
-						int id = maps[j][i];
-						for (TileImpl tile : arrays) {
-							if (playAnimation) {
-								if (tile.idx == id) {
-									if (tile.isAnimation) {
-										if (useBatch) {
-											LColor tmp = batch.getColor();
-											batch.setColor(baseColor);
-											batch.draw(tile.animation.getSpriteImage(),
-													field2d.tilesToWidthPixels(i) + offsetX,
-													field2d.tilesToHeightPixels(j) + offsetY, field2d.getTileWidth(),
-													field2d.getTileHeight());
-											batch.setColor(tmp);
-										} else {
-											g.draw(tile.animation.getSpriteImage(),
-													field2d.tilesToWidthPixels(i) + offsetX,
-													field2d.tilesToHeightPixels(j) + offsetY, field2d.getTileWidth(),
-													field2d.getTileHeight(), baseColor);
-										}
-									} else {
-										texturePack.draw(tile.imgId, field2d.tilesToWidthPixels(i) + offsetX,
-												field2d.tilesToHeightPixels(j) + offsetY, field2d.getTileWidth(),
-												field2d.getTileHeight(), baseColor);
-									}
-								}
-							} else if (tile.idx == id) {
-								texturePack.draw(tile.imgId, field2d.tilesToWidthPixels(i) + offsetX,
-										field2d.tilesToHeightPixels(j) + offsetY, field2d.getTileWidth(),
-										field2d.getTileHeight(), baseColor);
-							}
-
+			// 动画格子每帧单独绘制
+			final int[][] maps = field2d.getMap();
+			final int tileWidth = field2d.getTileWidth();
+			final int tileHeight = field2d.getTileHeight();
+			for (int cy = firstChunkY; cy <= lastChunkY; cy++) {
+				for (int cx = firstChunkX; cx <= lastChunkX; cx++) {
+					final IntArray cells = chunkAnimations[cx + cy * chunkCols];
+					if (cells == null) {
+						continue;
+					}
+					for (int n = 0; n < cells.length; n++) {
+						final int cell = cells.items[n];
+						final int i = cell % fieldWidth;
+						final int j = cell / fieldWidth;
+						if (i < firstTileX || i >= lastTileX || j < firstTileY || j >= lastTileY) {
+							continue;
+						}
+						final TileImpl tile = getTile(maps[j][i]);
+						if (tile == null || !tile.isAnimation) {
+							continue;
+						}
+						if (useBatch) {
+							LColor tmp = batch.getColor();
+							batch.setColor(baseColor);
+							batch.draw(tile.animation.getSpriteImage(), field2d.tilesToWidthPixels(i) + offsetX,
+									field2d.tilesToHeightPixels(j) + offsetY, tileWidth, tileHeight);
+							batch.setColor(tmp);
+						} else {
+							g.draw(tile.animation.getSpriteImage(), field2d.tilesToWidthPixels(i) + offsetX,
+									field2d.tilesToHeightPixels(j) + offsetY, tileWidth, tileHeight, baseColor);
 						}
 					}
 				}
 			}
-			texturePack.glEnd();
-			texturePack.saveCache();
-			lastOffsetX = offsetX;
-			lastOffsetY = offsetY;
-			dirty = false;
 		}
 
 		if (listener != null) {
@@ -551,6 +620,152 @@ public class TileMap extends LObject<ISprite> implements ISprite {
 		}
 	}
 
+	/**
+	 * 生成指定分块的顶点缓存(生成时同时绘制一次),并记录分块中的动画格子
+	 */
+	private void buildChunk(int index, int cx, int cy, int offsetX, int offsetY) {
+		if (chunkCaches[index] != null) {
+			chunkCaches[index].close();
+			chunkCaches[index] = null;
+		}
+		IntArray cells = chunkAnimations[index];
+		if (cells != null) {
+			cells.clear();
+		}
+		final int[][] maps = field2d.getMap();
+		final int fieldWidth = field2d.getWidth();
+		final int tileWidth = field2d.getTileWidth();
+		final int tileHeight = field2d.getTileHeight();
+		final int startX = cx * chunkWidth;
+		final int startY = cy * chunkHeight;
+		final int endX = MathUtils.min(startX + chunkWidth, fieldWidth);
+		final int endY = MathUtils.min(startY + chunkHeight, field2d.getHeight());
+		int quads = 0;
+		texturePack.glBegin();
+		final LTextureBatch textureBatch = texturePack.isBatch() ? texturePack.getTextureBatch() : null;
+		if (textureBatch != null) {
+			textureBatch.setLocation(offsetX, offsetY);
+		}
+		for (int j = startY; j < endY; j++) {
+			for (int i = startX; i < endX; i++) {
+				final TileImpl tile = getTile(maps[j][i]);
+				if (tile == null) {
+					continue;
+				}
+				if (tile.isAnimation) {
+					if (cells == null) {
+						cells = chunkAnimations[index] = new IntArray(8);
+					}
+					cells.add(i + j * fieldWidth);
+					continue;
+				}
+				if (textureBatch != null) {
+					texturePack.draw(tile.imgId, field2d.tilesToWidthPixels(i), field2d.tilesToHeightPixels(j),
+							tileWidth, tileHeight, baseColor);
+				} else {
+					texturePack.draw(tile.imgId, field2d.tilesToWidthPixels(i) + offsetX,
+							field2d.tilesToHeightPixels(j) + offsetY, tileWidth, tileHeight, baseColor);
+				}
+				quads++;
+			}
+		}
+		texturePack.glEnd();
+		if (textureBatch != null) {
+			textureBatch.setLocation(0, 0);
+			if (quads > 0) {
+				chunkCaches[index] = textureBatch.newCache();
+			}
+			chunkDirty[index] = false;
+		}
+	}
+
+	/**
+	 * 地图尺寸或分块大小变化时重新分配分块
+	 */
+	private void checkChunks() {
+		final int fieldWidth = field2d.getWidth();
+		final int fieldHeight = field2d.getHeight();
+		if (chunkCaches != null && chunkFieldWidth == fieldWidth && chunkFieldHeight == fieldHeight) {
+			return;
+		}
+		releaseChunks();
+		chunkFieldWidth = fieldWidth;
+		chunkFieldHeight = fieldHeight;
+		chunkCols = MathUtils.max(1, (fieldWidth + chunkWidth - 1) / chunkWidth);
+		chunkRows = MathUtils.max(1, (fieldHeight + chunkHeight - 1) / chunkHeight);
+		final int size = chunkCols * chunkRows;
+		chunkCaches = new LTextureBatch.Cache[size];
+		chunkAnimations = new IntArray[size];
+		chunkDirty = new boolean[size];
+		for (int i = 0; i < size; i++) {
+			chunkDirty[i] = true;
+		}
+	}
+
+	private void releaseChunks() {
+		if (chunkCaches != null) {
+			for (int i = 0; i < chunkCaches.length; i++) {
+				if (chunkCaches[i] != null) {
+					chunkCaches[i].close();
+				}
+			}
+		}
+		chunkCaches = null;
+		chunkAnimations = null;
+		chunkDirty = null;
+	}
+
+	/**
+	 * 令包含指定格子的分块在下次绘制时重新生成
+	 * 
+	 * @param x
+	 * @param y
+	 */
+	public void invalidateChunk(int x, int y) {
+		if (chunkDirty == null || x < 0 || y < 0 || x >= chunkFieldWidth || y >= chunkFieldHeight) {
+			return;
+		}
+		chunkDirty[(x / chunkWidth) + (y / chunkHeight) * chunkCols] = true;
+	}
+
+	/**
+	 * 令全部分块在下次绘制时重新生成
+	 */
+	public void invalidateChunks() {
+		if (chunkDirty == null) {
+			return;
+		}
+		for (int i = 0; i < chunkDirty.length; i++) {
+			chunkDirty[i] = true;
+		}
+	}
+
+	/**
+	 * 设定分块大小(格子数)
+	 * 
+	 * @param w
+	 * @param h
+	 * @return
+	 */
+	public TileMap setChunkSize(int w, int h) {
+		w = MathUtils.max(1, w);
+		h = MathUtils.max(1, h);
+		if (w != chunkWidth || h != chunkHeight) {
+			this.chunkWidth = w;
+			this.chunkHeight = h;
+			releaseChunks();
+		}
+		return this;
+	}
+
+	public int getChunkWidth() {
+		return chunkWidth;
+	}
+
+	public int getChunkHeight() {
+		return chunkHeight;
+	}
+
 	public void scrollDown(float distance) {
 		this.offset.y = limitOffsetY(MathUtils.min((this.offset.y + distance),
 				(MathUtils.max(0, this.field2d.getViewHeight() - getContainerHeight()))));
@@ -1235,6 +1450,10 @@ public class TileMap extends LObject<ISprite> implements ISprite {
 		playAnimation = false;
 		roll = false;
 		animations.clear();
+		releaseChunks();
+		if (field2d != null) {
+			field2d.removeListener(fieldListener);
+		}
 		if (texturePack != null) {
 			texturePack.close();
 			texturePack = null;
@@ -0,0 +1,173 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.action.map.tmx;
+
+import java.nio.ByteBuffer;
+
+import loon.LSysException;
+import loon.LSystem;
+
+/**
+ * 读取由Loon-Build预编译的二进制分块TMX文件(.ltmx).
+ * 
+ * 文件结构(整数均为大端序):
+ * 
+ * <pre>
+ * int 'LTMC' 标识
+ * int 版本
+ * int 地图宽,地图高,分块宽,分块高(格子数),图层数
+ * int 骨架长度, byte[] 骨架(去除了图层格子数据的原始TMX,UTF-8)
+ * int[图层数 * 分块数] 分块数据在文件中的偏移,-1表示整块为空
+ * int[分块宽 * 分块高] 分块数据(gid,行优先,边缘不足的部分补0),内容相同的分块共用同一份数据
+ * </pre>
+ * 
+ * 分块数据只在需要时读取,配合文件映射(JavaSE与Lwjgl3平台)使用时大地图不必整体读入内存.
+ */
+public class TMXChunkData {
+
+	public final static int MAGIC = ('L' << 24) | ('T' << 16) | ('M' << 8) | 'C';
+
+	public final static int VERSION = 1;
+
+	private final ByteBuffer buffer;
+
+	private final int width, height;
+
+	private final int chunkWidth, chunkHeight;
+
+	private final int chunkCols, chunkRows;
+
+	private final int layerCount;
+
+	private final String skeleton;
+
+	private final int tablePosition;
+
+	public static TMXChunkData load(String path) {
+		try {
+			return new TMXChunkData(LSystem.base().assets().getByteBufferSync(path));
+		} catch (LSysException e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new LSysException("Failed to load chunked TMX file " + path + " : " + e.getMessage());
+		}
+	}
+
+	public TMXChunkData(ByteBuffer buffer) {
+		this.buffer = buffer;
+		if (buffer.limit() < 32 || getInt(0) != MAGIC) {
+			throw new LSysException("Invalid chunked TMX data, the file header does not match.");
+		}
+		int version = getInt(4);
+		if (version != VERSION) {
+			throw new LSysException("Unsupported chunked TMX version " + version);
+		}
+		this.width = getInt(8);
+		this.height = getInt(12);
+		this.chunkWidth = getInt(16);
+		this.chunkHeight = getInt(20);
+		this.layerCount = getInt(24);
+		if (width < 0 || height < 0 || chunkWidth <= 0 || chunkHeight <= 0 || layerCount < 0) {
+			throw new LSysException("Invalid chunked TMX data, bad map size.");
+		}
+		final int length = getInt(28);
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = buffer.get(32 + i);
+		}
+		try {
+			this.skeleton = new String(bytes, LSystem.ENCODING);
+		} catch (Exception e) {
+			throw new LSysException("Invalid chunked TMX data : " + e.getMessage());
+		}
+		this.chunkCols = (width + chunkWidth - 1) / chunkWidth;
+		this.chunkRows = (height + chunkHeight - 1) / chunkHeight;
+		this.tablePosition = 32 + length;
+	}
+
+	private int getInt(int pos) {
+		final ByteBuffer b = buffer;
+		return ((b.get(pos) & 0xFF) << 24) | ((b.get(pos + 1) & 0xFF) << 16) | ((b.get(pos + 2) & 0xFF) << 8)
+				| (b.get(pos + 3) & 0xFF);
+	}
+
+	/**
+	 * 读取指定图层的一个分块
+	 * 
+	 * @param layer
+	 * @param cx
+	 * @param cy
+	 * @param dst
+	 *            长度至少为分块宽*分块高
+	 * @return 分块为空(全部gid为0)时返回false,此时dst不会被写入
+	 */
+	public boolean readChunk(int layer, int cx, int cy, int[] dst) {
+		final int offset = getChunkOffset(layer, cx, cy);
+		if (offset < 0) {
+			return false;
+		}
+		final int size = chunkWidth * chunkHeight;
+		for (int i = 0, pos = offset; i < size; i++, pos += 4) {
+			dst[i] = getInt(pos);
+		}
+		return true;
+	}
+
+	public int getChunkOffset(int layer, int cx, int cy) {
+		if (layer < 0 || layer >= layerCount || cx < 0 || cy < 0 || cx >= chunkCols || cy >= chunkRows) {
+			return -1;
+		}
+		return getInt(tablePosition + ((layer * chunkRows + cy) * chunkCols + cx) * 4);
+	}
+
+	public String getSkeleton() {
+		return skeleton;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getChunkWidth() {
+		return chunkWidth;
+	}
+
+	public int getChunkHeight() {
+		return chunkHeight;
+	}
+
+	public int getChunkCols() {
+		return chunkCols;
+	}
+
+	public int getChunkRows() {
+		return chunkRows;
+	}
+
+	public int getLayerCount() {
+		return layerCount;
+	}
+
+}
@@ -28,7 +28,9 @@ import loon.action.map.tmx.renderers.TMXIsometricMapRenderer;
 import loon.action.map.tmx.renderers.TMXMapRenderer;
 import loon.action.map.tmx.renderers.TMXOrthogonalMapRenderer;
 import loon.action.map.tmx.renderers.TMXStaggeredMapRenderer;
+import loon.action.map.tmx.tiles.TMXMapTile;
 import loon.canvas.LColor;
+import loon.utils.IntMap;
 import loon.utils.TArray;
 import loon.utils.xml.XMLDocument;
 import loon.utils.xml.XMLElement;
@@ -94,7 +96,31 @@ public class TMXMap {
 
 	private TMXProperties properties;
 
+	// 每个图层默认常驻的分块数量
+	public static final int DEFAULT_CHUNK_BUDGET = 64;
+
+	private TMXChunkData chunkData;
+
+	private int chunkBudget = DEFAULT_CHUNK_BUDGET;
+
+	private IntMap<TMXMapTile> mapTiles;
+
+	/**
+	 * 加载由Loon-Build预编译的二进制分块地图,图层格子数据只在使用时按分块读取
+	 * 
+	 * @param filePath
+	 * @param tilesLocation
+	 * @return
+	 */
+	public static TMXMap loadChunked(String filePath, String tilesLocation) {
+		return new TMXMap(TMXChunkData.load(filePath), filePath, tilesLocation);
+	}
+
 	public TMXMap(String filePath, String tilesLocation) {
+		this(null, filePath, tilesLocation);
+	}
+
+	public TMXMap(TMXChunkData data, String filePath, String tilesLocation) {
 		version = 1.0f;
 
 		layers = new TArray<TMXMapLayer>();
@@ -115,7 +141,9 @@ public class TMXMap {
 		this.filePath = filePath;
 		this.tilesLocation = tilesLocation;
 
-		XMLDocument doc = XMLParser.parse(filePath);
+		this.chunkData = data;
+
+		XMLDocument doc = data == null ? XMLParser.parse(filePath) : XMLParser.loadText(data.getSkeleton());
 		XMLElement docElement = doc.getRoot();
 
 		if (!docElement.getName().equals("map")) {
@@ -281,6 +309,58 @@ public class TMXMap {
 		return properties;
 	}
 
+	/**
+	 * 返回gid对应的共享TMXMapTile(分块地图的图层不再为每个格子保存对象)
+	 * 
+	 * @param gid
+	 * @return
+	 */
+	public TMXMapTile getMapTile(int gid) {
+		if (mapTiles == null) {
+			mapTiles = new IntMap<TMXMapTile>();
+		}
+		TMXMapTile tile = mapTiles.get(gid);
+		if (tile == null) {
+			int tileSetIndex = findTileSetIndex(gid);
+			if (tileSetIndex != -1) {
+				tile = new TMXMapTile(gid, getTileset(tileSetIndex).getFirstGID(), tileSetIndex);
+			} else {
+				tile = new TMXMapTile(gid, 0, -1);
+			}
+			mapTiles.put(gid, tile);
+		}
+		return tile;
+	}
+
+	public boolean isChunked() {
+		return chunkData != null;
+	}
+
+	public TMXChunkData getChunkData() {
+		return chunkData;
+	}
+
+	/**
+	 * 设定每个分块图层最多常驻内存的分块数量
+	 * 
+	 * @param budget
+	 * @return
+	 */
+	public TMXMap setChunkBudget(int budget) {
+		this.chunkBudget = budget;
+		for (int i = 0; i < tileLayers.size; i++) {
+			TMXTileChunks chunks = tileLayers.get(i).getChunks();
+			if (chunks != null) {
+				chunks.setBudget(budget);
+			}
+		}
+		return this;
+	}
+
+	public int getChunkBudget() {
+		return chunkBudget;
+	}
+
 	private void parse(XMLElement element, String tilesLocation) {
 
 		version = element.getDoubleAttribute("version", 0);
@@ -366,7 +446,11 @@ public class TMXMap {
 
 			case "layer":
 				TMXTileLayer tileLayer = new TMXTileLayer(this);
-				tileLayer.parse(node);
+				if (chunkData != null) {
+					tileLayer.parse(node, new TMXTileChunks(chunkData, tileLayers.size, chunkBudget));
+				} else {
+					tileLayer.parse(node);
+				}
 				tileLayers.add(tileLayer);
 				break;
 
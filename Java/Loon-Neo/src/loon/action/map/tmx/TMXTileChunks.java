@@ -0,0 +1,171 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.action.map.tmx;
+
+import loon.utils.IntArray;
+
+/**
+ * 单个图层的分块gid缓存,按需从TMXChunkData读取分块,常驻分块超过预算时淘汰最久未使用的分块.
+ * 
+ * 被修改过的分块会一直常驻,不参与淘汰.
+ */
+public class TMXTileChunks {
+
+	private final static int[] EMPTY = new int[0];
+
+	private final TMXChunkData data;
+
+	private final int layer;
+
+	private final int chunkWidth, chunkHeight, chunkCols;
+
+	private final int[][] resident;
+
+	private final long[] lastUse;
+
+	private final boolean[] pinned;
+
+	private final IntArray loaded = new IntArray();
+
+	private int budget;
+
+	private long clock;
+
+	private int loads, evictions;
+
+	public TMXTileChunks(TMXChunkData data, int layer, int budget) {
+		this.data = data;
+		this.layer = layer;
+		this.chunkWidth = data.getChunkWidth();
+		this.chunkHeight = data.getChunkHeight();
+		this.chunkCols = data.getChunkCols();
+		final int size = chunkCols * data.getChunkRows();
+		this.resident = new int[size][];
+		this.lastUse = new long[size];
+		this.pinned = new boolean[size];
+		this.budget = budget < 1 ? 1 : budget;
+	}
+
+	private int[] chunk(int index, int cx, int cy) {
+		int[] tiles = resident[index];
+		if (tiles == null) {
+			tiles = new int[chunkWidth * chunkHeight];
+			if (data.readChunk(layer, cx, cy, tiles)) {
+				loaded.add(index);
+				evict(index);
+			} else {
+				// 空分块不占用预算
+				tiles = EMPTY;
+			}
+			resident[index] = tiles;
+			loads++;
+		}
+		lastUse[index] = ++clock;
+		return tiles;
+	}
+
+	private void evict(int keep) {
+		while (loaded.length > budget) {
+			int oldest = -1;
+			long oldestUse = Long.MAX_VALUE;
+			final int[] items = loaded.items;
+			for (int i = 0; i < loaded.length; i++) {
+				final int index = items[i];
+				if (index != keep && !pinned[index] && lastUse[index] < oldestUse) {
+					oldestUse = lastUse[index];
+					oldest = i;
+				}
+			}
+			if (oldest == -1) {
+				return;
+			}
+			resident[items[oldest]] = null;
+			loaded.removeIndex(oldest);
+			evictions++;
+		}
+	}
+
+	public int getGID(int x, int y) {
+		final int cx = x / chunkWidth;
+		final int cy = y / chunkHeight;
+		final int[] tiles = chunk(cx + cy * chunkCols, cx, cy);
+		if (tiles.length == 0) {
+			return 0;
+		}
+		return tiles[(y - cy * chunkHeight) * chunkWidth + (x - cx * chunkWidth)];
+	}
+
+	public void setGID(int x, int y, int gid) {
+		final int cx = x / chunkWidth;
+		final int cy = y / chunkHeight;
+		final int index = cx + cy * chunkCols;
+		int[] tiles = chunk(index, cx, cy);
+		if (tiles.length == 0) {
+			if (gid == 0) {
+				return;
+			}
+			tiles = resident[index] = new int[chunkWidth * chunkHeight];
+			loaded.add(index);
+		}
+		pinned[index] = true;
+		tiles[(y - cy * chunkHeight) * chunkWidth + (x - cx * chunkWidth)] = gid;
+	}
+
+	public void setBudget(int budget) {
+		this.budget = budget < 1 ? 1 : budget;
+		evict(-1);
+	}
+
+	public int getBudget() {
+		return budget;
+	}
+
+	/**
+	 * 当前常驻内存的非空分块数量
+	 * 
+	 * @return
+	 */
+	public int getResidentCount() {
+		return loaded.length;
+	}
+
+	public int getLoadCount() {
+		return loads;
+	}
+
+	public int getEvictionCount() {
+		return evictions;
+	}
+
+	public void clear() {
+		for (int i = 0; i < resident.length; i++) {
+			if (!pinned[i]) {
+				resident[i] = null;
+			}
+		}
+		for (int i = loaded.length - 1; i >= 0; i--) {
+			if (!pinned[loaded.items[i]]) {
+				loaded.removeIndex(i);
+			}
+		}
+	}
+
+}
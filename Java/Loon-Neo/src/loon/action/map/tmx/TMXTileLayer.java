@@ -48,6 +48,9 @@ public class TMXTileLayer extends TMXMapLayer {
 
 	private TMXMapTile[] tileMap;
 
+	// 预编译分块文件的图层数据,为null时使用tileMap
+	private TMXTileChunks chunks;
+
 	private Encoding encoding;
 	private Compression compression;
 
@@ -59,6 +62,16 @@ public class TMXTileLayer extends TMXMapLayer {
 	}
 
 	public void parse(XMLElement element) {
+		parse(element, null);
+	}
+
+	/**
+	 * 解析图层,chunks不为null时格子数据不在此解析,而是从预编译的分块文件中按需读取
+	 * 
+	 * @param element
+	 * @param chunks
+	 */
+	public void parse(XMLElement element, TMXTileChunks chunks) {
 
 		name = element.getAttribute("name", LSystem.EMPTY);
 
@@ -72,6 +85,11 @@ public class TMXTileLayer extends TMXMapLayer {
 		if (nodes != null)
 			properties.parse(nodes);
 
+		this.chunks = chunks;
+		if (chunks != null) {
+			return;
+		}
+
 		tileMap = new TMXMapTile[width * height];
 
 		XMLElement dataElement = element.getChildrenByName("data");
@@ -203,6 +221,10 @@ public class TMXTileLayer extends TMXMapLayer {
 	}
 
 	public void setTileGID(int x, int y, int gid) {
+		if (chunks != null) {
+			chunks.setGID(x, y, gid);
+			return;
+		}
 		int tileSetIndex = map.findTileSetIndex(gid);
 		if (tileSetIndex != -1) {
 			TMXTileSet tileSet = map.getTileset(tileSetIndex);
@@ -213,33 +235,49 @@ public class TMXTileLayer extends TMXMapLayer {
 	}
 
 	public int getTileID(int x, int y) {
-		return tileMap[y * width + x].getID();
+		return getTile(x, y).getID();
 	}
 
 	public int getTileGID(int x, int y) {
-		return tileMap[y * width + x].getGID();
+		return getTile(x, y).getGID();
 	}
 
 	public int getTileTileSetIndex(int x, int y) {
-		return tileMap[y * width + x].getTileSetID();
+		return getTile(x, y).getTileSetID();
 	}
 
 	public boolean isTileFlippedHorizontally(int x, int y) {
-		return tileMap[y * width + x].isFlippedHorizontally();
+		return getTile(x, y).isFlippedHorizontally();
 	}
 
 	public boolean isTileFlippedVertically(int x, int y) {
-		return tileMap[y * width + x].isFlippedVertically();
+		return getTile(x, y).isFlippedVertically();
 	}
 
 	public boolean isTileFlippedDiagonally(int x, int y) {
-		return tileMap[y * width + x].isFlippedDiagonally();
+		return getTile(x, y).isFlippedDiagonally();
 	}
 
 	public TMXMapTile getTile(int x, int y) {
+		if (chunks != null) {
+			return map.getMapTile(chunks.getGID(x, y));
+		}
 		return tileMap[y * width + x];
 	}
 
+	/**
+	 * 图层数据是否来自预编译的分块文件
+	 * 
+	 * @return
+	 */
+	public boolean isChunked() {
+		return chunks != null;
+	}
+
+	public TMXTileChunks getChunks() {
+		return chunks;
+	}
+
 	public Encoding getEncoding() {
 		return encoding;
 	}
@@ -264,15 +302,16 @@ public class TMXTileLayer extends TMXMapLayer {
 		int[][] tmp = new int[width][height];
 		for (int x = 0; x < width; x++) {
 			for (int y = 0; y < height; y++) {
+				final TMXMapTile tile = getTile(x, y);
 				switch (mode) {
 				case 0:
-					tmp[x][y] = tileMap[y * width + x].getGID();
+					tmp[x][y] = tile.getGID();
 					break;
 				case 1:
-					tmp[x][y] = tileMap[y * width + x].getTileSetID();
+					tmp[x][y] = tile.getTileSetID();
 					break;
 				default:
-					tmp[x][y] = tileMap[y * width + x].getID();
+					tmp[x][y] = tile.getID();
 					break;
 				}
 			}
@@ -0,0 +1,393 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.action.sprite;
+
+import java.util.Comparator;
+
+import loon.LRelease;
+import loon.geom.RectBox;
+import loon.utils.MathUtils;
+import loon.utils.ObjectMap;
+import loon.utils.SortUtils;
+import loon.utils.TArray;
+
+/**
+ * 精灵用的空间索引(散列均匀网格),以固定大小的格子划分无限大的平面,每个精灵登记在其绘制区域与碰撞盒的外接矩形覆盖的格子中.
+ *
+ * 精灵移动时只有所在格子范围发生变化才会重新登记,视图裁剪与点/矩形查询只需检查查询区域内的格子,
+ * 查询结果填充到调用者提供的容器中,稳定运行时不产生新对象.遍历查询结果时(比如在精灵的绘制回调中)可以再次查询,
+ * 内层查询不会影响外层已经取得的结果.
+ */
+public class SpriteSpatialIndex implements LRelease {
+
+	public final static int DEFAULT_CELL_SIZE = 128;
+
+	private final static int DEFAULT_BUCKETS = 4096;
+
+	// 覆盖格子数超过此值的精灵不再登记到格子中,每次查询时直接检查
+	private final static int MAX_CELL_SPAN = 64;
+
+	private final static Comparator<Proxy> ORDER_COMPARATOR = new Comparator<Proxy>() {
+
+		@Override
+		public int compare(Proxy o1, Proxy o2) {
+			return o1.order - o2.order;
+		}
+	};
+
+	static class Proxy {
+
+		ISprite sprite;
+
+		int minCellX, minCellY, maxCellX, maxCellY;
+
+		int order;
+
+		int mark;
+
+		boolean large;
+
+		boolean registered;
+	}
+
+	private final ObjectMap<ISprite, Proxy> proxies = new ObjectMap<ISprite, Proxy>();
+
+	private final TArray<Proxy> freeProxies = new TArray<Proxy>();
+
+	private final TArray<Proxy> largeProxies = new TArray<Proxy>();
+
+	private final int cellSize;
+
+	private final float invCellSize;
+
+	private final int bucketMask;
+
+	private final Proxy[][] buckets;
+
+	private final int[] bucketSizes;
+
+	private Proxy[] hits = new Proxy[32];
+
+	private int hitCount;
+
+	private int queryMark;
+
+	private int moveCount;
+
+	public SpriteSpatialIndex() {
+		this(DEFAULT_CELL_SIZE);
+	}
+
+	public SpriteSpatialIndex(int cellSize) {
+		this(cellSize, DEFAULT_BUCKETS);
+	}
+
+	public SpriteSpatialIndex(int cellSize, int bucketCount) {
+		this.cellSize = MathUtils.max(1, cellSize);
+		this.invCellSize = 1f / this.cellSize;
+		int count = 1;
+		for (; count < bucketCount;) {
+			count <<= 1;
+		}
+		this.bucketMask = count - 1;
+		this.buckets = new Proxy[count][];
+		this.bucketSizes = new int[count];
+	}
+
+	/**
+	 * 添加精灵到索引中,已经存在时刷新其位置
+	 *
+	 * @param sprite
+	 * @param order
+	 *            精灵在Sprites中的排列顺序
+	 */
+	public void add(ISprite sprite, int order) {
+		if (sprite == null) {
+			return;
+		}
+		Proxy proxy = proxies.get(sprite);
+		if (proxy == null) {
+			proxy = freeProxies.size > 0 ? freeProxies.pop() : new Proxy();
+			proxy.sprite = sprite;
+			proxy.mark = 0;
+			proxies.put(sprite, proxy);
+		}
+		proxy.order = order;
+		refresh(proxy);
+	}
+
+	/**
+	 * 从索引中删除精灵
+	 *
+	 * @param sprite
+	 */
+	public void remove(ISprite sprite) {
+		if (sprite == null) {
+			return;
+		}
+		Proxy proxy = proxies.remove(sprite);
+		if (proxy != null) {
+			unregister(proxy);
+			proxy.sprite = null;
+			freeProxies.add(proxy);
+		}
+	}
+
+	public boolean contains(ISprite sprite) {
+		return sprite != null && proxies.get(sprite) != null;
+	}
+
+	/**
+	 * 刷新精灵的位置与排列顺序,所在格子范围不变时不做任何登记操作
+	 *
+	 * @param sprite
+	 * @param order
+	 */
+	public void update(ISprite sprite, int order) {
+		add(sprite, order);
+	}
+
+	private void refresh(Proxy proxy) {
+		final ISprite sprite = proxy.sprite;
+		// 登记绘制区域与碰撞盒的并集,保证视图裁剪与按碰撞盒过滤的查询都不会漏掉精灵
+		float minX = sprite.getX();
+		float minY = sprite.getY();
+		float maxX = minX + MathUtils.max(0f, sprite.getWidth());
+		float maxY = minY + MathUtils.max(0f, sprite.getHeight());
+		final RectBox box = sprite.getCollisionBox();
+		if (box != null) {
+			minX = MathUtils.min(minX, box.getMinX());
+			minY = MathUtils.min(minY, box.getMinY());
+			maxX = MathUtils.max(maxX, box.getMaxX());
+			maxY = MathUtils.max(maxY, box.getMaxY());
+		}
+		final int minCellX = MathUtils.floor(minX * invCellSize);
+		final int minCellY = MathUtils.floor(minY * invCellSize);
+		final int maxCellX = MathUtils.floor(maxX * invCellSize);
+		final int maxCellY = MathUtils.floor(maxY * invCellSize);
+		if (proxy.registered && proxy.minCellX == minCellX && proxy.minCellY == minCellY
+				&& proxy.maxCellX == maxCellX && proxy.maxCellY == maxCellY) {
+			return;
+		}
+		unregister(proxy);
+		proxy.minCellX = minCellX;
+		proxy.minCellY = minCellY;
+		proxy.maxCellX = maxCellX;
+		proxy.maxCellY = maxCellY;
+		register(proxy);
+		moveCount++;
+	}
+
+	private void register(Proxy proxy) {
+		proxy.registered = true;
+		proxy.large = (proxy.maxCellX - proxy.minCellX + 1) * (proxy.maxCellY - proxy.minCellY + 1) > MAX_CELL_SPAN;
+		if (proxy.large) {
+			largeProxies.add(proxy);
+			return;
+		}
+		for (int cy = proxy.minCellY; cy <= proxy.maxCellY; cy++) {
+			for (int cx = proxy.minCellX; cx <= proxy.maxCellX; cx++) {
+				final int bucket = hash(cx, cy);
+				Proxy[] items = buckets[bucket];
+				final int size = bucketSizes[bucket];
+				if (items == null) {
+					items = buckets[bucket] = new Proxy[4];
+				} else if (size == items.length) {
+					Proxy[] newItems = new Proxy[size << 1];
+					System.arraycopy(items, 0, newItems, 0, size);
+					items = buckets[bucket] = newItems;
+				}
+				items[size] = proxy;
+				bucketSizes[bucket] = size + 1;
+			}
+		}
+	}
+
+	private void unregister(Proxy proxy) {
+		if (!proxy.registered) {
+			return;
+		}
+		proxy.registered = false;
+		if (proxy.large) {
+			largeProxies.removeValue(proxy, true);
+			return;
+		}
+		for (int cy = proxy.minCellY; cy <= proxy.maxCellY; cy++) {
+			for (int cx = proxy.minCellX; cx <= proxy.maxCellX; cx++) {
+				final int bucket = hash(cx, cy);
+				final Proxy[] items = buckets[bucket];
+				final int size = bucketSizes[bucket];
+				// 不同的格子可能散列到同一个桶中,只删除一次
+				for (int i = 0; i < size; i++) {
+					if (items[i] == proxy) {
+						items[i] = items[size - 1];
+						items[size - 1] = null;
+						bucketSizes[bucket] = size - 1;
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	private int hash(int cx, int cy) {
+		return ((cx * 73856093) ^ (cy * 19349663)) & bucketMask;
+	}
+
+	/**
+	 * 收集外接矩形所在格子与指定区域重叠的精灵(仅为候选,调用者需自行精确判断),按排列顺序追加到result中
+	 *
+	 * @param x
+	 * @param y
+	 * @param w
+	 * @param h
+	 * @param result
+	 * @return
+	 */
+	public TArray<ISprite> collect(float x, float y, float w, float h, TArray<ISprite> result) {
+		hitCount = 0;
+		if (++queryMark == 0) {
+			queryMark = 1;
+		}
+		final int mark = queryMark;
+		final int minCellX = MathUtils.floor(x * invCellSize);
+		final int minCellY = MathUtils.floor(y * invCellSize);
+		final int maxCellX = MathUtils.floor((x + MathUtils.max(0f, w)) * invCellSize);
+		final int maxCellY = MathUtils.floor((y + MathUtils.max(0f, h)) * invCellSize);
+		final long cells = (long) (maxCellX - minCellX + 1) * (maxCellY - minCellY + 1);
+		if (cells > bucketSizes.length) {
+			// 查询区域过大时直接遍历全部精灵
+			for (Proxy proxy : proxies.values()) {
+				addHit(proxy, mark);
+			}
+		} else {
+			for (int cy = minCellY; cy <= maxCellY; cy++) {
+				for (int cx = minCellX; cx <= maxCellX; cx++) {
+					final int bucket = hash(cx, cy);
+					final Proxy[] items = buckets[bucket];
+					final int size = bucketSizes[bucket];
+					for (int i = 0; i < size; i++) {
+						final Proxy proxy = items[i];
+						if (proxy.mark != mark && proxy.maxCellX >= minCellX && proxy.minCellX <= maxCellX
+								&& proxy.maxCellY >= minCellY && proxy.minCellY <= maxCellY) {
+							addHit(proxy, mark);
+						}
+					}
+				}
+			}
+			for (int i = 0; i < largeProxies.size; i++) {
+				addHit(largeProxies.get(i), mark);
+			}
+		}
+		if (hitCount > 1) {
+			SortUtils.quickSort(hits, 0, hitCount - 1, ORDER_COMPARATOR);
+		}
+		// hits只在本函数内使用,复制到调用者的容器后即可供下一次(包括嵌套的)查询使用
+		for (int i = 0; i < hitCount; i++) {
+			result.add(hits[i].sprite);
+			hits[i] = null;
+		}
+		hitCount = 0;
+		return result;
+	}
+
+	private void addHit(Proxy proxy, int mark) {
+		if (proxy.mark == mark) {
+			return;
+		}
+		proxy.mark = mark;
+		if (hitCount == hits.length) {
+			Proxy[] newHits = new Proxy[hitCount << 1];
+			System.arraycopy(hits, 0, newHits, 0, hitCount);
+			hits = newHits;
+		}
+		hits[hitCount++] = proxy;
+	}
+
+	/**
+	 * 查询碰撞盒与指定区域相交的精灵,结果按排列顺序追加到result中
+	 *
+	 * @param x
+	 * @param y
+	 * @param w
+	 * @param h
+	 * @param result
+	 * @return
+	 */
+	public TArray<ISprite> query(float x, float y, float w, float h, TArray<ISprite> result) {
+		final int start = result.size;
+		collect(x, y, w, h, result);
+		int size = start;
+		for (int i = start; i < result.size; i++) {
+			final ISprite sprite = result.get(i);
+			final RectBox box = sprite.getCollisionBox();
+			if (box != null && box.getMinX() <= x + w && box.getMaxX() >= x && box.getMinY() <= y + h
+					&& box.getMaxY() >= y) {
+				result.set(size++, sprite);
+			}
+		}
+		result.truncate(size);
+		return result;
+	}
+
+	public int getCellSize() {
+		return cellSize;
+	}
+
+	public int size() {
+		return proxies.size;
+	}
+
+	/**
+	 * 精灵重新登记格子的累计次数
+	 *
+	 * @return
+	 */
+	public int getMoveCount() {
+		return moveCount;
+	}
+
+	public void clear() {
+		for (Proxy proxy : proxies.values()) {
+			proxy.sprite = null;
+			proxy.registered = false;
+			freeProxies.add(proxy);
+		}
+		proxies.clear();
+		largeProxies.clear();
+		for (int i = 0; i < buckets.length; i++) {
+			final Proxy[] items = buckets[i];
+			if (items != null) {
+				for (int j = 0; j < bucketSizes[i]; j++) {
+					items[j] = null;
+				}
+			}
+			bucketSizes[i] = 0;
+		}
+	}
+
+	@Override
+	public void close() {
+		clear();
+		freeProxies.clear();
+	}
+
+}
@@ -84,6 +84,15 @@ public class Sprites implements IArray, Visible, LRelease {
 
 	private final String _sprites_name;
 
+	private SpriteSpatialIndex _spatialIndex;
+
+	private boolean _spatialDirty;
+
+	// 空间索引查询结果的缓存,按嵌套深度分配,绘制回调中再次查询时不会覆盖外层的结果
+	private final TArray<TArray<ISprite>> _queryBuffers = new TArray<TArray<ISprite>>();
+
+	private int _queryDepth;
+
 	public Sprites(Screen screen, int w, int h) {
 		this(null, screen, w, h);
 	}
@@ -197,6 +206,91 @@ public class Sprites implements IArray, Visible, LRelease {
 			return;
 		}
 		spriteSorter.sort(this._sprites);
+		this._spatialDirty = true;
+	}
+
+	/**
+	 * 启用或关闭空间索引,启用后视图裁剪与位置查询只检查查询区域附近的精灵,适合大量精灵(弹幕,粒子等)同屏时使用.
+	 * 
+	 * 精灵位置在每帧update时同步到索引中,在update之外移动精灵后需要立即查询的,请调用refreshSpatialIndex.
+	 * 
+	 * @param spatial
+	 * @return
+	 */
+	public Sprites setSpatialIndex(boolean spatial) {
+		return setSpatialIndex(spatial ? SpriteSpatialIndex.DEFAULT_CELL_SIZE : 0);
+	}
+
+	/**
+	 * 以指定格子大小启用空间索引,格子大小不大于0时关闭空间索引
+	 * 
+	 * @param cellSize
+	 * @return
+	 */
+	public Sprites setSpatialIndex(int cellSize) {
+		if (_closed) {
+			return this;
+		}
+		if (_spatialIndex != null) {
+			_spatialIndex.close();
+			_spatialIndex = null;
+		}
+		if (cellSize > 0) {
+			_spatialIndex = new SpriteSpatialIndex(cellSize);
+			_spatialDirty = true;
+		}
+		return this;
+	}
+
+	public boolean isSpatialIndex() {
+		return _spatialIndex != null;
+	}
+
+	public SpriteSpatialIndex getSpatialIndex() {
+		return _spatialIndex;
+	}
+
+	/**
+	 * 使空间索引与当前全部精灵的位置以及排列顺序保持一致
+	 * 
+	 */
+	public void refreshSpatialIndex() {
+		if (_spatialIndex == null) {
+			return;
+		}
+		for (int i = 0; i < _size; i++) {
+			ISprite spr = _sprites[i];
+			if (spr != null) {
+				_spatialIndex.update(spr, i);
+			}
+		}
+		_spatialDirty = false;
+	}
+
+	private SpriteSpatialIndex spatialIndex() {
+		if (_spatialIndex != null && _spatialDirty) {
+			refreshSpatialIndex();
+		}
+		return _spatialIndex;
+	}
+
+	private TArray<ISprite> obtainQueryBuffer() {
+		if (_queryDepth == _queryBuffers.size) {
+			_queryBuffers.add(new TArray<ISprite>());
+		}
+		return _queryBuffers.get(_queryDepth++);
+	}
+
+	private void freeQueryBuffer(TArray<ISprite> buffer) {
+		buffer.clear();
+		_queryDepth--;
+	}
+
+	private void removeSpatial(ISprite sprite) {
+		if (_spatialIndex != null) {
+			_spatialIndex.remove(sprite);
+			_spatialDirty = true;
+		}
 	}
 
 	/**
@@ -236,9 +330,28 @@ public class Sprites implements IArray, Visible, LRelease {
 		if (_closed) {
 			return null;
 		}
+		final SpriteSpatialIndex index = spatialIndex();
+		if (index != null) {
+			final TArray<ISprite> hits = index.collect(x, y, 0, 0, obtainQueryBuffer());
+			try {
+				for (int i = hits.size - 1; i >= 0; i--) {
+					ISprite child = hits.get(i);
+					RectBox rect = child.getCollisionBox();
+					if (rect != null && rect.contains(x, y)) {
+						return child;
+					}
+				}
+			} finally {
+				freeQueryBuffer(hits);
+			}
+			return null;
+		}
 		ISprite[] snapshot = _sprites;
 		for (int i = snapshot.length - 1; i >= 0; i--) {
 			ISprite child = snapshot[i];
+			if (child == null) {
+				continue;
+			}
 			RectBox rect = child.getCollisionBox();
 			if (rect != null && rect.contains(x, y)) {
 				return child;
@@ -689,22 +802,50 @@ public class Sprites implements IArray, Visible, LRelease {
 	 * @return
 	 */
 	public TArray<ISprite> contains(float x, float y, float w, float h) {
-		TArray<ISprite> sprites = new TArray<ISprite>();
+		return contains(x, y, w, h, new TArray<ISprite>());
+	}
+
+	/**
+	 * 返回指定位置内的所有精灵,结果追加到result中
+	 * 
+	 * @param x
+	 * @param y
+	 * @param w
+	 * @param h
+	 * @param result
+	 * @return
+	 */
+	public TArray<ISprite> contains(float x, float y, float w, float h, TArray<ISprite> result) {
 		if (_closed) {
-			return sprites;
+			return result;
 		}
 		if (_sprites == null) {
-			return sprites;
+			return result;
+		}
+		final SpriteSpatialIndex index = spatialIndex();
+		if (index != null) {
+			final TArray<ISprite> hits = index.collect(x, y, w, h, obtainQueryBuffer());
+			try {
+				for (int i = 0; i < hits.size; i++) {
+					ISprite sp = hits.get(i);
+					if (sp.inContains(x, y, w, h)) {
+						result.add(sp);
+					}
+				}
+			} finally {
+				freeQueryBuffer(hits);
+			}
+			return result;
 		}
 		for (int i = 0; i < _size; i++) {
 			ISprite sp = _sprites[i];
 			if (sp != null) {
 				if (sp.inContains(x, y, w, h)) {
-					sprites.add(sp);
+					result.add(sp);
 				}
 			}
 		}
-		return sprites;
+		return result;
 	}
 
 	/**
@@ -741,22 +882,50 @@ public class Sprites implements IArray, Visible, LRelease {
 	 * @return
 	 */
 	public TArray<ISprite> intersects(float x, float y, float w, float h) {
-		TArray<ISprite> sprites = new TArray<ISprite>();
+		return intersects(x, y, w, h, new TArray<ISprite>());
+	}
+
+	/**
+	 * 返回与指定位置相交的所有精灵,结果追加到result中
+	 * 
+	 * @param x
+	 * @param y
+	 * @param w
+	 * @param h
+	 * @param result
+	 * @return
+	 */
+	public TArray<ISprite> intersects(float x, float y, float w, float h, TArray<ISprite> result) {
 		if (_closed) {
-			return sprites;
+			return result;
 		}
 		if (_sprites == null) {
-			return sprites;
+			return result;
+		}
+		final SpriteSpatialIndex index = spatialIndex();
+		if (index != null) {
+			final TArray<ISprite> hits = index.collect(x, y, w, h, obtainQueryBuffer());
+			try {
+				for (int i = 0; i < hits.size; i++) {
+					ISprite sp = hits.get(i);
+					if (sp.getCollisionBox().intersects(x, y, w, h)) {
+						result.add(sp);
+					}
+				}
+			} finally {
+				freeQueryBuffer(hits);
+			}
+			return result;
 		}
 		for (int i = 0; i < _size; i++) {
 			ISprite sp = _sprites[i];
 			if (sp != null) {
 				if (sp.getCollisionBox().intersects(x, y, w, h)) {
-					sprites.add(sp);
+					result.add(sp);
 				}
 			}
 		}
-		return sprites;
+		return result;
 	}
 
 	/**
@@ -795,6 +964,7 @@ public class Sprites implements IArray, Visible, LRelease {
 		}
 		ISprite removed = this._sprites[index];
 		if (removed != null) {
+			removeSpatial(removed);
 			removed.setState(State.REMOVED);
 			// 删除精灵同时，删除缓动动画
 			if (removed instanceof ActionBind) {
@@ -844,6 +1014,7 @@ public class Sprites implements IArray, Visible, LRelease {
 		for (int i = _size; i > 0; i--) {
 			ISprite spr = _sprites[i - 1];
 			if ((sprite == spr) || (sprite.equals(spr))) {
+				removeSpatial(spr);
 				spr.setState(State.REMOVED);
 				// 删除精灵同时，删除缓动动画
 				if (spr instanceof ActionBind) {
@@ -884,6 +1055,7 @@ public class Sprites implements IArray, Visible, LRelease {
 		for (int i = _size; i > 0; i--) {
 			ISprite spr = _sprites[i - 1];
 			if ((name.equals(spr.getName()))) {
+				removeSpatial(spr);
 				spr.setState(State.REMOVED);
 				// 删除精灵同时，删除缓动动画
 				if (spr instanceof ActionBind) {
@@ -918,6 +1090,7 @@ public class Sprites implements IArray, Visible, LRelease {
 			for (int i = startIndex; i < endIndex && i < _sprites.length; i++) {
 				ISprite spr = _sprites[i];
 				if (spr != null) {
+					removeSpatial(spr);
 					spr.setState(State.REMOVED);
 					// 删除精灵同时，删除缓动动画
 					if (spr instanceof ActionBind) {
@@ -983,6 +1156,9 @@ public class Sprites implements IArray, Visible, LRelease {
 			_sprites[i] = null;
 		}
 		_size = 0;
+		if (_spatialIndex != null) {
+			_spatialIndex.clear();
+		}
 	}
 
 	/**
@@ -1007,6 +1183,10 @@ public class Sprites implements IArray, Visible, LRelease {
 					LSystem.error("Sprites update() exception", cause);
 				}
 			}
+			// 增删精灵后排列顺序已改变,留待查询前整体刷新
+			if (_spatialIndex != null && !_spatialDirty && i < _size) {
+				_spatialIndex.update(_sprites[i], i);
+			}
 		}
 	}
 
@@ -1024,17 +1204,28 @@ public class Sprites implements IArray, Visible, LRelease {
 		float spriteWidth;
 		float spriteHeight;
 
-		for (int i = 0; i < this._size; i++) {
-			ISprite spr = this._sprites[i];
-			if (spr != null && spr.isVisible()) {
-				spriteX = minX + spr.getX();
-				spriteY = minY + spr.getY();
-				spriteWidth = spr.getWidth();
-				spriteHeight = spr.getHeight();
-				if (spriteX + spriteWidth < minX || spriteX > maxX || spriteY + spriteHeight < minY || spriteY > maxY) {
-					continue;
+		final SpriteSpatialIndex index = spatialIndex();
+		final TArray<ISprite> hits = (index == null) ? null
+				: index.collect(-1f, -1f, maxX - minX + 2f, maxY - minY + 2f, obtainQueryBuffer());
+		final int count = (hits == null) ? this._size : hits.size;
+		try {
+			for (int i = 0; i < count; i++) {
+				ISprite spr = (hits == null) ? this._sprites[i] : hits.get(i);
+				if (spr != null && spr.isVisible()) {
+					spriteX = minX + spr.getX();
+					spriteY = minY + spr.getY();
+					spriteWidth = spr.getWidth();
+					spriteHeight = spr.getHeight();
+					if (spriteX + spriteWidth < minX || spriteX > maxX || spriteY + spriteHeight < minY
+							|| spriteY > maxY) {
+						continue;
+					}
+					spr.createUI(g);
 				}
-				spr.createUI(g);
+			}
+		} finally {
+			if (hits != null) {
+				freeQueryBuffer(hits);
 			}
 		}
 	}
@@ -1106,17 +1297,27 @@ public class Sprites implements IArray, Visible, LRelease {
 		if (offset) {
 			g.translate(minX, minY);
 		}
-		for (int i = 0; i < this._size; i++) {
-			ISprite spr = this._sprites[i];
-			if (spr != null && spr.isVisible()) {
-				int layerX = spr.x();
-				int layerY = spr.y();
-				float layerWidth = spr.getWidth() + 1;
-				float layerHeight = spr.getHeight() + 1;
-				if (layerX + layerWidth < minX || layerX > maxX || layerY + layerHeight < minY || layerY > maxY) {
-					continue;
+		final SpriteSpatialIndex index = spatialIndex();
+		final TArray<ISprite> hits = (index == null) ? null
+				: index.collect(minX - 2f, minY - 2f, maxX - minX + 4f, maxY - minY + 4f, obtainQueryBuffer());
+		final int count = (hits == null) ? this._size : hits.size;
+		try {
+			for (int i = 0; i < count; i++) {
+				ISprite spr = (hits == null) ? this._sprites[i] : hits.get(i);
+				if (spr != null && spr.isVisible()) {
+					int layerX = spr.x();
+					int layerY = spr.y();
+					float layerWidth = spr.getWidth() + 1;
+					float layerHeight = spr.getHeight() + 1;
+					if (layerX + layerWidth < minX || layerX > maxX || layerY + layerHeight < minY || layerY > maxY) {
+						continue;
+					}
+					spr.createUI(g);
 				}
-				spr.createUI(g);
+			}
+		} finally {
+			if (hits != null) {
+				freeQueryBuffer(hits);
 			}
 		}
 		if (offset) {
@@ -1443,6 +1644,10 @@ public class Sprites implements IArray, Visible, LRelease {
 			}
 		}
 		clear();
+		if (_spatialIndex != null) {
+			_spatialIndex.close();
+			_spatialIndex = null;
+		}
 		this._sprites = null;
 		this._closed = true;
 		LSystem.popSpritesPool(this);
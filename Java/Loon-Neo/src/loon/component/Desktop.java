@@ -68,6 +68,13 @@ public class Desktop implements Visible, LRelease {
 
 	private final String desktop_name;
 
+	// 上次查找触点的结果,布局没有改变且坐标相同时(比如鼠标悬停)直接使用
+	private LComponent findCache;
+
+	private LContainer findCachePanel;
+
+	private int findCacheX, findCacheY, findCacheVersion;
+
 	/**
 	 * 空桌面控制
 	 */
@@ -392,6 +399,7 @@ public class Desktop implements Visible, LRelease {
 			if (component != null && component.intersects(x, y)) {
 				component.update(0);
 				component.processTouchPressed();
+				component.invalidate();
 			}
 		}
 		isClicked = true;
@@ -408,6 +416,7 @@ public class Desktop implements Visible, LRelease {
 				component.update(0);
 				component.processTouchReleased();
 				component.processTouchClicked();
+				component.invalidate();
 			}
 		}
 		isClicked = true;
@@ -485,6 +494,7 @@ public class Desktop implements Visible, LRelease {
 			if (this.input.getTouchDX() != 0 || this.input.getTouchDY() != 0 || SysTouch.getDX() != 0
 					|| SysTouch.getDY() != 0) {
 				this.hoverComponent.processTouchDragged();
+				this.hoverComponent.invalidate();
 				if (LSystem.isMobile() || LSystem.base().setting.emulateTouch) {
 					if (tooltip != null) {
 						this.tooltip.setToolTipComponent(hoverComponent);
@@ -522,6 +532,7 @@ public class Desktop implements Visible, LRelease {
 					if (SysTouch.getButton() != -1) {
 						comp.processTouchEntered();
 					}
+					comp.invalidate();
 				} else if (comp != this.hoverComponent && !this.hoverComponent._touchLocked) {
 					if (tooltip != null) {
 						this.tooltip.setToolTipComponent(comp);
@@ -530,6 +541,8 @@ public class Desktop implements Visible, LRelease {
 					if (SysTouch.getButton() != -1) {
 						comp.processTouchEntered();
 					}
+					this.hoverComponent.invalidate();
+					comp.invalidate();
 				}
 			} else {
 				// 如果没有对应的悬停提示数据
@@ -538,6 +551,7 @@ public class Desktop implements Visible, LRelease {
 				}
 				if (this.hoverComponent != null && !this.hoverComponent._touchLocked) {
 					this.hoverComponent.processTouchExited();
+					this.hoverComponent.invalidate();
 				}
 			}
 			this.hoverComponent = comp;
@@ -576,6 +590,7 @@ public class Desktop implements Visible, LRelease {
 			}
 			if (!isClicked && this.hoverComponent != null && !this.hoverComponent._touchLocked) {
 				this.hoverComponent.processTouchPressed();
+				this.hoverComponent.invalidate();
 			}
 			this.clickComponent[0] = this.hoverComponent;
 			if (this.hoverComponent != null && !this.hoverComponent._touchLocked && this.hoverComponent.isFocusable()) {
@@ -593,6 +608,9 @@ public class Desktop implements Visible, LRelease {
 						&& !this.hoverComponent._touchLocked) {
 					this.hoverComponent.processTouchClicked();
 				}
+				if (this.hoverComponent != null) {
+					this.hoverComponent.invalidate();
+				}
 			}
 		}
 		this.isClicked = false;
@@ -606,10 +624,12 @@ public class Desktop implements Visible, LRelease {
 		if (this.selectedComponent != null && !this.selectedComponent._keyLocked
 				&& this.input.getKeyPressed() != SysInput.NO_KEY) {
 			this.selectedComponent.keyPressed();
+			this.selectedComponent.invalidate();
 		}
 		if (this.selectedComponent != null && !this.selectedComponent._keyLocked
 				&& this.input.getKeyReleased() != SysInput.NO_KEY && this.selectedComponent != null) {
 			this.selectedComponent.processKeyReleased();
+			this.selectedComponent.invalidate();
 		}
 	}
 
@@ -626,7 +646,16 @@ public class Desktop implements Visible, LRelease {
 		}
 		// 返回子容器
 		LContainer panel = (this.modal == null) ? this.contentPane : ((LContainer) this.modal);
+		if (findCachePanel == panel && findCacheX == x && findCacheY == y
+				&& findCacheVersion == LContainer._hitVersion && (findCache == null || !findCache.isClosed())) {
+			return findCache;
+		}
 		LComponent comp = panel.findComponent(x, y);
+		findCache = comp;
+		findCachePanel = panel;
+		findCacheX = x;
+		findCacheY = y;
+		findCacheVersion = LContainer._hitVersion;
 		return comp;
 	}
 
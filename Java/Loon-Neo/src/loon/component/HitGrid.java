@@ -0,0 +1,160 @@
+/**
+ * Copyright 2008 - 2015 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.component;
+
+import loon.utils.MathUtils;
+
+/**
+ * LContainer查找触点下组件时使用的均匀网格,以子组件相对容器的屏幕坐标建立(与intersects的判断一致),所以容器或上级容器移动时不需要重建.
+ * 每个格子按子组件下标升序保存可能命中的子组件,查询只需检查触点所在格子中的子组件.
+ */
+final class HitGrid {
+
+	/**
+	 * 子组件少于此数量时直接遍历
+	 */
+	static final int MIN_CHILDS = 16;
+
+	private static final int MAX_CELLS = 64;
+
+	private float[] bounds = new float[0];
+
+	private int size;
+
+	private int cols, rows;
+
+	private float cellWidth, cellHeight;
+
+	private int[] cellStart = new int[0];
+
+	private int[] cellItems = new int[0];
+
+	void build(LComponent[] childs, int count, int originX, int originY, float width, float height) {
+		if (bounds.length < count * 4) {
+			bounds = new float[count * 4];
+		}
+		size = count;
+		int n = MathUtils.ceil(MathUtils.sqrt(count / 2f));
+		cols = rows = MathUtils.max(1, MathUtils.min(MAX_CELLS, n));
+		cellWidth = MathUtils.max(1f, width) / cols;
+		cellHeight = MathUtils.max(1f, height) / rows;
+		final int cells = cols * rows;
+		if (cellStart.length < cells + 1) {
+			cellStart = new int[cells + 1];
+		} else {
+			for (int i = 0; i <= cells; i++) {
+				cellStart[i] = 0;
+			}
+		}
+		// 先统计每个格子的数量,再按前缀和一次填入
+		int total = 0;
+		for (int i = 0; i < count; i++) {
+			final LComponent c = childs[i];
+			final int j = i * 4;
+			if (c == null) {
+				bounds[j] = bounds[j + 1] = bounds[j + 2] = bounds[j + 3] = -1f;
+				continue;
+			}
+			bounds[j] = c.getScreenX() - originX;
+			bounds[j + 1] = c.getScreenY() - originY;
+			bounds[j + 2] = c.hitWidth();
+			bounds[j + 3] = c.hitHeight();
+			final int x1 = col(bounds[j]), x2 = col(bounds[j] + bounds[j + 2]);
+			final int y1 = row(bounds[j + 1]), y2 = row(bounds[j + 1] + bounds[j + 3]);
+			for (int y = y1; y <= y2; y++) {
+				for (int x = x1; x <= x2; x++) {
+					cellStart[y * cols + x + 1]++;
+					total++;
+				}
+			}
+		}
+		for (int i = 1; i <= cells; i++) {
+			cellStart[i] += cellStart[i - 1];
+		}
+		if (cellItems.length < total) {
+			cellItems = new int[total];
+		}
+		final int[] fill = new int[cells];
+		for (int i = 0; i < count; i++) {
+			if (childs[i] == null) {
+				continue;
+			}
+			final int j = i * 4;
+			final int x1 = col(bounds[j]), x2 = col(bounds[j] + bounds[j + 2]);
+			final int y1 = row(bounds[j + 1]), y2 = row(bounds[j + 1] + bounds[j + 3]);
+			for (int y = y1; y <= y2; y++) {
+				for (int x = x1; x <= x2; x++) {
+					final int cell = y * cols + x;
+					cellItems[cellStart[cell] + fill[cell]++] = i;
+				}
+			}
+		}
+	}
+
+	/**
+	 * 子组件的位置或大小是否与建立网格时不同
+	 */
+	boolean changed(int index, LComponent c, int originX, int originY) {
+		if (index >= size) {
+			return true;
+		}
+		final int j = index * 4;
+		if (c == null) {
+			return bounds[j + 2] != -1f;
+		}
+		return bounds[j] != c.getScreenX() - originX || bounds[j + 1] != c.getScreenY() - originY
+				|| bounds[j + 2] != c.hitWidth() || bounds[j + 3] != c.hitHeight();
+	}
+
+	int size() {
+		return size;
+	}
+
+	private int col(float x) {
+		final int c = MathUtils.floor(x / cellWidth);
+		return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
+	}
+
+	private int row(float y) {
+		final int r = MathUtils.floor(y / cellHeight);
+		return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+	}
+
+	/**
+	 * 获得容器坐标(x,y)所在的格子,超出容器范围时取最近的边缘格子
+	 */
+	int cell(float x, float y) {
+		return row(y) * cols + col(x);
+	}
+
+	int start(int cell) {
+		return cellStart[cell];
+	}
+
+	int end(int cell) {
+		return cellStart[cell + 1];
+	}
+
+	int item(int i) {
+		return cellItems[i];
+	}
+
+}
@@ -208,6 +208,7 @@ public class LButton extends LComponent implements FontSet<LButton> {
 
 	public LButton setText(String st) {
 		this.text = st;
+		this.invalidate();
 		return this;
 	}
 
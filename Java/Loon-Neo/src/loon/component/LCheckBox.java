@@ -256,6 +256,7 @@ public class LCheckBox extends LComponent implements FontSet<LCheckBox> {
 
 	public void setTicked(boolean ticked) {
 		this.ticked = ticked;
+		this.invalidate();
 	}
 
 	public boolean isShowText() {
@@ -368,6 +368,7 @@ public class LClickButton extends LComponent implements FontSet<LClickButton> {
 				LSTRDictionary.get().bind((LFont) font, text);
 			}
 		}
+		this.invalidate();
 		return this;
 	}
 
@@ -513,6 +513,20 @@ public abstract class LComponent extends LObject<LContainer>
 						&& y1 >= this.getDrawScrollY() && y1 <= this.getDrawScrollY() + this._height * _scaleY);
 	}
 
+	/**
+	 * 触点检测使用的宽度(与intersects一致)
+	 */
+	final float hitWidth() {
+		return this._width * _scaleX;
+	}
+
+	/**
+	 * 触点检测使用的高度(与intersects一致)
+	 */
+	final float hitHeight() {
+		return this._height * _scaleY;
+	}
+
 	protected float getDrawScrollX() {
 		if (_super != null) {
 			return this._screenX - _super._component_scrollX;
@@ -556,6 +570,8 @@ public abstract class LComponent extends LObject<LContainer>
 			return;
 		}
 		this._component_visible = v;
+		this.invalidate();
+		this.invalidateHit();
 		if (_desktop != null) {
 			this._desktop.setComponentStat(this, this._component_visible);
 		}
@@ -570,6 +586,7 @@ public abstract class LComponent extends LObject<LContainer>
 			return this;
 		}
 		this._component_enabled = b;
+		this.invalidate();
 		if (_desktop != null) {
 			this._desktop.setComponentStat(this, this._component_enabled);
 		}
@@ -581,10 +598,37 @@ public abstract class LComponent extends LObject<LContainer>
 	}
 
 	final LComponent setSelected(boolean b) {
-		this._component_selected = b;
+		if (this._component_selected != b) {
+			this._component_selected = b;
+			this.invalidate();
+		}
 		return this;
 	}
 
+	/**
+	 * 通知开启了缓存模式的上级容器(包括自身)重新渲染,并使Desktop缓存的触点查找结果失效,组件的画面在setter以外的地方改变时需要手动调用
+	 * 
+	 * @return
+	 */
+	public LComponent invalidate() {
+		LContainer c = isContainer() ? (LContainer) this : this._super;
+		for (; c != null; c = c._super) {
+			c._cacheDirty = true;
+		}
+		LContainer._hitVersion++;
+		return this;
+	}
+
+	/**
+	 * 组件的位置,大小或可见性改变后,通知上级容器重建触点查找网格
+	 */
+	final void invalidateHit() {
+		if (this._super != null) {
+			this._super._hitDirty = true;
+		}
+		LContainer._hitVersion++;
+	}
+
 	public boolean requestFocus() {
 		if (_desktop != null) {
 			return this._desktop.selectComponent(this);
@@ -636,6 +680,8 @@ public abstract class LComponent extends LObject<LContainer>
 				_height = 1;
 			}
 			this.validateSize();
+			this.invalidate();
+			this.invalidateHit();
 		}
 		return this;
 	}
@@ -645,6 +691,8 @@ public abstract class LComponent extends LObject<LContainer>
 		if (this.getX() != x || x == 0) {
 			super.setX(x);
 			this.validatePosition();
+			this.invalidate();
+			this.invalidateHit();
 		}
 	}
 
@@ -653,6 +701,8 @@ public abstract class LComponent extends LObject<LContainer>
 		if (this.getX() != x || x == 0) {
 			super.setX(x);
 			this.validatePosition();
+			this.invalidate();
+			this.invalidateHit();
 		}
 	}
 
@@ -661,6 +711,8 @@ public abstract class LComponent extends LObject<LContainer>
 		if (this.getY() != y || y == 0) {
 			super.setY(y);
 			this.validatePosition();
+			this.invalidate();
+			this.invalidateHit();
 		}
 	}
 
@@ -669,6 +721,8 @@ public abstract class LComponent extends LObject<LContainer>
 		if (this.getY() != y || y == 0) {
 			super.setY(y);
 			this.validatePosition();
+			this.invalidate();
+			this.invalidateHit();
 		}
 	}
 
@@ -682,6 +736,8 @@ public abstract class LComponent extends LObject<LContainer>
 		if (this.getX() != dx || this.getY() != dy || dx == 0 || dy == 0) {
 			super.setLocation(dx, dy);
 			this.validatePosition();
+			this.invalidate();
+			this.invalidateHit();
 		}
 	}
 
@@ -691,6 +747,8 @@ public abstract class LComponent extends LObject<LContainer>
 			if (dx > -100 && dx < 100 && dy > -100 && dy < 100) {
 				super.move(dx, dy);
 				this.validatePosition();
+				this.invalidate();
+				this.invalidateHit();
 			}
 		}
 	}
@@ -715,6 +773,8 @@ public abstract class LComponent extends LObject<LContainer>
 				this._height = 1;
 			}
 			this.validateSize();
+			this.invalidate();
+			this.invalidateHit();
 		}
 	}
 
@@ -742,11 +802,27 @@ public abstract class LComponent extends LObject<LContainer>
 	@Override
 	public void setHeight(float height) {
 		this._height = height;
+		this.invalidate();
+		this.invalidateHit();
 	}
 
 	@Override
 	public void setWidth(float width) {
 		this._width = width;
+		this.invalidate();
+		this.invalidateHit();
+	}
+
+	@Override
+	public void setAlpha(float a) {
+		super.setAlpha(a);
+		this.invalidate();
+	}
+
+	@Override
+	public void setRotation(float r) {
+		super.setRotation(r);
+		this.invalidate();
 	}
 
 	@Override
@@ -929,6 +1005,7 @@ public abstract class LComponent extends LObject<LContainer>
 			this._height = imageUI[0].getHeight();
 		}
 		this._imageUI = imageUI;
+		this.invalidate();
 	}
 
 	public void setImageUI(int index, LTexture imageUI) {
@@ -937,6 +1014,7 @@ public abstract class LComponent extends LObject<LContainer>
 			this._height = imageUI.getHeight();
 		}
 		this._imageUI[index] = imageUI;
+		this.invalidate();
 	}
 
 	public abstract String getUIName();
@@ -991,6 +1069,7 @@ public abstract class LComponent extends LObject<LContainer>
 		this._background = b;
 		this.setSize(w, h);
 		freeRes().add(_background);
+		this.invalidate();
 		return this;
 	}
 
@@ -1024,6 +1103,7 @@ public abstract class LComponent extends LObject<LContainer>
 
 	public void setDrawSelect(boolean select) {
 		this.isSelectDraw = select;
+		this.invalidate();
 	}
 
 	public void setScale(final float s) {
@@ -1037,6 +1117,8 @@ public abstract class LComponent extends LObject<LContainer>
 		}
 		this._scaleX = sx;
 		this._scaleY = sy;
+		this.invalidate();
+		this.invalidateHit();
 	}
 
 	@Override
@@ -1299,6 +1381,7 @@ public abstract class LComponent extends LObject<LContainer>
 	@Override
 	public void setColor(LColor c) {
 		this._component_baseColor = new LColor(c);
+		this.invalidate();
 	}
 
 	@Override
@@ -1317,12 +1400,14 @@ public abstract class LComponent extends LObject<LContainer>
 	@Override
 	public LComponent setFlipX(boolean x) {
 		this._flipX = x;
+		this.invalidate();
 		return this;
 	}
 
 	@Override
 	public LComponent setFlipY(boolean y) {
 		this._flipY = y;
+		this.invalidate();
 		return this;
 	}
 
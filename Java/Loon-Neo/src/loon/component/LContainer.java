@@ -21,8 +21,10 @@
  */
 package loon.component;
 
+import loon.Graphics;
 import loon.LSysException;
 import loon.LSystem;
+import loon.LTexture.Format;
 import loon.action.ActionBind;
 import loon.component.layout.LayoutManager;
 import loon.component.layout.LayoutPort;
@@ -31,11 +33,14 @@ import loon.event.GameKey;
 import loon.event.QueryEvent;
 import loon.geom.RectBox;
 import loon.geom.Vector2f;
+import loon.opengl.BaseBatch;
 import loon.opengl.GLEx;
+import loon.opengl.LTextureImage;
 import loon.utils.CollectionUtils;
 import loon.utils.IArray;
 import loon.utils.LayerSorter;
 import loon.utils.MathUtils;
+import loon.utils.Scale;
 import loon.utils.TArray;
 
 /**
@@ -59,6 +64,37 @@ public abstract class LContainer extends LComponent implements IArray {
 
 	private LComponent latestInserted = null;
 
+	// 全部缓存纹理占用的显存(字节)与数量
+	private static long _cacheTotalBytes = 0;
+
+	private static int _cacheTotalCount = 0;
+
+	private static long _cacheLimitBytes = 32L * 1024L * 1024L;
+
+	private boolean _cacheEnabled = false;
+
+	boolean _cacheDirty = true;
+
+	private LTextureImage _cacheImage;
+
+	private long _cacheBytes;
+
+	private float _cacheScrollX, _cacheScrollY, _cacheScreenAlpha;
+
+	private int _cacheRenders;
+
+	// 子组件的触点查找网格,布局改变(_hitDirty)时才重建
+	private HitGrid _hitGrid;
+
+	boolean _hitDirty = true;
+
+	private LComponent[] _hitChilds;
+
+	private float _hitScrollX, _hitScrollY;
+
+	// 任意组件布局改变时递增,Desktop以此判断缓存的触点查找结果是否仍然有效
+	static int _hitVersion;
+
 	public LContainer(int x, int y, int w, int h) {
 		super(x, y, w, h);
 		this.setFocusable(false);
@@ -536,6 +572,8 @@ public abstract class LContainer extends LComponent implements IArray {
 		}
 		this._childs = CollectionUtils.cut(this._childs, index);
 		this.childCount--;
+		this.invalidate();
+		this.invalidateChilds();
 		return comp;
 	}
 
@@ -557,6 +595,8 @@ public abstract class LContainer extends LComponent implements IArray {
 		}
 		this._childs = new LComponent[0];
 		this.childCount = 0;
+		this.invalidate();
+		this.invalidateChilds();
 	}
 
 	public void replace(LComponent oldComp, LComponent newComp) {
@@ -578,12 +618,23 @@ public abstract class LContainer extends LComponent implements IArray {
 		synchronized (_childs) {
 			try {
 				super.update(timer);
+				if (_hitScrollX != _component_scrollX || _hitScrollY != _component_scrollY) {
+					_hitScrollX = _component_scrollX;
+					_hitScrollY = _component_scrollY;
+					_hitVersion++;
+				}
+				final boolean checkHit = !_hitDirty && _hitGrid != null && _hitChilds == _childs;
+				final int originX = getScreenX(), originY = getScreenY();
 				LComponent component;
 				for (int i = 0; i < this.childCount; i++) {
 					component = _childs[i];
 					if (component != null && component != this) {
 						component.update(timer);
 					}
+					// 没有经过setter的移动(比如直接修改坐标)在这里发现
+					if (checkHit && !_hitDirty && _hitGrid.changed(i, component, originX, originY)) {
+						invalidateChilds();
+					}
 				}
 			} catch (Throwable cause) {
 				LSystem.error("LContainer update() exception", cause);
@@ -636,6 +687,13 @@ public abstract class LContainer extends LComponent implements IArray {
 		if (!this.isVisible()) {
 			return;
 		}
+		if (_cacheEnabled && createCacheUI(g)) {
+			return;
+		}
+		renderUI(g);
+	}
+
+	private void renderUI(GLEx g) {
 		final float newScrollX = _component_scrollX;
 		final float newScrollY = _component_scrollY;
 
@@ -666,6 +724,162 @@ public abstract class LContainer extends LComponent implements IArray {
 		}
 	}
 
+	/**
+	 * 以缓存纹理渲染当前容器,只有子组件失效(invalidate)时才重新渲染整个子树
+	 * 
+	 * @param g
+	 * @return 无法使用缓存时返回false,由调用者直接渲染
+	 */
+	private boolean createCacheUI(GLEx g) {
+		if (_rotation != 0 || _scaleX != 1f || _scaleY != 1f || _flipX || _flipY || LSystem.base() == null) {
+			return false;
+		}
+		final BaseBatch batch = g.batch();
+		if (batch == null) {
+			return false;
+		}
+		final int width = (int) _width;
+		final int height = (int) _height;
+		if (width <= 0 || height <= 0) {
+			return false;
+		}
+		if (_cacheImage == null || _cacheImage.texture.width() != width || _cacheImage.texture.height() != height) {
+			freeCache();
+			final Graphics gfx = LSystem.base().graphics();
+			// 纹理按屏幕缩放与纹理尺寸要求创建,以实际的像素尺寸计算占用
+			final Scale scale = gfx.scale();
+			final long bytes = (long) Format.LINEAR.toTexWidth(scale.scaledCeil(width))
+					* Format.LINEAR.toTexHeight(scale.scaledCeil(height)) * 4;
+			if (_cacheTotalBytes + bytes > _cacheLimitBytes) {
+				return false;
+			}
+			try {
+				_cacheImage = new LTextureImage(gfx, batch, width, height, true);
+			} catch (Throwable cause) {
+				LSystem.error("LContainer cache create exception", cause);
+				_cacheEnabled = false;
+				return false;
+			}
+			_cacheBytes = (long) _cacheImage.texture.pixelWidth() * _cacheImage.texture.pixelHeight() * 4;
+			_cacheTotalBytes += _cacheBytes;
+			_cacheTotalCount++;
+			_cacheDirty = true;
+		}
+		final float screenAlpha = getScreen() == null ? 1f : getScreen().getAlpha();
+		if (_cacheScrollX != _component_scrollX || _cacheScrollY != _component_scrollY
+				|| _cacheScreenAlpha != screenAlpha) {
+			_cacheDirty = true;
+		}
+		if (_cacheDirty) {
+			final boolean running = batch.running();
+			if (running) {
+				batch.end();
+			}
+			g.suspendClip();
+			try {
+				_cacheImage.begin();
+				_cacheImage.clear();
+				_cacheImage.saveTx();
+				_cacheImage.translate(-_screenX, -_screenY);
+				_cacheImage.setClipOffset(_screenX, _screenY);
+				renderUI(_cacheImage);
+				_cacheImage.restoreTx();
+				_cacheImage.end();
+			} catch (Throwable cause) {
+				LSystem.error("LContainer cache render exception", cause);
+			} finally {
+				if (running) {
+					g.begin();
+				}
+				g.resumeClip();
+			}
+			_cacheScrollX = _component_scrollX;
+			_cacheScrollY = _component_scrollY;
+			_cacheScreenAlpha = screenAlpha;
+			_cacheDirty = false;
+			_cacheRenders++;
+		}
+		g.draw(_cacheImage.texture, _screenX, _screenY, width, height);
+		return true;
+	}
+
+	/**
+	 * 开启缓存模式后,容器与全部子组件先渲染到一张纹理中,之后每帧只绘制这张纹理,直到有子组件失效(invalidate).
+	 * 适合对话框,HUD面板等很少改变的界面,内容持续变化(动画,自行绘制的计时器等)的容器不应开启.
+	 * 
+	 * @param cache
+	 * @return
+	 */
+	public LContainer setCacheEnabled(boolean cache) {
+		if (this._cacheEnabled == cache) {
+			return this;
+		}
+		this._cacheEnabled = cache;
+		this._cacheDirty = true;
+		if (!cache) {
+			freeCache();
+		}
+		return this;
+	}
+
+	public boolean isCacheEnabled() {
+		return _cacheEnabled;
+	}
+
+	public boolean isCacheDirty() {
+		return _cacheDirty;
+	}
+
+	/**
+	 * 缓存纹理被重新渲染的次数
+	 * 
+	 * @return
+	 */
+	public int getCacheRenders() {
+		return _cacheRenders;
+	}
+
+	public long getCacheBytes() {
+		return _cacheBytes;
+	}
+
+	private void freeCache() {
+		if (_cacheImage != null) {
+			_cacheImage.close();
+			_cacheImage.texture.close();
+			_cacheImage = null;
+			_cacheTotalBytes -= _cacheBytes;
+			_cacheTotalCount--;
+			_cacheBytes = 0;
+		}
+	}
+
+	/**
+	 * 全部容器缓存纹理占用的显存(字节)
+	 * 
+	 * @return
+	 */
+	public static long getCacheTotalBytes() {
+		return _cacheTotalBytes;
+	}
+
+	public static int getCacheTotalCount() {
+		return _cacheTotalCount;
+	}
+
+	/**
+	 * 设定容器缓存纹理可以占用的显存上限(字节),超出时新的缓存容器直接渲染
+	 * 
+	 * @param bytes
+	 */
+	public static void setCacheLimitBytes(long bytes) {
+		_cacheLimitBytes = bytes;
+	}
+
+	public static long getCacheLimitBytes() {
+		return _cacheLimitBytes;
+	}
+
 	protected void renderComponents(GLEx g) {
 		if (_component_isClose) {
 			return;
@@ -725,6 +939,13 @@ public abstract class LContainer extends LComponent implements IArray {
 			return;
 		}
 		compSorter.sort(this._childs);
+		this.invalidate();
+		this.invalidateChilds();
+	}
+
+	private void invalidateChilds() {
+		this._hitDirty = true;
+		_hitVersion++;
 	}
 
 	protected void transferFocus(LComponent component) {
@@ -806,38 +1027,92 @@ public abstract class LContainer extends LComponent implements IArray {
 		if (!this.intersects(x1, y1)) {
 			return null;
 		}
-		for (int i = 0; i < this.childCount; i++) {
-			LComponent child = this._childs[i];
-			if (child != null && child.getSuper() != null && child.getSuper().isContainer()
-					&& (child.getSuper() instanceof LScrollContainer)) {
-				LScrollContainer scr = (LScrollContainer) child.getSuper();
-				int nx = x1 + scr.getScrollX();
-				int ny = y1 + scr.getScrollY();
-				if (child.intersects(nx, ny)) {
-					LComponent comp = (!child.isContainer()) ? child : ((LContainer) child).findComponent(nx, ny);
-					LContainer container = comp.getContainer();
-					if (container != null && container.isContainer() && (container instanceof LScrollContainer)) {
-						if (container.contains(comp) && (comp.getWidth() >= container.getWidth()
-								|| comp.getHeight() >= container.getHeight())) {
-							return comp.getContainer();
-						}
-					}
+		if (this.childCount < HitGrid.MIN_CHILDS) {
+			for (int i = 0; i < this.childCount; i++) {
+				LComponent comp = findChild(this._childs[i], x1, y1);
+				if (comp != null) {
 					return comp;
 				}
 			}
-			if (child != null && child.intersects(x1, y1)) {
-				LComponent comp = (!child.isContainer()) ? child : ((LContainer) child).findComponent(x1, y1);
+			return this;
+		}
+		final HitGrid grid = hitGrid();
+		// 网格以子组件相对容器的屏幕坐标建立,触点需要换算到同一坐标中
+		final float offsetX = _component_scrollX - getScreenX();
+		final float offsetY = _component_scrollY - getScreenY();
+		final int cellA = grid.cell(x1 + offsetX, y1 + offsetY);
+		int cellB = cellA;
+		if (this instanceof LScrollContainer) {
+			LScrollContainer scr = (LScrollContainer) this;
+			cellB = grid.cell(x1 + scr.getScrollX() + offsetX, y1 + scr.getScrollY() + offsetY);
+		}
+		// 两个格子中的子组件都按下标升序保存,合并后按原有顺序检查,保证与逐个遍历的结果一致
+		int a = grid.start(cellA), aEnd = grid.end(cellA);
+		int b = grid.start(cellB), bEnd = cellB == cellA ? b : grid.end(cellB);
+		while (a < aEnd || b < bEnd) {
+			final int ia = a < aEnd ? grid.item(a) : Integer.MAX_VALUE;
+			final int ib = b < bEnd ? grid.item(b) : Integer.MAX_VALUE;
+			final int index;
+			if (ia <= ib) {
+				index = ia;
+				a++;
+				if (ia == ib) {
+					b++;
+				}
+			} else {
+				index = ib;
+				b++;
+			}
+			LComponent comp = findChild(this._childs[index], x1, y1);
+			if (comp != null) {
+				return comp;
+			}
+		}
+		return this;
+	}
+
+	private HitGrid hitGrid() {
+		if (_hitGrid == null) {
+			_hitGrid = new HitGrid();
+		}
+		if (_hitDirty || _hitChilds != _childs || _hitGrid.size() != childCount) {
+			_hitGrid.build(_childs, childCount, getScreenX(), getScreenY(), hitWidth(), hitHeight());
+			_hitChilds = _childs;
+			_hitDirty = false;
+		}
+		return _hitGrid;
+	}
+
+	private LComponent findChild(LComponent child, int x1, int y1) {
+		if (child != null && child.getSuper() != null && child.getSuper().isContainer()
+				&& (child.getSuper() instanceof LScrollContainer)) {
+			LScrollContainer scr = (LScrollContainer) child.getSuper();
+			int nx = x1 + scr.getScrollX();
+			int ny = y1 + scr.getScrollY();
+			if (child.intersects(nx, ny)) {
+				LComponent comp = (!child.isContainer()) ? child : ((LContainer) child).findComponent(nx, ny);
 				LContainer container = comp.getContainer();
 				if (container != null && container.isContainer() && (container instanceof LScrollContainer)) {
-					if (container.contains(comp)
-							&& (comp.getWidth() >= container.getWidth() || comp.getHeight() >= container.getHeight())) {
+					if (container.contains(comp) && (comp.getWidth() >= container.getWidth()
+							|| comp.getHeight() >= container.getHeight())) {
 						return comp.getContainer();
 					}
 				}
 				return comp;
 			}
 		}
-		return this;
+		if (child != null && child.intersects(x1, y1)) {
+			LComponent comp = (!child.isContainer()) ? child : ((LContainer) child).findComponent(x1, y1);
+			LContainer container = comp.getContainer();
+			if (container != null && container.isContainer() && (container instanceof LScrollContainer)) {
+				if (container.contains(comp)
+						&& (comp.getWidth() >= container.getWidth() || comp.getHeight() >= container.getHeight())) {
+					return comp.getContainer();
+				}
+			}
+			return comp;
+		}
+		return null;
 	}
 
 	public int getComponentCount() {
@@ -1211,6 +1486,7 @@ public abstract class LContainer extends LComponent implements IArray {
 			}
 			_childs = null;
 		}
+		this.freeCache();
 		this._component_isClose = true;
 		this._newLineHeight = 0;
 	}
@@ -189,6 +189,7 @@ public class LProgress extends LComponent {
 				this.percentage = 0f;
 			}
 		}
+		this.invalidate();
 	}
 
 	public boolean isVertical() {
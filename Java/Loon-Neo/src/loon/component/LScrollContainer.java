@@ -126,6 +126,7 @@ public class LScrollContainer extends LContainer {
 				scrollX = width() + size;
 			}
 		}
+		LContainer._hitVersion++;
 		return this;
 	}
 
@@ -146,6 +147,7 @@ public class LScrollContainer extends LContainer {
 				scrollY = height() - size * 2;
 			}
 		}
+		LContainer._hitVersion++;
 		return this;
 	}
 
@@ -118,6 +118,7 @@ public class LSlider extends LComponent {
 
 	public void setValue(float v) {
 		this._value = v;
+		this.invalidate();
 	}
 
 	public float getSliderWidth() {
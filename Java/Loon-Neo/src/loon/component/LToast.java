@@ -253,6 +253,7 @@ public class LToast extends LComponent implements FontSet<LToast> {
 
 	public LComponent setText(String text) {
 		mText = text;
+		this.invalidate();
 		return this;
 	}
 
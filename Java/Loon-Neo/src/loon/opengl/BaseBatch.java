@@ -30,6 +30,93 @@ public abstract class BaseBatch extends LTextureBind {
 
 	private boolean _shader_ditry = true;
 
+	private GLDrawCommand _draw_command;
+
+	private boolean _deferred;
+
+	private int _depth;
+
+	protected int _draw_calls;
+
+	protected int _unsorted_draw_calls;
+
+	/**
+	 * 设定是否延迟提交,延迟提交时四边形先记录到绘制命令缓存中,flush时按纹理与混合模式重新排序后再提交,
+	 * 可减少不同纹理交替绘制时的draw call数量(彼此重叠的四边形保持原有绘制顺序)
+	 * 
+	 * @param deferred
+	 */
+	public void setDeferred(boolean deferred) {
+		if (this._deferred == deferred) {
+			return;
+		}
+		if (begun) {
+			flush();
+		}
+		this._deferred = deferred;
+		if (deferred && _draw_command == null) {
+			_draw_command = new GLDrawCommand();
+		}
+	}
+
+	public boolean isDeferred() {
+		return this._deferred;
+	}
+
+	/**
+	 * 设定延迟提交时后续四边形的深度值,深度值小的先绘制
+	 * 
+	 * @param depth
+	 */
+	public void setDepth(int depth) {
+		this._depth = depth;
+	}
+
+	public int getDepth() {
+		return this._depth;
+	}
+
+	protected GLDrawCommand getDrawCommand() {
+		return this._draw_command;
+	}
+
+	/**
+	 * 自上次resetDrawCalls以来实际提交的draw call数量
+	 * 
+	 * @return
+	 */
+	public int getDrawCalls() {
+		return this._draw_calls;
+	}
+
+	/**
+	 * 自上次resetDrawCalls以来,若不重新排序需要的draw call数量(非延迟提交时与getDrawCalls相同)
+	 * 
+	 * @return
+	 */
+	public int getUnsortedDrawCalls() {
+		return this._unsorted_draw_calls;
+	}
+
+	public void resetDrawCalls() {
+		this._draw_calls = 0;
+		this._unsorted_draw_calls = 0;
+	}
+
+	@Override
+	public void setTexture(final LTexture texture) {
+		if (!_deferred) {
+			super.setTexture(texture);
+			return;
+		}
+		// 延迟提交时纹理切换不需要立即提交
+		if (!texture.isLoaded()) {
+			texture.loadTexture();
+		}
+		this.lastTexId = this.curTexId;
+		this.curTexId = texture.getID();
+	}
+
 	public void setShaderSource(ShaderSource source) {
 		if (source == null) {
 			return;
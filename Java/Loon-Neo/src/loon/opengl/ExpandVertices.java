@@ -86,6 +86,13 @@ public class ExpandVertices {
 		this.vertices[index] = v;
 	}
 
+	public final void setVertices(int index, float[] src, int offset, int length) {
+		if (expand(index, length / vertexSize() + 1)) {
+			maxSize = getSize();
+		}
+		System.arraycopy(src, offset, this.vertices, index, length);
+	}
+
 	public final float[] getVertices() {
 		return this.vertices;
 	}
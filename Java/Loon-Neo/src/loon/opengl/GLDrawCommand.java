@@ -20,6 +20,359 @@
  */
 package loon.opengl;
 
+/**
+ * 延迟提交用的绘制命令缓存,记录每个四边形的顶点数据,纹理,混合模式与深度,提交前按状态重新排序以减少draw call.
+ *
+ * 排序时深度值小的先绘制,同一深度内的四边形只有在与中间经过的批次互不重叠时才会被提前合并到相同状态的批次中,
+ * 所以重叠部分的绘制顺序与记录顺序保持一致.
+ */
 public class GLDrawCommand {
 
+	public static interface Submitter {
+
+		/**
+		 * 提交一组状态相同的四边形
+		 *
+		 * @param texId
+		 * @param blend
+		 * @param vertices
+		 *            每个四边形QUAD_SIZE个float
+		 * @param quads
+		 *            四边形数量
+		 */
+		public void submit(int texId, int blend, float[] vertices, int quads);
+
+	}
+
+	public final static int QUAD_SIZE = 20;
+
+	// 向前寻找可合并批次时最多检查的批次数量
+	private final static int MAX_LOOKBACK = 64;
+
+	private float[] vertices;
+
+	private float[] bounds;
+
+	private int[] texIds;
+
+	private int[] blends;
+
+	private int[] depths;
+
+	private int count;
+
+	private boolean depthSorted = true;
+
+	private int[] order;
+
+	private int[] tmpOrder;
+
+	private int[] batchOf;
+
+	private int[] batchTex, batchBlend, batchDepth, batchStart;
+
+	private float[] batchBounds;
+
+	private float[] output;
+
+	private int lastDrawCalls;
+
+	private int lastUnsortedDrawCalls;
+
+	public GLDrawCommand() {
+		this(256);
+	}
+
+	public GLDrawCommand(int capacity) {
+		capacity = capacity < 1 ? 1 : capacity;
+		this.vertices = new float[capacity * QUAD_SIZE];
+		this.bounds = new float[capacity * 4];
+		this.texIds = new int[capacity];
+		this.blends = new int[capacity];
+		this.depths = new int[capacity];
+		this.order = new int[capacity];
+		this.tmpOrder = new int[capacity];
+		this.batchOf = new int[capacity];
+		this.batchTex = new int[capacity];
+		this.batchBlend = new int[capacity];
+		this.batchDepth = new int[capacity];
+		this.batchStart = new int[capacity + 1];
+		this.batchBounds = new float[capacity * 4];
+		this.output = new float[capacity * QUAD_SIZE];
+	}
+
+	private void ensureCapacity(int size) {
+		if (size <= texIds.length) {
+			return;
+		}
+		int capacity = texIds.length;
+		for (; capacity < size;) {
+			capacity <<= 1;
+		}
+		vertices = copy(vertices, capacity * QUAD_SIZE);
+		bounds = copy(bounds, capacity * 4);
+		texIds = copy(texIds, capacity);
+		blends = copy(blends, capacity);
+		depths = copy(depths, capacity);
+		order = new int[capacity];
+		tmpOrder = new int[capacity];
+		batchOf = new int[capacity];
+		batchTex = new int[capacity];
+		batchBlend = new int[capacity];
+		batchDepth = new int[capacity];
+		batchStart = new int[capacity + 1];
+		batchBounds = new float[capacity * 4];
+		output = new float[capacity * QUAD_SIZE];
+	}
+
+	private static float[] copy(float[] src, int size) {
+		float[] dst = new float[size];
+		System.arraycopy(src, 0, dst, 0, src.length);
+		return dst;
+	}
+
+	private static int[] copy(int[] src, int size) {
+		int[] dst = new int[size];
+		System.arraycopy(src, 0, dst, 0, src.length);
+		return dst;
+	}
+
+	/**
+	 * 记录一个已经完成坐标变换的四边形,顶点顺序与TrilateralBatch写入的顺序一致
+	 */
+	public void add(int texId, int blend, int depth, float color, float x1, float y1, float u1, float v1, float x2,
+			float y2, float u2, float v2, float x3, float y3, float u3, float v3, float x4, float y4, float u4,
+			float v4) {
+		ensureCapacity(count + 1);
+		final int n = count;
+		int idx = n * QUAD_SIZE;
+		final float[] verts = vertices;
+		verts[idx++] = x1;
+		verts[idx++] = y1;
+		verts[idx++] = color;
+		verts[idx++] = u1;
+		verts[idx++] = v1;
+		verts[idx++] = x2;
+		verts[idx++] = y2;
+		verts[idx++] = color;
+		verts[idx++] = u2;
+		verts[idx++] = v2;
+		verts[idx++] = x3;
+		verts[idx++] = y3;
+		verts[idx++] = color;
+		verts[idx++] = u3;
+		verts[idx++] = v3;
+		verts[idx++] = x4;
+		verts[idx++] = y4;
+		verts[idx++] = color;
+		verts[idx++] = u4;
+		verts[idx++] = v4;
+		final int b = n * 4;
+		bounds[b] = min(x1, x2, x3, x4);
+		bounds[b + 1] = min(y1, y2, y3, y4);
+		bounds[b + 2] = max(x1, x2, x3, x4);
+		bounds[b + 3] = max(y1, y2, y3, y4);
+		texIds[n] = texId;
+		blends[n] = blend;
+		depths[n] = depth;
+		if (n > 0 && depth < depths[n - 1]) {
+			depthSorted = false;
+		}
+		count++;
+	}
+
+	private static float min(float a, float b, float c, float d) {
+		float r = a < b ? a : b;
+		r = r < c ? r : c;
+		return r < d ? r : d;
+	}
+
+	private static float max(float a, float b, float c, float d) {
+		float r = a > b ? a : b;
+		r = r > c ? r : c;
+		return r > d ? r : d;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	/**
+	 * 以记录顺序直接提交时需要的draw call数量
+	 *
+	 * @return
+	 */
+	public int unsortedDrawCalls() {
+		int calls = 0;
+		for (int i = 0; i < count; i++) {
+			if (i == 0 || texIds[i] != texIds[i - 1] || blends[i] != blends[i - 1]) {
+				calls++;
+			}
+		}
+		return calls;
+	}
+
+	/**
+	 * 按状态重新排序后依次提交,并清空缓存
+	 *
+	 * @param submitter
+	 * @return 实际的draw call数量
+	 */
+	public int flush(Submitter submitter) {
+		if (count == 0) {
+			lastDrawCalls = 0;
+			lastUnsortedDrawCalls = 0;
+			return 0;
+		}
+		lastUnsortedDrawCalls = unsortedDrawCalls();
+		sortByDepth();
+		final int batches = buildBatches();
+		// 按批次稳定排序
+		for (int i = 0; i <= batches; i++) {
+			batchStart[i] = 0;
+		}
+		for (int i = 0; i < count; i++) {
+			batchStart[batchOf[i] + 1]++;
+		}
+		for (int i = 0; i < batches; i++) {
+			batchStart[i + 1] += batchStart[i];
+		}
+		for (int i = 0; i < count; i++) {
+			final int quad = order[i];
+			tmpOrder[batchStart[batchOf[i]]++] = quad;
+		}
+		int start = 0;
+		for (int b = 0; b < batches; b++) {
+			final int end = batchStart[b];
+			int dst = 0;
+			for (int i = start; i < end; i++) {
+				System.arraycopy(vertices, tmpOrder[i] * QUAD_SIZE, output, dst, QUAD_SIZE);
+				dst += QUAD_SIZE;
+			}
+			if (submitter != null && end > start) {
+				submitter.submit(batchTex[b], batchBlend[b], output, end - start);
+			}
+			start = end;
+		}
+		lastDrawCalls = batches;
+		clear();
+		return batches;
+	}
+
+	/**
+	 * 以深度值稳定排序(记录时深度已递增的不做任何处理)
+	 */
+	private void sortByDepth() {
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		if (depthSorted) {
+			return;
+		}
+		for (int width = 1; width < count; width <<= 1) {
+			for (int low = 0; low < count; low += width << 1) {
+				final int mid = Math.min(low + width, count);
+				final int high = Math.min(low + (width << 1), count);
+				int i = low, j = mid, k = low;
+				for (; i < mid && j < high;) {
+					tmpOrder[k++] = depths[order[j]] < depths[order[i]] ? order[j++] : order[i++];
+				}
+				for (; i < mid;) {
+					tmpOrder[k++] = order[i++];
+				}
+				for (; j < high;) {
+					tmpOrder[k++] = order[j++];
+				}
+			}
+			final int[] swap = order;
+			order = tmpOrder;
+			tmpOrder = swap;
+		}
+	}
+
+	/**
+	 * 将四边形依次分配到批次中,返回批次数量
+	 */
+	private int buildBatches() {
+		int batches = 0;
+		for (int i = 0; i < count; i++) {
+			final int quad = order[i];
+			final int tex = texIds[quad];
+			final int blend = blends[quad];
+			final int depth = depths[quad];
+			final int qb = quad * 4;
+			final float minX = bounds[qb], minY = bounds[qb + 1], maxX = bounds[qb + 2], maxY = bounds[qb + 3];
+			int target = -1;
+			final int limit = Math.max(0, batches - MAX_LOOKBACK);
+			for (int b = batches - 1; b >= limit; b--) {
+				if (batchDepth[b] != depth) {
+					break;
+				}
+				if (batchTex[b] == tex && batchBlend[b] == blend) {
+					target = b;
+					break;
+				}
+				final int bb = b * 4;
+				if (minX < batchBounds[bb + 2] && maxX > batchBounds[bb] && minY < batchBounds[bb + 3]
+						&& maxY > batchBounds[bb + 1]) {
+					break;
+				}
+			}
+			if (target == -1) {
+				target = batches++;
+				batchTex[target] = tex;
+				batchBlend[target] = blend;
+				batchDepth[target] = depth;
+				final int bb = target * 4;
+				batchBounds[bb] = minX;
+				batchBounds[bb + 1] = minY;
+				batchBounds[bb + 2] = maxX;
+				batchBounds[bb + 3] = maxY;
+			} else {
+				final int bb = target * 4;
+				if (minX < batchBounds[bb]) {
+					batchBounds[bb] = minX;
+				}
+				if (minY < batchBounds[bb + 1]) {
+					batchBounds[bb + 1] = minY;
+				}
+				if (maxX > batchBounds[bb + 2]) {
+					batchBounds[bb + 2] = maxX;
+				}
+				if (maxY > batchBounds[bb + 3]) {
+					batchBounds[bb + 3] = maxY;
+				}
+			}
+			batchOf[i] = target;
+		}
+		return batches;
+	}
+
+	/**
+	 * 上一次flush实际使用的draw call数量
+	 *
+	 * @return
+	 */
+	public int getLastDrawCalls() {
+		return lastDrawCalls;
+	}
+
+	/**
+	 * 上一次flush的内容若不排序需要的draw call数量
+	 *
+	 * @return
+	 */
+	public int getLastUnsortedDrawCalls() {
+		return lastUnsortedDrawCalls;
+	}
+
+	public void clear() {
+		count = 0;
+		depthSorted = true;
+	}
+
 }
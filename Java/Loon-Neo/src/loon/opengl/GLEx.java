@@ -229,6 +229,65 @@ public class GLEx extends PixmapFImpl implements LRelease {
 		return null;
 	}
 
+	/**
+	 * 设定当前Batch是否延迟提交(按纹理与混合模式重新排序后再提交,以减少draw call)
+	 *
+	 * @param deferred
+	 * @return
+	 */
+	public GLEx setDeferred(boolean deferred) {
+		if (batch != null) {
+			batch.setDeferred(deferred);
+		}
+		return this;
+	}
+
+	public boolean isDeferred() {
+		return batch != null && batch.isDeferred();
+	}
+
+	/**
+	 * 设定延迟提交时后续绘制内容的深度值,深度值小的先绘制
+	 *
+	 * @param depth
+	 * @return
+	 */
+	public GLEx setDepth(int depth) {
+		if (batch != null) {
+			batch.setDepth(depth);
+		}
+		return this;
+	}
+
+	public int getDepth() {
+		return batch == null ? 0 : batch.getDepth();
+	}
+
+	/**
+	 * 获得当前Batch自上次resetDrawCalls以来提交的draw call数量
+	 *
+	 * @return
+	 */
+	public int getDrawCalls() {
+		return batch == null ? 0 : batch.getDrawCalls();
+	}
+
+	/**
+	 * 获得当前Batch自上次resetDrawCalls以来,不重新排序时需要的draw call数量
+	 *
+	 * @return
+	 */
+	public int getUnsortedDrawCalls() {
+		return batch == null ? 0 : batch.getUnsortedDrawCalls();
+	}
+
+	public GLEx resetDrawCalls() {
+		if (batch != null) {
+			batch.resetDrawCalls();
+		}
+		return this;
+	}
+
 	/**
 	 * 判断当前GLEx的Batch是否正在运行
 	 * 
@@ -472,6 +531,38 @@ public class GLEx extends PixmapFImpl implements LRelease {
 		return this;
 	}
 
+	/**
+	 * 暂时关闭当前的裁剪区域(例如中途渲染到其它目标时),之后以resumeClip恢复
+	 * 
+	 * @return
+	 */
+	public GLEx suspendClip() {
+		if (isClosed) {
+			return this;
+		}
+		if (scissorDepth > 0) {
+			GLUtils.disablecissorTest(batch.gl);
+		}
+		return this;
+	}
+
+	/**
+	 * 恢复suspendClip关闭的裁剪区域
+	 * 
+	 * @return
+	 */
+	public GLEx resumeClip() {
+		if (isClosed) {
+			return this;
+		}
+		if (scissorDepth > 0) {
+			RectBox r = scissors.get(scissorDepth - 1);
+			batch.gl.glScissor(r.x(), r.y(), r.width(), r.height());
+			GLUtils.enablecissorTest(batch.gl);
+		}
+		return this;
+	}
+
 	public GLEx translate(float x, float y) {
 		lastTrans.translate(x, y);
 		return this;
@@ -0,0 +1,38 @@
+/**
+ * Copyright 2008 - 2015 The Loon Game Engine Authors
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ * 
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.opengl;
+
+/**
+ * 支持实例化渲染(GL ES 3.0/GL 3.3或instanced_arrays扩展)的GL20实现可实现此接口
+ */
+public interface GLInstanced {
+
+	/**
+	 * 当前上下文是否真正支持实例化渲染
+	 * 
+	 * @return
+	 */
+	public boolean isInstancingSupported();
+
+	public void glVertexAttribDivisor(int index, int divisor);
+
+	public void glDrawElementsInstanced(int mode, int count, int type, int indicesOffset, int instanceCount);
+}
@@ -0,0 +1,345 @@
+/**
+ * Copyright 2008 - 2015 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.opengl;
+
+import loon.LSystem;
+import loon.canvas.LColor;
+import loon.utils.GLUtils;
+
+/**
+ * 实例化渲染的批处理,每个矩形精灵只记录一条紧凑的实例数据(仿射轴,原点,UV矩形,颜色共11个float),
+ * 由顶点着色器展开为四边形,而不是在CPU中把每个顶点变换后写入20个float.
+ *
+ * GL不支持实例化(未实现GLInstanced或上下文不支持),延迟提交,或者四边形不是矩形时,自动退回到TrilateralBatch的原有路径.
+ *
+ * <pre>
+ * g.pushBatch(new InstancedBatch(g.batch().gl));
+ * </pre>
+ */
+public class InstancedBatch extends TrilateralBatch {
+
+	private static final int INSTANCE_SIZE = 11;
+
+	private static final int CORNER_FLOATS = 8;
+
+	private static final String CORNER_ATTRIBUTE = "a_corner";
+
+	private static final String AXES_ATTRIBUTE = "a_axes";
+
+	private static final String ORIGIN_ATTRIBUTE = "a_origin";
+
+	private static final String UV_ATTRIBUTE = "a_uv";
+
+	private static final float[] CORNERS = { 0f, 0f, 1f, 0f, 1f, 1f, 0f, 1f };
+
+	public static final String getInstancedVertexShader() {
+		ShaderCmd cmd = ShaderCmd.getCmd("glex_instanced_vertex");
+		if (cmd.isCache()) {
+			return cmd.getShader();
+		} else {
+			cmd.putAttributeVec2(CORNER_ATTRIBUTE);
+			cmd.putAttributeVec4(AXES_ATTRIBUTE);
+			cmd.putAttributeVec2(ORIGIN_ATTRIBUTE);
+			cmd.putAttributeVec4(UV_ATTRIBUTE);
+			cmd.putAttributeVec4(ShaderProgram.COLOR_ATTRIBUTE);
+			cmd.putUniformMat4("u_projTrans");
+			cmd.putVaryingVec4("v_color");
+			cmd.putVaryingVec2("v_texCoords");
+			cmd.putMainCmd("   v_color = " + ShaderProgram.COLOR_ATTRIBUTE + ";\n"
+					+ "   v_color.a = v_color.a * (255.0/254.0);\n" + "   v_texCoords = mix(" + UV_ATTRIBUTE + ".xy, "
+					+ UV_ATTRIBUTE + ".zw, " + CORNER_ATTRIBUTE + ");\n" + "   vec2 pos = " + ORIGIN_ATTRIBUTE + " + "
+					+ AXES_ATTRIBUTE + ".xy * " + CORNER_ATTRIBUTE + ".x + " + AXES_ATTRIBUTE + ".zw * "
+					+ CORNER_ATTRIBUTE + ".y;\n" + "   gl_Position =  u_projTrans * vec4(pos, 0.0, 1.0);");
+			return cmd.getShader();
+		}
+	}
+
+	private final LColor tmpColor = new LColor();
+
+	private final int[] locations = new int[5];
+
+	private final int maxInstances;
+
+	private float[] instances;
+
+	private int instanceCount;
+
+	private float lastAlpha = 1f;
+
+	private ShaderProgram instanceShader;
+
+	private ShaderSource instanceSource;
+
+	private boolean instancing = true;
+
+	private boolean instancingFailed = false;
+
+	private int _instances_drawn;
+
+	private int _instance_draw_calls;
+
+	public InstancedBatch(GL20 gl) {
+		this(gl, DEF_SOURCE);
+	}
+
+	public InstancedBatch(GL20 gl, ShaderSource src) {
+		this(gl, 4096, src);
+	}
+
+	public InstancedBatch(GL20 gl, int maxInstances, ShaderSource src) {
+		super(gl, src);
+		this.maxInstances = maxInstances;
+		this.instances = new float[CORNER_FLOATS + 256 * INSTANCE_SIZE];
+	}
+
+	/**
+	 * 设定是否尝试使用实例化渲染
+	 *
+	 * @param i
+	 */
+	public void setInstancing(boolean i) {
+		if (!i) {
+			flushInstances();
+		}
+		this.instancing = i;
+	}
+
+	/**
+	 * 当前是否真正以实例化方式渲染
+	 *
+	 * @return
+	 */
+	public boolean isInstancing() {
+		return instancing && !instancingFailed && gl instanceof GLInstanced
+				&& ((GLInstanced) gl).isInstancingSupported();
+	}
+
+	/**
+	 * 自上次resetDrawCalls以来以实例化方式提交的精灵数量
+	 *
+	 * @return
+	 */
+	public int getInstanceCount() {
+		return _instances_drawn;
+	}
+
+	/**
+	 * 自上次resetDrawCalls以来实例化提交的draw call数量(已计入getDrawCalls)
+	 *
+	 * @return
+	 */
+	public int getInstanceDrawCalls() {
+		return _instance_draw_calls;
+	}
+
+	@Override
+	public void resetDrawCalls() {
+		super.resetDrawCalls();
+		this._instances_drawn = 0;
+		this._instance_draw_calls = 0;
+	}
+
+	private boolean useInstancing() {
+		return !isDeferred() && !isLockSubmit() && isInstancing();
+	}
+
+	@Override
+	public void begin(float fbufWidth, float fbufHeight, boolean flip) {
+		super.begin(fbufWidth, fbufHeight, flip);
+		if (isInstancing() && (instanceShader == null || instanceSource != getShaderSource())) {
+			if (instanceShader != null) {
+				instanceShader.close();
+				instanceShader = null;
+			}
+			try {
+				instanceSource = getShaderSource();
+				instanceShader = LSystem.createShader(getInstancedVertexShader(), instanceSource.fragmentShader());
+				for (int i = 0; i < locations.length; i++) {
+					locations[i] = -1;
+				}
+			} catch (Throwable ex) {
+				LSystem.error("Instanced shader error, fall back to vertex batch", ex);
+				instancingFailed = true;
+			}
+		}
+	}
+
+	@Override
+	public void addQuad(int tint, float m00, float m01, float m10, float m11, float tx, float ty, float left,
+			float top, float right, float bottom, float sl, float st, float sr, float sb) {
+		if (!useInstancing()) {
+			super.addQuad(tint, m00, m01, m10, m11, tx, ty, left, top, right, bottom, sl, st, sr, sb);
+			return;
+		}
+		// 先提交顶点路径中尚未提交的四边形,保证绘制顺序
+		submit();
+		if (instanceCount >= maxInstances) {
+			flushInstances();
+		}
+		int index = CORNER_FLOATS + instanceCount * INSTANCE_SIZE;
+		if (index + INSTANCE_SIZE > instances.length) {
+			float[] tmp = new float[Math.min(CORNER_FLOATS + maxInstances * INSTANCE_SIZE, instances.length * 2)];
+			System.arraycopy(instances, 0, tmp, 0, index);
+			instances = tmp;
+		}
+		final float w = right - left;
+		final float h = bottom - top;
+		final float[] data = instances;
+		data[index++] = m00 * w;
+		data[index++] = m01 * w;
+		data[index++] = m10 * h;
+		data[index++] = m11 * h;
+		data[index++] = m00 * left + m10 * top + tx;
+		data[index++] = m01 * left + m11 * top + ty;
+		data[index++] = sl;
+		data[index++] = st;
+		data[index++] = sr;
+		data[index++] = sb;
+		tmpColor.setColor(tint);
+		data[index++] = tmpColor.toFloatBits();
+		lastAlpha = tmpColor.a;
+		instanceCount++;
+	}
+
+	@Override
+	public void addQuad(int tint, float m00, float m01, float m10, float m11, float tx, float ty, float x1, float y1,
+			float sx1, float sy1, float x2, float y2, float sx2, float sy2, float x3, float y3, float sx3, float sy3,
+			float x4, float y4, float sx4, float sy4) {
+		if (useInstancing() && y1 == y2 && x1 == x3 && x2 == x4 && y3 == y4 && sy1 == sy2 && sx1 == sx3
+				&& sx2 == sx4 && sy3 == sy4) {
+			addQuad(tint, m00, m01, m10, m11, tx, ty, x1, y1, x4, y4, sx1, sy1, sx4, sy4);
+			return;
+		}
+		flushInstances();
+		super.addQuad(tint, m00, m01, m10, m11, tx, ty, x1, y1, sx1, sy1, x2, y2, sx2, sy2, x3, y3, sx3, sy3, x4,
+				y4, sx4, sy4);
+	}
+
+	@Override
+	public void flush() {
+		flushInstances();
+		super.flush();
+	}
+
+	@Override
+	public void setFixedBlendMode(int blend) {
+		if (getFixedBlendMode() != blend) {
+			flushInstances();
+		}
+		super.setFixedBlendMode(blend);
+	}
+
+	private void flushInstances() {
+		if (instanceCount == 0) {
+			return;
+		}
+		final int count = instanceCount;
+		instanceCount = 0;
+		if (instanceShader == null) {
+			return;
+		}
+		try {
+			drawInstances(count);
+		} catch (Throwable ex) {
+			LSystem.error("Batch flushInstances() error", ex);
+		}
+	}
+
+	private void drawInstances(int count) {
+		final GL20 gl = this.gl;
+		final GLInstanced ext = (GLInstanced) gl;
+		System.arraycopy(CORNERS, 0, instances, 0, CORNER_FLOATS);
+		bindTexture();
+		int tmp = GLUtils.getBlendMode();
+		GLUtils.setBlendMode(gl, submitBlend(lastAlpha));
+
+		final ShaderProgram program = instanceShader;
+		program.begin();
+		program.setUniformMatrix("u_projTrans", getViewMatrix());
+		program.setUniformi("u_texture", 0);
+		getShaderSource().setupShader(program);
+		if (locations[0] == -1) {
+			locations[0] = program.getAttributeLocation(CORNER_ATTRIBUTE);
+			locations[1] = program.getAttributeLocation(AXES_ATTRIBUTE);
+			locations[2] = program.getAttributeLocation(ORIGIN_ATTRIBUTE);
+			locations[3] = program.getAttributeLocation(UV_ATTRIBUTE);
+			locations[4] = program.getAttributeLocation(ShaderProgram.COLOR_ATTRIBUTE);
+		}
+
+		final StreamVertexBuffer stream = MeshDefault.getStreamVertices();
+		final int base = stream.upload(gl, instances, 0, CORNER_FLOATS + count * INSTANCE_SIZE);
+		MeshDefault.getStreamIndices().bind(gl, 1);
+
+		final int stride = INSTANCE_SIZE * 4;
+		final int offset = base + CORNER_FLOATS * 4;
+		attribute(program, ext, locations[0], 2, GL20.GL_FLOAT, false, 8, base, 0);
+		attribute(program, ext, locations[1], 4, GL20.GL_FLOAT, false, stride, offset, 1);
+		attribute(program, ext, locations[2], 2, GL20.GL_FLOAT, false, stride, offset + 16, 1);
+		attribute(program, ext, locations[3], 4, GL20.GL_FLOAT, false, stride, offset + 24, 1);
+		attribute(program, ext, locations[4], 4, GL20.GL_UNSIGNED_BYTE, true, stride, offset + 40, 1);
+
+		ext.glDrawElementsInstanced(GL20.GL_TRIANGLES, 6, GL20.GL_UNSIGNED_SHORT, 0, count);
+
+		// 除数是全局的顶点属性状态,必须复位,否则会影响其它渲染
+		for (int i = 0; i < locations.length; i++) {
+			if (locations[i] >= 0) {
+				ext.glVertexAttribDivisor(locations[i], 0);
+				program.disableVertexAttribute(locations[i]);
+			}
+		}
+		gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, 0);
+		gl.glBindBuffer(GL20.GL_ELEMENT_ARRAY_BUFFER, 0);
+
+		GLUtils.setBlendMode(gl, tmp);
+		ShaderProgram shader = getShader();
+		if (shader != null) {
+			shader.begin();
+		}
+		_draw_calls++;
+		_unsorted_draw_calls++;
+		_instance_draw_calls++;
+		_instances_drawn += count;
+	}
+
+	private static void attribute(ShaderProgram program, GLInstanced ext, int location, int size, int type,
+			boolean normalize, int stride, int offset, int divisor) {
+		if (location < 0) {
+			return;
+		}
+		program.enableVertexAttribute(location);
+		program.setVertexAttribute(location, size, type, normalize, stride, offset);
+		ext.glVertexAttribDivisor(location, divisor);
+	}
+
+	@Override
+	public void close() {
+		super.close();
+		if (instanceShader != null) {
+			instanceShader.close();
+			instanceShader = null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "instanced/" + (isInstancing() ? "on" : "off") + "/" + getSize();
+	}
+}
@@ -72,6 +72,31 @@ public final class LSTRDictionary implements LRelease {
 
 	private boolean tmp_asyn = true;
 
+	private boolean useGlyphCache = false;
+
+	private LSTRGlyphCache glyphCache;
+
+	/**
+	 * 是否使用按需生成的字形缓存绘制文字(开启后drawString不再因为出现新字符而重建LSTRFont纹理,
+	 * bind返回的Dict也只在调用getSTR时才生成LSTRFont)
+	 * 
+	 * @param glyph
+	 */
+	public void setGlyphCache(boolean glyph) {
+		this.useGlyphCache = glyph;
+	}
+
+	public boolean isGlyphCache() {
+		return this.useGlyphCache;
+	}
+
+	public LSTRGlyphCache getGlyphCache() {
+		if (glyphCache == null || glyphCache.isClosed()) {
+			glyphCache = new LSTRGlyphCache();
+		}
+		return glyphCache;
+	}
+
 	private final ArrayMap cacheList = new ArrayMap(32);
 
 	private final ArrayMap fontList = new ArrayMap(32);
@@ -97,6 +122,13 @@ public final class LSTRDictionary implements LRelease {
 
 		protected LSTRFont font;
 
+		// 延迟生成LSTRFont所需的字体与字符
+		private LFont lazyFont;
+
+		private String lazyChars;
+
+		private boolean lazyAsyn;
+
 		public static Dict newDict() {
 			return new Dict();
 		}
@@ -106,16 +138,39 @@ public final class LSTRDictionary implements LRelease {
 		}
 
 		public LTexture getTexture() {
-			if (font != null) {
-				return font.getTexture();
+			LSTRFont str = getSTR();
+			if (str != null) {
+				return str.getTexture();
 			}
 			return null;
 		}
 
 		public LSTRFont getSTR() {
+			if (font == null && lazyChars != null) {
+				font = new LSTRFont(lazyFont, lazyChars, lazyAsyn);
+				lazyFont = null;
+				lazyChars = null;
+			}
 			return font;
 		}
 
+		boolean isFont(LFont f) {
+			if (font != null) {
+				return font.getFont().equals(f);
+			}
+			return lazyFont != null && lazyFont.equals(f);
+		}
+
+		void lazy(LFont f, String chars, boolean asyn) {
+			if (font != null) {
+				font.close();
+				font = null;
+			}
+			lazyFont = f;
+			lazyChars = chars;
+			lazyAsyn = asyn;
+		}
+
 		public boolean include(String mes) {
 			int size = mes.length();
 			for (int i = 0; i < size; i++) {
@@ -128,6 +183,9 @@ public final class LSTRDictionary implements LRelease {
 		}
 
 		public boolean isClosed() {
+			if (font == null) {
+				return dicts == null;
+			}
 			return font.isClosed();
 		}
 
@@ -141,6 +199,8 @@ public final class LSTRDictionary implements LRelease {
 				dicts.clear();
 				dicts = null;
 			}
+			lazyFont = null;
+			lazyChars = null;
 		}
 
 	}
@@ -287,7 +347,11 @@ public final class LSTRDictionary implements LRelease {
 			}
 			if (pDict == null) {
 				pDict = Dict.newDict();
-				pDict.font = new LSTRFont(font, ADDED, tmp_asyn);
+				if (useGlyphCache) {
+					pDict.lazy(font, ADDED, tmp_asyn);
+				} else {
+					pDict.font = new LSTRFont(font, ADDED, tmp_asyn);
+				}
 				englishFontList.put(font, pDict);
 			}
 			return (_lastDict = pDict);
@@ -346,8 +410,13 @@ public final class LSTRDictionary implements LRelease {
 					for (int i = 0; i < newSize; i++) {
 						tmpBuffer.append(charas.get(i));
 					}
-					// 个别浏览器纹理同步会卡出国，只能异步……
-					pDict.font = new LSTRFont(font, tmpBuffer.toString(), tmp_asyn);
+					if (useGlyphCache) {
+						// 字形缓存模式下只登记字符,需要LSTRFont时再生成
+						pDict.lazy(font, tmpBuffer.toString(), tmp_asyn);
+					} else {
+						// 个别浏览器纹理同步会卡出国，只能异步……
+						pDict.font = new LSTRFont(font, tmpBuffer.toString(), tmp_asyn);
+					}
 				}
 			}
 		}
@@ -355,8 +424,12 @@ public final class LSTRDictionary implements LRelease {
 	}
 
 	public final void drawString(LFont font, String message, float x, float y, float angle, LColor c) {
+		if (useGlyphCache) {
+			getGlyphCache().drawString(LSystem.base().display().GL(), font, message, x, y, angle, c);
+			return;
+		}
 		Dict pDict = bind(font, message);
-		if (pDict.font != null) {
+		if (pDict.getSTR() != null) {
 			synchronized (pDict.font) {
 				pDict.font.drawString(message, x, y, angle, c);
 			}
@@ -365,8 +438,12 @@ public final class LSTRDictionary implements LRelease {
 
 	public final void drawString(LFont font, String message, float x, float y, float sx, float sy, float ax, float ay,
 			float angle, LColor c) {
+		if (useGlyphCache) {
+			getGlyphCache().drawString(LSystem.base().display().GL(), font, message, x, y, sx, sy, ax, ay, angle, c);
+			return;
+		}
 		Dict pDict = bind(font, message);
-		if (pDict.font != null) {
+		if (pDict.getSTR() != null) {
 			synchronized (pDict.font) {
 				pDict.font.drawString(message, x, y, sx, sy, ax, ay, angle, c);
 			}
@@ -374,8 +451,12 @@ public final class LSTRDictionary implements LRelease {
 	}
 
 	public final void drawString(GLEx gl, LFont font, String message, float x, float y, float angle, LColor c) {
+		if (useGlyphCache) {
+			getGlyphCache().drawString(gl, font, message, x, y, angle, c);
+			return;
+		}
 		Dict pDict = bind(font, message);
-		if (pDict.font != null) {
+		if (pDict.getSTR() != null) {
 			synchronized (pDict.font) {
 				pDict.font.drawString(gl, message, x, y, angle, c);
 			}
@@ -384,8 +465,12 @@ public final class LSTRDictionary implements LRelease {
 
 	public final void drawString(GLEx gl, LFont font, String message, float x, float y, float sx, float sy, float angle,
 			LColor c) {
+		if (useGlyphCache) {
+			getGlyphCache().drawString(gl, font, message, x, y, sx, sy, 0, 0, angle, c);
+			return;
+		}
 		Dict pDict = bind(font, message);
-		if (pDict.font != null) {
+		if (pDict.getSTR() != null) {
 			synchronized (pDict.font) {
 				pDict.font.drawString(gl, message, x, y, sx, sy, angle, c);
 			}
@@ -394,8 +479,12 @@ public final class LSTRDictionary implements LRelease {
 
 	public final void drawString(GLEx gl, LFont font, String message, float x, float y, float sx, float sy, float ax,
 			float ay, float angle, LColor c) {
+		if (useGlyphCache) {
+			getGlyphCache().drawString(gl, font, message, x, y, sx, sy, ax, ay, angle, c);
+			return;
+		}
 		Dict pDict = bind(font, message);
-		if (pDict.font != null) {
+		if (pDict.getSTR() != null) {
 			synchronized (pDict.font) {
 				pDict.font.drawString(gl, x, y, sx, sy, ax, ay, angle, message, c);
 			}
@@ -439,8 +528,8 @@ public final class LSTRDictionary implements LRelease {
 				Entry entry = fontList.getEntry(i);
 				if (entry != null) {
 					Dict dict = (Dict) entry.getValue();
-					if (dict != null && dict.font != null && dict.font.getFont().equals(font)) {
-						return dict.font;
+					if (dict != null && dict.isFont(font)) {
+						return dict.getSTR();
 					}
 				}
 			}
@@ -456,6 +545,10 @@ public final class LSTRDictionary implements LRelease {
 		cacheList.clear();
 		clearStringLazy();
 		clearEnglishLazy();
+		if (glyphCache != null) {
+			glyphCache.close();
+			glyphCache = null;
+		}
 	}
 
 	@Override
@@ -0,0 +1,608 @@
+/**
+ * Copyright 2008 - 2015 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.opengl;
+
+import java.nio.ByteBuffer;
+
+import loon.LRelease;
+import loon.LSystem;
+import loon.LTexture;
+import loon.LTexture.Format;
+import loon.canvas.Canvas;
+import loon.canvas.Image;
+import loon.canvas.LColor;
+import loon.font.LFont;
+import loon.font.TextLayout;
+import loon.geom.Affine2f;
+import loon.geom.RectI;
+import loon.utils.CollectionUtils;
+import loon.utils.GLUtils;
+import loon.utils.IntMap;
+import loon.utils.MathUtils;
+import loon.utils.ObjectMap;
+import loon.utils.StringUtils;
+import loon.utils.TArray;
+
+/**
+ * 按需生成的字形缓存,与LSTRFont一次性把全部字符渲染为一张纹理不同,它只在字符第一次出现时渲染该字符,
+ * 并装入多个字体共享的纹理页面中(按行货架式排列),页面用满时淘汰最久未使用的页面,上传时只更新有改动的区域.
+ *
+ * <pre>
+ * // 由LSTRDictionary使用,开启后LFont的文字不再因为出现新字符而重建整张纹理
+ * LSTRDictionary.get().setGlyphCache(true);
+ * </pre>
+ */
+public class LSTRGlyphCache implements LRelease {
+
+	public final static int DEFAULT_PAGE_SIZE = 512;
+
+	public final static int DEFAULT_MAX_PAGES = 4;
+
+	public final static int DEFAULT_PADDING = 1;
+
+	public static class Glyph {
+
+		private final RectI.Range bounds = new RectI.Range();
+
+		private IntMap<Glyph> owner;
+
+		private Page page;
+
+		private char ch;
+
+		public char getChar() {
+			return ch;
+		}
+
+		public int getWidth() {
+			return bounds.width();
+		}
+
+		public int getHeight() {
+			return bounds.height();
+		}
+
+		public int getPage() {
+			return page == null ? -1 : page.index;
+		}
+
+		public RectI.Range getBounds() {
+			return bounds;
+		}
+	}
+
+	private class Page {
+
+		private final TArray<Glyph> glyphs = new TArray<Glyph>();
+
+		private final RectI.Range dirty = new RectI.Range();
+
+		private final int index;
+
+		// 货架(行)的起始y,高度与当前x
+		private int[] shelfY = new int[16];
+
+		private int[] shelfHeight = new int[16];
+
+		private int[] shelfX = new int[16];
+
+		private int shelfCount;
+
+		private int nextY;
+
+		private long lastUsed;
+
+		private boolean hasDirty;
+
+		private Canvas canvas;
+
+		private LTexture texture;
+
+		private Page(int index) {
+			this.index = index;
+			this.canvas = LSystem.base().graphics().createCanvas(pageSize, pageSize);
+			this.canvas.setColor(LColor.white);
+		}
+
+		private boolean insert(int width, int height, RectI.Range out) {
+			int best = -1;
+			for (int i = 0; i < shelfCount; i++) {
+				if (height <= shelfHeight[i] && shelfX[i] + width <= pageSize) {
+					if (best == -1 || shelfHeight[i] < shelfHeight[best]) {
+						best = i;
+					}
+				}
+			}
+			if (best == -1) {
+				if (nextY + height > pageSize || width > pageSize) {
+					return false;
+				}
+				if (shelfCount == shelfY.length) {
+					shelfY = CollectionUtils.copyOf(shelfY, shelfCount * 2);
+					shelfHeight = CollectionUtils.copyOf(shelfHeight, shelfCount * 2);
+					shelfX = CollectionUtils.copyOf(shelfX, shelfCount * 2);
+				}
+				best = shelfCount++;
+				shelfY[best] = nextY;
+				shelfHeight[best] = height;
+				shelfX[best] = 0;
+				nextY += height;
+			}
+			out.set(shelfX[best], shelfY[best], shelfX[best] + width, shelfY[best] + height);
+			shelfX[best] += width;
+			return true;
+		}
+
+		private void markDirty(RectI.Range rect) {
+			if (!hasDirty) {
+				dirty.set(rect);
+				hasDirty = true;
+			} else {
+				dirty.set(MathUtils.min(dirty.left, rect.left), MathUtils.min(dirty.top, rect.top),
+						MathUtils.max(dirty.right, rect.right), MathUtils.max(dirty.bottom, rect.bottom));
+			}
+		}
+
+		private void reset() {
+			for (int i = 0; i < glyphs.size; i++) {
+				final Glyph glyph = glyphs.get(i);
+				if (glyph.owner != null) {
+					glyph.owner.remove(glyph.ch);
+					glyph.owner = null;
+				}
+				glyph.page = null;
+			}
+			glyphCount -= glyphs.size;
+			glyphs.clear();
+			shelfCount = 0;
+			nextY = 0;
+			// 清空后的区域没有字形引用,等新字形写入时再随之上传
+			canvas.clear();
+			canvas.setColor(LColor.white);
+			hasDirty = false;
+		}
+
+		private void upload(GL20 gl) {
+			if (texture == null || texture.isClosed()) {
+				texture = canvas.image.createTexture(format);
+				GLUtils.resetTexture();
+				hasDirty = false;
+				uploads++;
+				uploadedPixels += pageSize * pageSize;
+				return;
+			}
+			final Image image = canvas.image;
+			if (gl == null || image.pixelWidth() != pageSize || image.pixelHeight() != pageSize) {
+				// 画布存在像素缩放时无法按区域对应,只能整页上传
+				texture.update(image, false);
+				GLUtils.resetTexture();
+				hasDirty = false;
+				uploads++;
+				uploadedPixels += pageSize * pageSize;
+				return;
+			}
+			final int x = dirty.left;
+			final int y = dirty.top;
+			final int w = dirty.width();
+			final int h = dirty.height();
+			final int[] pixels = image.getPixels(x, y, w, h);
+			final ByteBuffer buffer = pixelBuffer(gl, w * h * 4);
+			for (int i = 0, size = w * h; i < size; i++) {
+				final int argb = pixels[i];
+				final int a = (argb >>> 24) & 0xFF;
+				// 与画布上传一样使用预乘alpha
+				buffer.put((byte) ((((argb >> 16) & 0xFF) * a) / 255));
+				buffer.put((byte) ((((argb >> 8) & 0xFF) * a) / 255));
+				buffer.put((byte) (((argb & 0xFF) * a) / 255));
+				buffer.put((byte) a);
+			}
+			buffer.flip();
+			GLUtils.bindTexture(gl, texture);
+			gl.glTexSubImage2D(GL20.GL_TEXTURE_2D, 0, x, y, w, h, GL20.GL_RGBA, GL20.GL_UNSIGNED_BYTE, buffer);
+			hasDirty = false;
+			uploads++;
+			uploadedPixels += w * h;
+		}
+
+		private void close() {
+			if (texture != null) {
+				texture.close(true);
+				texture = null;
+			}
+			if (canvas != null) {
+				canvas.close();
+				if (canvas.image != null) {
+					canvas.image.close();
+				}
+				canvas = null;
+			}
+		}
+	}
+
+	private final ObjectMap<String, IntMap<Glyph>> fonts = new ObjectMap<String, IntMap<Glyph>>();
+
+	private final TArray<Page> pages = new TArray<Page>();
+
+	private final RectI.Range tempRect = new RectI.Range();
+
+	private final int pageSize;
+
+	private final int maxPages;
+
+	private final Format format;
+
+	private int padding = DEFAULT_PADDING;
+
+	private ByteBuffer pixelBuffer;
+
+	private long tick;
+
+	private int glyphCount;
+
+	private int hits, misses, fallbacks, evictions, uploads;
+
+	private long uploadedPixels;
+
+	private boolean closed;
+
+	public LSTRGlyphCache() {
+		this(DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+	}
+
+	public LSTRGlyphCache(int pageSize, int maxPages) {
+		this(pageSize, maxPages, Format.LINEAR);
+	}
+
+	public LSTRGlyphCache(int pageSize, int maxPages, Format format) {
+		this.pageSize = MathUtils.max(32, pageSize);
+		this.maxPages = MathUtils.max(1, maxPages);
+		this.format = format == null ? Format.LINEAR : format;
+	}
+
+	private static String toFontString(LFont font) {
+		return font.getFontName() + "_" + font.getStyle() + "_" + font.getSize();
+	}
+
+	private ByteBuffer pixelBuffer(GL20 gl, int size) {
+		if (pixelBuffer == null || pixelBuffer.capacity() < size) {
+			pixelBuffer = gl.bufs.createByteBuffer(MathUtils.max(size, 4096));
+		}
+		pixelBuffer.clear();
+		return pixelBuffer;
+	}
+
+	private IntMap<Glyph> glyphs(LFont font) {
+		final String key = toFontString(font);
+		IntMap<Glyph> glyphs = fonts.get(key);
+		if (glyphs == null) {
+			glyphs = new IntMap<Glyph>();
+			fonts.put(key, glyphs);
+		}
+		return glyphs;
+	}
+
+	/**
+	 * 获得指定字体的字形,缓存中不存在时渲染该字符并装入页面(需要在下次flush时上传)
+	 *
+	 * @param font
+	 * @param ch
+	 * @return 页面已满且无法淘汰时返回null
+	 */
+	public synchronized Glyph get(LFont font, char ch) {
+		if (closed || font == null) {
+			return null;
+		}
+		return obtain(font, glyphs(font), ch);
+	}
+
+	private Glyph obtain(LFont font, IntMap<Glyph> glyphs, char ch) {
+		Glyph glyph = glyphs.get(ch);
+		if (glyph != null) {
+			hits++;
+			glyph.page.lastUsed = tick;
+			return glyph;
+		}
+		final TextLayout layout = font.getLayoutText(String.valueOf(ch));
+		int width = layout.charWidth(ch);
+		if (width <= 0) {
+			width = 1;
+		}
+		int height = layout.getHeight();
+		if (height <= 0) {
+			height = font.getSize();
+		}
+		final Page page = allocate(width + padding * 2, height + padding * 2);
+		if (page == null) {
+			fallbacks++;
+			return null;
+		}
+		misses++;
+		glyph = new Glyph();
+		glyph.ch = ch;
+		glyph.page = page;
+		glyph.owner = glyphs;
+		glyph.bounds.set(tempRect.left + padding, tempRect.top + padding, tempRect.left + padding + width,
+				tempRect.top + padding + height);
+		// 单独渲染字符后再贴到页面,避免字形超出自身区域污染相邻字形
+		Canvas canvas = Image.createCanvas(width, height);
+		canvas.setColor(LColor.white);
+		canvas.fillText(layout, 0, 0);
+		page.canvas.clearRect(tempRect.left, tempRect.top, tempRect.width(), tempRect.height());
+		page.canvas.draw(canvas.image, glyph.bounds.left, glyph.bounds.top);
+		canvas.close();
+		canvas.image.close();
+		page.markDirty(tempRect);
+		page.glyphs.add(glyph);
+		page.lastUsed = tick;
+		glyphs.put(ch, glyph);
+		glyphCount++;
+		return glyph;
+	}
+
+	/**
+	 * 分配指定大小的区域,结果存放在tempRect中
+	 */
+	private Page allocate(int width, int height) {
+		for (int i = 0; i < pages.size; i++) {
+			final Page page = pages.get(i);
+			if (page.insert(width, height, tempRect)) {
+				return page;
+			}
+		}
+		if (pages.size < maxPages) {
+			final Page page = new Page(pages.size);
+			pages.add(page);
+			return page.insert(width, height, tempRect) ? page : null;
+		}
+		// 页面数量已满,淘汰最久未使用的页面(当前正在绘制的文字所用页面除外)
+		Page oldest = null;
+		for (int i = 0; i < pages.size; i++) {
+			final Page page = pages.get(i);
+			if (page.lastUsed != tick && (oldest == null || page.lastUsed < oldest.lastUsed)) {
+				oldest = page;
+			}
+		}
+		if (oldest == null) {
+			return null;
+		}
+		oldest.reset();
+		evictions++;
+		return oldest.insert(width, height, tempRect) ? oldest : null;
+	}
+
+	/**
+	 * 上传全部有改动的页面区域
+	 */
+	public synchronized void flush() {
+		final GL20 gl = LSystem.base() == null ? null : LSystem.base().graphics().gl;
+		for (int i = 0; i < pages.size; i++) {
+			final Page page = pages.get(i);
+			if (page.hasDirty || page.texture == null) {
+				page.upload(gl);
+			}
+		}
+	}
+
+	private boolean isDirty() {
+		for (int i = 0; i < pages.size; i++) {
+			final Page page = pages.get(i);
+			if (page.hasDirty || page.texture == null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public void drawString(GLEx gl, LFont font, String chars, float x, float y, float rotation, LColor c) {
+		drawString(gl, font, chars, x, y, 1f, 1f, 0, 0, rotation, c);
+	}
+
+	public synchronized void drawString(GLEx gl, LFont font, String chars, float x, float y, float sx, float sy,
+			float ax, float ay, float rotation, LColor c) {
+		if (closed || gl == null || font == null || StringUtils.isEmpty(chars)) {
+			return;
+		}
+		tick++;
+		final IntMap<Glyph> glyphs = glyphs(font);
+		final int size = chars.length();
+		for (int i = 0; i < size; i++) {
+			final char ch = chars.charAt(i);
+			if (ch != '\n') {
+				obtain(font, glyphs, ch);
+			}
+		}
+		if (isDirty()) {
+			// 先提交已排队的绘制,再改写纹理内容
+			gl.batch().flush();
+			flush();
+		}
+		final float updateY = LSystem.isHTML5() ? 1f : 0;
+		final int fontSize = font.getSize();
+		int totalWidth = 0;
+		int totalHeight = 0;
+		int old = gl.color();
+		final boolean anchor = ax != 0 || ay != 0;
+		final boolean scale = sx != 1f || sy != 1f;
+		final boolean angle = rotation != 0;
+		final boolean update = scale || angle || anchor;
+		final int blend = gl.getBlendMode();
+		try {
+			gl.setBlendMode(LSystem.MODE_NORMAL);
+			gl.setTint(c);
+			if (update) {
+				gl.saveTx();
+				Affine2f xf = gl.tx();
+				if (angle || scale) {
+					float centerX = x + font.stringWidth(chars) / 2;
+					float centerY = y + font.stringHeight(chars) / 2;
+					xf.translate(centerX, centerY);
+					if (angle) {
+						xf.preRotate(rotation);
+					}
+					if (scale) {
+						xf.preScale(sx, sy);
+					}
+					xf.translate(-centerX, -centerY);
+				}
+				if (anchor) {
+					xf.translate(ax, ay);
+				}
+			}
+			for (int i = 0; i < size; i++) {
+				final char ch = chars.charAt(i);
+				if (ch == '\n') {
+					totalHeight += fontSize;
+					totalWidth = 0;
+					continue;
+				}
+				final Glyph glyph = glyphs.get(ch);
+				if (glyph == null || glyph.page == null || glyph.page.texture == null) {
+					totalWidth += font.charWidth(ch);
+					continue;
+				}
+				final RectI.Range bounds = glyph.bounds;
+				gl.draw(glyph.page.texture, x + totalWidth, y + totalHeight, bounds.width() * sx,
+						bounds.height() * sy, bounds.left, bounds.top, bounds.width(), bounds.height() - updateY, c);
+				totalWidth += bounds.width();
+			}
+		} finally {
+			gl.setBlendMode(blend);
+			gl.setTint(old);
+			if (update) {
+				gl.restoreTx();
+			}
+		}
+	}
+
+	/**
+	 * 移除指定字体的全部字形(所占区域在页面被淘汰时回收)
+	 *
+	 * @param font
+	 */
+	public synchronized void remove(LFont font) {
+		if (font == null) {
+			return;
+		}
+		IntMap<Glyph> glyphs = fonts.remove(toFontString(font));
+		if (glyphs != null) {
+			for (Glyph glyph : glyphs.values()) {
+				glyph.owner = null;
+			}
+			glyphs.clear();
+		}
+	}
+
+	public LTexture getPageTexture(int index) {
+		if (index < 0 || index >= pages.size) {
+			return null;
+		}
+		return pages.get(index).texture;
+	}
+
+	public int getPageCount() {
+		return pages.size;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	public int getMaxPages() {
+		return maxPages;
+	}
+
+	public int size() {
+		return glyphCount;
+	}
+
+	public int getPadding() {
+		return padding;
+	}
+
+	/**
+	 * 设定字形之间的间隔(像素),只影响之后装入的字形
+	 *
+	 * @param padding
+	 * @return
+	 */
+	public LSTRGlyphCache setPadding(int padding) {
+		this.padding = MathUtils.max(0, padding);
+		return this;
+	}
+
+	public int getHits() {
+		return hits;
+	}
+
+	public int getMisses() {
+		return misses;
+	}
+
+	public int getFallbacks() {
+		return fallbacks;
+	}
+
+	public int getEvictions() {
+		return evictions;
+	}
+
+	public int getUploads() {
+		return uploads;
+	}
+
+	/**
+	 * 累计上传的像素数量
+	 *
+	 * @return
+	 */
+	public long getUploadedPixels() {
+		return uploadedPixels;
+	}
+
+	public void resetStats() {
+		hits = misses = fallbacks = evictions = uploads = 0;
+		uploadedPixels = 0;
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public synchronized void close() {
+		for (int i = 0; i < pages.size; i++) {
+			pages.get(i).close();
+		}
+		pages.clear();
+		fonts.clear();
+		pixelBuffer = null;
+		glyphCount = 0;
+		closed = true;
+	}
+
+	@Override
+	public String toString() {
+		return "LSTRGlyphCache [pages=" + pages.size + ", glyphs=" + glyphCount + ", hits=" + hits + ", misses="
+				+ misses + ", fallbacks=" + fallbacks + ", evictions=" + evictions + ", uploads=" + uploads
+				+ ", uploadedPixels=" + uploadedPixels + "]";
+	}
+
+}
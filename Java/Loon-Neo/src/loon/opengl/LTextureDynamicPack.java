@@ -0,0 +1,692 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.opengl;
+
+import java.util.Comparator;
+
+import loon.LRelease;
+import loon.LSystem;
+import loon.LTexture;
+import loon.LTexture.Format;
+import loon.canvas.Canvas;
+import loon.canvas.Image;
+import loon.geom.RectI;
+import loon.utils.GLUtils;
+import loon.utils.IntMap;
+import loon.utils.MathUtils;
+import loon.utils.SortUtils;
+import loon.utils.TArray;
+import loon.utils.TimeUtils;
+
+/**
+ * 运行时动态纹理图集,与LTexturePack一样把多个小图合并到同一张纹理中,区别在于它在纹理第一次被使用时才装入,
+ * 可以随时加入与移除,并在超出内存预算时淘汰长时间未被使用的小图,使大量小纹理可以在TrilateralBatch中合并绘制.
+ * <p>
+ * 返回纹理的有效期:get与getRegion返回的是图集页面中的一块区域,小图被淘汰或移除后这块区域会被新的小图复用,
+ * 已保存的旧引用将绘制出新图像.因此get与getRegion的返回值只保证在本帧内有效,应当每帧重新获取(同时刷新最后使用时间);
+ * 需要长期保存返回值时使用acquire,被acquire的小图不会被淘汰或移除,直到相同次数的release之后才重新参与淘汰.
+ * 图集close后全部返回值失效.
+ *
+ * <pre>
+ * LTextureDynamicPack pack = new LTextureDynamicPack();
+ * // 每次绘制前获取,返回的是图集中对应区域(不符合条件时返回原纹理)
+ * g.draw(pack.get(icon), x, y);
+ * // 需要长期保存时
+ * LTexture tex = pack.acquire(icon);
+ * ...
+ * pack.release(icon);
+ * </pre>
+ */
+public class LTextureDynamicPack implements LRelease {
+
+	private final static Comparator<Entry> LAST_USED_COMPARATOR = new Comparator<Entry>() {
+
+		@Override
+		public int compare(Entry o1, Entry o2) {
+			return o1.lastUsed < o2.lastUsed ? -1 : (o1.lastUsed > o2.lastUsed ? 1 : 0);
+		}
+	};
+
+	public final static int DEFAULT_PAGE_SIZE = 1024;
+
+	public final static int DEFAULT_MAX_ENTRY_SIZE = 256;
+
+	public final static int DEFAULT_PADDING = 1;
+
+	// 默认内存预算(字节),可容纳4张1024x1024的页面
+	public final static int DEFAULT_MEMORY_BUDGET = 4 * DEFAULT_PAGE_SIZE * DEFAULT_PAGE_SIZE * 4;
+
+	// 默认超过此时间(毫秒)未被使用的小图允许被淘汰
+	public final static long DEFAULT_COLD_TIME = 3000;
+
+	public class Entry {
+
+		private final RectI.Range bounds = new RectI.Range();
+
+		private LTexture source;
+
+		private LTexture texture;
+
+		private LTextureRegion region;
+
+		private Page page;
+
+		private Entry next;
+
+		private int hash;
+
+		private long lastUsed;
+
+		// 被acquire且尚未release的次数,大于0时不会被淘汰
+		private int refs;
+
+		private Entry() {
+		}
+
+		public LTexture getSource() {
+			return source;
+		}
+
+		public LTexture getTexture() {
+			return texture;
+		}
+
+		public int getPage() {
+			return page == null ? -1 : page.index;
+		}
+
+		public RectI.Range getBounds() {
+			return bounds;
+		}
+
+		public long getLastUsed() {
+			return lastUsed;
+		}
+
+		public int getRefs() {
+			return refs;
+		}
+	}
+
+	private class Page {
+
+		private final MaxRectsPacker packer;
+
+		private final int index;
+
+		private Canvas canvas;
+
+		private LTexture texture;
+
+		private int entries;
+
+		private boolean dirty;
+
+		private Page(int index) {
+			this.index = index;
+			this.packer = new MaxRectsPacker(pageSize, pageSize);
+			this.canvas = LSystem.base().graphics().createCanvas(pageSize, pageSize);
+		}
+
+		private void upload() {
+			if (texture == null || texture.isClosed()) {
+				texture = canvas.image.createTexture(format);
+			} else {
+				texture.update(canvas.image, false);
+			}
+			// 上传时平台实现会直接绑定纹理,需要让GLUtils重新绑定
+			GLUtils.resetTexture();
+			dirty = false;
+			uploads++;
+		}
+
+		private void close() {
+			if (texture != null) {
+				texture.close(true);
+				texture = null;
+			}
+			if (canvas != null) {
+				canvas.close();
+				if (canvas.image != null) {
+					canvas.image.close();
+				}
+				canvas = null;
+			}
+		}
+	}
+
+	private final IntMap<Entry> entries = new IntMap<Entry>();
+
+	private final TArray<Page> pages = new TArray<Page>();
+
+	private final TArray<Entry> tempEntries = new TArray<Entry>();
+
+	private final RectI.Range tempRect = new RectI.Range();
+
+	private final int pageSize;
+
+	private final int maxEntrySize;
+
+	private final Format format;
+
+	private int padding = DEFAULT_PADDING;
+
+	private int memoryBudget = DEFAULT_MEMORY_BUDGET;
+
+	private long coldTime = DEFAULT_COLD_TIME;
+
+	private int entryCount;
+
+	private int hits, misses, fallbacks, evictions, uploads;
+
+	private boolean closed;
+
+	public LTextureDynamicPack() {
+		this(DEFAULT_PAGE_SIZE, DEFAULT_MAX_ENTRY_SIZE);
+	}
+
+	public LTextureDynamicPack(int pageSize, int maxEntrySize) {
+		this(pageSize, maxEntrySize, Format.LINEAR);
+	}
+
+	public LTextureDynamicPack(int pageSize, int maxEntrySize, Format format) {
+		this.pageSize = MathUtils.max(16, pageSize);
+		this.maxEntrySize = MathUtils.min(this.pageSize, MathUtils.max(1, maxEntrySize));
+		this.format = format == null ? Format.LINEAR : format;
+	}
+
+	private static int hash(LTexture tex) {
+		int hashCode = 1;
+		hashCode = LSystem.unite(hashCode, tex.getID());
+		hashCode = LSystem.unite(hashCode, tex.xOff);
+		hashCode = LSystem.unite(hashCode, tex.yOff);
+		hashCode = LSystem.unite(hashCode, tex.widthRatio);
+		hashCode = LSystem.unite(hashCode, tex.heightRatio);
+		return hashCode;
+	}
+
+	private Entry find(LTexture tex, int hash) {
+		for (Entry entry = entries.get(hash); entry != null; entry = entry.next) {
+			if (entry.source == tex) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 判断纹理是否可以装入图集
+	 *
+	 * @param tex
+	 * @return
+	 */
+	public boolean isEligible(LTexture tex) {
+		if (tex == null || tex.isClosed() || closed) {
+			return false;
+		}
+		final Format config = tex.getFormat();
+		if (config != null && (config.repeatX || config.repeatY || config.mipmaps)) {
+			return false;
+		}
+		final int width = tex.getWidth();
+		final int height = tex.getHeight();
+		return width > 0 && height > 0 && width <= maxEntrySize && height <= maxEntrySize;
+	}
+
+	/**
+	 * 获得纹理在图集中的对应区域,第一次使用时装入图集,无法装入时返回原纹理
+	 *
+	 * @param tex
+	 * @return
+	 */
+	public synchronized LTexture get(LTexture tex) {
+		Entry entry = obtain(tex);
+		return entry == null ? tex : entry.texture;
+	}
+
+	/**
+	 * 获得纹理在图集中的对应区域并锁定,在调用release之前该区域不会被淘汰或移除,返回值可以长期保存
+	 *
+	 * @param tex
+	 * @return
+	 */
+	public synchronized LTexture acquire(LTexture tex) {
+		Entry entry = obtain(tex);
+		if (entry == null) {
+			return tex;
+		}
+		entry.refs++;
+		return entry.texture;
+	}
+
+	/**
+	 * 解除一次acquire的锁定,全部解除后该小图从此刻起重新计算冷却时间
+	 *
+	 * @param tex
+	 * @return
+	 */
+	public synchronized boolean release(LTexture tex) {
+		if (tex == null) {
+			return false;
+		}
+		Entry entry = find(tex, hash(tex));
+		if (entry == null || entry.refs == 0) {
+			return false;
+		}
+		entry.refs--;
+		entry.lastUsed = TimeUtils.millis();
+		return true;
+	}
+
+	/**
+	 * 加载并获得指定路径的纹理在图集中的对应区域
+	 *
+	 * @param path
+	 * @return
+	 */
+	public LTexture get(String path) {
+		return get(LSystem.loadTexture(path));
+	}
+
+	/**
+	 * 获得纹理在图集中对应区域的LTextureRegion,无法装入时返回原纹理的LTextureRegion
+	 *
+	 * @param tex
+	 * @return
+	 */
+	public synchronized LTextureRegion getRegion(LTexture tex) {
+		Entry entry = obtain(tex);
+		if (entry == null) {
+			return tex == null ? null : new LTextureRegion(tex);
+		}
+		if (entry.region == null || entry.region.texture != entry.page.texture) {
+			entry.region = new LTextureRegion(entry.page.texture, entry.bounds.left, entry.bounds.top,
+					entry.bounds.width(), entry.bounds.height());
+		}
+		return entry.region;
+	}
+
+	/**
+	 * 提前装入一组纹理(只在最后上传一次页面),适合在加载时调用
+	 *
+	 * @param texs
+	 */
+	public synchronized void put(LTexture... texs) {
+		final long now = TimeUtils.millis();
+		for (int i = 0; i < texs.length; i++) {
+			final LTexture tex = texs[i];
+			if (isEligible(tex)) {
+				final int hash = hash(tex);
+				if (find(tex, hash) == null) {
+					insert(tex, hash, now);
+				}
+			}
+		}
+		flush();
+	}
+
+	private Entry obtain(LTexture tex) {
+		if (!isEligible(tex)) {
+			return null;
+		}
+		final long now = TimeUtils.millis();
+		final int hash = hash(tex);
+		Entry entry = find(tex, hash);
+		if (entry != null) {
+			hits++;
+		} else {
+			entry = insert(tex, hash, now);
+			if (entry == null) {
+				return null;
+			}
+		}
+		entry.lastUsed = now;
+		if (entry.page.dirty) {
+			entry.page.upload();
+		}
+		if (entry.texture == null) {
+			entry.texture = entry.page.texture.copy(entry.bounds.left, entry.bounds.top, entry.bounds.width(),
+					entry.bounds.height());
+		}
+		return entry;
+	}
+
+	private Entry insert(LTexture tex, int hash, long now) {
+		final Image image = tex.getImage();
+		if (image == null) {
+			fallbacks++;
+			return null;
+		}
+		final int width = tex.getWidth();
+		final int height = tex.getHeight();
+		final Page page = allocate(width + padding * 2, height + padding * 2, now);
+		if (page == null) {
+			fallbacks++;
+			return null;
+		}
+		misses++;
+		Entry entry = new Entry();
+		entry.source = tex;
+		entry.hash = hash;
+		entry.page = page;
+		entry.lastUsed = now;
+		entry.bounds.set(tempRect.left + padding, tempRect.top + padding, tempRect.left + padding + width,
+				tempRect.top + padding + height);
+		page.canvas.draw(image, entry.bounds.left, entry.bounds.top, width, height);
+		page.entries++;
+		page.dirty = true;
+		entry.next = entries.get(hash);
+		entries.put(hash, entry);
+		entryCount++;
+		return entry;
+	}
+
+	/**
+	 * 分配指定大小的区域,结果存放在tempRect中
+	 */
+	private Page allocate(int width, int height, long now) {
+		for (int i = 0; i < pages.size; i++) {
+			final Page page = pages.get(i);
+			if (page.packer.insert(width, height, tempRect)) {
+				return page;
+			}
+		}
+		if (pages.size == 0 || getMemorySize() + getPageMemorySize() <= memoryBudget) {
+			final Page page = new Page(pages.size);
+			pages.add(page);
+			if (page.packer.insert(width, height, tempRect)) {
+				return page;
+			}
+			return null;
+		}
+		// 内存预算不足,由旧到新淘汰长时间未使用的小图,直到所在页面可以容纳新区域
+		tempEntries.clear();
+		for (Entry entry : entries.values()) {
+			for (Entry e = entry; e != null; e = e.next) {
+				if (e.refs == 0 && now - e.lastUsed >= coldTime) {
+					tempEntries.add(e);
+				}
+			}
+		}
+		if (tempEntries.size == 0) {
+			return null;
+		}
+		SortUtils.quickSort(tempEntries.items, 0, tempEntries.size - 1, LAST_USED_COMPARATOR);
+		Page result = null;
+		for (int i = 0; i < tempEntries.size; i++) {
+			final Entry entry = tempEntries.get(i);
+			final Page page = entry.page;
+			evict(entry);
+			if (page.packer.insert(width, height, tempRect)) {
+				result = page;
+				break;
+			}
+		}
+		tempEntries.clear();
+		return result;
+	}
+
+	private void evict(Entry entry) {
+		unlink(entry);
+		free(entry);
+		evictions++;
+	}
+
+	private void unlink(Entry entry) {
+		Entry head = entries.get(entry.hash);
+		if (head == entry) {
+			entries.remove(entry.hash);
+			if (entry.next != null) {
+				entries.put(entry.hash, entry.next);
+			}
+		} else {
+			for (Entry e = head; e != null; e = e.next) {
+				if (e.next == entry) {
+					e.next = entry.next;
+					break;
+				}
+			}
+		}
+		entry.next = null;
+		entryCount--;
+	}
+
+	private void free(Entry entry) {
+		final Page page = entry.page;
+		final RectI.Range bounds = entry.bounds;
+		tempRect.set(bounds.left - padding, bounds.top - padding, bounds.right + padding, bounds.bottom + padding);
+		page.packer.free(tempRect);
+		page.canvas.clearRect(tempRect.left, tempRect.top, tempRect.width(), tempRect.height());
+		page.entries--;
+		page.dirty = true;
+		entry.page = null;
+		entry.texture = null;
+		entry.region = null;
+	}
+
+	/**
+	 * 从图集中移除指定纹理,仍被acquire锁定的纹理不会被移除
+	 *
+	 * @param tex
+	 * @return
+	 */
+	public synchronized boolean remove(LTexture tex) {
+		if (tex == null) {
+			return false;
+		}
+		Entry entry = find(tex, hash(tex));
+		if (entry == null || entry.refs > 0) {
+			return false;
+		}
+		unlink(entry);
+		free(entry);
+		return true;
+	}
+
+	/**
+	 * 淘汰超过指定时间(毫秒)未被使用且未被acquire锁定的全部小图
+	 *
+	 * @param time
+	 * @return 淘汰的数量
+	 */
+	public synchronized int evict(long time) {
+		final long now = TimeUtils.millis();
+		tempEntries.clear();
+		for (Entry entry : entries.values()) {
+			for (Entry e = entry; e != null; e = e.next) {
+				if (e.refs == 0 && now - e.lastUsed >= time) {
+					tempEntries.add(e);
+				}
+			}
+		}
+		final int count = tempEntries.size;
+		for (int i = 0; i < count; i++) {
+			evict(tempEntries.get(i));
+		}
+		tempEntries.clear();
+		return count;
+	}
+
+	/**
+	 * 上传全部有改动的页面
+	 */
+	public synchronized void flush() {
+		for (int i = 0; i < pages.size; i++) {
+			final Page page = pages.get(i);
+			if (page.dirty) {
+				page.upload();
+			}
+		}
+	}
+
+	public synchronized boolean contains(LTexture tex) {
+		return tex != null && find(tex, hash(tex)) != null;
+	}
+
+	public synchronized Entry getEntry(LTexture tex) {
+		return tex == null ? null : find(tex, hash(tex));
+	}
+
+	public LTexture getPageTexture(int index) {
+		if (index < 0 || index >= pages.size) {
+			return null;
+		}
+		return pages.get(index).texture;
+	}
+
+	public int getPageCount() {
+		return pages.size;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	public int getMaxEntrySize() {
+		return maxEntrySize;
+	}
+
+	public int size() {
+		return entryCount;
+	}
+
+	public int getPadding() {
+		return padding;
+	}
+
+	/**
+	 * 设定小图之间的间隔(像素),只影响之后装入的小图
+	 *
+	 * @param padding
+	 * @return
+	 */
+	public LTextureDynamicPack setPadding(int padding) {
+		this.padding = MathUtils.max(0, padding);
+		return this;
+	}
+
+	public int getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * 设定图集页面可以使用的内存(字节),至少会保留一张页面
+	 *
+	 * @param budget
+	 * @return
+	 */
+	public LTextureDynamicPack setMemoryBudget(int budget) {
+		this.memoryBudget = MathUtils.max(0, budget);
+		return this;
+	}
+
+	public long getColdTime() {
+		return coldTime;
+	}
+
+	/**
+	 * 设定小图超过多少毫秒未被使用后可以被淘汰
+	 *
+	 * @param time
+	 * @return
+	 */
+	public LTextureDynamicPack setColdTime(long time) {
+		this.coldTime = time < 0 ? 0 : time;
+		return this;
+	}
+
+	private int getPageMemorySize() {
+		return pageSize * pageSize * 4;
+	}
+
+	/**
+	 * 全部页面占用的内存(字节)
+	 *
+	 * @return
+	 */
+	public int getMemorySize() {
+		return pages.size * getPageMemorySize();
+	}
+
+	/**
+	 * 全部页面已占用面积的比例
+	 *
+	 * @return
+	 */
+	public float getOccupancy() {
+		if (pages.size == 0) {
+			return 0f;
+		}
+		long used = 0;
+		for (int i = 0; i < pages.size; i++) {
+			used += pages.get(i).packer.getUsedArea();
+		}
+		return (float) used / ((long) pages.size * pageSize * pageSize);
+	}
+
+	public int getHits() {
+		return hits;
+	}
+
+	public int getMisses() {
+		return misses;
+	}
+
+	public int getFallbacks() {
+		return fallbacks;
+	}
+
+	public int getEvictions() {
+		return evictions;
+	}
+
+	public int getUploads() {
+		return uploads;
+	}
+
+	public void resetStats() {
+		hits = misses = fallbacks = evictions = uploads = 0;
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public synchronized void close() {
+		for (int i = 0; i < pages.size; i++) {
+			pages.get(i).close();
+		}
+		pages.clear();
+		entries.clear();
+		tempEntries.clear();
+		entryCount = 0;
+		closed = true;
+	}
+
+	@Override
+	public String toString() {
+		return "LTextureDynamicPack [pages=" + pages.size + ", entries=" + entryCount + ", memory=" + getMemorySize()
+				+ ", occupancy=" + getOccupancy() + ", hits=" + hits + ", misses=" + misses + ", fallbacks="
+				+ fallbacks + ", evictions=" + evictions + "]";
+	}
+
+}
@@ -1,12 +1,15 @@
 package loon.opengl;
 
 import loon.Graphics;
+import loon.LSystem;
 import loon.LTexture;
 
 public class LTextureImage extends GLEx {
 
 	public final LTexture texture;
 
+	private float clipOffsetX, clipOffsetY;
+
 	public LTextureImage(Graphics gfx, BaseBatch defaultBatch, float width,
 			float height, boolean alltex) {
 		this(gfx, defaultBatch, gfx.createTexture(width, height,
@@ -19,6 +22,27 @@ public class LTextureImage extends GLEx {
 		this.texture = texture;
 	}
 
+	/**
+	 * 设定裁剪区域的坐标偏移,把以屏幕坐标绘制的内容渲染到此纹理时使用
+	 * 
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public LTextureImage setClipOffset(float x, float y) {
+		this.clipOffsetX = x;
+		this.clipOffsetY = y;
+		return this;
+	}
+
+	@Override
+	public boolean startClipped(float x, float y, float w, float h) {
+		// GLEx按屏幕缩放换算裁剪区域,此处换算为纹理像素
+		final float sx = target.xscale() / LSystem.getScaleWidth();
+		final float sy = target.yscale() / LSystem.getScaleHeight();
+		return super.startClipped((x - clipOffsetX) * sx, (y - clipOffsetY) * sy, w * sx, h * sy);
+	}
+
 	@Override
 	public void close() {
 		super.close();
@@ -0,0 +1,231 @@
+/**
+ * Copyright 2008 - 2019 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.opengl;
+
+import loon.geom.RectI;
+import loon.utils.TArray;
+
+/**
+ * MaxRects矩形装箱器(最短边适配),支持逐个插入与释放矩形,用于动态纹理图集的空间分配.
+ */
+public class MaxRectsPacker {
+
+	private final TArray<RectI.Range> freeRects = new TArray<RectI.Range>();
+
+	private final TArray<RectI.Range> newRects = new TArray<RectI.Range>();
+
+	private final TArray<RectI.Range> pool = new TArray<RectI.Range>();
+
+	private final RectI.Range bestRect = new RectI.Range();
+
+	private int width, height;
+
+	private int usedArea;
+
+	public MaxRectsPacker(int width, int height) {
+		reset(width, height);
+	}
+
+	public void reset(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.usedArea = 0;
+		for (int i = 0; i < freeRects.size; i++) {
+			pool.add(freeRects.get(i));
+		}
+		freeRects.clear();
+		freeRects.add(obtain(0, 0, width, height));
+	}
+
+	private RectI.Range obtain(int left, int top, int right, int bottom) {
+		RectI.Range rect = pool.size > 0 ? pool.pop() : new RectI.Range();
+		rect.set(left, top, right, bottom);
+		return rect;
+	}
+
+	/**
+	 * 插入一个矩形
+	 *
+	 * @param w
+	 * @param h
+	 * @param result
+	 *            返回所在区域
+	 * @return 空间不足时返回false
+	 */
+	public boolean insert(int w, int h, RectI.Range result) {
+		if (w <= 0 || h <= 0 || w > width || h > height) {
+			return false;
+		}
+		int bestShort = Integer.MAX_VALUE;
+		int bestLong = Integer.MAX_VALUE;
+		boolean found = false;
+		for (int i = 0; i < freeRects.size; i++) {
+			final RectI.Range free = freeRects.get(i);
+			final int fw = free.width();
+			final int fh = free.height();
+			if (fw >= w && fh >= h) {
+				final int leftW = fw - w;
+				final int leftH = fh - h;
+				final int shortSide = leftW < leftH ? leftW : leftH;
+				final int longSide = leftW > leftH ? leftW : leftH;
+				if (shortSide < bestShort || (shortSide == bestShort && longSide < bestLong)) {
+					bestRect.set(free.left, free.top, free.left + w, free.top + h);
+					bestShort = shortSide;
+					bestLong = longSide;
+					found = true;
+				}
+			}
+		}
+		if (!found) {
+			return false;
+		}
+		for (int i = freeRects.size - 1; i >= 0; i--) {
+			final RectI.Range free = freeRects.get(i);
+			if (split(free, bestRect)) {
+				freeRects.removeIndex(i);
+				pool.add(free);
+			}
+		}
+		prune();
+		newRects.clear();
+		usedArea += w * h;
+		result.set(bestRect);
+		return true;
+	}
+
+	/**
+	 * 释放一个之前插入的矩形
+	 *
+	 * @param rect
+	 */
+	public void free(RectI.Range rect) {
+		usedArea -= rect.width() * rect.height();
+		if (usedArea <= 0) {
+			reset(width, height);
+			return;
+		}
+		final RectI.Range freed = obtain(rect.left, rect.top, rect.right, rect.bottom);
+		// 与共用完整边的空闲区域合并,使释放后的空间可以重新容纳较大的矩形
+		for (int i = 0; i < freeRects.size; i++) {
+			final RectI.Range free = freeRects.get(i);
+			if (free.contains(freed)) {
+				pool.add(freed);
+				return;
+			}
+			if (freed.contains(free)) {
+				freeRects.removeIndex(i);
+				pool.add(free);
+				i = -1;
+			} else if ((freed.left == free.left && freed.right == free.right
+					&& (freed.bottom == free.top || free.bottom == freed.top))
+					|| (freed.top == free.top && freed.bottom == free.bottom
+							&& (freed.right == free.left || free.right == freed.left))) {
+				freed.union(free);
+				freeRects.removeIndex(i);
+				pool.add(free);
+				i = -1;
+			}
+		}
+		freeRects.add(freed);
+	}
+
+	/**
+	 * 用已占用区域切分空闲区域,空闲区域被占用时返回true(剩余部分存入newRects)
+	 */
+	private boolean split(RectI.Range free, RectI.Range used) {
+		if (used.left >= free.right || used.right <= free.left || used.top >= free.bottom
+				|| used.bottom <= free.top) {
+			return false;
+		}
+		if (used.left > free.left) {
+			newRects.add(obtain(free.left, free.top, used.left, free.bottom));
+		}
+		if (used.right < free.right) {
+			newRects.add(obtain(used.right, free.top, free.right, free.bottom));
+		}
+		if (used.top > free.top) {
+			newRects.add(obtain(free.left, free.top, free.right, used.top));
+		}
+		if (used.bottom < free.bottom) {
+			newRects.add(obtain(free.left, used.bottom, free.right, free.bottom));
+		}
+		return true;
+	}
+
+	/**
+	 * 删除被其它空闲区域包含的新空闲区域后加入空闲列表,原有的空闲区域之间不会互相包含,只需检查新产生的部分
+	 */
+	private void prune() {
+		for (int i = 0; i < newRects.size; i++) {
+			final RectI.Range a = newRects.get(i);
+			boolean contained = false;
+			for (int j = 0; j < newRects.size; j++) {
+				final RectI.Range b = newRects.get(j);
+				if (i != j && b.contains(a) && (!a.contains(b) || j < i)) {
+					contained = true;
+					break;
+				}
+			}
+			if (!contained) {
+				for (int j = 0; j < freeRects.size; j++) {
+					if (freeRects.get(j).contains(a)) {
+						contained = true;
+						break;
+					}
+				}
+			}
+			if (contained) {
+				newRects.removeIndex(i);
+				pool.add(a);
+				i--;
+			}
+		}
+		for (int i = 0; i < newRects.size; i++) {
+			freeRects.add(newRects.get(i));
+		}
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getUsedArea() {
+		return usedArea;
+	}
+
+	/**
+	 * 已占用面积的比例
+	 *
+	 * @return
+	 */
+	public float getOccupancy() {
+		return (float) usedArea / (width * height);
+	}
+
+	public boolean isEmpty() {
+		return usedArea == 0;
+	}
+
+}
@@ -586,6 +586,7 @@ public class Mesh implements LRelease {
 		if (game.graphics().gl == null) {
 			return;
 		}
+		MeshDefault.invalidate();
 		TArray<Mesh> meshesArray = game.getMeshAll();
 		if (meshesArray == null) {
 			return;
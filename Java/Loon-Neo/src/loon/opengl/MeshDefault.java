@@ -20,21 +20,75 @@
  */
 package loon.opengl;
 
+import loon.Display;
 import loon.LSystem;
+import loon.opengl.VertexAttributes.Usage;
 
 public class MeshDefault {
 
+	private static final VertexAttributes STREAM_ATTRIBUTES = new VertexAttributes(
+			new VertexAttribute(Usage.Position, 2, ShaderProgram.POSITION_ATTRIBUTE),
+			new VertexAttribute(Usage.ColorPacked, 4, ShaderProgram.COLOR_ATTRIBUTE),
+			new VertexAttribute(Usage.TextureCoordinates, 2, ShaderProgram.TEXCOORD_ATTRIBUTE + "0"));
+
+	private static final StreamVertexBuffer STREAM_VERTICES = new StreamVertexBuffer(1024 * 1024);
+
+	private static final QuadIndexBuffer STREAM_INDICES = new QuadIndexBuffer();
+
+	private static boolean streaming = true;
+
+	private final GLBase owner;
+
+	private final int[] locations = new int[STREAM_ATTRIBUTES.size()];
+
+	private ShaderProgram lastShader;
+
 	private int type = GL20.GL_TRIANGLES;
 
-	private boolean running = false;
+	private boolean customIndices = false;
 
-	private boolean stop_main_readering = false;
+	public MeshDefault() {
+		this(null);
+	}
+
+	/**
+	 * @param owner
+	 *            使用此对象提交的批处理,当它本身就是主画面GLEx的批处理时,提交时不会再结束与重启主画面渲染
+	 */
+	public MeshDefault(GLBase owner) {
+		this.owner = owner;
+	}
+
+	/**
+	 * 设定是否以共享的环形顶点缓冲流式提交四边形(默认开启),关闭时使用按名称缓存的Mesh池
+	 * 
+	 * @param s
+	 */
+	public static void setStreaming(boolean s) {
+		streaming = s;
+	}
+
+	public static boolean isStreaming() {
+		return streaming;
+	}
+
+	public static StreamVertexBuffer getStreamVertices() {
+		return STREAM_VERTICES;
+	}
+
+	public static QuadIndexBuffer getStreamIndices() {
+		return STREAM_INDICES;
+	}
 
 	public Mesh getMesh(String n, int size) {
 		return LSystem.getMeshPool(n, size);
 	}
 
 	public void reset(String n, int size) {
+		// 流式提交不使用Mesh池,池中尚无对象时无需创建
+		if (streaming && !customIndices) {
+			return;
+		}
 		LSystem.resetMeshPool(n, size);
 	}
 
@@ -49,41 +103,85 @@ public class MeshDefault {
 	public void setIndices(String name, int size, short[] indices) {
 		Mesh mesh = getMesh(name, size);
 		mesh.setIndices(indices);
+		customIndices = true;
 	}
 
 	public void resetIndices(String name, int size) {
 		Mesh mesh = getMesh(name, size);
 		LSystem.resetIndices(size, mesh);
+		customIndices = false;
+	}
+
+	private boolean isMainBatch() {
+		if (owner == null || LSystem.base() == null) {
+			return false;
+		}
+		Display display = LSystem.base().display();
+		return display != null && display.GL().batch() == owner;
 	}
 
 	public void post(final String name, final int size, ShaderProgram shader, float[] vertices,
 			int vertexIdx, int count) {
-		// 防止与主画面渲染器GLEx冲突
-		this.running = LSystem.mainDrawRunning();
-		if (!running) {
-			shader.glUseProgramBind();
-		} else {
+		// 防止与主画面渲染器GLEx冲突,批处理自身即为主画面时则不需要
+		final boolean interrupt = LSystem.mainDrawRunning() && !isMainBatch();
+		if (interrupt) {
 			LSystem.mainEndDraw();
-			stop_main_readering = true;
 		}
-		Mesh mesh = getMesh(name, size);
-		if (mesh == null) {
-			if (!running) {
-				shader.glUseProgramUnBind();
-			} else if (stop_main_readering) {
-				LSystem.mainBeginDraw();
+		shader.glUseProgramBind();
+		if (!streaming || customIndices || !stream(shader, vertices, vertexIdx, count)) {
+			Mesh mesh = getMesh(name, size);
+			if (mesh != null) {
+				mesh.setVertices(vertices, 0, vertexIdx);
+				mesh.getIndicesBuffer().position(0);
+				mesh.getIndicesBuffer().limit(count);
+				mesh.render(shader, type, 0, count);
 			}
-			return;
 		}
-		mesh.setVertices(vertices, 0, vertexIdx);
-		mesh.getIndicesBuffer().position(0);
-		mesh.getIndicesBuffer().limit(count);
-		mesh.render(shader, type, 0, count);
-		if (!running) {
-			shader.glUseProgramUnBind();
-		} else if (stop_main_readering) {
+		if (interrupt) {
 			LSystem.mainBeginDraw();
+		} else {
+			shader.glUseProgramUnBind();
+		}
+	}
+
+	private boolean stream(ShaderProgram shader, float[] vertices, int vertexIdx, int count) {
+		if (type != GL20.GL_TRIANGLES || count == 0) {
+			return count == 0;
+		}
+		final GL20 gl = LSystem.base().graphics().gl;
+		final int quads = (count + 5) / 6;
+		if (quads > QuadIndexBuffer.MAX_QUADS) {
+			return false;
+		}
+		final int offset = STREAM_VERTICES.upload(gl, vertices, 0, vertexIdx);
+		STREAM_INDICES.bind(gl, quads);
+		if (shader != lastShader) {
+			for (int i = 0; i < locations.length; i++) {
+				locations[i] = shader.getAttributeLocation(STREAM_ATTRIBUTES.get(i).alias);
+			}
+			lastShader = shader;
+		}
+		final int stride = STREAM_ATTRIBUTES.vertexSize;
+		for (int i = 0; i < locations.length; i++) {
+			final int location = locations[i];
+			if (location < 0) {
+				continue;
+			}
+			final VertexAttribute attribute = STREAM_ATTRIBUTES.get(i);
+			shader.enableVertexAttribute(location);
+			shader.setVertexAttribute(location, attribute.numComponents, attribute.type, attribute.normalized,
+					stride, offset + attribute.offset);
+		}
+		gl.glDrawElements(type, count, GL20.GL_UNSIGNED_SHORT, 0);
+		for (int i = 0; i < locations.length; i++) {
+			if (locations[i] >= 0) {
+				shader.disableVertexAttribute(locations[i]);
+			}
 		}
+		// 其余Mesh使用客户端顶点数组,需要解除缓冲绑定
+		gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, 0);
+		gl.glBindBuffer(GL20.GL_ELEMENT_ARRAY_BUFFER, 0);
+		return true;
 	}
 
 	public int size() {
@@ -94,8 +192,18 @@ public class MeshDefault {
 		LSystem.disposeMeshPool(name, size);
 	}
 
+	/**
+	 * GL上下文丢失后调用,共享的流式缓冲会在下次提交时重建
+	 */
+	public static void invalidate() {
+		STREAM_VERTICES.invalidate();
+		STREAM_INDICES.invalidate();
+	}
+
 	public static void dispose() {
 		LSystem.disposeMeshPool();
+		STREAM_VERTICES.close();
+		STREAM_INDICES.close();
 	}
 
 }
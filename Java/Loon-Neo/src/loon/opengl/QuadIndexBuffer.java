@@ -0,0 +1,107 @@
+/**
+ * Copyright 2008 - 2015 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.opengl;
+
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+
+import loon.LRelease;
+import loon.LSystem;
+
+/**
+ * 所有批处理共享的四边形索引缓冲(0,1,2,2,3,0...),只在需要更多四边形时重建
+ */
+public class QuadIndexBuffer implements LRelease {
+
+	/**
+	 * short索引可寻址的最大四边形数量
+	 */
+	public static final int MAX_QUADS = 65536 / 4;
+
+	private int bufferHandle;
+
+	private int quads;
+
+	/**
+	 * 绑定此缓冲为GL_ELEMENT_ARRAY_BUFFER,并保证至少包含指定数量的四边形
+	 *
+	 * @param gl
+	 * @param required
+	 * @return 无法容纳时返回false
+	 */
+	public boolean bind(GL20 gl, int required) {
+		if (required > MAX_QUADS) {
+			return false;
+		}
+		if (bufferHandle == 0) {
+			bufferHandle = gl.glGenBuffer();
+			quads = 0;
+		}
+		gl.glBindBuffer(GL20.GL_ELEMENT_ARRAY_BUFFER, bufferHandle);
+		if (required > quads) {
+			int size = quads == 0 ? 512 : quads;
+			while (size < required) {
+				size *= 2;
+			}
+			if (size > MAX_QUADS) {
+				size = MAX_QUADS;
+			}
+			final int len = size * 6;
+			ByteBuffer bytes = LSystem.base().support().newByteBuffer(len * 2);
+			ShortBuffer indices = bytes.asShortBuffer();
+			for (int i = 0, j = 0; i < len; i += 6, j += 4) {
+				indices.put((short) j);
+				indices.put((short) (j + 1));
+				indices.put((short) (j + 2));
+				indices.put((short) (j + 2));
+				indices.put((short) (j + 3));
+				indices.put((short) j);
+			}
+			bytes.position(0);
+			bytes.limit(len * 2);
+			gl.glBufferData(GL20.GL_ELEMENT_ARRAY_BUFFER, len * 2, bytes, GL20.GL_STATIC_DRAW);
+			quads = size;
+		}
+		return true;
+	}
+
+	public int getQuads() {
+		return quads;
+	}
+
+	public int getBufferHandle() {
+		return bufferHandle;
+	}
+
+	public void invalidate() {
+		bufferHandle = 0;
+		quads = 0;
+	}
+
+	@Override
+	public void close() {
+		if (bufferHandle != 0) {
+			LSystem.base().graphics().gl.glDeleteBuffer(bufferHandle);
+			bufferHandle = 0;
+		}
+		quads = 0;
+	}
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright 2008 - 2015 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.opengl;
+
+import java.nio.ByteBuffer;
+
+import loon.LRelease;
+import loon.LSystem;
+
+/**
+ * 流式顶点缓冲,每次提交从一块大的环形VBO中顺序分配空间并以glBufferSubData上传,
+ * 写到末尾放不下时以glBufferData(null)孤立(orphan)旧存储后从头开始,避免等待GPU使用完旧数据.
+ */
+public class StreamVertexBuffer implements LRelease {
+
+	private int bufferHandle;
+
+	private int capacity;
+
+	private int cursor;
+
+	private ByteBuffer staging;
+
+	private int uploads, orphans;
+
+	private long uploadedBytes;
+
+	public StreamVertexBuffer(int capacityBytes) {
+		this.capacity = capacityBytes;
+	}
+
+	/**
+	 * 上传顶点数据并绑定此缓冲为GL_ARRAY_BUFFER
+	 *
+	 * @param gl
+	 * @param vertices
+	 * @param offset
+	 * @param count
+	 *            float数量
+	 * @return 数据在缓冲中的字节偏移
+	 */
+	public int upload(GL20 gl, float[] vertices, int offset, int count) {
+		final int bytes = count * 4;
+		if (bytes > capacity) {
+			int size = capacity;
+			while (size < bytes) {
+				size *= 2;
+			}
+			capacity = size;
+			if (bufferHandle != 0) {
+				gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, bufferHandle);
+				orphan(gl);
+			}
+		}
+		if (bufferHandle == 0) {
+			bufferHandle = gl.glGenBuffer();
+			gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, bufferHandle);
+			orphan(gl);
+		} else {
+			gl.glBindBuffer(GL20.GL_ARRAY_BUFFER, bufferHandle);
+			if (cursor + bytes > capacity) {
+				orphan(gl);
+			}
+		}
+		if (staging == null || staging.capacity() < bytes) {
+			staging = LSystem.base().support().newByteBuffer(capacity);
+		}
+		LSystem.base().support().copy(vertices, staging, offset, count);
+		staging.position(0);
+		staging.limit(bytes);
+		final int start = cursor;
+		gl.glBufferSubData(GL20.GL_ARRAY_BUFFER, start, bytes, staging);
+		cursor += bytes;
+		uploads++;
+		uploadedBytes += bytes;
+		return start;
+	}
+
+	private void orphan(GL20 gl) {
+		gl.glBufferData(GL20.GL_ARRAY_BUFFER, capacity, null, GL20.GL_STREAM_DRAW);
+		cursor = 0;
+		orphans++;
+	}
+
+	public int getBufferHandle() {
+		return bufferHandle;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public int getUploadCount() {
+		return uploads;
+	}
+
+	public int getOrphanCount() {
+		return orphans;
+	}
+
+	public long getUploadedBytes() {
+		return uploadedBytes;
+	}
+
+	public void resetStats() {
+		uploads = 0;
+		orphans = 0;
+		uploadedBytes = 0;
+	}
+
+	/**
+	 * GL上下文丢失后调用,旧的句柄已不存在,下次上传时重新创建
+	 */
+	public void invalidate() {
+		bufferHandle = 0;
+		cursor = 0;
+	}
+
+	@Override
+	public String toString() {
+		return "StreamVertexBuffer [capacity=" + capacity + ", cursor=" + cursor + ", uploads=" + uploads
+				+ ", orphans=" + orphans + ", uploadedBytes=" + uploadedBytes + "]";
+	}
+
+	@Override
+	public void close() {
+		if (bufferHandle != 0) {
+			GL20 gl = LSystem.base().graphics().gl;
+			gl.glDeleteBuffer(bufferHandle);
+			bufferHandle = 0;
+		}
+		cursor = 0;
+		staging = null;
+	}
+}
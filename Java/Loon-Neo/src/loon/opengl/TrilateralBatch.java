@@ -49,6 +49,8 @@ public class TrilateralBatch extends BaseBatch {
 
 	private boolean lockSubmit = false;
 
+	private int fixedBlend = -1;
+
 	private MeshDefault mesh;
 
 	public int getSize() {
@@ -76,6 +78,47 @@ public class TrilateralBatch extends BaseBatch {
 	}
 
 	public void submit() {
+		submit(submitBlend(tmpColor.a));
+	}
+
+	private static int blendMode(float alpha) {
+		return alpha >= 0.98f ? LSystem.MODE_NORMAL : LSystem.MODE_SPEED;
+	}
+
+	/**
+	 * 设定之后加入的四边形提交时使用的混合模式,为-1时按颜色的透明度自动选择(默认).
+	 * 改变时先提交此前加入的四边形,使它们仍以原有的混合模式绘制
+	 * 
+	 * @param blend
+	 */
+	public void setFixedBlendMode(int blend) {
+		if (this.fixedBlend == blend) {
+			return;
+		}
+		submit();
+		this.fixedBlend = blend;
+	}
+
+	public int getFixedBlendMode() {
+		return this.fixedBlend;
+	}
+
+	protected int submitBlend(float alpha) {
+		return fixedBlend == -1 ? blendMode(alpha) : fixedBlend;
+	}
+
+	private final GLDrawCommand.Submitter commandSubmitter = new GLDrawCommand.Submitter() {
+
+		@Override
+		public void submit(int texId, int blend, float[] vertices, int quads) {
+			curTexId = texId;
+			idx = quads * GLDrawCommand.QUAD_SIZE;
+			expandVertices.setVertices(0, vertices, 0, idx);
+			TrilateralBatch.this.submit(blend);
+		}
+	};
+
+	private void submit(int blend) {
 		if (idx == 0) {
 			return;
 		}
@@ -88,10 +131,10 @@ public class TrilateralBatch extends BaseBatch {
 			bindTexture();
 			GL20 gl = LSystem.base().graphics().gl;
 			int tmp = GLUtils.getBlendMode();
-			if (tmpColor.a >= 0.98f) {
-				GLUtils.setBlendMode(gl, LSystem.MODE_NORMAL);
-			} else {
-				GLUtils.setBlendMode(gl, LSystem.MODE_SPEED);
+			GLUtils.setBlendMode(gl, blend);
+			_draw_calls++;
+			if (!isDeferred()) {
+				_unsorted_draw_calls++;
 			}
 			mesh.post(_batch_name, expandVertices.getSize(), shader, expandVertices.getVertices(), idx, count);
 			GLUtils.setBlendMode(gl, tmp);
@@ -133,7 +176,7 @@ public class TrilateralBatch extends BaseBatch {
 
 	@Override
 	public void init() {
-		this.mesh = new MeshDefault();
+		this.mesh = new MeshDefault(this);
 	}
 
 	protected float addX(float m00, float m01, float m10, float m11, float x, float y, float sx, float sy, float tx,
@@ -157,6 +200,17 @@ public class TrilateralBatch extends BaseBatch {
 
 		float colorFloat = tmpColor.setColor(tint).toFloatBits();
 
+		if (isDeferred()) {
+			getDrawCommand().add(curTexId, submitBlend(tmpColor.a), getDepth(), colorFloat,
+					addX(m00, m01, m10, m11, x1, y1, sx1, sy1, tx, ty), addY(m00, m01, m10, m11, x1, y1, sx1, sy1, tx, ty),
+					sx1, sy1, addX(m00, m01, m10, m11, x2, y2, sx2, sy2, tx, ty),
+					addY(m00, m01, m10, m11, x2, y2, sx2, sy2, tx, ty), sx2, sy2,
+					addX(m00, m01, m10, m11, x4, y4, sx4, sy4, tx, ty), addY(m00, m01, m10, m11, x4, y4, sx4, sy4, tx, ty),
+					sx4, sy4, addX(m00, m01, m10, m11, x3, y3, sx3, sy3, tx, ty),
+					addY(m00, m01, m10, m11, x3, y3, sx3, sy3, tx, ty), sx3, sy3);
+			return;
+		}
+
 		int index = this.idx;
 
 		expandVertices.setVertice(index++, addX(m00, m01, m10, m11, x1, y1, sx1, sy1, tx, ty));
@@ -237,9 +291,24 @@ public class TrilateralBatch extends BaseBatch {
 		if (idx > 0) {
 			submit();
 		}
+		GLDrawCommand command = getDrawCommand();
+		if (command != null && !command.isEmpty()) {
+			final int texId = curTexId;
+			command.flush(commandSubmitter);
+			_unsorted_draw_calls += command.getLastUnsortedDrawCalls();
+			curTexId = texId;
+		}
 		shader.end();
 	}
 
+	protected ShaderProgram getShader() {
+		return shader;
+	}
+
+	protected Matrix4 getViewMatrix() {
+		return viewMatrix;
+	}
+
 	protected int vertexSize() {
 		return expandVertices.vertexSize();
 	}
@@ -0,0 +1,423 @@
+/**
+ * Copyright 2008 - 2015 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.particle;
+
+import loon.LTexture;
+import loon.geom.Affine2f;
+import loon.opengl.BaseBatch;
+import loon.opengl.GLEx;
+import loon.opengl.TrilateralBatch;
+
+/**
+ * 以数组结构(structure of arrays)保存粒子的缓冲,位置,速度,寿命,大小与颜色分别存放在float数组中,
+ * 不为每个粒子创建对象.粒子的变化全部是线性的(速度加重力,大小与颜色按每毫秒增量变化),
+ * 因此可以在紧凑的循环中更新,数量很大时还可以交给ParticleExecutor分块并行.
+ *
+ * 死亡的粒子以末尾的粒子填补,所以[0,count)之间始终都是存活的粒子,粒子下标只在emit后到下次update前有效.
+ */
+public class ParticleBuffer {
+
+	private static final int MIN_CAPACITY = 64;
+
+	/**
+	 * 并行更新时每块的最小粒子数量
+	 */
+	public static final int DEFAULT_GRAIN = 4096;
+
+	/**
+	 * 渲染时每提交这么多四边形就提交一次批处理,使单次提交不超过short索引的范围
+	 */
+	private static final int SUBMIT_QUADS = 8192;
+
+	private final int maxParticles;
+
+	private int capacity;
+
+	private int count;
+
+	private float[] x, y, velx, vely;
+
+	private float[] life, size, sizeDelta;
+
+	private float[] r, g, b, a;
+
+	private float[] dr, dg, db, da;
+
+	private float gravityX, gravityY;
+
+	private ParticleExecutor executor;
+
+	private int parallelThreshold = DEFAULT_GRAIN * 4;
+
+	private float stepDelta;
+
+	private final ParticleExecutor.Task task = new ParticleExecutor.Task() {
+
+		@Override
+		public void update(int start, int end) {
+			integrate(start, end, stepDelta);
+		}
+	};
+
+	public ParticleBuffer(int maxParticles) {
+		this.maxParticles = maxParticles;
+		allocate(Math.min(maxParticles, MIN_CAPACITY));
+	}
+
+	private void allocate(int size) {
+		this.x = grow(x, size);
+		this.y = grow(y, size);
+		this.velx = grow(velx, size);
+		this.vely = grow(vely, size);
+		this.life = grow(life, size);
+		this.size = grow(this.size, size);
+		this.sizeDelta = grow(sizeDelta, size);
+		this.r = grow(r, size);
+		this.g = grow(g, size);
+		this.b = grow(b, size);
+		this.a = grow(a, size);
+		this.dr = grow(dr, size);
+		this.dg = grow(dg, size);
+		this.db = grow(db, size);
+		this.da = grow(da, size);
+		this.capacity = size;
+	}
+
+	private float[] grow(float[] src, int size) {
+		float[] dst = new float[size];
+		if (src != null) {
+			System.arraycopy(src, 0, dst, 0, count);
+		}
+		return dst;
+	}
+
+	/**
+	 * 发射一个新粒子,颜色默认为白色,大小与颜色不变化
+	 *
+	 * @param px
+	 * @param py
+	 * @param vx
+	 *            每毫秒移动的距离
+	 * @param vy
+	 *            每毫秒移动的距离
+	 * @param l
+	 *            寿命(毫秒)
+	 * @param s
+	 *            大小
+	 * @return 粒子下标,缓冲已满时返回-1
+	 */
+	public int emit(float px, float py, float vx, float vy, float l, float s) {
+		if (count >= capacity) {
+			if (capacity >= maxParticles) {
+				return -1;
+			}
+			allocate(Math.min(maxParticles, capacity * 2));
+		}
+		final int i = count++;
+		x[i] = px;
+		y[i] = py;
+		velx[i] = vx;
+		vely[i] = vy;
+		life[i] = l;
+		size[i] = s;
+		sizeDelta[i] = 0;
+		r[i] = g[i] = b[i] = a[i] = 1f;
+		dr[i] = dg[i] = db[i] = da[i] = 0;
+		return i;
+	}
+
+	public ParticleBuffer setColor(int index, float red, float green, float blue, float alpha) {
+		if (index < 0) {
+			return this;
+		}
+		r[index] = red;
+		g[index] = green;
+		b[index] = blue;
+		a[index] = alpha;
+		return this;
+	}
+
+	/**
+	 * 设定颜色每毫秒的变化量
+	 */
+	public ParticleBuffer setColorDelta(int index, float red, float green, float blue, float alpha) {
+		if (index < 0) {
+			return this;
+		}
+		dr[index] = red;
+		dg[index] = green;
+		db[index] = blue;
+		da[index] = alpha;
+		return this;
+	}
+
+	/**
+	 * 设定大小每毫秒的变化量
+	 */
+	public ParticleBuffer setSizeDelta(int index, float delta) {
+		if (index < 0) {
+			return this;
+		}
+		sizeDelta[index] = delta;
+		return this;
+	}
+
+	/**
+	 * 设定作用于全部粒子的加速度(每毫秒的速度变化量)
+	 */
+	public ParticleBuffer setGravity(float gx, float gy) {
+		this.gravityX = gx;
+		this.gravityY = gy;
+		return this;
+	}
+
+	public float getGravityX() {
+		return gravityX;
+	}
+
+	public float getGravityY() {
+		return gravityY;
+	}
+
+	public ParticleBuffer setExecutor(ParticleExecutor executor) {
+		this.executor = executor;
+		return this;
+	}
+
+	public ParticleExecutor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * 存活粒子数量达到此值时才交给ParticleExecutor并行更新
+	 *
+	 * @param threshold
+	 * @return
+	 */
+	public ParticleBuffer setParallelThreshold(int threshold) {
+		this.parallelThreshold = threshold;
+		return this;
+	}
+
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	public void update(long delta) {
+		if (count == 0) {
+			return;
+		}
+		final float d = delta;
+		if (executor != null && count >= parallelThreshold) {
+			stepDelta = d;
+			executor.execute(count, DEFAULT_GRAIN, task);
+		} else {
+			integrate(0, count, d);
+		}
+		compact();
+	}
+
+	private void integrate(int start, int end, float d) {
+		final float[] x = this.x, y = this.y, velx = this.velx, vely = this.vely;
+		final float[] life = this.life, size = this.size, sizeDelta = this.sizeDelta;
+		final float gx = gravityX * d, gy = gravityY * d;
+		for (int i = start; i < end; i++) {
+			final float l = life[i] - d;
+			life[i] = l;
+			if (l <= 0) {
+				continue;
+			}
+			x[i] += velx[i] * d;
+			y[i] += vely[i] * d;
+			velx[i] += gx;
+			vely[i] += gy;
+			final float s = size[i] + sizeDelta[i] * d;
+			size[i] = s < 0 ? 0 : s;
+		}
+		final float[] r = this.r, g = this.g, b = this.b, a = this.a;
+		final float[] dr = this.dr, dg = this.dg, db = this.db, da = this.da;
+		for (int i = start; i < end; i++) {
+			r[i] += dr[i] * d;
+			g[i] += dg[i] * d;
+			b[i] += db[i] * d;
+			a[i] += da[i] * d;
+		}
+	}
+
+	private void compact() {
+		final float[] life = this.life;
+		int i = 0;
+		int n = count;
+		while (i < n) {
+			if (life[i] > 0) {
+				i++;
+				continue;
+			}
+			n--;
+			if (i != n) {
+				move(n, i);
+			}
+		}
+		count = n;
+	}
+
+	private void move(int from, int to) {
+		x[to] = x[from];
+		y[to] = y[from];
+		velx[to] = velx[from];
+		vely[to] = vely[from];
+		life[to] = life[from];
+		size[to] = size[from];
+		sizeDelta[to] = sizeDelta[from];
+		r[to] = r[from];
+		g[to] = g[from];
+		b[to] = b[from];
+		a[to] = a[from];
+		dr[to] = dr[from];
+		dg[to] = dg[from];
+		db[to] = db[from];
+		da[to] = da[from];
+	}
+
+	/**
+	 * 平移全部存活的粒子
+	 */
+	public ParticleBuffer move(float dx, float dy) {
+		for (int i = 0; i < count; i++) {
+			x[i] += dx;
+			y[i] += dy;
+		}
+		return this;
+	}
+
+	/**
+	 * 以GLEx当前的混合模式绘制全部粒子
+	 *
+	 * @param gl
+	 * @param tex
+	 * @param offsetX
+	 * @param offsetY
+	 */
+	public void draw(GLEx gl, LTexture tex, float offsetX, float offsetY) {
+		draw(gl, tex, offsetX, offsetY, gl.getBlendMode());
+	}
+
+	/**
+	 * 把全部粒子以同一贴图直接写入GLEx当前的批处理,这些四边形提交时使用指定的混合模式
+	 * (批处理默认按透明度选择混合模式,不会使用GLEx当前的设定)
+	 *
+	 * @param gl
+	 * @param tex
+	 * @param offsetX
+	 * @param offsetY
+	 * @param blend
+	 */
+	public void draw(GLEx gl, LTexture tex, float offsetX, float offsetY, int blend) {
+		if (count == 0 || tex == null || tex.isClosed()) {
+			return;
+		}
+		final BaseBatch batch = gl.batch();
+		if (batch == null) {
+			return;
+		}
+		final TrilateralBatch trilateral = (batch instanceof TrilateralBatch) ? (TrilateralBatch) batch : null;
+		if (trilateral == null) {
+			batch.setTexture(tex);
+			drawQuads(gl, batch, null, tex, offsetX, offsetY);
+			return;
+		}
+		final int oldBlend = trilateral.getFixedBlendMode();
+		trilateral.setFixedBlendMode(blend);
+		try {
+			batch.setTexture(tex);
+			drawQuads(gl, batch, trilateral, tex, offsetX, offsetY);
+		} finally {
+			trilateral.setFixedBlendMode(oldBlend);
+		}
+	}
+
+	private void drawQuads(GLEx gl, BaseBatch batch, TrilateralBatch trilateral, LTexture tex, float offsetX,
+			float offsetY) {
+		final Affine2f xf = gl.tx();
+		final float m00 = xf.m00, m01 = xf.m01, m10 = xf.m10, m11 = xf.m11, tx = xf.tx, ty = xf.ty;
+		final float sl = tex.xOff, st = tex.yOff, sr = tex.widthRatio, sb = tex.heightRatio;
+		final float alpha = gl.alpha() * 255f;
+		int quads = 0;
+		for (int i = 0; i < count; i++) {
+			final float s = size[i];
+			final int ca = clamp(a[i] * alpha);
+			if (s <= 0 || ca == 0) {
+				continue;
+			}
+			final int tint = (ca << 24) | (clamp(r[i] * 255f) << 16) | (clamp(g[i] * 255f) << 8)
+					| clamp(b[i] * 255f);
+			final float half = s / 2f;
+			final float left = offsetX + x[i] - half;
+			final float top = offsetY + y[i] - half;
+			batch.addQuad(tint, m00, m01, m10, m11, tx, ty, left, top, left + s, top + s, sl, st, sr, sb);
+			if (++quads == SUBMIT_QUADS && trilateral != null) {
+				trilateral.submit();
+				quads = 0;
+			}
+		}
+	}
+
+	private static int clamp(float v) {
+		return v <= 0 ? 0 : (v >= 255f ? 255 : (int) v);
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public int getMaxParticles() {
+		return maxParticles;
+	}
+
+	public boolean isFull() {
+		return count >= maxParticles;
+	}
+
+	public float getX(int index) {
+		return x[index];
+	}
+
+	public float getY(int index) {
+		return y[index];
+	}
+
+	public float getLife(int index) {
+		return life[index];
+	}
+
+	public float getSize(int index) {
+		return size[index];
+	}
+
+	public void clear() {
+		count = 0;
+	}
+
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright 2008 - 2015 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.particle;
+
+/**
+ * ParticleBuffer更新大量粒子时使用的执行器,桌面平台可以用多线程实现(如JavaSE的ForkJoinPool).
+ * 每个粒子的积分只读写自身下标的数据,所以分块的执行顺序不影响结果.
+ */
+public interface ParticleExecutor {
+
+	public static interface Task {
+
+		/**
+		 * 更新下标在[start,end)范围内的粒子
+		 *
+		 * @param start
+		 * @param end
+		 */
+		public void update(int start, int end);
+
+	}
+
+	/**
+	 * 以不小于grain的分块更新全部count个粒子,全部完成后才能返回
+	 *
+	 * @param count
+	 * @param grain
+	 * @param task
+	 */
+	public void execute(int count, int grain, Task task);
+
+}
@@ -67,6 +67,12 @@ public class SimpleParticleSystem extends Entity {
 
 	protected ObjectMap<SimpleEmitter, ParticlePool> particlesByEmitter = new ObjectMap<SimpleEmitter, ParticlePool>();
 
+	protected ObjectMap<SimpleEmitter, ParticleBuffer> buffersByEmitter = new ObjectMap<SimpleEmitter, ParticleBuffer>();
+
+	private TArray<SimpleEmitter> updating = new TArray<SimpleEmitter>();
+
+	private ParticleExecutor executor;
+
 	protected int maxParticlesPerEmitter;
 
 	protected TArray<SimpleEmitter> emitters = new TArray<SimpleEmitter>();
@@ -100,6 +106,10 @@ public class SimpleParticleSystem extends Entity {
 			ParticlePool pool = pools.next();
 			pool.reset(this);
 		}
+		Iterator<ParticleBuffer> buffers = buffersByEmitter.values().iterator();
+		while (buffers.hasNext()) {
+			buffers.next().clear();
+		}
 
 		for (int i = 0; i < emitters.size; i++) {
 			SimpleEmitter emitter = emitters.get(i);
@@ -162,14 +172,47 @@ public class SimpleParticleSystem extends Entity {
 
 	public void addEmitter(SimpleEmitter emitter) {
 		emitters.add(emitter);
-
-		ParticlePool pool = new ParticlePool(this, maxParticlesPerEmitter);
-		particlesByEmitter.put(emitter, pool);
 	}
 
 	public void removeEmitter(SimpleEmitter emitter) {
 		emitters.remove(emitter);
 		particlesByEmitter.remove(emitter);
+		buffersByEmitter.remove(emitter);
+	}
+
+	/**
+	 * 获得指定发射器的数组结构粒子缓冲,不存在时创建,容量上限为maxParticles
+	 * 
+	 * @param emitter
+	 * @return
+	 */
+	public ParticleBuffer getParticleBuffer(SimpleEmitter emitter) {
+		ParticleBuffer buffer = buffersByEmitter.get(emitter);
+		if (buffer == null) {
+			buffer = new ParticleBuffer(maxParticlesPerEmitter);
+			buffer.setExecutor(executor);
+			buffersByEmitter.put(emitter, buffer);
+		}
+		return buffer;
+	}
+
+	/**
+	 * 设定ParticleBuffer更新大量粒子时使用的并行执行器
+	 * 
+	 * @param executor
+	 * @return
+	 */
+	public SimpleParticleSystem setParticleExecutor(ParticleExecutor executor) {
+		this.executor = executor;
+		Iterator<ParticleBuffer> buffers = buffersByEmitter.values().iterator();
+		while (buffers.hasNext()) {
+			buffers.next().setExecutor(executor);
+		}
+		return this;
+	}
+
+	public ParticleExecutor getParticleExecutor() {
+		return executor;
 	}
 
 	public void removeAllEmitters() {
@@ -212,11 +255,8 @@ public class SimpleParticleSystem extends Entity {
 
 			int mode = g.getBlendMode();
 
-			if (emitter.useAdditive()) {
-				g.setBlendMode(LSystem.MODE_ADD);
-			} else {
-				g.setBlendMode(state);
-			}
+			final int blend = emitter.useAdditive() ? LSystem.MODE_ADD : state;
+			g.setBlendMode(blend);
 
 			ParticlePool pool = particlesByEmitter.get(emitter);
 			LTexture image = emitter.getImage();
@@ -224,20 +264,28 @@ public class SimpleParticleSystem extends Entity {
 				image = this.sprite;
 			}
 
-			if (!emitter.isOriented() && !emitter.usePoints(this)) {
-				image.glBegin();
+			ParticleBuffer buffer = buffersByEmitter.get(emitter);
+			if (buffer != null) {
+				// 批处理提交时才真正绘制,所以混合模式需要交给批处理,只设定GLEx不起作用
+				buffer.draw(g, image, x, y, blend);
 			}
-			image.getTextureBatch().setLocation(x, y);
-			image.getTextureBatch().setBlendState(BlendState.Null);
 
-			for (int i = 0; i < pool.particles.length; i++) {
-				if (pool.particles[i].inUse()) {
-					pool.particles[i].paint(g);
+			if (pool != null) {
+				if (!emitter.isOriented() && !emitter.usePoints(this)) {
+					image.glBegin();
 				}
-			}
+				image.getTextureBatch().setLocation(x, y);
+				image.getTextureBatch().setBlendState(BlendState.Null);
 
-			if (!emitter.isOriented() && !emitter.usePoints(this)) {
-				image.glEnd();
+				for (int i = 0; i < pool.particles.length; i++) {
+					if (pool.particles[i].inUse()) {
+						pool.particles[i].paint(g);
+					}
+				}
+
+				if (!emitter.isOriented() && !emitter.usePoints(this)) {
+					image.glEnd();
+				}
 			}
 
 			g.setBlendMode(mode);
@@ -266,7 +314,10 @@ public class SimpleParticleSystem extends Entity {
 		}
 
 		removeMe.clear();
-		TArray<SimpleEmitter> emitters = new TArray<SimpleEmitter>(this.emitters);
+		// 发射器可能在update中增删发射器,所以遍历一份副本(复用同一个数组,不再每帧创建)
+		TArray<SimpleEmitter> emitters = updating;
+		emitters.clear();
+		emitters.addAll(this.emitters);
 		for (int i = 0; i < emitters.size; i++) {
 			SimpleEmitter emitter = emitters.get(i);
 			if (emitter.isEnabled()) {
@@ -275,6 +326,7 @@ public class SimpleParticleSystem extends Entity {
 					if (emitter.completed()) {
 						removeMe.add(emitter);
 						particlesByEmitter.remove(emitter);
+						buffersByEmitter.remove(emitter);
 					}
 				}
 			}
@@ -283,19 +335,27 @@ public class SimpleParticleSystem extends Entity {
 
 		pCount = 0;
 
-		if (!particlesByEmitter.isEmpty()) {
-			for (SimpleEmitter emitter : particlesByEmitter.keys()) {
-				if (emitter.isEnabled()) {
-					ParticlePool pool = particlesByEmitter.get(emitter);
-					for (int i = 0; i < pool.particles.length; i++) {
-						if (pool.particles[i].life > 0) {
-							pool.particles[i].update(delta);
-							pCount++;
-						}
+		for (int i = 0; i < emitters.size; i++) {
+			SimpleEmitter emitter = emitters.get(i);
+			if (!emitter.isEnabled()) {
+				continue;
+			}
+			ParticleBuffer buffer = buffersByEmitter.get(emitter);
+			if (buffer != null) {
+				buffer.update(delta);
+				pCount += buffer.getCount();
+			}
+			ParticlePool pool = particlesByEmitter.get(emitter);
+			if (pool != null) {
+				for (int j = 0; j < pool.particles.length; j++) {
+					if (pool.particles[j].life > 0) {
+						pool.particles[j].update(delta);
+						pCount++;
 					}
 				}
 			}
 		}
+		emitters.clear();
 	}
 
 	public int getParticleCount() {
@@ -304,6 +364,10 @@ public class SimpleParticleSystem extends Entity {
 
 	public SimpleParticle getNewParticle(SimpleEmitter emitter, float life) {
 		ParticlePool pool = particlesByEmitter.get(emitter);
+		if (pool == null) {
+			pool = new ParticlePool(this, maxParticlesPerEmitter);
+			particlesByEmitter.put(emitter, pool);
+		}
 		TArray<SimpleParticle> available = pool.available;
 		if (available.size > 0) {
 			SimpleParticle p = available.removeIndex(available.size - 1);
@@ -318,12 +382,18 @@ public class SimpleParticleSystem extends Entity {
 	public SimpleParticleSystem release(SimpleParticle particle) {
 		if (particle != dummy) {
 			ParticlePool pool = particlesByEmitter.get(particle.getEmitter());
-			pool.available.add(particle);
+			if (pool != null) {
+				pool.available.add(particle);
+			}
 		}
 		return this;
 	}
 
 	public SimpleParticleSystem releaseAll(SimpleEmitter emitter) {
+		ParticleBuffer buffer = buffersByEmitter.get(emitter);
+		if (buffer != null) {
+			buffer.clear();
+		}
 		if (!particlesByEmitter.isEmpty()) {
 			Iterator<ParticlePool> it = particlesByEmitter.values().iterator();
 			while (it.hasNext()) {
@@ -342,7 +412,14 @@ public class SimpleParticleSystem extends Entity {
 	}
 
 	public SimpleParticleSystem moveAll(SimpleEmitter emitter, float x, float y) {
+		ParticleBuffer buffer = buffersByEmitter.get(emitter);
+		if (buffer != null) {
+			buffer.move(x, y);
+		}
 		ParticlePool pool = particlesByEmitter.get(emitter);
+		if (pool == null) {
+			return this;
+		}
 		for (int i = 0; i < pool.particles.length; i++) {
 			if (pool.particles[i].inUse()) {
 				pool.particles[i].move(x, y);
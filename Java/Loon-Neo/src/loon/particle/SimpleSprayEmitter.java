@@ -0,0 +1,232 @@
+/**
+ * Copyright 2008 - 2015 The Loon Game Engine Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ * @project loon
+ * @author cping
+ * @email：javachenpeng@yahoo.com
+ * @version 0.5
+ */
+package loon.particle;
+
+import loon.LTexture;
+import loon.canvas.LColor;
+import loon.utils.MathUtils;
+
+/**
+ * 以ParticleBuffer保存粒子的喷射发射器,适合每秒发射成千上万个粒子的场合.
+ * 粒子从起始颜色与大小线性变化到结束颜色与大小,不会为单个粒子回调updateParticle.
+ *
+ * <pre>
+ * SimpleParticleSystem system = new SimpleParticleSystem("assets/particle.png", 100000);
+ * system.addEmitter(new SimpleSprayEmitter(320, 240).setEmission(50000));
+ * </pre>
+ */
+public class SimpleSprayEmitter implements SimpleEmitter {
+
+	private float _x, _y;
+
+	private float _emission = 1000;
+
+	private float _pending;
+
+	private float _life = 1500;
+
+	private float _angle = 270, _spread = 30;
+
+	private float _minSpeed = 0.05f, _maxSpeed = 0.15f;
+
+	private float _startSize = 8, _endSize = 2;
+
+	private float _gravityX, _gravityY;
+
+	private LColor _startColor = new LColor(1f, 1f, 1f, 1f);
+
+	private LColor _endColor = new LColor(1f, 1f, 1f, 0f);
+
+	private boolean _enabled = true;
+
+	private boolean _additive = true;
+
+	private LTexture _image;
+
+	public SimpleSprayEmitter() {
+		this(0, 0);
+	}
+
+	public SimpleSprayEmitter(float x, float y) {
+		this._x = x;
+		this._y = y;
+	}
+
+	@Override
+	public void update(SimpleParticleSystem system, long delta) {
+		ParticleBuffer buffer = system.getParticleBuffer(this);
+		buffer.setGravity(_gravityX, _gravityY);
+		_pending += _emission * delta / 1000f;
+		int n = (int) _pending;
+		_pending -= n;
+		final float invLife = 1f / _life;
+		final float sizeDelta = (_endSize - _startSize) * invLife;
+		final float dr = (_endColor.r - _startColor.r) * invLife;
+		final float dg = (_endColor.g - _startColor.g) * invLife;
+		final float db = (_endColor.b - _startColor.b) * invLife;
+		final float da = (_endColor.a - _startColor.a) * invLife;
+		for (; n > 0; n--) {
+			float dir = _angle + MathUtils.random(-_spread, _spread);
+			float speed = MathUtils.random(_minSpeed, _maxSpeed);
+			int i = buffer.emit(_x, _y, MathUtils.cosDeg(dir) * speed, MathUtils.sinDeg(dir) * speed, _life,
+					_startSize);
+			if (i == -1) {
+				_pending = 0;
+				break;
+			}
+			buffer.setColor(i, _startColor.r, _startColor.g, _startColor.b, _startColor.a);
+			buffer.setColorDelta(i, dr, dg, db, da);
+			buffer.setSizeDelta(i, sizeDelta);
+		}
+	}
+
+	@Override
+	public void updateParticle(SimpleParticle particle, long delta) {
+	}
+
+	public SimpleSprayEmitter setPosition(float x, float y) {
+		this._x = x;
+		this._y = y;
+		return this;
+	}
+
+	public float getX() {
+		return _x;
+	}
+
+	public float getY() {
+		return _y;
+	}
+
+	/**
+	 * 每秒发射的粒子数量
+	 */
+	public SimpleSprayEmitter setEmission(float perSecond) {
+		this._emission = perSecond;
+		return this;
+	}
+
+	public float getEmission() {
+		return _emission;
+	}
+
+	public SimpleSprayEmitter setLife(float life) {
+		this._life = MathUtils.max(1f, life);
+		return this;
+	}
+
+	public float getLife() {
+		return _life;
+	}
+
+	/**
+	 * 发射方向与左右的随机偏移(角度)
+	 */
+	public SimpleSprayEmitter setDirection(float angle, float spread) {
+		this._angle = angle;
+		this._spread = spread;
+		return this;
+	}
+
+	/**
+	 * 速度范围(每毫秒移动的距离)
+	 */
+	public SimpleSprayEmitter setSpeed(float min, float max) {
+		this._minSpeed = min;
+		this._maxSpeed = max;
+		return this;
+	}
+
+	public SimpleSprayEmitter setSize(float start, float end) {
+		this._startSize = start;
+		this._endSize = end;
+		return this;
+	}
+
+	public SimpleSprayEmitter setColor(LColor start, LColor end) {
+		this._startColor = new LColor(start);
+		this._endColor = new LColor(end);
+		return this;
+	}
+
+	/**
+	 * 加速度(每毫秒的速度变化量)
+	 */
+	public SimpleSprayEmitter setGravity(float gx, float gy) {
+		this._gravityX = gx;
+		this._gravityY = gy;
+		return this;
+	}
+
+	public SimpleSprayEmitter setImage(LTexture image) {
+		this._image = image;
+		return this;
+	}
+
+	public SimpleSprayEmitter setAdditive(boolean additive) {
+		this._additive = additive;
+		return this;
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return _enabled;
+	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+		this._enabled = enabled;
+	}
+
+	@Override
+	public boolean completed() {
+		return false;
+	}
+
+	@Override
+	public boolean useAdditive() {
+		return _additive;
+	}
+
+	@Override
+	public LTexture getImage() {
+		return _image;
+	}
+
+	@Override
+	public boolean usePoints(SimpleParticleSystem system) {
+		return false;
+	}
+
+	@Override
+	public boolean isOriented() {
+		return false;
+	}
+
+	@Override
+	public void up() {
+	}
+
+	@Override
+	public void resetState() {
+		_pending = 0;
+	}
+}
@@ -57,6 +57,15 @@ public class PBody {
 	
 	protected Object tag;
 
+	protected boolean sleeping;
+
+	protected boolean allowSleep = true;
+
+	protected float sleepTime;
+
+	// 在PPhysWorld中的下标,计算岛屿时使用
+	int index;
+
 	public PBody(float angle, boolean fixate, PShape[] ss) {
 		pos = new Vector2f();
 		vel = new Vector2f();
@@ -95,6 +104,7 @@ public class PBody {
 			}
 		}
 		numShapes++;
+		wake();
 		calcMassData();
 	}
 
@@ -102,6 +112,7 @@ public class PBody {
 		if (fix) {
 			return;
 		} else {
+			wake();
 			vel.x += fx * invM;
 			vel.y += fy * invM;
 			return;
@@ -125,6 +136,7 @@ public class PBody {
 		if (fix) {
 			return;
 		} else {
+			wake();
 			angVel += torque * invI;
 			return;
 		}
@@ -252,11 +264,13 @@ public class PBody {
 			break;
 		}
 		numShapes--;
+		wake();
 		calcMassData();
 	}
 
 	public void setAngularVelocity(float v) {
 		angVel = v;
+		wake();
 	}
 
 	public void setFixate(boolean fixate) {
@@ -264,6 +278,7 @@ public class PBody {
 			return;
 		} else {
 			fix = fixate;
+			wake();
 			calcMassData();
 			return;
 		}
@@ -271,6 +286,35 @@ public class PBody {
 
 	public void setVelocity(float vx, float vy) {
 		vel.set(vx, vy);
+		wake();
+	}
+
+	/**
+	 * 唤醒休眠中的刚体,与其接触的刚体会在下一次step时一并唤醒
+	 */
+	public void wake() {
+		sleeping = false;
+		sleepTime = 0.0F;
+	}
+
+	/**
+	 * 是否处于休眠状态(休眠的刚体不参与速度,位置计算与碰撞求解)
+	 * 
+	 * @return
+	 */
+	public boolean isSleeping() {
+		return sleeping;
+	}
+
+	public boolean isSleepingAllowed() {
+		return allowSleep;
+	}
+
+	public void setSleepingAllowed(boolean allow) {
+		this.allowSleep = allow;
+		if (!allow) {
+			wake();
+		}
 	}
 
 	void update() {
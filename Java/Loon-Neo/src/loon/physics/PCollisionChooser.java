@@ -17,6 +17,13 @@ package loon.physics;
 
 public class PCollisionChooser implements PCollider {
 
+	// 碰撞器没有状态,每种组合共用一个实例
+	private final PCollider polygonPolygon = new PPolygonPolygonCollider();
+
+	private final PCollider circlePolygon = new PCirclePolygonCollider();
+
+	private final PCollider circleCircle = new PCircleCirlceCollider();
+
 	@Override
 	public int collide(PShape s1, PShape s2, PContact[] cs) {
 		PCollider collider = null;
@@ -27,10 +34,10 @@ public class PCollisionChooser implements PCollider {
 			switch (s2._type) {
 			case BOX_SHAPE:
 			case CONVEX_SHAPE:
-				collider = new PPolygonPolygonCollider();
+				collider = polygonPolygon;
 				break;
 			case CIRCLE_SHAPE:
-				collider = new PCirclePolygonCollider();
+				collider = circlePolygon;
 				flip = true;
 			case CONCAVE_SHAPE:
 			default:
@@ -41,10 +48,10 @@ public class PCollisionChooser implements PCollider {
 			switch (s2._type) {
 			case BOX_SHAPE:
 			case CONVEX_SHAPE:
-				collider = new PCirclePolygonCollider();
+				collider = circlePolygon;
 				break;
 			case CIRCLE_SHAPE:
-				collider = new PCircleCirlceCollider();
+				collider = circleCircle;
 			case CONCAVE_SHAPE:
 			default:
 				break;
@@ -0,0 +1,31 @@
+/**
+ * Copyright 2013 The Loon Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package loon.physics;
+
+/**
+ * 以两个图形的id为键保存碰撞求解器,用于在各帧之间复用同一对图形的接触数据.
+ */
+public class PContactCache extends PPairMap<PSolver> {
+
+	public PContactCache() {
+		super();
+	}
+
+	public PContactCache(int capacity) {
+		super(capacity);
+	}
+
+}
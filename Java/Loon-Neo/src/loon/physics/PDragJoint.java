@@ -51,6 +51,11 @@ public class PDragJoint extends PJoint {
 		return bodyObject;
 	}
 
+	@Override
+	public PBody getBody1() {
+		return bodyObject;
+	}
+
 	public Vector2f getDragPoint() {
 		return dragPoint.cpy();
 	}
@@ -78,6 +83,7 @@ public class PDragJoint extends PJoint {
 
 	public void setDragPosition(float px, float py) {
 		dragPoint.set(px, py);
+		bodyObject.wake();
 	}
 
 	public void setRelativeAnchorPoint(float relx, float rely) {
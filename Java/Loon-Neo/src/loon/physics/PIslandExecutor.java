@@ -0,0 +1,43 @@
+/**
+ * Copyright 2013 The Loon Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package loon.physics;
+
+/**
+ * PPhysWorld求解互相独立的岛屿时使用的执行器,桌面平台可以用多线程实现(如JavaSE的ForkJoinPool),
+ * 不同岛屿之间没有共享的非固定刚体,所以无论以什么顺序执行,结果都与单线程求解完全一致.
+ */
+public interface PIslandExecutor {
+
+	public static interface Task {
+
+		/**
+		 * 求解指定下标的岛屿
+		 * 
+		 * @param island
+		 */
+		public void solve(int island);
+
+	}
+
+	/**
+	 * 求解全部count个岛屿,全部完成后才能返回
+	 * 
+	 * @param count
+	 * @param task
+	 */
+	public void execute(int count, Task task);
+
+}
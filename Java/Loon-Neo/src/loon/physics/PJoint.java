@@ -25,6 +25,24 @@ public abstract class PJoint {
 		type = PJointType.NULL_JOINT;
 	}
 
+	/**
+	 * 关节连接的第一个刚体,用于计算岛屿
+	 * 
+	 * @return
+	 */
+	public PBody getBody1() {
+		return null;
+	}
+
+	/**
+	 * 关节连接的第二个刚体,用于计算岛屿
+	 * 
+	 * @return
+	 */
+	public PBody getBody2() {
+		return null;
+	}
+
 	public PJointType getJointType() {
 		return type;
 	}
@@ -0,0 +1,165 @@
+/**
+ * Copyright 2013 The Loon Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package loon.physics;
+
+/**
+ * 以两个图形的id组合为键的开放寻址哈希表,查找与删除都是O(1)
+ */
+public class PPairMap<T> {
+
+	private static final long EMPTY = -1L;
+
+	private long[] keys;
+
+	private Object[] values;
+
+	private int mask;
+
+	private int size;
+
+	public PPairMap() {
+		this(64);
+	}
+
+	public PPairMap(int capacity) {
+		int cap = 16;
+		for (; cap < capacity * 2;) {
+			cap <<= 1;
+		}
+		allocate(cap);
+	}
+
+	private void allocate(int cap) {
+		keys = new long[cap];
+		values = new Object[cap];
+		mask = cap - 1;
+		for (int i = 0; i < cap; i++) {
+			keys[i] = EMPTY;
+		}
+	}
+
+	/**
+	 * 两个图形id组合为键(小id在高位,与两者传入的先后顺序无关)
+	 * 
+	 * @param id1
+	 * @param id2
+	 * @return
+	 */
+	public static long key(int id1, int id2) {
+		if (id1 > id2) {
+			int tmp = id1;
+			id1 = id2;
+			id2 = tmp;
+		}
+		return ((long) id1 << 32) | (id2 & 0xFFFFFFFFL);
+	}
+
+	private static int hash(long key) {
+		key *= 0x9E3779B97F4A7C15L;
+		return (int) (key ^ (key >>> 32));
+	}
+
+	@SuppressWarnings("unchecked")
+	public T get(long key) {
+		for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+			final long k = keys[i];
+			if (k == key) {
+				return (T) values[i];
+			}
+			if (k == EMPTY) {
+				return null;
+			}
+		}
+	}
+
+	public void put(long key, T value) {
+		if ((size + 1) * 2 > keys.length) {
+			resize(keys.length << 1);
+		}
+		for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+			final long k = keys[i];
+			if (k == key) {
+				values[i] = value;
+				return;
+			}
+			if (k == EMPTY) {
+				keys[i] = key;
+				values[i] = value;
+				size++;
+				return;
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public T remove(long key) {
+		int i = hash(key) & mask;
+		for (;; i = (i + 1) & mask) {
+			final long k = keys[i];
+			if (k == EMPTY) {
+				return null;
+			}
+			if (k == key) {
+				break;
+			}
+		}
+		final T old = (T) values[i];
+		// 后移删除,把之后同一探测链上的元素前移,不使用删除标记
+		int hole = i;
+		for (int j = (i + 1) & mask;; j = (j + 1) & mask) {
+			final long k = keys[j];
+			if (k == EMPTY) {
+				break;
+			}
+			final int home = hash(k) & mask;
+			if (((j - home) & mask) >= ((j - hole) & mask)) {
+				keys[hole] = k;
+				values[hole] = values[j];
+				hole = j;
+			}
+		}
+		keys[hole] = EMPTY;
+		values[hole] = null;
+		size--;
+		return old;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void resize(int cap) {
+		final long[] oldKeys = keys;
+		final Object[] oldValues = values;
+		allocate(cap);
+		size = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				put(oldKeys[i], (T) oldValues[i]);
+			}
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = EMPTY;
+			values[i] = null;
+		}
+		size = 0;
+	}
+
+}
@@ -17,6 +17,7 @@ package loon.physics;
 
 import loon.geom.Vector2f;
 import loon.utils.CollectionUtils;
+import loon.utils.MathUtils;
 import loon.utils.TimeUtils;
 
 public class PPhysWorld {
@@ -37,6 +38,45 @@ public class PPhysWorld {
 	private PSolver[] solvers;
 	private long totalStepTime;
 
+	private PContactCache contactCache;
+	private PContact[] contactBuffer;
+	private int shapeIdCounter;
+	private boolean warmStarting;
+
+	private boolean sleepingEnabled;
+	private float linearSleepTolerance;
+	private float angularSleepTolerance;
+	private float timeToSleep;
+	private int[] islands;
+	private boolean[] islandAwake;
+	private float[] islandSleepTime;
+	private int numSleeping;
+	private int stepCount;
+	private PSolver[] activeSolverList = new PSolver[1024];
+	private PJoint[] activeJointList = new PJoint[1024];
+
+	private PIslandExecutor islandExecutor;
+	private int minParallelBodies = 64;
+	private int numIslands;
+	private int[] islandIds = new int[1024];
+	private int[] islandBodyStart = new int[1025];
+	private int[] islandBodyList = new int[1024];
+	private int[] islandSolverStart = new int[1025];
+	private PSolver[] islandSolverList = new PSolver[1024];
+	private int[] islandJointStart = new int[1025];
+	// 每个岛屿求解与位置更新的耗时,岛屿并行求解时各自记录,结束后再累加
+	private long[] islandSolveTime = new long[1024];
+	private long[] islandPositionTime = new long[1024];
+	private PJoint[] islandJointList = new PJoint[1024];
+	private float islandDelta;
+	private final PIslandExecutor.Task islandTask = new PIslandExecutor.Task() {
+
+		@Override
+		public void solve(int island) {
+			solveIsland(island, islandDelta);
+		}
+	};
+
 	public PPhysWorld() {
 		this.iterations = 10;
 		this.gravity = new Vector2f(0.0F, 9.80665F);
@@ -45,6 +85,16 @@ public class PPhysWorld {
 		this.shapes = new PShape[1024];
 		this.solvers = new PSolver[1024];
 		this.sap = new PSweepAndPrune();
+		this.contactCache = new PContactCache(1024);
+		this.contactBuffer = new PContact[2];
+		this.warmStarting = true;
+		this.sleepingEnabled = true;
+		this.linearSleepTolerance = 0.05F;
+		this.angularSleepTolerance = 2.0F * MathUtils.DEG_TO_RAD;
+		this.timeToSleep = 0.5F;
+		this.islands = new int[1024];
+		this.islandAwake = new boolean[1024];
+		this.islandSleepTime = new float[1024];
 	}
 
 	public boolean removeBody(PBody b) {
@@ -106,6 +156,7 @@ public class PPhysWorld {
 					shapes.length * 2);
 		}
 		shapes[numShapes] = s;
+		s._id = shapeIdCounter++;
 		s._sapAABB.set(sap, s, s._aabb);
 		numShapes++;
 	}
@@ -122,52 +173,28 @@ public class PPhysWorld {
 	private PCollisionChooser cc = new PCollisionChooser();
 
 	private void collide(long st) {
-		PSortableObject obj[] = sap.sort();
-		if (sap.checkX) {
-			for (int i = 0; i < sap.numObject; i++)
-				if (obj[i].begin) {
-					PSortableObject end = obj[i].aabb.endX;
-					PShape s1 = obj[i].parent;
-					int j = i;
-					do {
-						j++;
-						if (obj[j].begin) {
-							PShape s2 = obj[j].parent;
-							if ((!s1._parent.fix || !s2._parent.fix)
-									&& s1._parent != s2._parent
-									&& s1._aabb.isHit(s2._aabb))
-								collisionShape(s1, s2, cc);
-						}
-					} while (obj[j] != end && j < sap.numObject);
-				}
-
-		} else {
-			for (int i = 0; i < sap.numObject; i++)
-				if (obj[i].begin) {
-					PSortableObject end = obj[i].aabb.endY;
-					PShape s1 = obj[i].parent;
-					int j = i;
-					do {
-						j++;
-						if (obj[j].begin) {
-							PShape s2 = obj[j].parent;
-							if ((!s1._parent.fix || !s2._parent.fix)
-									&& s1._parent != s2._parent
-									&& s1._aabb.isHit(s2._aabb))
-								collisionShape(s1, s2, cc);
-						}
-					} while (obj[j] != end && j < sap.numObject);
-				}
+		sap.update();
+		final PSortablePair[] pairs = sap.pairs;
+		for (int i = 0, n = sap.numPairs; i < n; i++) {
+			collisionShape(pairs[i].s1, pairs[i].s2, cc);
 		}
 
 		long en = nanoTime();
 		collisionDetectionTime = en - st;
+		int count = 0;
 		for (int i = 0; i < numSolvers; i++) {
-			if (solvers[i].rem) {
-				removeSolver(i);
-				i--;
+			PSolver solver = solvers[i];
+			// 本帧没有接触的移除,休眠岛屿中的接触保留到唤醒后重新检测
+			if ((solver.stamp != stepCount && !solver.isAsleep()) || solver.s1._rem || solver.s2._rem) {
+				contactCache.remove(solver.key);
+			} else {
+				solvers[count++] = solver;
 			}
 		}
+		for (int i = count; i < numSolvers; i++) {
+			solvers[i] = null;
+		}
+		numSolvers = count;
 	}
 	
 	private final static long nanoTime(){
@@ -175,27 +202,178 @@ public class PPhysWorld {
 	}
 
 	private void collisionShape(PShape s1, PShape s2, PCollisionChooser cc) {
-		PContact cs[] = new PContact[2];
+		final PBody b1 = s1._parent;
+		final PBody b2 = s2._parent;
+		if (b1 == b2 || (b1.fix && b2.fix) || !s1._aabb.isHit(s2._aabb)) {
+			return;
+		}
+		final long key = PContactCache.key(s1._id, s2._id);
+		PSolver solver = contactCache.get(key);
+		// 已有求解器时按求解器中的先后顺序检测,保证接触法线方向一致
+		if (solver != null && solver.s1 != s1) {
+			PShape tmp = s1;
+			s1 = s2;
+			s2 = tmp;
+		}
+		if ((b1.fix || b1.sleeping) && (b2.fix || b2.sleeping)) {
+			// 休眠中的接触保持原样,唤醒后继续使用之前的冲量
+			return;
+		}
+		final PContact[] cs = contactBuffer;
 		int num = cc.collide(s1, s2, cs);
-		if (num == 0) {
+		if (num > 0) {
+			if (solver != null) {
+				solver.update(cs, num);
+			} else {
+				solver = new PSolver(s1, s2, cs, num);
+				solver.key = key;
+				contactCache.put(key, solver);
+				addSolver(solver);
+			}
+			solver.stamp = stepCount;
+		}
+		cs[0] = cs[1] = null;
+	}
+
+	private int findIsland(int i) {
+		final int[] parents = islands;
+		for (; parents[i] != i;) {
+			parents[i] = parents[parents[i]];
+			i = parents[i];
+		}
+		return i;
+	}
+
+	private void unionIsland(PBody b1, PBody b2) {
+		if (b1 == null || b2 == null || b1.fix || b2.fix) {
 			return;
 		}
-		boolean found = false;
-		for (int f = 0; f < numSolvers; f++) {
-			if (s1 != solvers[f].s1 || s2 != solvers[f].s2) {
+		if (b1.index >= numBodies || bodies[b1.index] != b1 || b2.index >= numBodies || bodies[b2.index] != b2) {
+			return;
+		}
+		final int r1 = findIsland(b1.index);
+		final int r2 = findIsland(b2.index);
+		if (r1 != r2) {
+			if (r1 < r2) {
+				islands[r2] = r1;
+			} else {
+				islands[r1] = r2;
+			}
+		}
+	}
+
+	/**
+	 * 以接触与关节连接非固定刚体划分岛屿,岛屿中只要有一个刚体醒着,整个岛屿都会被唤醒
+	 */
+	private void buildIslands() {
+		if (islands.length < numBodies) {
+			islands = new int[numBodies * 2];
+			islandAwake = new boolean[numBodies * 2];
+			islandSleepTime = new float[numBodies * 2];
+		}
+		for (int i = 0; i < numBodies; i++) {
+			islands[i] = i;
+			islandAwake[i] = false;
+			bodies[i].index = i;
+		}
+		for (int i = 0; i < numSolvers; i++) {
+			unionIsland(solvers[i].b1, solvers[i].b2);
+		}
+		for (int i = 0; i < numJoints; i++) {
+			unionIsland(joints[i].getBody1(), joints[i].getBody2());
+		}
+		for (int i = 0; i < numBodies; i++) {
+			PBody b = bodies[i];
+			if (!b.fix && !b.sleeping) {
+				islandAwake[findIsland(i)] = true;
+			}
+		}
+		// 只连接一个刚体的关节(如拖拽)使该刚体所在岛屿保持唤醒
+		for (int i = 0; i < numJoints; i++) {
+			PBody b1 = joints[i].getBody1();
+			PBody b2 = joints[i].getBody2();
+			if (b1 == null) {
+				wakeIsland(b2);
+			} else if (b2 == null) {
+				wakeIsland(b1);
+			}
+		}
+		numSleeping = 0;
+		for (int i = 0; i < numBodies; i++) {
+			PBody b = bodies[i];
+			if (b.fix) {
 				continue;
 			}
-			solvers[f].update(cs, num);
-			found = true;
-			break;
+			if (b.sleeping && islandAwake[findIsland(i)]) {
+				b.wake();
+			}
+			if (b.sleeping) {
+				numSleeping++;
+			}
 		}
+	}
 
-		if (!found) {
-			PSolver solver = new PSolver(s1, s2, cs, num);
-			addSolver(solver);
+	private void wakeIsland(PBody b) {
+		if (b != null && !b.fix && b.index < numBodies && bodies[b.index] == b) {
+			islandAwake[findIsland(b.index)] = true;
 		}
 	}
 
+	/**
+	 * 岛屿内全部刚体的速度都低于阈值并持续timeToSleep秒后,整个岛屿进入休眠
+	 */
+	private void updateSleep(float dt) {
+		if (!sleepingEnabled) {
+			return;
+		}
+		final float linTol = linearSleepTolerance * linearSleepTolerance;
+		final float angTol = angularSleepTolerance * angularSleepTolerance;
+		for (int i = 0; i < numBodies; i++) {
+			islandSleepTime[i] = Float.MAX_VALUE;
+		}
+		for (int i = 0; i < numBodies; i++) {
+			PBody b = bodies[i];
+			if (b.fix || b.sleeping) {
+				continue;
+			}
+			if (!b.allowSleep || b.vel.x * b.vel.x + b.vel.y * b.vel.y > linTol || b.angVel * b.angVel > angTol) {
+				b.sleepTime = 0.0F;
+			} else {
+				b.sleepTime += dt;
+			}
+			final int root = findIsland(i);
+			if (b.sleepTime < islandSleepTime[root]) {
+				islandSleepTime[root] = b.sleepTime;
+			}
+		}
+		for (int i = 0; i < numBodies; i++) {
+			PBody b = bodies[i];
+			if (b.fix || b.sleeping) {
+				continue;
+			}
+			if (islandSleepTime[findIsland(i)] >= timeToSleep) {
+				b.sleeping = true;
+				b.vel.set(0.0F, 0.0F);
+				b.angVel = 0.0F;
+				numSleeping++;
+			}
+		}
+	}
+
+	private static boolean isAsleep(PBody b) {
+		return b == null || b.fix || b.sleeping;
+	}
+
+	private static boolean isAsleep(PJoint j) {
+		PBody b1 = j.getBody1();
+		PBody b2 = j.getBody2();
+		// 只连接一个刚体的关节(如拖拽)持续施加作用,不视为休眠
+		if (b1 == null || b2 == null) {
+			return false;
+		}
+		return isAsleep(b1) && isAsleep(b2);
+	}
+
 	public PBody[] getBodies() {
 		return  CollectionUtils.copyOf(bodies, numBodies);
 	}
@@ -240,11 +418,29 @@ public class PPhysWorld {
 		return  CollectionUtils.copyOf(solvers, numSolvers);
 	}
 
+	/**
+	 * 宽阶段使用的增量Sweep and Prune,可以设定监听器获得图形AABB开始与结束重叠的事件
+	 * 
+	 * @return
+	 */
+	public PSweepAndPrune getSweepAndPrune() {
+		return sap;
+	}
+
 	public long getTotalStepTime() {
 		return totalStepTime;
 	}
 
 	private void removeBody(int index) {
+		final PBody body = bodies[index];
+		for (int i = 0; i < numSolvers; i++) {
+			PSolver solver = solvers[i];
+			if (solver.b1 == body) {
+				solver.b2.wake();
+			} else if (solver.b2 == body) {
+				solver.b1.wake();
+			}
+		}
 		for (int i = 0; i < bodies[index].numShapes; i++) {
 			PShape s = bodies[index].shapes[i];
 			if (s._type == PShapeType.CONCAVE_SHAPE) {
@@ -286,35 +482,269 @@ public class PPhysWorld {
 		numShapes--;
 	}
 
-	private void removeSolver(int index) {
-		if (index != numSolvers - 1) {
-			System.arraycopy(solvers, index + 1, solvers, index, numSolvers
-					- index - 1);
-		}
-		numSolvers--;
-	}
-
 	public void setGravity(float gx, float gy) {
+		if (gravity.x == gx && gravity.y == gy) {
+			return;
+		}
 		gravity.set(gx, gy);
+		// 受力改变后休眠的刚体需要重新参与计算
+		for (int i = 0; i < numBodies; i++) {
+			if (!bodies[i].fix) {
+				bodies[i].wake();
+			}
+		}
 	}
 
 	public void setIterations(int iterations) {
 		this.iterations = iterations;
 	}
 
+	/**
+	 * 返回约束所在的岛屿,两端都不属于任何岛屿时返回-1
+	 */
+	private int islandOf(PBody b1, PBody b2) {
+		if (b1 != null && !b1.fix && b1.index < numBodies && bodies[b1.index] == b1) {
+			return islandIds[b1.index];
+		}
+		if (b2 != null && !b2.fix && b2.index < numBodies && bodies[b2.index] == b2) {
+			return islandIds[b2.index];
+		}
+		return -1;
+	}
+
+	/**
+	 * 把醒着的刚体,接触与关节按岛屿分组(每组内保持原有的先后顺序)
+	 * 
+	 * @return 存在无法归入岛屿的关节时返回false
+	 */
+	private boolean partitionIslands() {
+		if (islandIds.length < numBodies) {
+			islandIds = new int[numBodies * 2];
+			islandBodyList = new int[numBodies * 2];
+			islandBodyStart = new int[numBodies * 2 + 1];
+			islandSolverStart = new int[numBodies * 2 + 1];
+			islandJointStart = new int[numBodies * 2 + 1];
+			islandSolveTime = new long[numBodies * 2];
+			islandPositionTime = new long[numBodies * 2];
+		}
+		if (islandSolverList.length < numSolvers) {
+			islandSolverList = new PSolver[solvers.length];
+		}
+		if (islandJointList.length < numJoints) {
+			islandJointList = new PJoint[joints.length];
+		}
+		int count = 0;
+		for (int i = 0; i < numBodies; i++) {
+			islandIds[i] = -1;
+		}
+		for (int i = 0; i < numBodies; i++) {
+			PBody b = bodies[i];
+			if (b.fix || b.sleeping) {
+				continue;
+			}
+			final int root = findIsland(i);
+			if (islandIds[root] == -1) {
+				islandIds[root] = count++;
+			}
+			islandIds[i] = islandIds[root];
+		}
+		numIslands = count;
+		for (int i = 0; i <= count; i++) {
+			islandBodyStart[i] = 0;
+			islandSolverStart[i] = 0;
+			islandJointStart[i] = 0;
+		}
+		for (int i = 0; i < numBodies; i++) {
+			if (islandIds[i] != -1) {
+				islandBodyStart[islandIds[i] + 1]++;
+			}
+		}
+		for (int i = 0; i < numSolvers; i++) {
+			PSolver solver = solvers[i];
+			if (!solver.isAsleep()) {
+				islandSolverStart[islandOf(solver.b1, solver.b2) + 1]++;
+			}
+		}
+		for (int i = 0; i < numJoints; i++) {
+			PJoint joint = joints[i];
+			if (!isAsleep(joint)) {
+				final int island = islandOf(joint.getBody1(), joint.getBody2());
+				if (island == -1) {
+					return false;
+				}
+				islandJointStart[island + 1]++;
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			islandBodyStart[i + 1] += islandBodyStart[i];
+			islandSolverStart[i + 1] += islandSolverStart[i];
+			islandJointStart[i + 1] += islandJointStart[i];
+		}
+		for (int i = 0; i < numBodies; i++) {
+			final int island = islandIds[i];
+			if (island != -1) {
+				islandBodyList[islandBodyStart[island]++] = i;
+			}
+		}
+		for (int i = 0; i < numSolvers; i++) {
+			PSolver solver = solvers[i];
+			if (!solver.isAsleep()) {
+				islandSolverList[islandSolverStart[islandOf(solver.b1, solver.b2)]++] = solver;
+			}
+		}
+		for (int i = 0; i < numJoints; i++) {
+			PJoint joint = joints[i];
+			if (!isAsleep(joint)) {
+				islandJointList[islandJointStart[islandOf(joint.getBody1(), joint.getBody2())]++] = joint;
+			}
+		}
+		// 填充时起始位置被移到了各组的末尾,整体后移一位还原
+		for (int i = count; i > 0; i--) {
+			islandBodyStart[i] = islandBodyStart[i - 1];
+			islandSolverStart[i] = islandSolverStart[i - 1];
+			islandJointStart[i] = islandJointStart[i - 1];
+		}
+		islandBodyStart[0] = islandSolverStart[0] = islandJointStart[0] = 0;
+		return true;
+	}
+
+	/**
+	 * 求解单个岛屿,各步骤的先后顺序与solve完全一致,只是限定在岛屿内部
+	 */
+	private void solveIsland(int island, float dt) {
+		final int bodyStart = islandBodyStart[island], bodyEnd = islandBodyStart[island + 1];
+		final int solverStart = islandSolverStart[island], solverEnd = islandSolverStart[island + 1];
+		final int jointStart = islandJointStart[island], jointEnd = islandJointStart[island + 1];
+		final PSolver[] solvers = islandSolverList;
+		final PJoint[] joints = islandJointList;
+		long st = nanoTime();
+		for (int i = solverStart; i < solverEnd; i++) {
+			solvers[i].preSolve(warmStarting);
+		}
+		for (int i = jointStart; i < jointEnd; i++) {
+			joints[i].preSolve(dt);
+		}
+		for (int j = 0; j < iterations; j++) {
+			for (int i = jointStart; i < jointEnd; i++) {
+				joints[i].solveVelocity(dt);
+			}
+			for (int i = solverStart; i < solverEnd; i++) {
+				solvers[i].solveVelocity();
+			}
+		}
+		long en = nanoTime();
+		long solveTime = en - st;
+		st = nanoTime();
+		for (int i = bodyStart; i < bodyEnd; i++) {
+			PBody b = bodies[islandBodyList[i]];
+			b.correctVel.x = b.vel.x * dt;
+			b.correctVel.y = b.vel.y * dt;
+			b.correctAngVel = b.angVel * dt;
+		}
+		en = nanoTime();
+		long positionTime = en - st;
+		st = nanoTime();
+		for (int j = 0; j < iterations; j++) {
+			for (int i = jointStart; i < jointEnd; i++) {
+				joints[i].solvePosition();
+			}
+			for (int i = solverStart; i < solverEnd; i++) {
+				solvers[i].solvePosition();
+			}
+		}
+		en = nanoTime();
+		solveTime += en - st;
+		st = nanoTime();
+		for (int i = bodyStart; i < bodyEnd; i++) {
+			PBody b = bodies[islandBodyList[i]];
+			b.pos.x += b.correctVel.x;
+			b.pos.y += b.correctVel.y;
+			b.ang += b.correctAngVel;
+			b.update();
+		}
+		for (int i = jointStart; i < jointEnd; i++) {
+			joints[i].update();
+		}
+		en = nanoTime();
+		positionTime += en - st;
+		islandSolveTime[island] = solveTime;
+		islandPositionTime[island] = positionTime;
+	}
+
+	private void solveIslands(float dt) {
+		long st = nanoTime();
+		// 固定刚体不属于任何岛屿,先于岛屿统一处理(求解过程中不会改变它们的状态)
+		for (int i = 0; i < numBodies; i++) {
+			PBody b = bodies[i];
+			if (b.fix && !b.sleeping) {
+				b.angVel = 0.0F;
+				b.vel.set(0.0F, 0.0F);
+				b.update();
+			}
+		}
+		positionUpdateTime += nanoTime() - st;
+		islandDelta = dt;
+		int awake = islandBodyStart[numIslands];
+		if (numIslands > 1 && awake >= minParallelBodies) {
+			islandExecutor.execute(numIslands, islandTask);
+		} else {
+			for (int i = 0; i < numIslands; i++) {
+				solveIsland(i, dt);
+			}
+		}
+		for (int i = 0; i < islandSolverStart[numIslands]; i++) {
+			islandSolverList[i] = null;
+		}
+		for (int i = 0; i < islandJointStart[numIslands]; i++) {
+			islandJointList[i] = null;
+		}
+		// 与串行求解相同,分别累计约束求解与位置更新的耗时(并行时为各岛屿耗时之和)
+		long solveTime = 0;
+		for (int i = 0; i < numIslands; i++) {
+			solveTime += islandSolveTime[i];
+			positionUpdateTime += islandPositionTime[i];
+		}
+		collisionSolveTime = solveTime;
+	}
+
 	private void solve(float dt) {
+		if (islandExecutor != null && partitionIslands()) {
+			solveIslands(dt);
+			return;
+		}
 		long st = nanoTime();
+		// 只收集醒着的求解器与关节,休眠岛屿不参与迭代
+		if (activeSolverList.length < numSolvers) {
+			activeSolverList = new PSolver[solvers.length];
+		}
+		if (activeJointList.length < numJoints) {
+			activeJointList = new PJoint[joints.length];
+		}
+		final PSolver[] solvers = activeSolverList;
+		final PJoint[] joints = activeJointList;
+		int activeSolvers = 0;
 		for (int i = 0; i < numSolvers; i++) {
-			solvers[i].preSolve();
+			if (!this.solvers[i].isAsleep()) {
+				solvers[activeSolvers++] = this.solvers[i];
+			}
 		}
+		int activeJoints = 0;
 		for (int i = 0; i < numJoints; i++) {
+			if (!isAsleep(this.joints[i])) {
+				joints[activeJoints++] = this.joints[i];
+			}
+		}
+		for (int i = 0; i < activeSolvers; i++) {
+			solvers[i].preSolve(warmStarting);
+		}
+		for (int i = 0; i < activeJoints; i++) {
 			joints[i].preSolve(dt);
 		}
 		for (int j = 0; j < iterations; j++) {
-			for (int i = 0; i < numJoints; i++) {
+			for (int i = 0; i < activeJoints; i++) {
 				joints[i].solveVelocity(dt);
 			}
-			for (int i = 0; i < numSolvers; i++) {
+			for (int i = 0; i < activeSolvers; i++) {
 				solvers[i].solveVelocity();
 			}
 		}
@@ -323,7 +753,7 @@ public class PPhysWorld {
 		collisionSolveTime = en - st;
 		st = nanoTime();
 		for (int i = 0; i < numBodies; i++)
-			if (!bodies[i].fix) {
+			if (!bodies[i].fix && !bodies[i].sleeping) {
 				PBody b = bodies[i];
 				b.correctVel.x = b.vel.x * dt;
 				b.correctVel.y = b.vel.y * dt;
@@ -334,10 +764,10 @@ public class PPhysWorld {
 		positionUpdateTime += en - st;
 		st = nanoTime();
 		for (int j = 0; j < iterations; j++) {
-			for (int i = 0; i < numJoints; i++) {
+			for (int i = 0; i < activeJoints; i++) {
 				joints[i].solvePosition();
 			}
-			for (int i = 0; i < numSolvers; i++) {
+			for (int i = 0; i < activeSolvers; i++) {
 				solvers[i].solvePosition();
 			}
 		}
@@ -347,6 +777,9 @@ public class PPhysWorld {
 		st = nanoTime();
 		for (int i = 0; i < numBodies; i++) {
 			PBody b = bodies[i];
+			if (b.sleeping) {
+				continue;
+			}
 			if (b.fix) {
 				b.angVel = 0.0F;
 				b.vel.set(0.0F, 0.0F);
@@ -358,9 +791,15 @@ public class PPhysWorld {
 			b.update();
 		}
 
-		for (int i = 0; i < numJoints; i++) {
+		for (int i = 0; i < activeJoints; i++) {
 			joints[i].update();
 		}
+		for (int i = 0; i < activeSolvers; i++) {
+			solvers[i] = null;
+		}
+		for (int i = 0; i < activeJoints; i++) {
+			joints[i] = null;
+		}
 		en = nanoTime();
 		positionUpdateTime += en - st;
 	}
@@ -371,7 +810,7 @@ public class PPhysWorld {
 			if (bodies[i].rem) {
 				removeBody(i);
 				i--;
-			} else {
+			} else if (!bodies[i].sleeping) {
 				bodies[i].update();
 				if (!bodies[i].fix) {
 					PBody b = bodies[i];
@@ -396,12 +835,134 @@ public class PPhysWorld {
 		}
 		long en = nanoTime();
 		positionUpdateTime = en - st;
+		stepCount++;
 		collide(en);
+		buildIslands();
 		solve(dt);
+		updateSleep(dt);
 		long totalEn = nanoTime();
 		totalStepTime = totalEn - st;
 	}
 
+	/**
+	 * 是否把上一帧的接触冲量作为本帧求解的初始值(warm starting),可以减少堆叠时的抖动与所需迭代次数
+	 * 
+	 * @param warm
+	 */
+	public void setWarmStarting(boolean warm) {
+		this.warmStarting = warm;
+	}
+
+	public boolean isWarmStarting() {
+		return warmStarting;
+	}
+
+	/**
+	 * 设定岛屿执行器后,醒着的刚体按岛屿分组,各岛屿交给执行器并行求解(结果与单线程求解完全一致),为null时恢复单线程求解
+	 * 
+	 * @param executor
+	 */
+	public void setIslandExecutor(PIslandExecutor executor) {
+		this.islandExecutor = executor;
+	}
+
+	public PIslandExecutor getIslandExecutor() {
+		return islandExecutor;
+	}
+
+	/**
+	 * 醒着的刚体少于此数量时,即使设定了执行器也在当前线程依次求解各岛屿
+	 * 
+	 * @param count
+	 */
+	public void setMinParallelBodies(int count) {
+		this.minParallelBodies = count;
+	}
+
+	public int getMinParallelBodies() {
+		return minParallelBodies;
+	}
+
+	/**
+	 * 上一次并行求解时的岛屿数量
+	 * 
+	 * @return
+	 */
+	public int getIslandCount() {
+		return numIslands;
+	}
+
+	/**
+	 * 是否允许静止的岛屿进入休眠,关闭时唤醒全部刚体
+	 * 
+	 * @param enabled
+	 */
+	public void setSleepingEnabled(boolean enabled) {
+		this.sleepingEnabled = enabled;
+		if (!enabled) {
+			for (int i = 0; i < numBodies; i++) {
+				bodies[i].wake();
+			}
+			numSleeping = 0;
+		}
+	}
+
+	public boolean isSleepingEnabled() {
+		return sleepingEnabled;
+	}
+
+	/**
+	 * 设定进入休眠的速度阈值
+	 * 
+	 * @param linear
+	 *            线速度
+	 * @param angular
+	 *            角速度(弧度)
+	 */
+	public void setSleepTolerance(float linear, float angular) {
+		this.linearSleepTolerance = linear;
+		this.angularSleepTolerance = angular;
+	}
+
+	public float getLinearSleepTolerance() {
+		return linearSleepTolerance;
+	}
+
+	public float getAngularSleepTolerance() {
+		return angularSleepTolerance;
+	}
+
+	/**
+	 * 速度低于阈值持续多少秒后进入休眠
+	 * 
+	 * @param seconds
+	 */
+	public void setTimeToSleep(float seconds) {
+		this.timeToSleep = seconds;
+	}
+
+	public float getTimeToSleep() {
+		return timeToSleep;
+	}
+
+	/**
+	 * 当前处于休眠中的刚体数量
+	 * 
+	 * @return
+	 */
+	public int getSleepingBodies() {
+		return numSleeping;
+	}
+
+	/**
+	 * 接触缓存中的图形对数量
+	 * 
+	 * @return
+	 */
+	public int getContactPairs() {
+		return contactCache.size();
+	}
+
 	public void update() {
 		for (int i = 0; i < numBodies; i++) {
 			if (bodies[i].rem) {
@@ -39,6 +39,8 @@ public abstract class PShape {
 	protected PTransformer _mAng;
 	
 	protected PBody _parent;
+
+	protected int _id = -1;
 	
 	protected Vector2f _pos;
 	
@@ -110,6 +112,15 @@ public abstract class PShape {
 		return _rest;
 	}
 
+	/**
+	 * 加入PPhysWorld时分配的唯一id,用于查找接触缓存
+	 * 
+	 * @return
+	 */
+	public int getId() {
+		return _id;
+	}
+
 	public PShapeType getShapeType() {
 		return _type;
 	}
@@ -134,6 +145,7 @@ public abstract class PShape {
 			_localPos.subLocal(_parent.pos);
 			_parent.correctCenterOfGravity();
 			_parent.calcMassData();
+			_parent.wake();
 		}
 	}
 
@@ -23,6 +23,8 @@ public class PSolver {
 	protected PBody b2;
 	
 	protected PContact[] cs;
+
+	private PContact[] old;
 	
 	protected float fric;
 	protected float rest;
@@ -33,6 +35,11 @@ public class PSolver {
 	protected PShape s1;
 	protected PShape s2;
 
+	protected long key;
+
+	// 最后一次检测到接触时PPhysWorld的step计数
+	protected int stamp;
+
 	public PSolver(PShape shape1, PShape shape2, PContact contacts[], int num) {
 		s1 = shape1;
 		s2 = shape2;
@@ -40,7 +47,9 @@ public class PSolver {
 		b2 = s2._parent;
 		fric = MathUtils.sqrt(s1._fric * s2._fric);
 		rest = MathUtils.sqrt(s1._rest * s2._rest);
-		cs = contacts;
+		cs = new PContact[contacts.length];
+		old = new PContact[contacts.length];
+		System.arraycopy(contacts, 0, cs, 0, num);
 		numContacts = num;
 		for (int i = 0; i < numContacts; i++) {
 			PContact c = cs[i];
@@ -82,10 +91,23 @@ public class PSolver {
 		return v >= max ? v : max;
 	}
 
-	void preSolve() {
+	/**
+	 * 两个刚体都处于静止(固定或休眠)状态时不需要求解
+	 * 
+	 * @return
+	 */
+	boolean isAsleep() {
+		return (b1.fix || b1.sleeping) && (b2.fix || b2.sleeping);
+	}
+
+	void preSolve(boolean warmStarting) {
 		rem = true;
 		for (int i = 0; i < numContacts; i++) {
 			PContact c = cs[i];
+			if (!warmStarting) {
+				c.norI = 0.0F;
+				c.tanI = 0.0F;
+			}
 			b1.applyImpulse(c.normal.x * c.norI + c.tangent.x * c.tanI,
 					c.normal.y * c.norI + c.tangent.y * c.tanI, c.pos.x,
 					c.pos.y);
@@ -151,11 +173,17 @@ public class PSolver {
 	}
 
 	void update(PContact contacts[], int num) {
-		PContact old[] = cs;
+		// 交换前后两帧的接触数组,旧接触的冲量按特征id传递给新接触(warm starting)
+		PContact[] old = cs;
+		cs = this.old;
+		this.old = old;
+		if (cs.length < num) {
+			cs = new PContact[num];
+		}
 		int oldNumContacts = numContacts;
 		fric = MathUtils.sqrt(s1._fric * s2._fric);
 		rest = MathUtils.sqrt(s1._rest * s2._rest);
-		cs = contacts;
+		System.arraycopy(contacts, 0, cs, 0, num);
 		numContacts = num;
 		for (int i = 0; i < numContacts; i++) {
 			PContact c = cs[i];
@@ -181,6 +209,9 @@ public class PSolver {
 				}
 
 		}
+		for (int i = 0; i < oldNumContacts; i++) {
+			old[i] = null;
+		}
 
 		rem = false;
 	}
@@ -39,13 +39,15 @@ public class PSortableAABB {
 		if (!set) {
 			return;
 		} else {
-			sap.removeObject(beginX, beginY);
-			sap.removeObject(endX, endY);
+			beginX.removed = beginY.removed = endX.removed = endY.removed = true;
+			sap.removeObject(this);
+			set = false;
 			return;
 		}
 	}
 
 	public void set(PSweepAndPrune sap, PShape s, AABB aabb) {
+		remove();
 		set = true;
 		this.sap = sap;
 		parent = s;
@@ -54,8 +56,7 @@ public class PSortableAABB {
 		beginY = new PSortableObject(s, this, aabb.minY, true);
 		endX = new PSortableObject(s, this, aabb.maxX, false);
 		endY = new PSortableObject(s, this, aabb.maxY, false);
-		sap.addObject(beginX, beginY);
-		sap.addObject(endX, endY);
+		sap.addObject(this);
 	}
 
 	void update() {
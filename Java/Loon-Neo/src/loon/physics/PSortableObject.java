@@ -22,6 +22,11 @@ public class PSortableObject {
 	protected PShape parent;
 	protected float value;
 
+	// 在所属坐标轴数组中的下标
+	int index;
+
+	boolean removed;
+
 	public PSortableObject(PShape s, PSortableAABB aabb, float value,
 			boolean begin) {
 		this.parent = s;
@@ -0,0 +1,40 @@
+/**
+ * Copyright 2013 The Loon Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package loon.physics;
+
+/**
+ * PSweepAndPrune中AABB互相重叠的一对图形
+ */
+public class PSortablePair {
+
+	protected PShape s1;
+
+	protected PShape s2;
+
+	protected long key;
+
+	// 在PSweepAndPrune重叠列表中的下标
+	int index;
+
+	public PShape getShape1() {
+		return s1;
+	}
+
+	public PShape getShape2() {
+		return s2;
+	}
+
+}
@@ -17,82 +17,230 @@ package loon.physics;
 
 import loon.utils.CollectionUtils;
 
+/**
+ * 增量式的Sweep and Prune,X与Y两个坐标轴的端点数组在各帧之间保持有序,每帧只用插入排序修正移动造成的少量乱序,
+ * 排序时端点互相越过即产生重叠对的加入或移除事件,重叠对在各帧之间持续保存.
+ * 
+ * 两个坐标轴都会产生事件,所以大量图形共用同一X或Y坐标(如竖直堆叠)时不会退化为逐一比较.
+ */
 public class PSweepAndPrune {
 
-	protected boolean checkX;
-	
+	/**
+	 * 重叠对变化的监听器
+	 */
+	public static interface PairListener {
+
+		public void pairAdded(PShape s1, PShape s2);
+
+		public void pairRemoved(PShape s1, PShape s2);
+
+	}
+
 	protected int numObject;
-	
+
 	private PSortableObject[] objsX;
 	private PSortableObject[] objsY;
 
+	private final PPairMap<PSortablePair> pairMap;
+
+	protected PSortablePair[] pairs;
+
+	protected int numPairs;
+
+	private PSortablePair[] pairPool;
+
+	private int numPool;
+
+	private boolean dirty;
+
+	private PairListener listener;
+
 	public PSweepAndPrune() {
 		objsX = new PSortableObject[1024];
 		objsY = new PSortableObject[1024];
+		pairs = new PSortablePair[1024];
+		pairPool = new PSortablePair[64];
+		pairMap = new PPairMap<PSortablePair>(1024);
 	}
 
-	void addObject(PSortableObject ox, PSortableObject oy) {
-		if (numObject + 1 >= objsX.length) {
-			objsX =  CollectionUtils.copyOf(objsX,
-					objsX.length * 2);
-			objsY =  CollectionUtils.copyOf(objsY,
-					objsY.length * 2);
+	void addObject(PSortableAABB aabb) {
+		if (numObject + 2 >= objsX.length) {
+			objsX = CollectionUtils.copyOf(objsX, objsX.length * 2);
+			objsY = CollectionUtils.copyOf(objsY, objsY.length * 2);
 		}
-		objsX[numObject] = ox;
-		objsY[numObject] = oy;
+		// 新端点先放在数组末尾,下一次update时由插入排序移到正确位置并产生重叠事件
+		append(objsX, aabb.beginX);
+		append(objsY, aabb.beginY);
+		numObject++;
+		append(objsX, aabb.endX);
+		append(objsY, aabb.endY);
 		numObject++;
 	}
 
-	void removeObject(PSortableObject ox, PSortableObject oy) {
-		int indexX = -1;
-		int indexY = -1;
-		for (int i = 0; i < numObject; i++) {
-			if (objsX[i] != ox)
-				continue;
-			indexX = i;
-			break;
+	private void append(PSortableObject[] objs, PSortableObject o) {
+		o.index = numObject;
+		o.removed = false;
+		objs[numObject] = o;
+	}
+
+	/**
+	 * 只做标记,被移除的端点与相关的重叠对在下一次update时一并清理
+	 */
+	void removeObject(PSortableAABB aabb) {
+		dirty = true;
+	}
+
+	/**
+	 * 更新端点顺序与重叠对
+	 */
+	void update() {
+		if (dirty) {
+			compact();
 		}
+		sortAxis(objsX);
+		sortAxis(objsY);
+	}
 
-		if (indexX != -1 && indexX != numObject - 1)
-			System.arraycopy(objsX, indexX + 1, objsX, indexX, numObject
-					- indexX - 1);
+	private void compact() {
+		int count = 0;
 		for (int i = 0; i < numObject; i++) {
-			if (objsY[i] != oy)
-				continue;
-			indexY = i;
-			break;
+			PSortableObject o = objsX[i];
+			if (!o.removed) {
+				o.index = count;
+				objsX[count++] = o;
+			}
 		}
-
-		if (indexY != -1 && indexY != numObject - 1)
-			System.arraycopy(objsY, indexY + 1, objsY, indexY, numObject
-					- indexY - 1);
-		numObject--;
-	}
-
-	PSortableObject[] sort() {
-		PInsertionSorter.sort(objsX, numObject);
-		PInsertionSorter.sort(objsY, numObject);
-		int stack = 0;
-		int overlapX = 0;
-		int overlapY = 0;
-		for (int i = 0; i < numObject; i++)
-			if (objsX[i].begin) {
-				stack++;
-				overlapX += stack;
-			} else {
-				stack--;
+		count = 0;
+		for (int i = 0; i < numObject; i++) {
+			PSortableObject o = objsY[i];
+			if (!o.removed) {
+				o.index = count;
+				objsY[count++] = o;
+			}
+		}
+		for (int i = count; i < numObject; i++) {
+			objsX[i] = null;
+			objsY[i] = null;
+		}
+		numObject = count;
+		for (int i = numPairs - 1; i >= 0; i--) {
+			PSortablePair pair = pairs[i];
+			if (!pair.s1._sapAABB.set || !pair.s2._sapAABB.set) {
+				removePair(pair);
 			}
+		}
+		dirty = false;
+	}
 
-		stack = 0;
-		for (int i = 0; i < numObject; i++)
-			if (objsY[i].begin) {
-				stack++;
-				overlapY += stack;
-			} else {
-				stack--;
+	/**
+	 * 插入排序,端点s向左越过端点o时:起点越过终点表示两者在此轴上开始重叠,终点越过起点表示两者分离
+	 */
+	private void sortAxis(PSortableObject[] objs) {
+		final int num = numObject;
+		for (int i = 1; i < num; i++) {
+			final PSortableObject s = objs[i];
+			final float value = s.value;
+			int j = i;
+			for (; j > 0 && objs[j - 1].value > value; j--) {
+				final PSortableObject o = objs[j - 1];
+				if (s.aabb != o.aabb) {
+					if (s.begin && !o.begin) {
+						if (s.aabb.aabb.isHit(o.aabb.aabb)) {
+							addPair(s.parent, o.parent);
+						}
+					} else if (!s.begin && o.begin) {
+						removePair(s.parent, o.parent);
+					}
+				}
+				o.index = j;
+				objs[j] = o;
+			}
+			if (j != i) {
+				s.index = j;
+				objs[j] = s;
 			}
+		}
+	}
+
+	private void addPair(PShape s1, PShape s2) {
+		final long key = PPairMap.key(s1._id, s2._id);
+		if (pairMap.get(key) != null) {
+			return;
+		}
+		if (s1._id > s2._id) {
+			PShape tmp = s1;
+			s1 = s2;
+			s2 = tmp;
+		}
+		PSortablePair pair = numPool > 0 ? pairPool[--numPool] : new PSortablePair();
+		pairPool[numPool] = null;
+		pair.s1 = s1;
+		pair.s2 = s2;
+		pair.key = key;
+		if (numPairs == pairs.length) {
+			pairs = CollectionUtils.copyOf(pairs, pairs.length * 2);
+		}
+		pair.index = numPairs;
+		pairs[numPairs++] = pair;
+		pairMap.put(key, pair);
+		if (listener != null) {
+			listener.pairAdded(s1, s2);
+		}
+	}
+
+	private void removePair(PShape s1, PShape s2) {
+		PSortablePair pair = pairMap.get(PPairMap.key(s1._id, s2._id));
+		if (pair != null) {
+			removePair(pair);
+		}
+	}
+
+	private void removePair(PSortablePair pair) {
+		pairMap.remove(pair.key);
+		// 与最后一个交换后删除,O(1)
+		final int index = pair.index;
+		final PSortablePair last = pairs[--numPairs];
+		pairs[index] = last;
+		last.index = index;
+		pairs[numPairs] = null;
+		if (listener != null) {
+			listener.pairRemoved(pair.s1, pair.s2);
+		}
+		pair.s1 = pair.s2 = null;
+		if (numPool == pairPool.length) {
+			pairPool = CollectionUtils.copyOf(pairPool, pairPool.length * 2);
+		}
+		pairPool[numPool++] = pair;
+	}
+
+	public void setPairListener(PairListener listener) {
+		this.listener = listener;
+	}
+
+	public PairListener getPairListener() {
+		return listener;
+	}
+
+	/**
+	 * 当前AABB互相重叠的图形对数量
+	 * 
+	 * @return
+	 */
+	public int getPairCount() {
+		return numPairs;
+	}
+
+	public PSortablePair getPair(int index) {
+		return pairs[index];
+	}
 
-		return (checkX = overlapX < overlapY) ? objsX : objsY;
+	/**
+	 * 坐标轴数组中的端点数量(每个图形两个)
+	 * 
+	 * @return
+	 */
+	public int getEndpointCount() {
+		return numObject;
 	}
 
 }
@@ -23,6 +23,7 @@ package loon.utils;
 
 import loon.LSysException;
 import loon.LTexture;
+import loon.action.ActionBind;
 import loon.action.sprite.ISprite;
 import loon.component.Actor;
 import loon.component.LComponent;
@@ -32,6 +33,7 @@ import loon.physics.PJoint;
 import loon.physics.PShape;
 import loon.physics.PSolver;
 import loon.physics.PSortableObject;
+import loon.physics.PSortablePair;
 
 final public class CollectionUtils {
 
@@ -651,6 +653,18 @@ final public class CollectionUtils {
 		return tempArr;
 	}
 
+	public static PSortablePair[] copyOf(PSortablePair[] data, int newSize) {
+		PSortablePair tempArr[] = new PSortablePair[newSize];
+		System.arraycopy(data, 0, tempArr, 0, MathUtils.min(data.length, newSize));
+		return tempArr;
+	}
+
+	public static ActionBind[] copyOf(ActionBind[] data, int newSize) {
+		ActionBind tempArr[] = new ActionBind[newSize];
+		System.arraycopy(data, 0, tempArr, 0, MathUtils.min(data.length, newSize));
+		return tempArr;
+	}
+
 	public static LTexture[] copyOf(LTexture[] data, int newSize) {
 		LTexture tempArr[] = new LTexture[newSize];
 		System.arraycopy(data, 0, tempArr, 0, MathUtils.min(data.length, newSize));
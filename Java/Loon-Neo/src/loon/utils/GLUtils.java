@@ -326,6 +326,13 @@ public class GLUtils {
 		}
 	}
 
+	/**
+	 * 纹理被平台实现直接绑定后调用,使下一次bindTexture重新绑定
+	 */
+	public static void resetTexture() {
+		currentHardwareTextureID = -1;
+	}
+
 	public static void deleteTexture(GL20 gl, int id) {
 		gl.glDeleteTexture(id);
 		currentHardwareTextureID = -1;
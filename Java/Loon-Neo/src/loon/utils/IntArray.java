@@ -111,12 +111,12 @@ public class IntArray implements IArray {
 
 	public void addAll(int[] array, int offset, int length) {
 		int[] items = this.items;
-		int lengthNeeded = length + length;
+		int lengthNeeded = this.length + length;
 		if (lengthNeeded > items.length) {
 			items = relength(MathUtils.max(8, (int) (lengthNeeded * 1.75f)));
 		}
-		System.arraycopy(array, offset, items, length, length);
-		length += length;
+		System.arraycopy(array, offset, items, this.length, length);
+		this.length += length;
 	}
 
 	public int get(int index) {
@@ -24,16 +24,128 @@ package loon.utils.processes;
 import loon.LRelease;
 import loon.LSystem;
 import loon.utils.IArray;
-import loon.utils.LIterator;
-import loon.utils.SortedList;
 import loon.utils.TArray;
 import loon.utils.timer.LTimerContext;
 
+/**
+ * 游戏进程管理器,进程按GameProcessType分入不同优先级的桶中,每帧依优先级从小到大执行(同一桶内保持加入顺序).
+ *
+ * 加入与删除进程只记录到待处理队列,在下一帧开始时统一生效,执行中的进程数组不会被其它线程修改,
+ * 所以tick时既不需要复制进程列表,也不需要对每个进程加锁,稳定运行时不产生任何内存分配.
+ */
 public class RealtimeProcessManager implements RealtimeProcessEvent, IArray, LRelease {
 
+	private final static GameProcessType[] TYPES = GameProcessType.values();
+
 	private static RealtimeProcessManager instance;
 
-	private SortedList<GameProcess> processes;
+	/**
+	 * 同一GameProcessType的进程数组
+	 */
+	private static class Bucket {
+
+		private GameProcess[] items = new GameProcess[8];
+
+		// 与items对应,标记本帧tick中已结束的进程
+		private boolean[] dead = new boolean[8];
+
+		private int size;
+
+		private int deadCount;
+
+		private int priority;
+
+		private void add(GameProcess process) {
+			if (size == items.length) {
+				GameProcess[] newItems = new GameProcess[size << 1];
+				System.arraycopy(items, 0, newItems, 0, size);
+				items = newItems;
+				dead = new boolean[size << 1];
+			}
+			// tick中途close时可能残留标记
+			dead[size] = false;
+			items[size++] = process;
+		}
+
+		/**
+		 * 删除已标记结束的进程(保持其余进程的顺序)
+		 *
+		 * @return 删除的数量
+		 */
+		private int removeDead() {
+			if (deadCount == 0) {
+				return 0;
+			}
+			int count = 0;
+			for (int i = 0; i < size; i++) {
+				if (dead[i]) {
+					dead[i] = false;
+				} else {
+					items[count++] = items[i];
+				}
+			}
+			for (int i = count; i < size; i++) {
+				items[i] = null;
+			}
+			final int removed = size - count;
+			size = count;
+			deadCount = 0;
+			return removed;
+		}
+
+		private boolean remove(GameProcess process) {
+			for (int i = 0; i < size; i++) {
+				if (items[i] == process) {
+					System.arraycopy(items, i + 1, items, i, size - i - 1);
+					items[--size] = null;
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private boolean contains(GameProcess process) {
+			for (int i = 0; i < size; i++) {
+				if (items[i] == process) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private void clear() {
+			for (int i = 0; i < size; i++) {
+				items[i] = null;
+				dead[i] = false;
+			}
+			size = 0;
+			deadCount = 0;
+		}
+	}
+
+	private final Bucket[] buckets;
+
+	// 依优先级排列的桶
+	private final Bucket[] orderedBuckets;
+
+	private final Object lock = new Object();
+
+	private GameProcess[] pendingAdds = new GameProcess[8];
+
+	private int pendingAddCount;
+
+	private GameProcess[] pendingRemoves = new GameProcess[8];
+
+	private int pendingRemoveCount;
+
+	private GameProcess[] deadProcesses = new GameProcess[8];
+
+	// 由其他线程在锁内设置,游戏线程在锁外检查
+	private volatile boolean pending;
+
+	private int processCount;
+
+	private boolean ticking;
 
 	public static void freeStatic(){
 		instance = null;
@@ -51,91 +163,270 @@ public class RealtimeProcessManager implements RealtimeProcessEvent, IArray, LRe
 	}
 
 	private RealtimeProcessManager() {
-		this.processes = new SortedList<GameProcess>();
+		this.buckets = new Bucket[TYPES.length];
+		this.orderedBuckets = new Bucket[TYPES.length];
+		for (int i = 0; i < TYPES.length; i++) {
+			buckets[i] = new Bucket();
+			buckets[i].priority = i;
+			orderedBuckets[i] = buckets[i];
+		}
 	}
 
 	public static RealtimeProcessManager newProcess() {
 		return new RealtimeProcessManager();
 	}
 
+	private Bucket bucket(GameProcess process) {
+		final GameProcessType pt = process.getProcessType();
+		return buckets[pt == null ? GameProcessType.Other.ordinal() : pt.ordinal()];
+	}
+
+	/**
+	 * 设定指定类型进程的执行优先级(数值小的先执行),默认为GameProcessType中的声明顺序
+	 *
+	 * @param pt
+	 * @param priority
+	 * @return
+	 */
+	public RealtimeProcessManager setPriority(GameProcessType pt, int priority) {
+		if (pt == null) {
+			return this;
+		}
+		synchronized (lock) {
+			buckets[pt.ordinal()].priority = priority;
+			// 桶的数量很少,直接插入排序,优先级相同时保持声明顺序
+			for (int i = 0; i < buckets.length; i++) {
+				orderedBuckets[i] = buckets[i];
+			}
+			for (int i = 1; i < orderedBuckets.length; i++) {
+				final Bucket b = orderedBuckets[i];
+				int j = i - 1;
+				for (; j >= 0 && orderedBuckets[j].priority > b.priority; j--) {
+					orderedBuckets[j + 1] = orderedBuckets[j];
+				}
+				orderedBuckets[j + 1] = b;
+			}
+		}
+		return this;
+	}
+
+	public int getPriority(GameProcessType pt) {
+		return pt == null ? buckets[GameProcessType.Other.ordinal()].priority : buckets[pt.ordinal()].priority;
+	}
+
 	@Override
 	public void addProcess(GameProcess realtimeProcess) {
-		synchronized (this.processes) {
-			this.processes.add(realtimeProcess);
+		if (realtimeProcess == null) {
+			return;
+		}
+		synchronized (lock) {
+			if (pendingAddCount == pendingAdds.length) {
+				pendingAdds = grow(pendingAdds);
+			}
+			pendingAdds[pendingAddCount++] = realtimeProcess;
+			pending = true;
 		}
 	}
 
+	private static GameProcess[] grow(GameProcess[] items) {
+		GameProcess[] newItems = new GameProcess[items.length << 1];
+		System.arraycopy(items, 0, newItems, 0, items.length);
+		return newItems;
+	}
+
+	private static boolean contains(GameProcess[] items, int size, GameProcess process) {
+		for (int i = 0; i < size; i++) {
+			if (items[i] == process) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	@Override
 	public boolean containsProcess(GameProcess realtimeProcess) {
-		synchronized (this.processes) {
-			return this.processes.contains(realtimeProcess);
+		if (realtimeProcess == null) {
+			return false;
+		}
+		synchronized (lock) {
+			if (contains(pendingAdds, pendingAddCount, realtimeProcess)) {
+				return true;
+			}
+			if (contains(pendingRemoves, pendingRemoveCount, realtimeProcess)) {
+				return false;
+			}
+			return bucket(realtimeProcess).contains(realtimeProcess)
+					|| containsActive(realtimeProcess);
 		}
 	}
 
-	@Override
-	public void tick(LTimerContext time) {
-		if (processes.size > 0) {
-			final SortedList<GameProcess> toBeUpdated;
-			synchronized (this.processes) {
-				toBeUpdated = new SortedList<GameProcess>(this.processes);
-			}
-			final SortedList<GameProcess> deadProcesses = new SortedList<GameProcess>();
-			try {
-				for (LIterator<GameProcess> it = toBeUpdated.listIterator(); it.hasNext();) {
-					GameProcess realtimeProcess = it.next();
-					if (realtimeProcess != null) {
-						synchronized (realtimeProcess) {
-							realtimeProcess.tick(time);
-							if (realtimeProcess.isDead()) {
-								deadProcesses.add(realtimeProcess);
-							}
+	/**
+	 * 进程类型在加入后被修改时,需要检查全部的桶
+	 */
+	private boolean containsActive(GameProcess process) {
+		for (int i = 0; i < buckets.length; i++) {
+			if (buckets[i].contains(process)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 在帧的边界统一处理待加入与待删除的进程
+	 */
+	private void applyPending() {
+		synchronized (lock) {
+			for (int i = 0; i < pendingRemoveCount; i++) {
+				final GameProcess process = pendingRemoves[i];
+				if (bucket(process).remove(process)) {
+					processCount--;
+				} else {
+					for (int j = 0; j < buckets.length; j++) {
+						if (buckets[j].remove(process)) {
+							processCount--;
+							break;
 						}
 					}
 				}
-				if (deadProcesses.size > 0) {
-					for (LIterator<GameProcess> it = deadProcesses.listIterator(); it.hasNext();) {
-						GameProcess realtimeProcess = it.next();
-						if (realtimeProcess != null) {
-							synchronized (realtimeProcess) {
-								realtimeProcess.finish();
-							}
+				pendingRemoves[i] = null;
+			}
+			pendingRemoveCount = 0;
+			for (int i = 0; i < pendingAddCount; i++) {
+				final GameProcess process = pendingAdds[i];
+				bucket(process).add(process);
+				processCount++;
+				pendingAdds[i] = null;
+			}
+			pendingAddCount = 0;
+			pending = false;
+		}
+	}
+
+	/**
+	 * 把已经生效的进程登记为待删除,或直接从待加入队列中移除
+	 */
+	private void queueRemove(GameProcess process) {
+		for (int i = 0; i < pendingAddCount; i++) {
+			if (pendingAdds[i] == process) {
+				System.arraycopy(pendingAdds, i + 1, pendingAdds, i, pendingAddCount - i - 1);
+				pendingAdds[--pendingAddCount] = null;
+				return;
+			}
+		}
+		if (!contains(pendingRemoves, pendingRemoveCount, process)) {
+			if (pendingRemoveCount == pendingRemoves.length) {
+				pendingRemoves = grow(pendingRemoves);
+			}
+			pendingRemoves[pendingRemoveCount++] = process;
+			pending = true;
+		}
+	}
+
+	@Override
+	public void tick(LTimerContext time) {
+		if (pending) {
+			applyPending();
+		}
+		if (processCount == 0 || ticking) {
+			return;
+		}
+		ticking = true;
+		int deadCount = 0;
+		try {
+			final Bucket[] ordered = orderedBuckets;
+			for (int b = 0; b < ordered.length; b++) {
+				final Bucket bucket = ordered[b];
+				final GameProcess[] items = bucket.items;
+				final boolean[] dead = bucket.dead;
+				final int size = bucket.size;
+				for (int i = 0; i < size; i++) {
+					final GameProcess realtimeProcess = items[i];
+					realtimeProcess.tick(time);
+					if (realtimeProcess.isDead()) {
+						dead[i] = true;
+						bucket.deadCount++;
+						if (deadCount == deadProcesses.length) {
+							deadProcesses = grow(deadProcesses);
 						}
-					}
-					synchronized (this.processes) {
-						this.processes.removeAll(deadProcesses);
+						deadProcesses[deadCount++] = realtimeProcess;
 					}
 				}
-			} catch (Throwable cause) {
-				LSystem.error("Process dispatch failure", cause);
 			}
+			for (int i = 0; i < deadCount; i++) {
+				deadProcesses[i].finish();
+			}
+		} catch (Throwable cause) {
+			LSystem.error("Process dispatch failure", cause);
+		} finally {
+			if (deadCount > 0) {
+				removeDead();
+				for (int i = 0; i < deadCount; i++) {
+					deadProcesses[i] = null;
+				}
+			}
+			ticking = false;
 		}
 	}
 
-	public TArray<GameProcess> find(String id) {
-		TArray<GameProcess> list = new TArray<GameProcess>();
-		if (processes != null && processes.size > 0) {
-			synchronized (this.processes) {
-				for (LIterator<GameProcess> it = processes.listIterator(); it.hasNext();) {
-					GameProcess p = it.next();
-					if (p != null && (p.getId() == id || p.getId().equals(id))) {
+	/**
+	 * 删除本帧检查到已经结束的进程(保持其余进程的顺序)
+	 */
+	private void removeDead() {
+		synchronized (lock) {
+			for (int b = 0; b < buckets.length; b++) {
+				processCount -= buckets[b].removeDead();
+			}
+		}
+	}
+
+	/**
+	 * 返回当前全部进程(包括尚未生效的待加入进程)
+	 *
+	 * @return
+	 */
+	public TArray<GameProcess> getProcesses() {
+		TArray<GameProcess> list = new TArray<GameProcess>(size());
+		synchronized (lock) {
+			for (int b = 0; b < orderedBuckets.length; b++) {
+				final Bucket bucket = orderedBuckets[b];
+				for (int i = 0; i < bucket.size; i++) {
+					final GameProcess p = bucket.items[i];
+					if (!contains(pendingRemoves, pendingRemoveCount, p)) {
 						list.add(p);
 					}
 				}
 			}
+			for (int i = 0; i < pendingAddCount; i++) {
+				list.add(pendingAdds[i]);
+			}
+		}
+		return list;
+	}
+
+	private static boolean equalsId(GameProcess p, String id) {
+		return p.getId() == id || (p.getId() != null && p.getId().equals(id));
+	}
+
+	public TArray<GameProcess> find(String id) {
+		TArray<GameProcess> list = new TArray<GameProcess>();
+		TArray<GameProcess> ps = getProcesses();
+		for (int i = 0; i < ps.size; i++) {
+			GameProcess p = ps.get(i);
+			if (p != null && equalsId(p, id)) {
+				list.add(p);
+			}
 		}
 		return list;
 	}
 
 	public TArray<GameProcess> find(GameProcessType pt) {
 		TArray<GameProcess> list = new TArray<GameProcess>();
-		if (processes != null && processes.size > 0) {
-			synchronized (this.processes) {
-				for (LIterator<GameProcess> it = processes.listIterator(); it.hasNext();) {
-					GameProcess p = it.next();
-					if (p != null && p.getProcessType() == pt) {
-						list.add(p);
-					}
-				}
+		TArray<GameProcess> ps = getProcesses();
+		for (int i = 0; i < ps.size; i++) {
+			GameProcess p = ps.get(i);
+			if (p != null && p.getProcessType() == pt) {
+				list.add(p);
 			}
 		}
 		return list;
@@ -146,17 +437,15 @@ public class RealtimeProcessManager implements RealtimeProcessEvent, IArray, LRe
 		if (pt == null) {
 			return list;
 		}
-		if (processes != null && processes.size > 0) {
-			synchronized (this.processes) {
-				final TArray<GameProcess> ps = new TArray<GameProcess>(processes);
-				for (int i = 0; i < ps.size; i++) {
-					GameProcess p = ps.get(i);
-					if (p != null) {
-						if (p.getProcessType() == pt) {
-							p.kill();
-							processes.remove(p);
-							list.add(p);
-						}
+		synchronized (lock) {
+			final TArray<GameProcess> ps = getProcesses();
+			for (int i = 0; i < ps.size; i++) {
+				GameProcess p = ps.get(i);
+				if (p != null) {
+					if (p.getProcessType() == pt) {
+						p.kill();
+						queueRemove(p);
+						list.add(p);
 					}
 				}
 			}
@@ -169,17 +458,15 @@ public class RealtimeProcessManager implements RealtimeProcessEvent, IArray, LRe
 		if (process == null) {
 			return list;
 		}
-		if (processes != null && processes.size > 0) {
-			synchronized (this.processes) {
-				final TArray<GameProcess> ps = new TArray<GameProcess>(processes);
-				for (int i = 0; i < ps.size; i++) {
-					GameProcess p = ps.get(i);
-					if (p != null) {
-						if (process == p || process.getId() == p.getId() || process.getId().equals(p.getId())) {
-							p.kill();
-							processes.remove(p);
-							list.add(p);
-						}
+		synchronized (lock) {
+			final TArray<GameProcess> ps = getProcesses();
+			for (int i = 0; i < ps.size; i++) {
+				GameProcess p = ps.get(i);
+				if (p != null) {
+					if (process == p || equalsId(p, process.getId())) {
+						p.kill();
+						queueRemove(p);
+						list.add(p);
 					}
 				}
 			}
@@ -189,17 +476,15 @@ public class RealtimeProcessManager implements RealtimeProcessEvent, IArray, LRe
 	
 	public TArray<GameProcess> delete(String id) {
 		TArray<GameProcess> list = new TArray<GameProcess>();
-		if (processes != null && processes.size > 0) {
-			synchronized (this.processes) {
-				final TArray<GameProcess> ps = new TArray<GameProcess>(processes);
-				for (int i = 0; i < ps.size; i++) {
-					GameProcess p = ps.get(i);
-					if (p != null) {
-						if (p.getId() == id || p.getId().equals(id)) {
-							p.kill();
-							processes.remove(p);
-							list.add(p);
-						}
+		synchronized (lock) {
+			final TArray<GameProcess> ps = getProcesses();
+			for (int i = 0; i < ps.size; i++) {
+				GameProcess p = ps.get(i);
+				if (p != null) {
+					if (equalsId(p, id)) {
+						p.kill();
+						queueRemove(p);
+						list.add(p);
 					}
 				}
 			}
@@ -209,17 +494,15 @@ public class RealtimeProcessManager implements RealtimeProcessEvent, IArray, LRe
 
 	public TArray<GameProcess> deleteIndex(String id) {
 		TArray<GameProcess> list = new TArray<GameProcess>();
-		if (processes != null && processes.size > 0) {
-			synchronized (this.processes) {
-				final TArray<GameProcess> ps = new TArray<GameProcess>(processes);
-				for (int i = 0; i < ps.size; i++) {
-					GameProcess p = ps.get(i);
-					if (p != null) {
-						if (p.getId() == id || p.getId().indexOf(id) != -1) {
-							p.kill();
-							processes.remove(p);
-							list.add(p);
-						}
+		synchronized (lock) {
+			final TArray<GameProcess> ps = getProcesses();
+			for (int i = 0; i < ps.size; i++) {
+				GameProcess p = ps.get(i);
+				if (p != null) {
+					if (p.getId() == id || p.getId().indexOf(id) != -1) {
+						p.kill();
+						queueRemove(p);
+						list.add(p);
 					}
 				}
 			}
@@ -229,17 +512,33 @@ public class RealtimeProcessManager implements RealtimeProcessEvent, IArray, LRe
 
 	@Override
 	public int size() {
-		return processes.size;
+		synchronized (lock) {
+			return processCount + pendingAddCount - pendingRemoveCount;
+		}
 	}
 
 	@Override
 	public void clear() {
-		processes.clear();
+		synchronized (lock) {
+			for (int i = 0; i < buckets.length; i++) {
+				buckets[i].clear();
+			}
+			for (int i = 0; i < pendingAddCount; i++) {
+				pendingAdds[i] = null;
+			}
+			for (int i = 0; i < pendingRemoveCount; i++) {
+				pendingRemoves[i] = null;
+			}
+			pendingAddCount = 0;
+			pendingRemoveCount = 0;
+			processCount = 0;
+			pending = false;
+		}
 	}
 
 	@Override
 	public boolean isEmpty() {
-		return processes.size == 0;
+		return size() == 0;
 	}
 
 	public void dispose() {
@@ -248,20 +547,14 @@ public class RealtimeProcessManager implements RealtimeProcessEvent, IArray, LRe
 
 	@Override
 	public void close() {
-		if (processes != null && processes.size > 0) {
-			synchronized (this.processes) {
-				final TArray<GameProcess> ps = new TArray<GameProcess>(processes);
-				for (int i = 0; i < ps.size; i++) {
-					GameProcess p = ps.get(i);
-					if (p != null) {
-						synchronized (p) {
-							p.finish();
-						}
-					}
-				}
-				processes.clear();
+		final TArray<GameProcess> ps = getProcesses();
+		for (int i = 0; i < ps.size; i++) {
+			GameProcess p = ps.get(i);
+			if (p != null) {
+				p.finish();
 			}
 		}
+		clear();
 	}
 
-}
\ No newline at end of file
+}
@@ -1,6 +1,9 @@
 package loon.build;
 
+import java.io.File;
+
 import loon.build.project.java.JavaBuild;
+import loon.build.tools.TMXCompiler;
 
 public class Main {
 
@@ -10,6 +13,10 @@ public class Main {
 			if ("javase".equals(mode)) {
 				JavaBuild.load(new String[] { args[1],
 						"clean" });
+			} else if ("tmx".equals(mode)) {
+				// tmx <input.tmx> <output.ltmx> [chunkSize]
+				int chunkSize = args.length > 3 ? Integer.parseInt(args[3].trim()) : TMXCompiler.DEFAULT_CHUNK_SIZE;
+				TMXCompiler.compile(new File(args[1]), new File(args[2]), chunkSize, chunkSize);
 			}
 		}
 	//	JavaBuild.load(new String[] { "F:/ttes/build-test.txt","clean" });
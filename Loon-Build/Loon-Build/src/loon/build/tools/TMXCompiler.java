@@ -0,0 +1,313 @@
+package loon.build.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import loon.build.sys.Log;
+
+/**
+ * 将TMX地图离线编译为二进制分块格式(.ltmx),运行时由loon.action.map.tmx.TMXChunkData读取.
+ * 
+ * 图层格子数据按分块保存为未压缩的大端序int,便于运行时映射文件后随机读取,全空的分块不写入,内容相同的分块只写入一次.
+ * 除格子数据外的地图信息(图块集,对象层,属性等)以去除了格子数据的TMX文本保存.
+ */
+public class TMXCompiler {
+
+	public static final int MAGIC = ('L' << 24) | ('T' << 16) | ('M' << 8) | 'C';
+
+	public static final int VERSION = 1;
+
+	public static final int DEFAULT_CHUNK_SIZE = 16;
+
+	private static final int HEADER_SIZE = 32;
+
+	private static class ChunkKey {
+
+		final int[] tiles;
+
+		final int hash;
+
+		ChunkKey(int[] tiles) {
+			this.tiles = tiles;
+			this.hash = Arrays.hashCode(tiles);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return (o instanceof ChunkKey) && Arrays.equals(tiles, ((ChunkKey) o).tiles);
+		}
+	}
+
+	private int chunks;
+
+	private int emptyChunks;
+
+	private int uniqueChunks;
+
+	private long outputSize;
+
+	public static TMXCompiler compile(File src, File dst) throws Exception {
+		return compile(src, dst, DEFAULT_CHUNK_SIZE, DEFAULT_CHUNK_SIZE);
+	}
+
+	public static TMXCompiler compile(File src, File dst, int chunkWidth, int chunkHeight) throws Exception {
+		TMXCompiler compiler = new TMXCompiler();
+		compiler.run(src, dst, chunkWidth, chunkHeight);
+		Log.log("[TMX]" + src.getPath() + " -> " + dst.getPath() + " : " + compiler);
+		return compiler;
+	}
+
+	private void run(File src, File dst, int chunkWidth, int chunkHeight) throws Exception {
+		if (chunkWidth <= 0 || chunkHeight <= 0) {
+			throw new IllegalArgumentException("Chunk size must be greater than 0");
+		}
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(false);
+		Document doc = factory.newDocumentBuilder().parse(src);
+		Element root = doc.getDocumentElement();
+		if (!"map".equals(root.getNodeName())) {
+			throw new IOException("Invalid TMX map file. The first child must be a <map> element.");
+		}
+		if ("1".equals(root.getAttribute("infinite"))) {
+			throw new IOException("Infinite TMX maps are not supported");
+		}
+		final int width = intAttribute(root, "width", 0);
+		final int height = intAttribute(root, "height", 0);
+
+		List<int[]> layers = new ArrayList<int[]>();
+		NodeList nodes = root.getChildNodes();
+		for (int i = 0; i < nodes.getLength(); i++) {
+			Node node = nodes.item(i);
+			if (node.getNodeType() != Node.ELEMENT_NODE || !"layer".equals(node.getNodeName())) {
+				continue;
+			}
+			Element layer = (Element) node;
+			if (intAttribute(layer, "width", width) != width || intAttribute(layer, "height", height) != height) {
+				throw new IOException("Layer " + layer.getAttribute("name") + " size differs from the map size");
+			}
+			Element data = child(layer, "data");
+			if (data == null) {
+				layers.add(new int[width * height]);
+				continue;
+			}
+			layers.add(decode(data, width * height));
+			// 去除格子数据,其余内容原样保留
+			while (data.getFirstChild() != null) {
+				data.removeChild(data.getFirstChild());
+			}
+			data.removeAttribute("encoding");
+			data.removeAttribute("compression");
+		}
+
+		byte[] skeleton = toBytes(doc);
+
+		final int chunkCols = (width + chunkWidth - 1) / chunkWidth;
+		final int chunkRows = (height + chunkHeight - 1) / chunkHeight;
+		final int chunkBytes = chunkWidth * chunkHeight * 4;
+		final int payloadStart = HEADER_SIZE + skeleton.length + layers.size() * chunkCols * chunkRows * 4;
+
+		int[] table = new int[layers.size() * chunkCols * chunkRows];
+		List<int[]> payload = new ArrayList<int[]>();
+		Map<ChunkKey, Integer> offsets = new HashMap<ChunkKey, Integer>();
+		int index = 0;
+		for (int[] gids : layers) {
+			for (int cy = 0; cy < chunkRows; cy++) {
+				for (int cx = 0; cx < chunkCols; cx++) {
+					int[] tiles = new int[chunkWidth * chunkHeight];
+					boolean empty = true;
+					for (int y = 0; y < chunkHeight; y++) {
+						final int ty = cy * chunkHeight + y;
+						if (ty >= height) {
+							break;
+						}
+						for (int x = 0; x < chunkWidth; x++) {
+							final int tx = cx * chunkWidth + x;
+							if (tx >= width) {
+								break;
+							}
+							final int gid = gids[ty * width + tx];
+							tiles[y * chunkWidth + x] = gid;
+							empty &= (gid == 0);
+						}
+					}
+					chunks++;
+					if (empty) {
+						table[index++] = -1;
+						emptyChunks++;
+						continue;
+					}
+					ChunkKey key = new ChunkKey(tiles);
+					Integer offset = offsets.get(key);
+					if (offset == null) {
+						long pos = payloadStart + (long) payload.size() * chunkBytes;
+						if (pos + chunkBytes > Integer.MAX_VALUE) {
+							throw new IOException("Compiled map exceeds 2GB");
+						}
+						offset = (int) pos;
+						offsets.put(key, offset);
+						payload.add(tiles);
+					}
+					table[index++] = offset;
+				}
+			}
+		}
+		uniqueChunks = payload.size();
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dst)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(width);
+			out.writeInt(height);
+			out.writeInt(chunkWidth);
+			out.writeInt(chunkHeight);
+			out.writeInt(layers.size());
+			out.writeInt(skeleton.length);
+			out.write(skeleton);
+			for (int offset : table) {
+				out.writeInt(offset);
+			}
+			for (int[] tiles : payload) {
+				for (int gid : tiles) {
+					out.writeInt(gid);
+				}
+			}
+		} finally {
+			out.close();
+		}
+		outputSize = dst.length();
+	}
+
+	private static int[] decode(Element data, int size) throws IOException {
+		final String encoding = data.getAttribute("encoding").trim().toLowerCase();
+		final String compression = data.getAttribute("compression").trim().toLowerCase();
+		int[] gids = new int[size];
+		if (encoding.length() == 0) {
+			int count = 0;
+			NodeList tiles = data.getElementsByTagName("tile");
+			for (int i = 0; i < tiles.getLength() && count < size; i++) {
+				String gid = ((Element) tiles.item(i)).getAttribute("gid");
+				gids[count++] = gid.length() == 0 ? 0 : (int) Long.parseLong(gid.trim());
+			}
+		} else if ("csv".equals(encoding)) {
+			String[] tokens = data.getTextContent().split(",");
+			for (int i = 0; i < tokens.length && i < size; i++) {
+				String token = tokens[i].trim();
+				gids[i] = token.length() == 0 ? 0 : (int) Long.parseLong(token);
+			}
+		} else if ("base64".equals(encoding)) {
+			byte[] bytes = Base64.getMimeDecoder().decode(data.getTextContent().trim());
+			InputStream in;
+			if (compression.length() == 0) {
+				in = new ByteArrayInputStream(bytes);
+			} else if ("gzip".equals(compression)) {
+				in = new GZIPInputStream(new ByteArrayInputStream(bytes));
+			} else if ("zlib".equals(compression)) {
+				in = new InflaterInputStream(new ByteArrayInputStream(bytes));
+			} else {
+				throw new IOException("Unsupported TMX compression " + compression);
+			}
+			try {
+				byte[] temp = new byte[4];
+				for (int i = 0; i < size; i++) {
+					int read = 0;
+					while (read < 4) {
+						int curr = in.read(temp, read, 4 - read);
+						if (curr == -1) {
+							throw new IOException("Error Reading TMX Layer Data: Premature end of tile data");
+						}
+						read += curr;
+					}
+					gids[i] = (temp[0] & 0xFF) | (temp[1] & 0xFF) << 8 | (temp[2] & 0xFF) << 16
+							| (temp[3] & 0xFF) << 24;
+				}
+			} finally {
+				in.close();
+			}
+		} else {
+			throw new IOException("Unsupported TMX encoding " + encoding);
+		}
+		return gids;
+	}
+
+	private static byte[] toBytes(Document doc) throws Exception {
+		Transformer transformer = TransformerFactory.newInstance().newTransformer();
+		transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+		transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		transformer.transform(new DOMSource(doc), new StreamResult(out));
+		return out.toByteArray();
+	}
+
+	private static Element child(Element parent, String name) {
+		NodeList nodes = parent.getChildNodes();
+		for (int i = 0; i < nodes.getLength(); i++) {
+			Node node = nodes.item(i);
+			if (node.getNodeType() == Node.ELEMENT_NODE && name.equals(node.getNodeName())) {
+				return (Element) node;
+			}
+		}
+		return null;
+	}
+
+	private static int intAttribute(Element element, String name, int def) {
+		String value = element.getAttribute(name);
+		if (value == null || value.trim().length() == 0) {
+			return def;
+		}
+		return Integer.parseInt(value.trim());
+	}
+
+	public int getChunks() {
+		return chunks;
+	}
+
+	public int getEmptyChunks() {
+		return emptyChunks;
+	}
+
+	public int getUniqueChunks() {
+		return uniqueChunks;
+	}
+
+	public long getOutputSize() {
+		return outputSize;
+	}
+
+	@Override
+	public String toString() {
+		return "chunks=" + chunks + ", empty=" + emptyChunks + ", unique=" + uniqueChunks + ", bytes=" + outputSize;
+	}
+
+}